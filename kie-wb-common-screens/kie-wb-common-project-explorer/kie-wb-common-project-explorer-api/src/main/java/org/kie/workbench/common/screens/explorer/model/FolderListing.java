@@ -30,6 +30,8 @@ public class FolderListing {
     private FolderItem item;
     private List<FolderItem> content;
     private List<FolderItem> segments;
+    private int totalCount;
+    private boolean hasMore;
 
     public FolderListing() {
         //For Errai-marshalling
@@ -41,6 +43,28 @@ public class FolderListing {
         this.item = item;
         this.content = checkNotNull( "content", content );
         this.segments = checkNotNull( "segments", segments );
+        this.totalCount = content.size();
+        this.hasMore = false;
+    }
+
+    /**
+     * A page of a folder's content
+     * @param item The folder
+     * @param content The page of content
+     * @param segments The folder's path segments
+     * @param totalCount The number of items in the folder's content
+     * @param hasMore Whether the folder has content following the page
+     */
+    public FolderListing( final FolderItem item,
+                          final List<FolderItem> content,
+                          final List<FolderItem> segments,
+                          final int totalCount,
+                          final boolean hasMore ) {
+        this.item = item;
+        this.content = checkNotNull( "content", content );
+        this.segments = checkNotNull( "segments", segments );
+        this.totalCount = totalCount;
+        this.hasMore = hasMore;
     }
 
     public FolderItem getItem() {
@@ -55,6 +79,18 @@ public class FolderListing {
         return segments;
     }
 
+    public int getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * Whether the folder has content following this listing's content, to be requested after its last item
+     * @return
+     */
+    public boolean hasMore() {
+        return hasMore;
+    }
+
     @Override
     public boolean equals( Object o ) {
         if ( this == o ) {
@@ -75,6 +111,12 @@ public class FolderListing {
         if ( segments != null ? !segments.equals( that.segments ) : that.segments != null ) {
             return false;
         }
+        if ( totalCount != that.totalCount ) {
+            return false;
+        }
+        if ( hasMore != that.hasMore ) {
+            return false;
+        }
 
         return true;
     }
@@ -84,6 +126,8 @@ public class FolderListing {
         int result = item != null ? item.hashCode() : 0;
         result = 31 * result + ( content != null ? content.hashCode() : 0 );
         result = 31 * result + ( segments != null ? segments.hashCode() : 0 );
+        result = 31 * result + totalCount;
+        result = 31 * result + ( hasMore ? 1 : 0 );
         return result;
     }
 }
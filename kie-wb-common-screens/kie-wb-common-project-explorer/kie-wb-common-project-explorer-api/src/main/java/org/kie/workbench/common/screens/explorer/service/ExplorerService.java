@@ -46,6 +46,22 @@ public interface ExplorerService {
                                     final FolderItem item,
                                     final Set<Option> options );
 
+    /**
+     * Get a page of the content of a folder or Package. Content is in a stable order and a page starts after the last
+     * item of the previous page, so consecutive pages neither repeat nor skip items even if the folder is changed
+     * between requests; items added before the cursor are not returned.
+     * @param after The last item of the previous page, or null for the first page
+     * @param limit The maximum number of items to return
+     * @return
+     */
+    FolderListing getFolderListing( final OrganizationalUnit organizationalUnit,
+                                    final Repository repository,
+                                    final Project project,
+                                    final FolderItem item,
+                                    final Set<Option> options,
+                                    final FolderItem after,
+                                    final int limit );
+
     Package resolvePackage( final FolderItem item );
 
     Set<Option> getLastUserOptions();
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.workbench.common.screens.explorer.backend.server;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the named daemon Threads used by the explorer's background tasks. Daemon Threads never keep the JVM alive on shutdown;
+ * each Thread is named with the given name and a sequence number, so it can be identified in thread dumps.
+ */
+final class DaemonThreadFactory implements ThreadFactory {
+
+    private final String name;
+    private final int priority;
+    private final AtomicInteger threadNumber = new AtomicInteger( 1 );
+
+    /**
+     * @param name Name of the Threads, to which a sequence number is appended
+     */
+    DaemonThreadFactory( final String name ) {
+        this( name,
+              Thread.NORM_PRIORITY );
+    }
+
+    /**
+     * @param name Name of the Threads, to which a sequence number is appended
+     * @param priority Priority of the Threads
+     */
+    DaemonThreadFactory( final String name,
+                         final int priority ) {
+        this.name = name;
+        this.priority = priority;
+    }
+
+    @Override
+    public Thread newThread( final Runnable r ) {
+        final Thread thread = new Thread( r,
+                                          name + "-" + threadNumber.getAndIncrement() );
+        thread.setDaemon( true );
+        thread.setPriority( priority );
+        return thread;
+    }
+
+}
@@ -31,7 +31,6 @@ import javax.inject.Inject;
 import javax.inject.Named;
 
 import com.google.common.collect.Lists;
-import com.thoughtworks.xstream.XStream;
 import org.guvnor.common.services.backend.exceptions.ExceptionUtilities;
 import org.guvnor.common.services.backend.file.CopyHelper;
 import org.guvnor.common.services.backend.file.LinkedDotFileFilter;
@@ -55,7 +54,6 @@ import org.slf4j.LoggerFactory;
 import org.uberfire.backend.organizationalunit.OrganizationalUnit;
 import org.uberfire.backend.organizationalunit.OrganizationalUnitService;
 import org.uberfire.backend.repositories.Repository;
-import org.uberfire.backend.server.UserServicesBackendImpl;
 import org.uberfire.backend.server.UserServicesImpl;
 import org.uberfire.backend.server.util.Paths;
 import org.uberfire.backend.vfs.Path;
@@ -84,10 +82,6 @@ public class ExplorerServiceImpl
     @Named("ioStrategy")
     private IOService ioService;
 
-    @Inject
-    @Named("configIO")
-    private IOService ioServiceConfig;
-
     @Inject
     private ProjectService projectService;
 
@@ -113,7 +107,19 @@ public class ExplorerServiceImpl
     private UserServicesImpl userServices;
 
     @Inject
-    private UserServicesBackendImpl userServicesBackend;
+    private UserExplorerDataWriter userExplorerDataWriter;
+
+    @Inject
+    private UserExplorerDataCache userExplorerDataCache;
+
+    @Inject
+    private UserExplorerDataCleanup userExplorerDataCleanup;
+
+    @Inject
+    private ProjectTreeCache projectTreeCache;
+
+    @Inject
+    private FolderListingCache folderListingCache;
 
     @Inject
     private Instance<RenameHelper> renameHelpers;
@@ -121,8 +127,6 @@ public class ExplorerServiceImpl
     @Inject
     private Instance<CopyHelper> copyHelpers;
 
-    private XStream xs = new XStream();
-
     public ExplorerServiceImpl() {
         // Boilerplate sacrifice for Weld
     }
@@ -270,18 +274,9 @@ public class ExplorerServiceImpl
             _selectedPackage = null;
         }
 
-        new Thread() {
-            @Override
-            public void run() {
-                try {
-                    store( userNavPath, lastUserNavPath, _selectedOrganizationalUnit,
-                           _selectedRepository, _selectedProject,
-                           _selectedPackage, _selectedItem, options );
-                } catch ( final Exception e ) {
-                    LOGGER.error( "Can't serialize user's state navigation", e );
-                }
-            }
-        }.start();
+        userExplorerDataWriter.store( userNavPath, lastUserNavPath, _selectedOrganizationalUnit,
+                                      _selectedRepository, _selectedProject,
+                                      _selectedPackage, _selectedItem, options );
 
         return new ProjectExplorerContent(
                 new TreeSet<OrganizationalUnit>( Sorters.ORGANIZATIONAL_UNIT_SORTER ) {{
@@ -369,27 +364,23 @@ public class ExplorerServiceImpl
     }
 
     private UserExplorerData loadUserContent() {
-        final UserExplorerData userExplorerData = loadUserContent( userServices.buildPath( "explorer", "user.nav" ) );
-        if ( userExplorerData != null ) {
-            return userExplorerData;
-        }
-        return new UserExplorerData();
-    }
-
-    private UserExplorerData loadUserContent( final org.uberfire.java.nio.file.Path path ) {
-        try {
-            if ( ioServiceConfig.exists( path ) ) {
-                final String xml = ioServiceConfig.readAllString( path );
-                return (UserExplorerData) xs.fromXML( xml );
-            }
-        } catch ( final Exception e ) {
-        }
-        return null;
+        final org.uberfire.java.nio.file.Path userNavPath = userServices.buildPath( "explorer", "user.nav" );
+        //Cached state is shared so is copied before being modified
+        final UserExplorerData cachedUserExplorerData = userExplorerDataCache.getUserContent( userNavPath );
+        final UserExplorerData userExplorerData = cachedUserExplorerData == null ? new UserExplorerData() : new UserExplorerData( cachedUserExplorerData );
+        //Navigations not yet written are applied to the state last written
+        userExplorerDataWriter.applyPending( userNavPath,
+                                             userExplorerData );
+        return userExplorerData;
     }
 
     private UserExplorerLastData getLastContent() {
         try {
-            final UserExplorerLastData lastData = getLastContent( userServices.buildPath( "explorer", "last.user.nav" ) );
+            final UserExplorerLastData pendingLastData = userExplorerDataWriter.getPendingLastContent( userServices.buildPath( "explorer", "user.nav" ) );
+            if ( pendingLastData != null ) {
+                return pendingLastData;
+            }
+            final UserExplorerLastData lastData = userExplorerDataCache.getLastContent( userServices.buildPath( "explorer", "last.user.nav" ) );
             if ( lastData != null ) {
                 return lastData;
             }
@@ -398,61 +389,6 @@ public class ExplorerServiceImpl
         return new UserExplorerLastData();
     }
 
-    private UserExplorerLastData getLastContent( final org.uberfire.java.nio.file.Path path ) {
-        try {
-            if ( ioServiceConfig.exists( path ) ) {
-                final String xml = ioServiceConfig.readAllString( path );
-                return (UserExplorerLastData) xs.fromXML( xml );
-            }
-        } catch ( final Exception e ) {
-        }
-        return null;
-    }
-
-    private void store( final org.uberfire.java.nio.file.Path userNav,
-                        final org.uberfire.java.nio.file.Path lastUserNav,
-                        final OrganizationalUnit organizationalUnit,
-                        final Repository repository,
-                        final Project project,
-                        final Package pkg,
-                        final FolderItem item,
-                        final Set<Option> options ) {
-        final UserExplorerData content;
-        final UserExplorerData _content = loadUserContent( userNav );
-        if ( _content == null ) {
-            content = new UserExplorerData();
-        } else {
-            content = _content;
-        }
-        final UserExplorerLastData lastContent = new UserExplorerLastData();
-        if ( organizationalUnit != null ) {
-            content.setOrganizationalUnit( organizationalUnit );
-        }
-        if ( repository != null && organizationalUnit != null ) {
-            content.addRepository( organizationalUnit, repository );
-        }
-        if ( project != null && organizationalUnit != null && repository != null ) {
-            content.addProject( organizationalUnit, repository, project );
-        }
-        if ( item != null && organizationalUnit != null && repository != null && project != null ) {
-            lastContent.setFolderItem( organizationalUnit, repository, project, item );
-            content.addFolderItem( organizationalUnit, repository, project, item );
-        }
-        if ( pkg != null && organizationalUnit != null && repository != null && project != null ) {
-            lastContent.setPackage( organizationalUnit, repository, project, pkg );
-            content.addPackage( organizationalUnit, repository, project, pkg );
-        }
-        if ( options != null && !options.isEmpty() ) {
-            lastContent.setOptions( options );
-        }
-        if ( !content.isEmpty() ) {
-            ioServiceConfig.write( userNav,
-                                   xs.toXML( content ) );
-            ioServiceConfig.write( lastUserNav,
-                                   xs.toXML( lastContent ) );
-        }
-    }
-
     private FolderItem toFolderItem( final Package pkg ) {
         if ( pkg == null ) {
             return null;
@@ -493,29 +429,27 @@ public class ExplorerServiceImpl
         if ( repository == null ) {
             return authorizedProjects;
         }
-        final Path repositoryRoot = repository.getRoot();
-        final DirectoryStream<org.uberfire.java.nio.file.Path> nioRepositoryPaths = ioService.newDirectoryStream( Paths.convert( repositoryRoot ) );
-        for ( org.uberfire.java.nio.file.Path nioRepositoryPath : nioRepositoryPaths ) {
-            if ( Files.isDirectory( nioRepositoryPath ) ) {
-                final org.uberfire.backend.vfs.Path projectPath = Paths.convert( nioRepositoryPath );
-                final Project project = projectService.resolveProject( projectPath );
-                if ( project != null ) {
-                    if ( authorizationManager.authorize( project,
-                                                         identity ) ) {
-                        authorizedProjects.add( project );
-                    }
-                }
+        for ( Project project : projectTreeCache.getProjects( repository ) ) {
+            if ( authorizationManager.authorize( project,
+                                                 identity ) ) {
+                authorizedProjects.add( project );
             }
         }
         return authorizedProjects;
     }
 
     private List<FolderItem> getItems( final Package pkg ) {
-        final List<FolderItem> folderItems = new ArrayList<FolderItem>();
         if ( pkg == null ) {
             return emptyList();
         }
+        final String key = "package:" + pkg.getPackageMainSrcPath().toURI();
+        final List<FolderItem> cachedItems = folderListingCache.getItems( key );
+        if ( cachedItems != null ) {
+            return cachedItems;
+        }
+        final long changeCount = folderListingCache.getChangeCount();
 
+        final List<FolderItem> folderItems = new ArrayList<FolderItem>();
         final Set<Package> childPackages = projectService.resolvePackages( pkg );
         for ( final Package childPackage : childPackages ) {
             folderItems.add( toFolderItem( childPackage ) );
@@ -526,9 +460,15 @@ public class ExplorerServiceImpl
         folderItems.addAll( getItems( pkg.getPackageMainResourcesPath() ) );
         folderItems.addAll( getItems( pkg.getPackageTestResourcesPath() ) );
 
-        Collections.sort( folderItems, Sorters.ITEM_SORTER );
+        Collections.sort( folderItems, FolderListingCache.ITEM_ORDER );
 
-        return folderItems;
+        return folderListingCache.setItems( key,
+                                            folderItems,
+                                            Arrays.asList( pkg.getPackageMainSrcPath(),
+                                                           pkg.getPackageTestSrcPath(),
+                                                           pkg.getPackageMainResourcesPath(),
+                                                           pkg.getPackageTestResourcesPath() ),
+                                            changeCount );
     }
 
     private List<FolderItem> getItems( final Path packagePath ) {
@@ -564,26 +504,55 @@ public class ExplorerServiceImpl
             final org.uberfire.java.nio.file.Path userNavPath = userServices.buildPath( "explorer", "user.nav" );
             final org.uberfire.java.nio.file.Path lastUserNavPath = userServices.buildPath( "explorer", "last.user.nav" );
 
-            new Thread() {
-                @Override
-                public void run() {
-                    try {
-                        Package pkg = null;
-                        if ( item.getItem() instanceof Package ) {
-                            pkg = (Package) item.getItem();
-                        }
-                        store( userNavPath, lastUserNavPath, organizationalUnit,
-                               repository, project, pkg, item, options );
-                    } catch ( final Exception e ) {
-                        LOGGER.error( "Can't serialize user's state navigation", e );
-                    }
-                }
-            }.start();
+            Package pkg = null;
+            if ( item.getItem() instanceof Package ) {
+                pkg = (Package) item.getItem();
+            }
+            userExplorerDataWriter.store( userNavPath, lastUserNavPath, organizationalUnit,
+                                          repository, project, pkg, item, options );
         }
 
         return result;
     }
 
+    @Override
+    public FolderListing getFolderListing( final OrganizationalUnit organizationalUnit,
+                                           final Repository repository,
+                                           final Project project,
+                                           final FolderItem item,
+                                           final Set<Option> options,
+                                           final FolderItem after,
+                                           final int limit ) {
+        //Navigation state is recorded when the first page is requested
+        final FolderListing listing;
+        if ( after == null ) {
+            listing = getFolderListing( organizationalUnit,
+                                        repository,
+                                        project,
+                                        item,
+                                        options );
+        } else {
+            listing = getFolderListing( item );
+        }
+        if ( listing == null ) {
+            return null;
+        }
+
+        //Content is the cached list, so the page is its only copy
+        final List<FolderItem> content = listing.getContent();
+        final int fromIndex = FolderListingCache.getPageStart( content,
+                                                               after );
+        final int toIndex = Math.min( fromIndex + Math.max( limit,
+                                                            0 ),
+                                      content.size() );
+        return new FolderListing( listing.getItem(),
+                                  new ArrayList<FolderItem>( content.subList( fromIndex,
+                                                                              toIndex ) ),
+                                  listing.getSegments(),
+                                  content.size(),
+                                  toIndex < content.size() );
+    }
+
     private FolderListing getFolderListing( final FolderItem item ) {
 
         FolderListing result = null;
@@ -597,15 +566,30 @@ public class ExplorerServiceImpl
     }
 
     private FolderListing getFolderListing( final Path path ) {
-        //Get list of files and folders contained in the path
-        final List<FolderItem> folderItems = new ArrayList<FolderItem>();
-
         //Scan upwards until the path exists (as the current path could have been deleted)
         org.uberfire.java.nio.file.Path nioPath = Paths.convert( path );
         while ( !Files.exists( nioPath ) ) {
             nioPath = nioPath.getParent();
         }
         final Path basePath = Paths.convert( nioPath );
+
+        return new FolderListing( toFolderItem( nioPath ),
+                                  getItems( nioPath,
+                                            basePath ),
+                                  getPathSegments( basePath ) );
+    }
+
+    //Get list of files and folders contained in the path
+    private List<FolderItem> getItems( final org.uberfire.java.nio.file.Path nioPath,
+                                       final Path basePath ) {
+        final String key = "path:" + basePath.toURI();
+        final List<FolderItem> cachedItems = folderListingCache.getItems( key );
+        if ( cachedItems != null ) {
+            return cachedItems;
+        }
+        final long changeCount = folderListingCache.getChangeCount();
+
+        final List<FolderItem> folderItems = new ArrayList<FolderItem>();
         final DirectoryStream<org.uberfire.java.nio.file.Path> nioPaths = ioService.newDirectoryStream( nioPath,
                                                                                                         dotFileFilter );
         for ( org.uberfire.java.nio.file.Path np : nioPaths ) {
@@ -624,11 +608,12 @@ public class ExplorerServiceImpl
             }
         }
 
-        Collections.sort( folderItems, Sorters.ITEM_SORTER );
+        Collections.sort( folderItems, FolderListingCache.ITEM_ORDER );
 
-        return new FolderListing( toFolderItem( nioPath ),
-                                  folderItems,
-                                  getPathSegments( basePath ) );
+        return folderListingCache.setItems( key,
+                                            folderItems,
+                                            Collections.singletonList( basePath ),
+                                            changeCount );
     }
 
     private FolderListing getFolderListing( final Package pkg ) {
@@ -855,35 +840,11 @@ public class ExplorerServiceImpl
     }
 
     void onProjectRename( @Observes final RenameProjectEvent event ) {
-        cleanup( event.getOldProject() );
+        userExplorerDataCleanup.cleanup( event.getOldProject() );
     }
 
     void onProjectDelete( @Observes final DeleteProjectEvent event ) {
-        cleanup( event.getProject() );
-    }
-
-    private void cleanup( final Project project ) {
-        final Collection<org.uberfire.java.nio.file.Path> lastNavs = userServicesBackend.getAllUsersData( "explorer", "last.user.nav" );
-        final Collection<org.uberfire.java.nio.file.Path> userNavs = userServicesBackend.getAllUsersData( "explorer", "user.nav" );
-
-        for ( org.uberfire.java.nio.file.Path path : userNavs ) {
-            final UserExplorerData userContent = loadUserContent( path );
-            if ( userContent != null ) {
-                if ( userContent.deleteProject( project ) ) {
-                    ioServiceConfig.write( path, xs.toXML( userContent ) );
-                }
-            }
-        }
-
-        for ( org.uberfire.java.nio.file.Path lastNav : lastNavs ) {
-            final UserExplorerLastData lastUserContent = getLastContent( lastNav );
-            if ( lastUserContent != null ) {
-                if ( lastUserContent.deleteProject( project ) ) {
-                    ioServiceConfig.write( lastNav, xs.toXML( lastUserContent ) );
-                }
-            }
-
-        }
+        userExplorerDataCleanup.cleanup( event.getProject() );
     }
 
 }
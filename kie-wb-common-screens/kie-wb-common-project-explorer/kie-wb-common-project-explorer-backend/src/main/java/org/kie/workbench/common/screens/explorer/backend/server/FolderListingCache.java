@@ -0,0 +1,260 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.workbench.common.screens.explorer.backend.server;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+
+import org.guvnor.common.services.project.events.DeleteProjectEvent;
+import org.guvnor.common.services.project.events.NewPackageEvent;
+import org.guvnor.common.services.project.events.RenameProjectEvent;
+import org.guvnor.common.services.project.model.Package;
+import org.kie.workbench.common.screens.explorer.model.FolderItem;
+import org.kie.workbench.common.screens.explorer.utils.Sorters;
+import org.uberfire.backend.vfs.Path;
+import org.uberfire.workbench.events.ResourceAddedEvent;
+import org.uberfire.workbench.events.ResourceBatchChangesEvent;
+import org.uberfire.workbench.events.ResourceCopiedEvent;
+import org.uberfire.workbench.events.ResourceDeletedEvent;
+import org.uberfire.workbench.events.ResourceRenamedEvent;
+
+/**
+ * Bounded cache of the sorted content of folders and Packages shown by the Project Explorer, so large folders can be
+ * listed a page at a time without reading and sorting them for every page. Content is in ITEM_ORDER, so a page can
+ * start after the last item of the previous page however the folder changed in between. A listing is removed when
+ * a resource or new Package event reports a change in one of the directories it was read from. As changes made
+ * outside the workbench raise no events, listings are also re-read once older than
+ * org.kie.workbench.explorer.folderListingMaxAge milliseconds.
+ */
+@ApplicationScoped
+public class FolderListingCache {
+
+    private static final int cacheSize = Integer.getInteger( "org.kie.workbench.explorer.folderListingCacheSize",
+                                                             256 );
+
+    private static final long maxAge = Long.getLong( "org.kie.workbench.explorer.folderListingMaxAge",
+                                                     60000 );
+
+    //Sorters.ITEM_SORTER with ties broken by URI, so content is in the same order however often it is read
+    static final Comparator<FolderItem> ITEM_ORDER = new Comparator<FolderItem>() {
+        @Override
+        public int compare( final FolderItem o1,
+                            final FolderItem o2 ) {
+            final int result = Sorters.ITEM_SORTER.compare( o1,
+                                                            o2 );
+            if ( result != 0 ) {
+                return result;
+            }
+            return getURI( o1 ).compareTo( getURI( o2 ) );
+        }
+
+        private String getURI( final FolderItem item ) {
+            if ( item.getItem() instanceof Package ) {
+                return ( (Package) item.getItem() ).getPackageMainSrcPath().toURI();
+            }
+            return ( (Path) item.getItem() ).toURI();
+        }
+    };
+
+    //{Key, Listing} in access order. Guarded by itself.
+    private final Map<String, CachedListing> listings = new LinkedHashMap<String, CachedListing>( 16,
+                                                                                                 0.75f,
+                                                                                                 true ) {
+        @Override
+        protected boolean removeEldestEntry( final Map.Entry<String, CachedListing> eldest ) {
+            return size() > cacheSize;
+        }
+    };
+
+    //Number of changes to listings, so a listing superseded by a change is not cached. Guarded by listings.
+    private long changeCount;
+
+    /**
+     * Get the current change count, to be passed to setItems() with the listing read after calling this method
+     * @return
+     */
+    public long getChangeCount() {
+        synchronized ( listings ) {
+            return changeCount;
+        }
+    }
+
+    /**
+     * Get the sorted content of a folder or Package
+     * @param key The key of the folder or Package
+     * @return The content, unmodifiable, or null if it is not cached
+     */
+    public List<FolderItem> getItems( final String key ) {
+        synchronized ( listings ) {
+            final CachedListing listing = listings.get( key );
+            if ( listing == null ) {
+                return null;
+            }
+            if ( System.currentTimeMillis() - listing.created > maxAge ) {
+                listings.remove( key );
+                return null;
+            }
+            return listing.items;
+        }
+    }
+
+    /**
+     * Cache the sorted content of a folder or Package
+     * @param key The key of the folder or Package
+     * @param items The content in ITEM_ORDER, which must not be modified afterwards
+     * @param directories The directories from which the content was read
+     * @param readChangeCount The change count before the content was read
+     * @return The content, unmodifiable
+     */
+    public List<FolderItem> setItems( final String key,
+                                      final List<FolderItem> items,
+                                      final Collection<Path> directories,
+                                      final long readChangeCount ) {
+        final List<FolderItem> unmodifiableItems = Collections.unmodifiableList( items );
+        final Set<String> directoryKeys = new HashSet<String>();
+        for ( Path directory : directories ) {
+            directoryKeys.add( getKey( directory ) );
+        }
+        synchronized ( listings ) {
+            //A change during the read may not be reflected in the content
+            if ( changeCount == readChangeCount ) {
+                listings.put( key,
+                              new CachedListing( unmodifiableItems,
+                                                 directoryKeys ) );
+            }
+        }
+        return unmodifiableItems;
+    }
+
+    /**
+     * Get the position in sorted content of the first item of a page
+     * @param items The content in ITEM_ORDER
+     * @param after The last item of the previous page, or null for the first page. It need not still be in the content.
+     * @return The position of the first item following the given item
+     */
+    static int getPageStart( final List<FolderItem> items,
+                             final FolderItem after ) {
+        if ( after == null ) {
+            return 0;
+        }
+        final int index = Collections.binarySearch( items,
+                                                    after,
+                                                    ITEM_ORDER );
+        return index >= 0 ? index + 1 : -( index + 1 );
+    }
+
+    public void onResourceAdded( @Observes final ResourceAddedEvent event ) {
+        invalidate( event.getPath() );
+    }
+
+    public void onResourceDeleted( @Observes final ResourceDeletedEvent event ) {
+        invalidate( event.getPath() );
+    }
+
+    public void onResourceRenamed( @Observes final ResourceRenamedEvent event ) {
+        invalidate( event.getPath() );
+        invalidate( event.getDestinationPath() );
+    }
+
+    public void onResourceCopied( @Observes final ResourceCopiedEvent event ) {
+        invalidate( event.getDestinationPath() );
+    }
+
+    public void onBatchResourceChanges( @Observes final ResourceBatchChangesEvent event ) {
+        for ( Path path : event.getBatch().keySet() ) {
+            invalidate( path );
+        }
+    }
+
+    //Package directories are created without resource events, and a new Package is content of its parent
+    public void onPackageAdded( @Observes final NewPackageEvent event ) {
+        final Package pkg = event.getPackage();
+        if ( pkg != null ) {
+            invalidate( pkg.getPackageMainSrcPath() );
+            invalidate( pkg.getPackageTestSrcPath() );
+            invalidate( pkg.getPackageMainResourcesPath() );
+            invalidate( pkg.getPackageTestResourcesPath() );
+        }
+    }
+
+    //Whole Projects are affected, which do not raise resource events
+    public void onProjectRename( @Observes final RenameProjectEvent event ) {
+        invalidate();
+    }
+
+    public void onProjectDelete( @Observes final DeleteProjectEvent event ) {
+        invalidate();
+    }
+
+    public void invalidate() {
+        synchronized ( listings ) {
+            listings.clear();
+            changeCount++;
+        }
+    }
+
+    //Remove listings read from the directory containing a path, or from the path itself if it is a directory
+    private void invalidate( final Path path ) {
+        if ( path == null ) {
+            return;
+        }
+        final String key = getKey( path );
+        final int separator = key.lastIndexOf( '/' );
+        final String parentKey = separator < 0 ? null : key.substring( 0,
+                                                                      separator );
+        synchronized ( listings ) {
+            changeCount++;
+            final Iterator<CachedListing> itr = listings.values().iterator();
+            while ( itr.hasNext() ) {
+                final CachedListing listing = itr.next();
+                if ( listing.directories.contains( key ) || listing.directories.contains( parentKey ) ) {
+                    itr.remove();
+                }
+            }
+        }
+    }
+
+    //Directory keys have no trailing separator, so the key of a path's parent is a prefix of its own key
+    private static String getKey( final Path path ) {
+        final String uri = path.toURI();
+        return uri.endsWith( "/" ) ? uri.substring( 0,
+                                                    uri.length() - 1 ) : uri;
+    }
+
+    private static class CachedListing {
+
+        private final List<FolderItem> items;
+        private final Set<String> directories;
+        private final long created = System.currentTimeMillis();
+
+        private CachedListing( final List<FolderItem> items,
+                               final Set<String> directories ) {
+            this.items = items;
+            this.directories = directories;
+        }
+
+    }
+
+}
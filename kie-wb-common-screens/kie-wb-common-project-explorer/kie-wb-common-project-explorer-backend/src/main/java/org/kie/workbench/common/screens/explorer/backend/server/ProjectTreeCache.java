@@ -0,0 +1,208 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.workbench.common.screens.explorer.backend.server;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.guvnor.common.services.project.events.DeleteProjectEvent;
+import org.guvnor.common.services.project.events.NewProjectEvent;
+import org.guvnor.common.services.project.events.RenameProjectEvent;
+import org.guvnor.common.services.project.model.Project;
+import org.guvnor.common.services.project.service.ProjectService;
+import org.uberfire.backend.repositories.NewRepositoryEvent;
+import org.uberfire.backend.repositories.Repository;
+import org.uberfire.backend.repositories.RepositoryRemovedEvent;
+import org.uberfire.backend.server.util.Paths;
+import org.uberfire.backend.vfs.Path;
+import org.uberfire.io.IOService;
+import org.uberfire.java.nio.file.DirectoryStream;
+import org.uberfire.java.nio.file.Files;
+
+/**
+ * Shared cache of the Projects in each Repository, so the Project Explorer need not scan a Repository's root for
+ * every request. Entries are maintained by Project and Repository events; as changes made outside the workbench
+ * raise no events, entries are also re-scanned once older than org.kie.workbench.explorer.projectTreeMaxAge
+ * milliseconds. Projects are cached regardless of users' permissions, which callers must check.
+ */
+@ApplicationScoped
+public class ProjectTreeCache {
+
+    private static final long projectTreeMaxAge = Long.getLong( "org.kie.workbench.explorer.projectTreeMaxAge",
+                                                                300000 );
+
+    @Inject
+    @Named("ioStrategy")
+    private IOService ioService;
+
+    @Inject
+    private ProjectService projectService;
+
+    //{Repository root URI, Projects}. Guarded by itself.
+    private final Map<String, CachedProjects> projects = new HashMap<String, CachedProjects>();
+
+    //Number of changes to entries, so a scan superseded by a change is not cached. Guarded by projects.
+    private long changeCount;
+
+    private long maxAge = projectTreeMaxAge;
+
+    public ProjectTreeCache() {
+    }
+
+    //Used by tests
+    ProjectTreeCache( final long maxAge ) {
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * Get the Projects in a Repository
+     * @param repository
+     * @return The Projects, which must not be modified
+     */
+    public Set<Project> getProjects( final Repository repository ) {
+        final String key = getKey( repository.getRoot() );
+        final long scanChangeCount;
+        synchronized ( projects ) {
+            final CachedProjects cached = projects.get( key );
+            if ( cached != null && System.currentTimeMillis() - cached.scanned <= maxAge ) {
+                return cached.projects;
+            }
+            scanChangeCount = changeCount;
+        }
+
+        final Set<Project> scanned = Collections.unmodifiableSet( scan( repository ) );
+        synchronized ( projects ) {
+            if ( changeCount == scanChangeCount ) {
+                projects.put( key,
+                              new CachedProjects( scanned ) );
+            }
+        }
+        return scanned;
+    }
+
+    public void onProjectAdded( @Observes final NewProjectEvent event ) {
+        if ( event.getProject() != null ) {
+            update( event.getProject(),
+                    true );
+        }
+    }
+
+    public void onProjectRename( @Observes final RenameProjectEvent event ) {
+        if ( event.getOldProject() != null ) {
+            update( event.getOldProject(),
+                    false );
+        }
+        if ( event.getNewProject() != null ) {
+            update( event.getNewProject(),
+                    true );
+        }
+    }
+
+    public void onProjectDelete( @Observes final DeleteProjectEvent event ) {
+        if ( event.getProject() != null ) {
+            update( event.getProject(),
+                    false );
+        }
+    }
+
+    public void onRepositoryAdded( @Observes final NewRepositoryEvent event ) {
+        invalidate();
+    }
+
+    public void onRepositoryRemoved( @Observes final RepositoryRemovedEvent event ) {
+        invalidate();
+    }
+
+    public void invalidate() {
+        synchronized ( projects ) {
+            projects.clear();
+            changeCount++;
+        }
+    }
+
+    //Add or remove a Project in the entry of the Repository containing it
+    private void update( final Project project,
+                         final boolean isAdded ) {
+        final String projectKey = getKey( project.getRootPath() );
+        synchronized ( projects ) {
+            changeCount++;
+            for ( Map.Entry<String, CachedProjects> e : projects.entrySet() ) {
+                if ( !projectKey.startsWith( e.getKey() ) ) {
+                    continue;
+                }
+                //Cached sets are shared with callers so are replaced rather than modified. Projects are matched by path.
+                final Set<Project> updated = new HashSet<Project>();
+                for ( Project p : e.getValue().projects ) {
+                    if ( !projectKey.equals( getKey( p.getRootPath() ) ) ) {
+                        updated.add( p );
+                    }
+                }
+                if ( isAdded ) {
+                    updated.add( project );
+                }
+                e.setValue( new CachedProjects( Collections.unmodifiableSet( updated ),
+                                                e.getValue().scanned ) );
+            }
+        }
+    }
+
+    //Resolve the Projects in the directories of a Repository's root
+    Set<Project> scan( final Repository repository ) {
+        final Set<Project> repositoryProjects = new HashSet<Project>();
+        final DirectoryStream<org.uberfire.java.nio.file.Path> nioRepositoryPaths = ioService.newDirectoryStream( Paths.convert( repository.getRoot() ) );
+        for ( org.uberfire.java.nio.file.Path nioRepositoryPath : nioRepositoryPaths ) {
+            if ( Files.isDirectory( nioRepositoryPath ) ) {
+                final Project project = projectService.resolveProject( Paths.convert( nioRepositoryPath ) );
+                if ( project != null ) {
+                    repositoryProjects.add( project );
+                }
+            }
+        }
+        return repositoryProjects;
+    }
+
+    //Keys end with a separator, so a Repository's key is a prefix of the keys of its Projects alone
+    private static String getKey( final Path path ) {
+        final String uri = path.toURI();
+        return uri.endsWith( "/" ) ? uri : uri + "/";
+    }
+
+    private static class CachedProjects {
+
+        private final Set<Project> projects;
+        private final long scanned;
+
+        private CachedProjects( final Set<Project> projects ) {
+            this( projects,
+                  System.currentTimeMillis() );
+        }
+
+        private CachedProjects( final Set<Project> projects,
+                                final long scanned ) {
+            this.projects = projects;
+            this.scanned = scanned;
+        }
+
+    }
+
+}
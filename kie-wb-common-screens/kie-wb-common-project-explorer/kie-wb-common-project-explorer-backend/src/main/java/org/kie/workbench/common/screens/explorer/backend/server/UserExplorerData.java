@@ -25,6 +25,29 @@ public class UserExplorerData {
     public UserExplorerData() {
     }
 
+    /**
+     * Copy navigation state, so the copy can be modified without changing the original
+     * @param data
+     */
+    public UserExplorerData( final UserExplorerData data ) {
+        this.organizationalUnit = data.organizationalUnit;
+        this.content.putAll( data.content );
+        copyKeys( data.organizationalUnitKeys,
+                  organizationalUnitKeys );
+        copyKeys( data.repositoryKeys,
+                  repositoryKeys );
+        copyKeys( data.projectKeys,
+                  projectKeys );
+    }
+
+    private static void copyKeys( final Map<String, Set<String>> source,
+                                  final Map<String, Set<String>> target ) {
+        for ( Map.Entry<String, Set<String>> e : source.entrySet() ) {
+            target.put( e.getKey(),
+                        new HashSet<String>( e.getValue() ) );
+        }
+    }
+
     public OrganizationalUnit getOrganizationalUnit() {
         return organizationalUnit;
     }
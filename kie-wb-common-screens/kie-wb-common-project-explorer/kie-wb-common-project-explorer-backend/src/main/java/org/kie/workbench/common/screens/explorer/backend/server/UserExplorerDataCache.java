@@ -0,0 +1,348 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.workbench.common.screens.explorer.backend.server;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import com.thoughtworks.xstream.XStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.uberfire.io.IOService;
+import org.uberfire.java.nio.base.WatchContext;
+import org.uberfire.java.nio.file.FileSystem;
+import org.uberfire.java.nio.file.Path;
+import org.uberfire.java.nio.file.WatchEvent;
+import org.uberfire.java.nio.file.WatchKey;
+import org.uberfire.java.nio.file.WatchService;
+
+/**
+ * Bounded cache of users' Project Explorer navigation state, read from their user.nav and last.user.nav files.
+ * Entries are updated by UserExplorerDataWriter when it writes state. When the file system reports a change to a
+ * file, its entry is kept only if the cache wrote the entry and the file still holds what was written; other changes,
+ * for example by another node of a cluster, remove the entry. As a change could go unreported, entries are also
+ * re-read once older than org.kie.workbench.explorer.navigationCacheMaxAge milliseconds. Cached state is shared and
+ * must not be modified; callers wanting to modify user.nav state must copy it.
+ */
+@ApplicationScoped
+public class UserExplorerDataCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger( UserExplorerDataCache.class );
+
+    private static final int cacheSize = Integer.getInteger( "org.kie.workbench.explorer.navigationCacheSize",
+                                                             1000 );
+
+    private static final long cacheMaxAge = Long.getLong( "org.kie.workbench.explorer.navigationCacheMaxAge",
+                                                          300000 );
+
+    //Placeholder for a file that does not exist
+    private static final Object NOT_FOUND = new Object();
+
+    @Inject
+    @Named("configIO")
+    private IOService ioServiceConfig;
+
+    private XStream xs = new XStream();
+
+    private long maxAge = cacheMaxAge;
+
+    //{Path, State} in access order. Guarded by itself.
+    private final Map<Path, CachedState> entries = new LinkedHashMap<Path, CachedState>( 16,
+                                                                                       0.75f,
+                                                                                       true ) {
+        @Override
+        protected boolean removeEldestEntry( final Map.Entry<Path, CachedState> eldest ) {
+            return size() > cacheSize;
+        }
+    };
+
+    //Number of changes reported, so a read superseded by a change is not cached. Guarded by entries.
+    private long changeCount;
+
+    //Guarded by watchedFileSystems
+    private final List<FileSystem> watchedFileSystems = new ArrayList<FileSystem>();
+    private final List<FileSystem> unwatchableFileSystems = new ArrayList<FileSystem>();
+    private final List<WatchService> watchServices = new CopyOnWriteArrayList<WatchService>();
+
+    //Runs a task watching each file system
+    private ExecutorService watchExecutor;
+
+    public UserExplorerDataCache() {
+    }
+
+    //Used by tests
+    UserExplorerDataCache( final IOService ioServiceConfig,
+                           final long maxAge ) {
+        this.ioServiceConfig = ioServiceConfig;
+        this.maxAge = maxAge;
+    }
+
+    @PostConstruct
+    public void init() {
+        watchExecutor = Executors.newCachedThreadPool( new DaemonThreadFactory( "explorer-navigation-watch" ) );
+    }
+
+    @PreDestroy
+    public void destroy() {
+        for ( WatchService watchService : watchServices ) {
+            try {
+                watchService.close();
+            } catch ( final Exception e ) {
+                LOGGER.warn( "Unable to close navigation state watch service: " + e.getMessage() );
+            }
+        }
+        watchExecutor.shutdownNow();
+    }
+
+    /**
+     * Get a user's navigation state
+     * @param userNav Path of the user's user.nav file
+     * @return The state, or null if the user has none
+     */
+    public UserExplorerData getUserContent( final Path userNav ) {
+        return get( userNav,
+                    UserExplorerData.class );
+    }
+
+    /**
+     * Get a user's last navigation
+     * @param lastUserNav Path of the user's last.user.nav file
+     * @return The last navigation, or null if the user has none
+     */
+    public UserExplorerLastData getLastContent( final Path lastUserNav ) {
+        return get( lastUserNav,
+                    UserExplorerLastData.class );
+    }
+
+    /**
+     * Get a user's navigation state without adding it to the cache, for reading the state of every user
+     * @param userNav Path of the user's user.nav file
+     * @return The cached state if present, otherwise the state read from the file, or null if the user has none
+     */
+    public UserExplorerData peekUserContent( final Path userNav ) {
+        return peek( userNav,
+                     UserExplorerData.class );
+    }
+
+    /**
+     * Get a user's last navigation without adding it to the cache, for reading the state of every user
+     * @param lastUserNav Path of the user's last.user.nav file
+     * @return The cached last navigation if present, otherwise that read from the file, or null if the user has none
+     */
+    public UserExplorerLastData peekLastContent( final Path lastUserNav ) {
+        return peek( lastUserNav,
+                     UserExplorerLastData.class );
+    }
+
+    /**
+     * Write a user's navigation state and cache it
+     * @param path Path of the user's user.nav or last.user.nav file
+     * @param content The state, which must not be modified afterwards
+     */
+    public void write( final Path path,
+                       final Object content ) {
+        final String xml = xs.toXML( content );
+        try {
+            ioServiceConfig.write( path,
+                                   xml );
+        } catch ( final RuntimeException e ) {
+            invalidate( path );
+            throw e;
+        }
+        synchronized ( entries ) {
+            entries.put( path,
+                         new CachedState( content,
+                                          xml ) );
+        }
+    }
+
+    /**
+     * Remove a user's navigation state from the cache
+     * @param path Path of the user's user.nav or last.user.nav file
+     */
+    public void invalidate( final Path path ) {
+        synchronized ( entries ) {
+            entries.remove( path );
+            changeCount++;
+        }
+    }
+
+    private <T> T get( final Path path,
+                       final Class<T> type ) {
+        synchronized ( entries ) {
+            final CachedState state = entries.get( path );
+            if ( state != null ) {
+                if ( System.currentTimeMillis() - state.created <= maxAge ) {
+                    return type.isInstance( state.content ) ? type.cast( state.content ) : null;
+                }
+                entries.remove( path );
+            }
+        }
+
+        final boolean isWatched = watch( path );
+        final long readChangeCount;
+        synchronized ( entries ) {
+            readChangeCount = changeCount;
+        }
+        final T content = read( path,
+                                type );
+        if ( !isWatched ) {
+            return content;
+        }
+        synchronized ( entries ) {
+            //A concurrent write or change may have superseded what was read
+            if ( changeCount == readChangeCount && !entries.containsKey( path ) ) {
+                entries.put( path,
+                             new CachedState( content == null ? NOT_FOUND : content,
+                                              null ) );
+            }
+        }
+        return content;
+    }
+
+    private <T> T peek( final Path path,
+                        final Class<T> type ) {
+        synchronized ( entries ) {
+            final CachedState state = entries.get( path );
+            if ( state != null && System.currentTimeMillis() - state.created <= maxAge ) {
+                return type.isInstance( state.content ) ? type.cast( state.content ) : null;
+            }
+        }
+        return read( path,
+                     type );
+    }
+
+    private <T> T read( final Path path,
+                        final Class<T> type ) {
+        try {
+            if ( ioServiceConfig.exists( path ) ) {
+                return type.cast( xs.fromXML( ioServiceConfig.readAllString( path ) ) );
+            }
+        } catch ( final Exception e ) {
+        }
+        return null;
+    }
+
+    //Start watching the file system holding a path, if not already watched
+    private boolean watch( final Path path ) {
+        final FileSystem fileSystem = path.getFileSystem();
+        synchronized ( watchedFileSystems ) {
+            if ( watchedFileSystems.contains( fileSystem ) ) {
+                return true;
+            }
+            if ( unwatchableFileSystems.contains( fileSystem ) ) {
+                return false;
+            }
+            try {
+                final WatchService watchService = fileSystem.newWatchService();
+                watchExecutor.execute( new Runnable() {
+                    @Override
+                    public void run() {
+                        watch( watchService );
+                    }
+                } );
+                watchServices.add( watchService );
+                watchedFileSystems.add( fileSystem );
+                return true;
+            } catch ( final Exception e ) {
+                //State cannot be invalidated by changes made elsewhere, so is not cached
+                LOGGER.warn( "Unable to watch users' navigation state; it will not be cached: " + e.getMessage() );
+                unwatchableFileSystems.add( fileSystem );
+                return false;
+            }
+        }
+    }
+
+    private void watch( final WatchService watchService ) {
+        while ( !Thread.currentThread().isInterrupted() ) {
+            final WatchKey key;
+            try {
+                key = watchService.take();
+            } catch ( final Exception e ) {
+                //Watch service closed or thread interrupted
+                return;
+            }
+            for ( WatchEvent<?> event : key.pollEvents() ) {
+                if ( event.context() instanceof WatchContext ) {
+                    final WatchContext context = (WatchContext) event.context();
+                    onChange( context.getPath() );
+                    onChange( context.getOldPath() );
+                }
+            }
+            key.reset();
+        }
+    }
+
+    private void onChange( final Path path ) {
+        if ( path == null ) {
+            return;
+        }
+        final CachedState state;
+        synchronized ( entries ) {
+            changeCount++;
+            state = entries.get( path );
+            if ( state == null ) {
+                return;
+            }
+            if ( state.xml == null ) {
+                entries.remove( path );
+                return;
+            }
+        }
+
+        //The change may be the cache's own write, in which case the file holds what was written
+        String current = null;
+        try {
+            if ( ioServiceConfig.exists( path ) ) {
+                current = ioServiceConfig.readAllString( path );
+            }
+        } catch ( final Exception e ) {
+        }
+        synchronized ( entries ) {
+            if ( entries.get( path ) == state && !state.xml.equals( current ) ) {
+                entries.remove( path );
+            }
+        }
+    }
+
+    private static class CachedState {
+
+        private final Object content;
+
+        //The XML written by the cache, or null if the state was read
+        private final String xml;
+
+        private final long created = System.currentTimeMillis();
+
+        private CachedState( final Object content,
+                             final String xml ) {
+            this.content = content;
+            this.xml = xml;
+        }
+
+    }
+
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.workbench.common.screens.explorer.backend.server;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.guvnor.common.services.project.model.Project;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.uberfire.backend.server.UserServicesBackendImpl;
+import org.uberfire.io.IOService;
+import org.uberfire.java.nio.file.Path;
+
+/**
+ * Removes a renamed or deleted Project from every user's Project Explorer navigation state. Cleanup runs in the
+ * background: users' state is read in parallel to find that containing the Project, and all changes are then written
+ * in a single batch on the UserExplorerDataWriter's thread, so they do not interleave with writes of navigations.
+ * State is read without adding it to the UserExplorerDataCache, so reading every user does not evict the state of
+ * active users. Progress is logged.
+ */
+@ApplicationScoped
+public class UserExplorerDataCleanup {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger( UserExplorerDataCleanup.class );
+
+    private static final int cleanupThreads = Integer.getInteger( "org.kie.workbench.explorer.cleanupThreads",
+                                                                  Math.min( 4,
+                                                                            Runtime.getRuntime().availableProcessors() ) );
+
+    //Number of users' files between progress reports
+    private static final int PROGRESS_INTERVAL = 100;
+
+    @Inject
+    @Named("configIO")
+    private IOService ioServiceConfig;
+
+    @Inject
+    private UserServicesBackendImpl userServicesBackend;
+
+    @Inject
+    private UserExplorerDataCache cache;
+
+    @Inject
+    private UserExplorerDataWriter writer;
+
+    //Runs cleanups one at a time
+    private ExecutorService jobExecutor;
+
+    //Reads and updates users' state for the running cleanup
+    private ExecutorService readExecutor;
+
+    public UserExplorerDataCleanup() {
+    }
+
+    //Used by tests
+    UserExplorerDataCleanup( final IOService ioServiceConfig,
+                             final UserServicesBackendImpl userServicesBackend,
+                             final UserExplorerDataCache cache,
+                             final UserExplorerDataWriter writer ) {
+        this.ioServiceConfig = ioServiceConfig;
+        this.userServicesBackend = userServicesBackend;
+        this.cache = cache;
+        this.writer = writer;
+    }
+
+    @PostConstruct
+    public void init() {
+        jobExecutor = Executors.newSingleThreadExecutor( new DaemonThreadFactory( "explorer-cleanup" ) );
+        readExecutor = Executors.newFixedThreadPool( Math.max( 1,
+                                                               cleanupThreads ),
+                                                     new DaemonThreadFactory( "explorer-cleanup-read" ) );
+    }
+
+    @PreDestroy
+    public void destroy() {
+        jobExecutor.shutdownNow();
+        readExecutor.shutdownNow();
+    }
+
+    /**
+     * Schedule removal of a Project from every user's navigation state
+     * @param project
+     */
+    public void cleanup( final Project project ) {
+        //Navigations not yet written would otherwise restore the Project once cleanup has finished
+        writer.deleteProject( project );
+
+        jobExecutor.execute( new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    doCleanup( project );
+                } catch ( final Exception e ) {
+                    LOGGER.error( "Unable to remove Project " + project.getRootPath().toURI() + " from users' state navigation",
+                                  e );
+                }
+            }
+        } );
+    }
+
+    private void doCleanup( final Project project ) throws InterruptedException {
+        final long start = System.currentTimeMillis();
+        final String projectURI = project.getRootPath().toURI();
+        final Collection<Path> userNavs = userServicesBackend.getAllUsersData( "explorer", "user.nav" );
+        final Collection<Path> lastNavs = userServicesBackend.getAllUsersData( "explorer", "last.user.nav" );
+        final int total = userNavs.size() + lastNavs.size();
+        LOGGER.info( "Removing Project " + projectURI + " from the state navigation of " + total + " files" );
+
+        final CompletionService<Path> completionService = new ExecutorCompletionService<Path>( readExecutor );
+        for ( final Path userNav : userNavs ) {
+            completionService.submit( new Callable<Path>() {
+                @Override
+                public Path call() {
+                    return deleteProject( userNav,
+                                          project ) != null ? userNav : null;
+                }
+            } );
+        }
+        for ( final Path lastNav : lastNavs ) {
+            completionService.submit( new Callable<Path>() {
+                @Override
+                public Path call() {
+                    return deleteLastProject( lastNav,
+                                              project ) != null ? lastNav : null;
+                }
+            } );
+        }
+
+        final Set<Path> changed = new LinkedHashSet<Path>();
+        for ( int processed = 1; processed <= total; processed++ ) {
+            try {
+                final Path path = completionService.take().get();
+                if ( path != null ) {
+                    changed.add( path );
+                }
+            } catch ( final ExecutionException e ) {
+                LOGGER.warn( "Unable to read user's state navigation",
+                             e.getCause() );
+            }
+            if ( processed % PROGRESS_INTERVAL == 0 ) {
+                LOGGER.info( "Removing Project " + projectURI + " from state navigation: " + processed + " of " + total + " files read" );
+            }
+        }
+
+        writer.execute( new Runnable() {
+            @Override
+            public void run() {
+                final int written = write( changed,
+                                           new HashSet<Path>( userNavs ),
+                                           project );
+                LOGGER.info( "Removed Project " + projectURI + " from the state navigation of " + written + " files in " + ( System.currentTimeMillis() - start ) + "ms" );
+            }
+        } );
+    }
+
+    //State may have been written since it was first read, so the Project is removed from the current state
+    private int write( final Set<Path> changed,
+                       final Set<Path> userNavs,
+                       final Project project ) {
+        if ( changed.isEmpty() ) {
+            return 0;
+        }
+        int written = 0;
+        try {
+            ioServiceConfig.startBatch();
+            for ( Path path : changed ) {
+                try {
+                    final Object content;
+                    if ( userNavs.contains( path ) ) {
+                        content = deleteProject( path,
+                                                 project );
+                    } else {
+                        content = deleteLastProject( path,
+                                                     project );
+                    }
+                    if ( content != null ) {
+                        cache.write( path,
+                                     content );
+                        written++;
+                    }
+                } catch ( final Exception e ) {
+                    LOGGER.error( "Can't serialize user's state navigation",
+                                  e );
+                }
+            }
+        } finally {
+            ioServiceConfig.endBatch();
+        }
+        return written;
+    }
+
+    //Cached state is shared so is copied before being modified. Returns null if the Project was not in the state.
+    private UserExplorerData deleteProject( final Path userNav,
+                                            final Project project ) {
+        final UserExplorerData cachedContent = cache.peekUserContent( userNav );
+        if ( cachedContent == null ) {
+            return null;
+        }
+        final UserExplorerData content = new UserExplorerData( cachedContent );
+        return content.deleteProject( project ) ? content : null;
+    }
+
+    private UserExplorerLastData deleteLastProject( final Path lastNav,
+                                                    final Project project ) {
+        final UserExplorerLastData cachedContent = cache.peekLastContent( lastNav );
+        if ( cachedContent == null ) {
+            return null;
+        }
+        final UserExplorerLastData content = new UserExplorerLastData( cachedContent );
+        return content.deleteProject( project ) ? content : null;
+    }
+
+}
@@ -0,0 +1,383 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.workbench.common.screens.explorer.backend.server;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.guvnor.common.services.project.model.Package;
+import org.guvnor.common.services.project.model.Project;
+import org.kie.workbench.common.screens.explorer.model.FolderItem;
+import org.kie.workbench.common.screens.explorer.service.Option;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.uberfire.backend.organizationalunit.OrganizationalUnit;
+import org.uberfire.backend.repositories.Repository;
+import org.uberfire.io.IOService;
+import org.uberfire.java.nio.file.Path;
+
+/**
+ * Writes users' Project Explorer navigation state. Navigations are held in memory and written on a single thread
+ * once no navigation has been made for a short delay, so a burst of navigations by a user results in one write of
+ * their state; the state of all users with pending navigations is written in a single batch. Navigations remain
+ * pending until written, so reads see them in the meantime.
+ */
+@ApplicationScoped
+public class UserExplorerDataWriter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger( UserExplorerDataWriter.class );
+
+    //Time without navigations after which pending navigations are written, in milliseconds
+    private static final long navigationWriteDelay = Long.getLong( "org.kie.workbench.explorer.navigationWriteDelay",
+                                                                   2000 );
+
+    //Longest time a navigation waits to be written while navigations continue, in milliseconds
+    private static final long navigationMaxWriteDelay = Long.getLong( "org.kie.workbench.explorer.navigationMaxWriteDelay",
+                                                                      10000 );
+
+    //Number of users with pending navigations at which their state is written without waiting for the delay
+    private static final int navigationMaxPendingUsers = Integer.getInteger( "org.kie.workbench.explorer.navigationMaxPendingUsers",
+                                                                             256 );
+
+    @Inject
+    @Named("configIO")
+    private IOService ioServiceConfig;
+
+    @Inject
+    private UserExplorerDataCache cache;
+
+    private ScheduledExecutorService executor;
+
+    private long writeDelay = navigationWriteDelay;
+    private long maxWriteDelay = navigationMaxWriteDelay;
+    private int maxPendingUsers = navigationMaxPendingUsers;
+
+    //Pending navigations of each user, keyed by the path of their user.nav file, in order. Guarded by itself.
+    private final Map<Path, List<Navigation>> pending = new LinkedHashMap<Path, List<Navigation>>();
+
+    //The write scheduled by the latest navigation and its task; a superseded task that could not be cancelled does
+    //nothing when run. Guarded by pending.
+    private ScheduledFuture<?> scheduledWrite;
+    private Runnable scheduledTask;
+
+    //Time of the oldest navigation not yet taken by a write, or 0 if there is none. Guarded by pending.
+    private long oldestPending;
+
+    public UserExplorerDataWriter() {
+    }
+
+    //Used by tests
+    UserExplorerDataWriter( final IOService ioServiceConfig,
+                            final UserExplorerDataCache cache,
+                            final long writeDelay,
+                            final long maxWriteDelay,
+                            final int maxPendingUsers ) {
+        this.ioServiceConfig = ioServiceConfig;
+        this.cache = cache;
+        this.writeDelay = writeDelay;
+        this.maxWriteDelay = maxWriteDelay;
+        this.maxPendingUsers = maxPendingUsers;
+    }
+
+    @PostConstruct
+    public void init() {
+        executor = Executors.newSingleThreadScheduledExecutor( new DaemonThreadFactory( "explorer-navigation-writer" ) );
+    }
+
+    @PreDestroy
+    public void destroy() {
+        //Write outstanding navigations before stopping
+        executor.execute( new Runnable() {
+            @Override
+            public void run() {
+                write( null );
+            }
+        } );
+        executor.shutdown();
+        try {
+            if ( !executor.awaitTermination( 30,
+                                             TimeUnit.SECONDS ) ) {
+                LOGGER.warn( "Timed out writing users' state navigation" );
+            }
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Record a navigation by a user, to be written later
+     * @param userNav Path of the user's user.nav file
+     * @param lastUserNav Path of the user's last.user.nav file
+     */
+    public void store( final Path userNav,
+                       final Path lastUserNav,
+                       final OrganizationalUnit organizationalUnit,
+                       final Repository repository,
+                       final Project project,
+                       final Package pkg,
+                       final FolderItem item,
+                       final Set<Option> options ) {
+        final Navigation navigation = new Navigation( lastUserNav,
+                                                      organizationalUnit,
+                                                      repository,
+                                                      project,
+                                                      pkg,
+                                                      item,
+                                                      options );
+        synchronized ( pending ) {
+            List<Navigation> navigations = pending.get( userNav );
+            if ( navigations == null ) {
+                navigations = new ArrayList<Navigation>();
+                pending.put( userNav,
+                             navigations );
+            }
+            navigations.add( navigation );
+
+            //Each navigation postpones the write, but not beyond the maximum delay of the oldest pending navigation
+            final long now = System.currentTimeMillis();
+            if ( oldestPending == 0 ) {
+                oldestPending = now;
+            }
+            final long delay;
+            if ( pending.size() >= maxPendingUsers ) {
+                delay = 0;
+            } else {
+                delay = Math.max( 0,
+                                  Math.min( writeDelay,
+                                            oldestPending + maxWriteDelay - now ) );
+            }
+            if ( scheduledWrite != null ) {
+                scheduledWrite.cancel( false );
+            }
+            scheduledTask = new Runnable() {
+                @Override
+                public void run() {
+                    write( this );
+                }
+            };
+            scheduledWrite = executor.schedule( scheduledTask,
+                                                delay,
+                                                TimeUnit.MILLISECONDS );
+        }
+    }
+
+    /**
+     * Get a user's last navigation that has not yet been written
+     * @param userNav Path of the user's user.nav file
+     * @return The last navigation, or null if the user has no pending navigations
+     */
+    public UserExplorerLastData getPendingLastContent( final Path userNav ) {
+        synchronized ( pending ) {
+            final List<Navigation> navigations = pending.get( userNav );
+            if ( navigations == null ) {
+                return null;
+            }
+            return navigations.get( navigations.size() - 1 ).makeLastContent();
+        }
+    }
+
+    /**
+     * Apply a user's navigations that have not yet been written to their state
+     * @param userNav Path of the user's user.nav file
+     * @param content The user's state, as last written
+     */
+    public void applyPending( final Path userNav,
+                              final UserExplorerData content ) {
+        synchronized ( pending ) {
+            final List<Navigation> navigations = pending.get( userNav );
+            if ( navigations != null ) {
+                for ( Navigation navigation : navigations ) {
+                    navigation.applyTo( content );
+                }
+            }
+        }
+    }
+
+    /**
+     * Discard navigations that have not yet been written to a Project
+     * @param project
+     */
+    public void deleteProject( final Project project ) {
+        synchronized ( pending ) {
+            final Iterator<List<Navigation>> itr = pending.values().iterator();
+            while ( itr.hasNext() ) {
+                final List<Navigation> navigations = itr.next();
+                for ( int i = navigations.size() - 1; i >= 0; i-- ) {
+                    if ( project.equals( navigations.get( i ).project ) ) {
+                        navigations.remove( i );
+                    }
+                }
+                if ( navigations.isEmpty() ) {
+                    itr.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Run a task on the thread writing navigation state, so its own writes do not interleave with those of navigations
+     * @param task
+     */
+    public void execute( final Runnable task ) {
+        executor.execute( task );
+    }
+
+    //Write all pending navigations; task is the scheduled task running the write, or null to write regardless
+    private void write( final Runnable task ) {
+        //Navigations remain pending until written, so reads see them in the meantime
+        final Map<Path, List<Navigation>> navigations = new LinkedHashMap<Path, List<Navigation>>();
+        synchronized ( pending ) {
+            if ( task != null && task != scheduledTask ) {
+                return;
+            }
+            scheduledWrite = null;
+            scheduledTask = null;
+            oldestPending = 0;
+            if ( pending.isEmpty() ) {
+                return;
+            }
+            for ( Map.Entry<Path, List<Navigation>> e : pending.entrySet() ) {
+                navigations.put( e.getKey(),
+                                 new ArrayList<Navigation>( e.getValue() ) );
+            }
+        }
+
+        try {
+            ioServiceConfig.startBatch();
+            for ( Map.Entry<Path, List<Navigation>> e : navigations.entrySet() ) {
+                try {
+                    write( e.getKey(),
+                           e.getValue() );
+                } catch ( final Exception ex ) {
+                    LOGGER.error( "Can't serialize user's state navigation",
+                                  ex );
+                } finally {
+                    removePending( e.getKey(),
+                                   e.getValue() );
+                }
+            }
+        } finally {
+            ioServiceConfig.endBatch();
+        }
+    }
+
+    //Navigations may have been discarded by deleteProject() while being written, so are removed by identity
+    private void removePending( final Path userNav,
+                                final List<Navigation> written ) {
+        synchronized ( pending ) {
+            final List<Navigation> navigations = pending.get( userNav );
+            if ( navigations == null ) {
+                return;
+            }
+            navigations.removeAll( written );
+            if ( navigations.isEmpty() ) {
+                pending.remove( userNav );
+            }
+        }
+    }
+
+    private void write( final Path userNav,
+                        final List<Navigation> navigations ) {
+        //Cached state is shared so is copied before being modified
+        final UserExplorerData cachedContent = cache.getUserContent( userNav );
+        final UserExplorerData content = cachedContent == null ? new UserExplorerData() : new UserExplorerData( cachedContent );
+        for ( Navigation navigation : navigations ) {
+            navigation.applyTo( content );
+        }
+
+        final Navigation last = navigations.get( navigations.size() - 1 );
+        if ( !content.isEmpty() ) {
+            cache.write( userNav,
+                         content );
+            cache.write( last.lastUserNav,
+                         last.makeLastContent() );
+        }
+    }
+
+    private static class Navigation {
+
+        private final Path lastUserNav;
+        private final OrganizationalUnit organizationalUnit;
+        private final Repository repository;
+        private final Project project;
+        private final Package pkg;
+        private final FolderItem item;
+        private final Set<Option> options;
+
+        private Navigation( final Path lastUserNav,
+                            final OrganizationalUnit organizationalUnit,
+                            final Repository repository,
+                            final Project project,
+                            final Package pkg,
+                            final FolderItem item,
+                            final Set<Option> options ) {
+            this.lastUserNav = lastUserNav;
+            this.organizationalUnit = organizationalUnit;
+            this.repository = repository;
+            this.project = project;
+            this.pkg = pkg;
+            this.item = item;
+            this.options = options;
+        }
+
+        private void applyTo( final UserExplorerData content ) {
+            if ( organizationalUnit != null ) {
+                content.setOrganizationalUnit( organizationalUnit );
+            }
+            if ( repository != null && organizationalUnit != null ) {
+                content.addRepository( organizationalUnit, repository );
+            }
+            if ( project != null && organizationalUnit != null && repository != null ) {
+                content.addProject( organizationalUnit, repository, project );
+            }
+            if ( item != null && organizationalUnit != null && repository != null && project != null ) {
+                content.addFolderItem( organizationalUnit, repository, project, item );
+            }
+            if ( pkg != null && organizationalUnit != null && repository != null && project != null ) {
+                content.addPackage( organizationalUnit, repository, project, pkg );
+            }
+        }
+
+        private UserExplorerLastData makeLastContent() {
+            final UserExplorerLastData lastContent = new UserExplorerLastData();
+            if ( item != null && organizationalUnit != null && repository != null && project != null ) {
+                lastContent.setFolderItem( organizationalUnit, repository, project, item );
+            }
+            if ( pkg != null && organizationalUnit != null && repository != null && project != null ) {
+                lastContent.setPackage( organizationalUnit, repository, project, pkg );
+            }
+            if ( options != null && !options.isEmpty() ) {
+                lastContent.setOptions( options );
+            }
+            return lastContent;
+        }
+
+    }
+
+}
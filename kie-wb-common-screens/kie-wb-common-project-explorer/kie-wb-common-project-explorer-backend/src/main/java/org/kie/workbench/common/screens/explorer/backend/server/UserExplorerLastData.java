@@ -16,6 +16,19 @@ public class UserExplorerLastData {
     private LastFolderItem lastFolderItem = null;
     private Set<Option> options = new HashSet<Option>();
 
+    public UserExplorerLastData() {
+    }
+
+    /**
+     * Copy a last navigation, so the copy can be modified without changing the original
+     * @param data
+     */
+    public UserExplorerLastData( final UserExplorerLastData data ) {
+        this.lastPackage = data.lastPackage;
+        this.lastFolderItem = data.lastFolderItem;
+        this.options.addAll( data.options );
+    }
+
     public boolean isDataEmpty() {
         return lastPackage == null && lastFolderItem == null;
     }
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.workbench.common.screens.explorer.backend.server;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.guvnor.common.services.project.events.NewPackageEvent;
+import org.guvnor.common.services.project.model.Package;
+import org.junit.Before;
+import org.junit.Test;
+import org.kie.workbench.common.screens.explorer.model.FolderItem;
+import org.kie.workbench.common.screens.explorer.model.FolderItemType;
+import org.uberfire.backend.vfs.Path;
+import org.uberfire.workbench.events.ResourceAddedEvent;
+import org.uberfire.workbench.events.ResourceBatchChangesEvent;
+import org.uberfire.workbench.events.ResourceChange;
+import org.uberfire.workbench.events.ResourceDeletedEvent;
+import org.uberfire.workbench.events.ResourceRenamedEvent;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class FolderListingCacheTest {
+
+    private static final String FOLDER = "default://repository/project/src/main/resources/org/test";
+
+    private FolderListingCache cache;
+
+    @Before
+    public void setUp() {
+        cache = new FolderListingCache();
+    }
+
+    @Test
+    public void testItemsAreOrderedByNameThenURI() {
+        final FolderItem folder = makeItem( FOLDER + "/z",
+                                            FolderItemType.FOLDER );
+        final FolderItem upper = makeItem( FOLDER + "/A.drl",
+                                           FolderItemType.FILE );
+        final FolderItem lower = makeItem( FOLDER + "/a.drl",
+                                           FolderItemType.FILE );
+        final List<FolderItem> items = new ArrayList<FolderItem>( Arrays.asList( lower,
+                                                                                 upper,
+                                                                                 folder ) );
+        Collections.sort( items,
+                          FolderListingCache.ITEM_ORDER );
+
+        assertEquals( Arrays.asList( folder,
+                                     upper,
+                                     lower ),
+                      items );
+    }
+
+    @Test
+    public void testPagesFollowTheirCursor() {
+        final List<FolderItem> items = makeItems( 0,
+                                                  10 );
+        final List<FolderItem> read = new ArrayList<FolderItem>();
+        FolderItem after = null;
+        do {
+            final int start = FolderListingCache.getPageStart( items,
+                                                               after );
+            final List<FolderItem> page = items.subList( start,
+                                                         Math.min( start + 3,
+                                                                   items.size() ) );
+            read.addAll( page );
+            after = page.isEmpty() ? null : page.get( page.size() - 1 );
+        } while ( after != null );
+
+        assertEquals( items,
+                      read );
+    }
+
+    @Test
+    public void testPageIsStableWhenFolderChanges() {
+        final List<FolderItem> items = makeItems( 0,
+                                                  10 );
+        final FolderItem after = items.get( 4 );
+
+        //Items before the cursor are removed, and one is added, so an offset would skip items
+        final List<FolderItem> changed = new ArrayList<FolderItem>( items.subList( 2,
+                                                                                   10 ) );
+        changed.add( makeItem( FOLDER + "/item00a.drl",
+                               FolderItemType.FILE ) );
+        Collections.sort( changed,
+                          FolderListingCache.ITEM_ORDER );
+
+        assertEquals( items.get( 5 ),
+                      changed.get( FolderListingCache.getPageStart( changed,
+                                                                    after ) ) );
+    }
+
+    @Test
+    public void testPageFollowsRemovedCursor() {
+        final List<FolderItem> items = makeItems( 0,
+                                                  10 );
+        final FolderItem after = items.get( 4 );
+        final List<FolderItem> changed = new ArrayList<FolderItem>( items );
+        changed.remove( after );
+
+        assertEquals( items.get( 5 ),
+                      changed.get( FolderListingCache.getPageStart( changed,
+                                                                    after ) ) );
+        assertEquals( 0,
+                      FolderListingCache.getPageStart( changed,
+                                                       null ) );
+    }
+
+    @Test
+    public void testItemsAreCachedUnmodifiable() {
+        final List<FolderItem> items = makeItems( 0,
+                                                  3 );
+        final List<FolderItem> cached = cache.setItems( "path:" + FOLDER,
+                                                        items,
+                                                        Collections.singletonList( makePath( FOLDER ) ),
+                                                        cache.getChangeCount() );
+
+        assertSame( cached,
+                    cache.getItems( "path:" + FOLDER ) );
+        assertEquals( items,
+                      cached );
+        try {
+            cached.add( items.get( 0 ) );
+            fail( "Cached items must not be modifiable" );
+        } catch ( UnsupportedOperationException e ) {
+            //Expected
+        }
+    }
+
+    @Test
+    public void testChangeInFolderInvalidatesListing() {
+        cacheFolder();
+        cache.onResourceAdded( new ResourceAddedEvent( makePath( FOLDER + "/new.drl" ) ) );
+        assertNull( cache.getItems( "path:" + FOLDER ) );
+
+        cacheFolder();
+        cache.onResourceDeleted( new ResourceDeletedEvent( makePath( FOLDER + "/item00.drl" ) ) );
+        assertNull( cache.getItems( "path:" + FOLDER ) );
+
+        cacheFolder();
+        cache.onResourceRenamed( new ResourceRenamedEvent( makePath( "default://repository/project/other/old.drl" ),
+                                                           makePath( FOLDER + "/renamed.drl" ) ) );
+        assertNull( cache.getItems( "path:" + FOLDER ) );
+
+        cacheFolder();
+        final Map<Path, Collection<ResourceChange>> batch = new HashMap<Path, Collection<ResourceChange>>();
+        batch.put( makePath( FOLDER + "/item01.drl" ),
+                   Collections.<ResourceChange>emptyList() );
+        cache.onBatchResourceChanges( new ResourceBatchChangesEvent( batch ) );
+        assertNull( cache.getItems( "path:" + FOLDER ) );
+    }
+
+    @Test
+    public void testChangeInFolderItselfInvalidatesListing() {
+        cacheFolder();
+        cache.onResourceDeleted( new ResourceDeletedEvent( makePath( FOLDER + "/" ) ) );
+
+        assertNull( cache.getItems( "path:" + FOLDER ) );
+    }
+
+    @Test
+    public void testChangeElsewhereKeepsListing() {
+        cacheFolder();
+        cache.onResourceAdded( new ResourceAddedEvent( makePath( FOLDER + "/sub/new.drl" ) ) );
+        cache.onResourceAdded( new ResourceAddedEvent( makePath( FOLDER + "2/new.drl" ) ) );
+
+        assertNotNull( cache.getItems( "path:" + FOLDER ) );
+    }
+
+    @Test
+    public void testNewPackageInvalidatesParentListing() {
+        cacheFolder();
+        final Package pkg = mock( Package.class );
+        when( pkg.getPackageMainSrcPath() ).thenReturn( makePath( "default://repository/project/src/main/java/org/test/child" ) );
+        when( pkg.getPackageTestSrcPath() ).thenReturn( makePath( "default://repository/project/src/test/java/org/test/child" ) );
+        when( pkg.getPackageMainResourcesPath() ).thenReturn( makePath( FOLDER + "/child" ) );
+        when( pkg.getPackageTestResourcesPath() ).thenReturn( makePath( "default://repository/project/src/test/resources/org/test/child" ) );
+        cache.onPackageAdded( new NewPackageEvent( pkg ) );
+
+        assertNull( cache.getItems( "path:" + FOLDER ) );
+    }
+
+    @Test
+    public void testListingReadDuringChangeIsNotCached() {
+        final long changeCount = cache.getChangeCount();
+        cache.onResourceAdded( new ResourceAddedEvent( makePath( FOLDER + "/new.drl" ) ) );
+        cache.setItems( "path:" + FOLDER,
+                        makeItems( 0,
+                                   3 ),
+                        Collections.singletonList( makePath( FOLDER ) ),
+                        changeCount );
+
+        assertNull( cache.getItems( "path:" + FOLDER ) );
+    }
+
+    private void cacheFolder() {
+        cache.setItems( "path:" + FOLDER,
+                        makeItems( 0,
+                                   3 ),
+                        Collections.singletonList( makePath( FOLDER ) ),
+                        cache.getChangeCount() );
+        assertNotNull( cache.getItems( "path:" + FOLDER ) );
+    }
+
+    //Files item<from> to item<to - 1>, in ITEM_ORDER
+    private List<FolderItem> makeItems( final int from,
+                                        final int to ) {
+        final List<FolderItem> items = new ArrayList<FolderItem>();
+        for ( int i = from; i < to; i++ ) {
+            items.add( makeItem( FOLDER + "/item" + ( i < 10 ? "0" : "" ) + i + ".drl",
+                                 FolderItemType.FILE ) );
+        }
+        return items;
+    }
+
+    private FolderItem makeItem( final String uri,
+                                 final FolderItemType type ) {
+        final Path path = makePath( uri );
+        return new FolderItem( path,
+                               uri.substring( uri.lastIndexOf( '/' ) + 1 ),
+                               type );
+    }
+
+    private Path makePath( final String uri ) {
+        final Path path = mock( Path.class );
+        when( path.toURI() ).thenReturn( uri );
+        return path;
+    }
+
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.workbench.common.screens.explorer.backend.server;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.guvnor.common.services.project.events.DeleteProjectEvent;
+import org.guvnor.common.services.project.events.NewProjectEvent;
+import org.guvnor.common.services.project.events.RenameProjectEvent;
+import org.guvnor.common.services.project.model.Project;
+import org.junit.Before;
+import org.junit.Test;
+import org.uberfire.backend.repositories.NewRepositoryEvent;
+import org.uberfire.backend.repositories.Repository;
+import org.uberfire.backend.repositories.RepositoryRemovedEvent;
+import org.uberfire.backend.vfs.Path;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class ProjectTreeCacheTest {
+
+    private Repository repository1;
+    private Repository repository2;
+    private Project project1;
+    private Project project2;
+
+    private ScanningCache cache;
+
+    @Before
+    public void setUp() {
+        repository1 = makeRepository( "default://repository1" );
+        repository2 = makeRepository( "default://repository2" );
+        project1 = makeProject( "default://repository1/project1" );
+        project2 = makeProject( "default://repository2/project2" );
+        cache = new ScanningCache( 60000 );
+        cache.setContent( repository1,
+                          project1 );
+        cache.setContent( repository2,
+                          project2 );
+    }
+
+    @Test
+    public void testProjectsAreCached() {
+        assertEquals( Collections.singleton( project1 ),
+                      cache.getProjects( repository1 ) );
+        assertEquals( Collections.singleton( project1 ),
+                      cache.getProjects( repository1 ) );
+        assertEquals( 1,
+                      cache.getScanCount( repository1 ) );
+    }
+
+    @Test
+    public void testNewProjectIsAdded() {
+        cache.getProjects( repository1 );
+        cache.getProjects( repository2 );
+        final Project project3 = makeProject( "default://repository1/project3" );
+        cache.onProjectAdded( new NewProjectEvent( project3 ) );
+
+        assertEquals( new HashSet<Project>( Arrays.asList( project1,
+                                                           project3 ) ),
+                      cache.getProjects( repository1 ) );
+        assertEquals( Collections.singleton( project2 ),
+                      cache.getProjects( repository2 ) );
+        assertEquals( 1,
+                      cache.getScanCount( repository1 ) );
+    }
+
+    @Test
+    public void testRenamedProjectIsReplaced() {
+        cache.getProjects( repository1 );
+        final Project renamed = makeProject( "default://repository1/renamed" );
+        cache.onProjectRename( new RenameProjectEvent( makeProject( "default://repository1/project1" ),
+                                                       renamed ) );
+
+        assertEquals( Collections.singleton( renamed ),
+                      cache.getProjects( repository1 ) );
+        assertEquals( 1,
+                      cache.getScanCount( repository1 ) );
+    }
+
+    @Test
+    public void testDeletedProjectIsRemoved() {
+        cache.getProjects( repository1 );
+        cache.onProjectDelete( new DeleteProjectEvent( makeProject( "default://repository1/project1" ) ) );
+
+        assertTrue( cache.getProjects( repository1 ).isEmpty() );
+        assertEquals( 1,
+                      cache.getScanCount( repository1 ) );
+    }
+
+    @Test
+    public void testProjectWithSharedPrefixIsNotAddedToOtherRepository() {
+        final Repository repository = makeRepository( "default://repository" );
+        cache.setContent( repository );
+        cache.getProjects( repository );
+        cache.onProjectAdded( new NewProjectEvent( makeProject( "default://repository1/project3" ) ) );
+
+        assertTrue( cache.getProjects( repository ).isEmpty() );
+    }
+
+    @Test
+    public void testRepositoryEventsClearCache() {
+        cache.getProjects( repository1 );
+        cache.onRepositoryAdded( new NewRepositoryEvent( repository2 ) );
+        cache.getProjects( repository1 );
+        cache.onRepositoryRemoved( new RepositoryRemovedEvent( repository2 ) );
+        cache.getProjects( repository1 );
+
+        assertEquals( 3,
+                      cache.getScanCount( repository1 ) );
+    }
+
+    @Test
+    public void testScanSupersededByChangeIsNotCached() {
+        final Project project3 = makeProject( "default://repository1/project3" );
+        cache.setDuringScan( new Runnable() {
+            @Override
+            public void run() {
+                cache.onProjectAdded( new NewProjectEvent( project3 ) );
+            }
+        } );
+        cache.getProjects( repository1 );
+        cache.setDuringScan( null );
+        cache.setContent( repository1,
+                          project1,
+                          project3 );
+
+        assertEquals( new HashSet<Project>( Arrays.asList( project1,
+                                                           project3 ) ),
+                      cache.getProjects( repository1 ) );
+        assertEquals( 2,
+                      cache.getScanCount( repository1 ) );
+    }
+
+    @Test
+    public void testExpiredProjectsAreRescanned() throws Exception {
+        cache = new ScanningCache( 50 );
+        cache.setContent( repository1,
+                          project1 );
+        cache.getProjects( repository1 );
+        Thread.sleep( 100 );
+        cache.getProjects( repository1 );
+
+        assertEquals( 2,
+                      cache.getScanCount( repository1 ) );
+    }
+
+    private Repository makeRepository( final String uri ) {
+        final Repository repository = mock( Repository.class );
+        final Path root = makePath( uri );
+        when( repository.getRoot() ).thenReturn( root );
+        return repository;
+    }
+
+    private Project makeProject( final String uri ) {
+        final Project project = mock( Project.class );
+        final Path root = makePath( uri );
+        when( project.getRootPath() ).thenReturn( root );
+        return project;
+    }
+
+    private Path makePath( final String uri ) {
+        final Path path = mock( Path.class );
+        when( path.toURI() ).thenReturn( uri );
+        return path;
+    }
+
+    //Returns the Projects set for each Repository, rather than reading its root
+    private static class ScanningCache extends ProjectTreeCache {
+
+        private final Map<Repository, Set<Project>> content = new HashMap<Repository, Set<Project>>();
+        private final Map<Repository, Integer> scanCounts = new HashMap<Repository, Integer>();
+        private Runnable duringScan;
+
+        private ScanningCache( final long maxAge ) {
+            super( maxAge );
+        }
+
+        @Override
+        Set<Project> scan( final Repository repository ) {
+            final Integer count = scanCounts.get( repository );
+            scanCounts.put( repository,
+                            count == null ? 1 : count + 1 );
+            if ( duringScan != null ) {
+                duringScan.run();
+            }
+            return new HashSet<Project>( content.get( repository ) );
+        }
+
+        private void setContent( final Repository repository,
+                                 final Project... projects ) {
+            content.put( repository,
+                         new HashSet<Project>( Arrays.asList( projects ) ) );
+        }
+
+        private void setDuringScan( final Runnable duringScan ) {
+            this.duringScan = duringScan;
+        }
+
+        private int getScanCount( final Repository repository ) {
+            final Integer count = scanCounts.get( repository );
+            return count == null ? 0 : count;
+        }
+
+    }
+
+}
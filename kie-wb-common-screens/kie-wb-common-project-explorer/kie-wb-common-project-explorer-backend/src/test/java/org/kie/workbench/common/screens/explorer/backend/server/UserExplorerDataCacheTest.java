@@ -0,0 +1,256 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.workbench.common.screens.explorer.backend.server;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.thoughtworks.xstream.XStream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.kie.workbench.common.screens.explorer.service.Option;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.uberfire.io.IOService;
+import org.uberfire.java.nio.base.WatchContext;
+import org.uberfire.java.nio.file.FileSystem;
+import org.uberfire.java.nio.file.Path;
+import org.uberfire.java.nio.file.WatchEvent;
+import org.uberfire.java.nio.file.WatchKey;
+import org.uberfire.java.nio.file.WatchService;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class UserExplorerDataCacheTest {
+
+    private static final long MAX_AGE = 60000;
+
+    private final XStream xs = new XStream();
+
+    //{Path, XML} of the files held by the IOService
+    private final Map<Path, String> files = new ConcurrentHashMap<Path, String>();
+
+    //Keys taken by the cache's WatchService
+    private final BlockingQueue<WatchKey> watchKeys = new LinkedBlockingQueue<WatchKey>();
+
+    private IOService ioService;
+    private FileSystem fileSystem;
+    private WatchService watchService;
+    private Path lastUserNav;
+    private UserExplorerDataCache cache;
+
+    @Before
+    public void setUp() throws Exception {
+        ioService = mock( IOService.class );
+        fileSystem = mock( FileSystem.class );
+        watchService = mock( WatchService.class );
+        lastUserNav = mock( Path.class );
+        when( lastUserNav.getFileSystem() ).thenReturn( fileSystem );
+        when( fileSystem.newWatchService() ).thenReturn( watchService );
+        when( watchService.take() ).thenAnswer( new Answer<WatchKey>() {
+            @Override
+            public WatchKey answer( final InvocationOnMock invocation ) throws Throwable {
+                return watchKeys.take();
+            }
+        } );
+        when( ioService.exists( any( Path.class ) ) ).thenAnswer( new Answer<Boolean>() {
+            @Override
+            public Boolean answer( final InvocationOnMock invocation ) throws Throwable {
+                return files.containsKey( invocation.getArguments()[ 0 ] );
+            }
+        } );
+        when( ioService.readAllString( any( Path.class ) ) ).thenAnswer( new Answer<String>() {
+            @Override
+            public String answer( final InvocationOnMock invocation ) throws Throwable {
+                return files.get( invocation.getArguments()[ 0 ] );
+            }
+        } );
+        when( ioService.write( any( Path.class ),
+                               anyString() ) ).thenAnswer( new Answer<Path>() {
+            @Override
+            public Path answer( final InvocationOnMock invocation ) throws Throwable {
+                final Path path = (Path) invocation.getArguments()[ 0 ];
+                files.put( path,
+                           (String) invocation.getArguments()[ 1 ] );
+                return path;
+            }
+        } );
+
+        cache = makeCache( MAX_AGE );
+    }
+
+    @After
+    public void tearDown() {
+        cache.destroy();
+    }
+
+    @Test
+    public void testReadIsCached() throws Exception {
+        files.put( lastUserNav,
+                   xs.toXML( makeContent( Option.BUSINESS_CONTENT ) ) );
+
+        final UserExplorerLastData content = cache.getLastContent( lastUserNav );
+        assertEquals( Collections.singleton( Option.BUSINESS_CONTENT ),
+                      content.getOptions() );
+        assertSame( content,
+                    cache.getLastContent( lastUserNav ) );
+        verify( ioService,
+                times( 1 ) ).readAllString( lastUserNav );
+    }
+
+    @Test
+    public void testChangeInvalidatesReadState() throws Exception {
+        files.put( lastUserNav,
+                   xs.toXML( makeContent( Option.BUSINESS_CONTENT ) ) );
+        cache.getLastContent( lastUserNav );
+
+        files.put( lastUserNav,
+                   xs.toXML( makeContent( Option.TECHNICAL_CONTENT ) ) );
+        fireChange( lastUserNav );
+
+        assertEquals( Collections.singleton( Option.TECHNICAL_CONTENT ),
+                      cache.getLastContent( lastUserNav ).getOptions() );
+    }
+
+    @Test
+    public void testOwnWriteIsKeptAfterItsChange() throws Exception {
+        //Start watching
+        cache.getLastContent( lastUserNav );
+
+        final UserExplorerLastData content = makeContent( Option.BUSINESS_CONTENT );
+        cache.write( lastUserNav,
+                     content );
+        fireChange( lastUserNav );
+
+        assertSame( content,
+                    cache.getLastContent( lastUserNav ) );
+    }
+
+    @Test
+    public void testChangeElsewhereAfterOwnWriteInvalidatesState() throws Exception {
+        cache.getLastContent( lastUserNav );
+        cache.write( lastUserNav,
+                     makeContent( Option.BUSINESS_CONTENT ) );
+        fireChange( lastUserNav );
+
+        //Another node changes the file after the cache's own write has been reported
+        files.put( lastUserNav,
+                   xs.toXML( makeContent( Option.TECHNICAL_CONTENT ) ) );
+        fireChange( lastUserNav );
+
+        assertEquals( Collections.singleton( Option.TECHNICAL_CONTENT ),
+                      cache.getLastContent( lastUserNav ).getOptions() );
+    }
+
+    @Test
+    public void testChangeElsewhereBeforeOwnWriteIsReportedInvalidatesState() throws Exception {
+        cache.getLastContent( lastUserNav );
+        cache.write( lastUserNav,
+                     makeContent( Option.BUSINESS_CONTENT ) );
+
+        //Another node changes the file before the cache's own write is reported
+        files.put( lastUserNav,
+                   xs.toXML( makeContent( Option.TECHNICAL_CONTENT ) ) );
+        fireChange( lastUserNav );
+
+        assertEquals( Collections.singleton( Option.TECHNICAL_CONTENT ),
+                      cache.getLastContent( lastUserNav ).getOptions() );
+    }
+
+    @Test
+    public void testExpiredStateIsReRead() throws Exception {
+        cache.destroy();
+        cache = makeCache( 50 );
+        files.put( lastUserNav,
+                   xs.toXML( makeContent( Option.BUSINESS_CONTENT ) ) );
+        cache.getLastContent( lastUserNav );
+
+        //A change that is not reported
+        files.put( lastUserNav,
+                   xs.toXML( makeContent( Option.TECHNICAL_CONTENT ) ) );
+        Thread.sleep( 100 );
+
+        assertEquals( Collections.singleton( Option.TECHNICAL_CONTENT ),
+                      cache.getLastContent( lastUserNav ).getOptions() );
+    }
+
+    @Test
+    public void testStateOfUnwatchableFileSystemIsNotCached() throws Exception {
+        when( fileSystem.newWatchService() ).thenThrow( new UnsupportedOperationException() );
+        files.put( lastUserNav,
+                   xs.toXML( makeContent( Option.BUSINESS_CONTENT ) ) );
+
+        cache.getLastContent( lastUserNav );
+        cache.getLastContent( lastUserNav );
+
+        verify( ioService,
+                times( 2 ) ).readAllString( lastUserNav );
+        verify( fileSystem,
+                times( 1 ) ).newWatchService();
+    }
+
+    @Test
+    public void testDestroyClosesWatchService() throws Exception {
+        cache.getLastContent( lastUserNav );
+        cache.destroy();
+
+        verify( watchService ).close();
+    }
+
+    private UserExplorerDataCache makeCache( final long maxAge ) {
+        final UserExplorerDataCache cache = new UserExplorerDataCache( ioService,
+                                                                       maxAge );
+        cache.init();
+        return cache;
+    }
+
+    private UserExplorerLastData makeContent( final Option option ) {
+        final UserExplorerLastData content = new UserExplorerLastData();
+        content.setOptions( Collections.singleton( option ) );
+        return content;
+    }
+
+    //Report a change to the cache's WatchService and wait for it to be handled
+    private void fireChange( final Path path ) throws InterruptedException {
+        final WatchContext context = mock( WatchContext.class );
+        when( context.getPath() ).thenReturn( path );
+        final WatchEvent event = mock( WatchEvent.class );
+        when( event.context() ).thenReturn( context );
+        final WatchKey key = mock( WatchKey.class );
+        final List<WatchEvent<?>> events = Collections.<WatchEvent<?>>singletonList( event );
+        when( key.pollEvents() ).thenReturn( events );
+        final CountDownLatch handled = new CountDownLatch( 1 );
+        when( key.reset() ).thenAnswer( new Answer<Boolean>() {
+            @Override
+            public Boolean answer( final InvocationOnMock invocation ) throws Throwable {
+                handled.countDown();
+                return true;
+            }
+        } );
+        watchKeys.add( key );
+        assertTrue( handled.await( 10,
+                                   TimeUnit.SECONDS ) );
+    }
+
+}
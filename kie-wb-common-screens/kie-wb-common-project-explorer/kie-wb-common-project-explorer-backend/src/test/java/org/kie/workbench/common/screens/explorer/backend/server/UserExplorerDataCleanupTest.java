@@ -0,0 +1,294 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.workbench.common.screens.explorer.backend.server;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.thoughtworks.xstream.XStream;
+import org.guvnor.common.services.project.model.Project;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.kie.workbench.common.screens.explorer.model.FolderItem;
+import org.kie.workbench.common.screens.explorer.model.FolderItemType;
+import org.kie.workbench.common.screens.explorer.service.Option;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.uberfire.backend.organizationalunit.OrganizationalUnit;
+import org.uberfire.backend.repositories.Repository;
+import org.uberfire.backend.server.UserServicesBackendImpl;
+import org.uberfire.io.IOService;
+import org.uberfire.java.nio.file.FileSystem;
+import org.uberfire.java.nio.file.Path;
+import org.uberfire.java.nio.file.WatchKey;
+import org.uberfire.java.nio.file.WatchService;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class UserExplorerDataCleanupTest {
+
+    private final XStream xs = new XStream();
+
+    //{Path, XML} of the files held by the IOService
+    private final Map<Path, String> files = new ConcurrentHashMap<Path, String>();
+
+    private final List<Path> userNavs = new ArrayList<Path>();
+    private final List<Path> lastUserNavs = new ArrayList<Path>();
+
+    private IOService ioService;
+    private FileSystem fileSystem;
+    private UserExplorerDataCache cache;
+    private UserExplorerDataWriter writer;
+    private UserExplorerDataCleanup cleanup;
+
+    private OrganizationalUnit organizationalUnit;
+    private Repository repository;
+    private Project project1;
+    private Project project2;
+
+    @Before
+    public void setUp() throws Exception {
+        ioService = mock( IOService.class );
+        when( ioService.exists( any( Path.class ) ) ).thenAnswer( new Answer<Boolean>() {
+            @Override
+            public Boolean answer( final InvocationOnMock invocation ) throws Throwable {
+                return files.containsKey( invocation.getArguments()[ 0 ] );
+            }
+        } );
+        when( ioService.readAllString( any( Path.class ) ) ).thenAnswer( new Answer<String>() {
+            @Override
+            public String answer( final InvocationOnMock invocation ) throws Throwable {
+                return files.get( invocation.getArguments()[ 0 ] );
+            }
+        } );
+        when( ioService.write( any( Path.class ),
+                               anyString() ) ).thenAnswer( new Answer<Path>() {
+            @Override
+            public Path answer( final InvocationOnMock invocation ) throws Throwable {
+                final Path path = (Path) invocation.getArguments()[ 0 ];
+                files.put( path,
+                           (String) invocation.getArguments()[ 1 ] );
+                return path;
+            }
+        } );
+
+        //Watch services report no changes
+        final WatchService watchService = mock( WatchService.class );
+        when( watchService.take() ).thenAnswer( new Answer<WatchKey>() {
+            @Override
+            public WatchKey answer( final InvocationOnMock invocation ) throws Throwable {
+                new CountDownLatch( 1 ).await();
+                return null;
+            }
+        } );
+        fileSystem = mock( FileSystem.class );
+        when( fileSystem.newWatchService() ).thenReturn( watchService );
+
+        final UserServicesBackendImpl userServices = mock( UserServicesBackendImpl.class );
+        when( userServices.getAllUsersData( "explorer",
+                                            "user.nav" ) ).thenReturn( userNavs );
+        when( userServices.getAllUsersData( "explorer",
+                                            "last.user.nav" ) ).thenReturn( lastUserNavs );
+
+        organizationalUnit = mock( OrganizationalUnit.class );
+        repository = mock( Repository.class );
+        when( organizationalUnit.getName() ).thenReturn( "ou" );
+        when( repository.getAlias() ).thenReturn( "repository" );
+        when( repository.getUri() ).thenReturn( "default://repository" );
+        project1 = makeProject( "project1" );
+        project2 = makeProject( "project2" );
+
+        cache = new UserExplorerDataCache( ioService,
+                                           60000 );
+        cache.init();
+        writer = new UserExplorerDataWriter( ioService,
+                                             cache,
+                                             60000,
+                                             60000,
+                                             256 );
+        writer.init();
+        cleanup = new UserExplorerDataCleanup( ioService,
+                                               userServices,
+                                               cache,
+                                               writer );
+        cleanup.init();
+    }
+
+    @After
+    public void tearDown() {
+        cleanup.destroy();
+        writer.destroy();
+        cache.destroy();
+    }
+
+    @Test
+    public void testProjectIsRemovedFromUsersState() throws Exception {
+        final Path userNav1 = makeUser( project1 );
+        final Path userNav2 = makeUser( project2 );
+
+        runCleanup( project1 );
+
+        final UserExplorerData content1 = (UserExplorerData) xs.fromXML( files.get( userNav1 ) );
+        assertNull( content1.getFolderItem( organizationalUnit,
+                                            repository,
+                                            project1 ) );
+        final UserExplorerLastData lastContent1 = (UserExplorerLastData) xs.fromXML( files.get( lastUserNavs.get( 0 ) ) );
+        assertNull( lastContent1.getLastFolderItem() );
+
+        //State without the Project is not written
+        verify( ioService,
+                never() ).write( eq( userNav2 ),
+                                 anyString() );
+        verify( ioService,
+                never() ).write( eq( lastUserNavs.get( 1 ) ),
+                                 anyString() );
+    }
+
+    @Test
+    public void testPendingNavigationsAreSkipped() throws Exception {
+        makeUser( project1 );
+        final Path pendingUserNav1 = makePath();
+        final Path pendingUserNav2 = makePath();
+        store( pendingUserNav1,
+               project1 );
+        store( pendingUserNav2,
+               project2 );
+
+        runCleanup( project1 );
+
+        //Pending navigations to the Project would otherwise restore it once written
+        assertNull( writer.getPendingLastContent( pendingUserNav1 ) );
+        assertNotNull( writer.getPendingLastContent( pendingUserNav2 ) );
+        verify( ioService,
+                never() ).write( eq( pendingUserNav1 ),
+                                 anyString() );
+        verify( ioService,
+                never() ).write( eq( pendingUserNav2 ),
+                                 anyString() );
+    }
+
+    @Test
+    public void testStateIsReadWithoutCaching() throws Exception {
+        makeUser( project1 );
+        final Path cachedUserNav = makeUser( project2 );
+        final Path uncachedUserNav = makeUser( project2 );
+        cache.getUserContent( cachedUserNav );
+
+        runCleanup( project1 );
+
+        //Cached state is used, other state is read from the file but not cached
+        verify( ioService,
+                times( 1 ) ).readAllString( cachedUserNav );
+        verify( ioService,
+                times( 1 ) ).readAllString( uncachedUserNav );
+        cache.getUserContent( cachedUserNav );
+        cache.getUserContent( uncachedUserNav );
+        verify( ioService,
+                times( 1 ) ).readAllString( cachedUserNav );
+        verify( ioService,
+                times( 2 ) ).readAllString( uncachedUserNav );
+    }
+
+    //Run a cleanup that changes state and wait for it to be written
+    private void runCleanup( final Project project ) throws InterruptedException {
+        cleanup.cleanup( project );
+        verify( ioService,
+                timeout( 10000 ) ).endBatch();
+        final CountDownLatch latch = new CountDownLatch( 1 );
+        writer.execute( new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        } );
+        assertTrue( latch.await( 10,
+                                 TimeUnit.SECONDS ) );
+    }
+
+    //Make a user whose state and last navigation are of a folder in a Project
+    private Path makeUser( final Project project ) {
+        final FolderItem item = makeItem( project );
+        final UserExplorerData content = new UserExplorerData();
+        content.addProject( organizationalUnit,
+                            repository,
+                            project );
+        content.addFolderItem( organizationalUnit,
+                               repository,
+                               project,
+                               item );
+        final UserExplorerLastData lastContent = new UserExplorerLastData();
+        lastContent.setFolderItem( organizationalUnit,
+                                   repository,
+                                   project,
+                                   item );
+        lastContent.setOptions( Collections.singleton( Option.BUSINESS_CONTENT ) );
+
+        final Path userNav = makePath();
+        final Path lastUserNav = makePath();
+        files.put( userNav,
+                   xs.toXML( content ) );
+        files.put( lastUserNav,
+                   xs.toXML( lastContent ) );
+        userNavs.add( userNav );
+        lastUserNavs.add( lastUserNav );
+        return userNav;
+    }
+
+    private void store( final Path userNav,
+                        final Project project ) {
+        writer.store( userNav,
+                      makePath(),
+                      organizationalUnit,
+                      repository,
+                      project,
+                      null,
+                      makeItem( project ),
+                      Collections.singleton( Option.BUSINESS_CONTENT ) );
+    }
+
+    private FolderItem makeItem( final Project project ) {
+        final org.uberfire.backend.vfs.Path folder = mock( org.uberfire.backend.vfs.Path.class );
+        when( folder.toURI() ).thenReturn( project.getRootPath().toURI() + "/src" );
+        return new FolderItem( folder,
+                               "src",
+                               FolderItemType.FOLDER );
+    }
+
+    private Project makeProject( final String name ) {
+        final Project project = mock( Project.class );
+        final org.uberfire.backend.vfs.Path root = mock( org.uberfire.backend.vfs.Path.class );
+        final org.uberfire.backend.vfs.Path pom = mock( org.uberfire.backend.vfs.Path.class );
+        when( root.toURI() ).thenReturn( "default://repository/" + name );
+        when( pom.toURI() ).thenReturn( "default://repository/" + name + "/pom.xml" );
+        when( project.getRootPath() ).thenReturn( root );
+        when( project.getPomXMLPath() ).thenReturn( pom );
+        return project;
+    }
+
+    private Path makePath() {
+        final Path path = mock( Path.class );
+        when( path.getFileSystem() ).thenReturn( fileSystem );
+        return path;
+    }
+
+}
@@ -0,0 +1,324 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.workbench.common.screens.explorer.backend.server;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.guvnor.common.services.project.model.Project;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.kie.workbench.common.screens.explorer.service.Option;
+import org.uberfire.backend.organizationalunit.OrganizationalUnit;
+import org.uberfire.backend.repositories.Repository;
+import org.uberfire.io.IOService;
+import org.uberfire.java.nio.file.Path;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class UserExplorerDataWriterTest {
+
+    private static final long WRITE_DELAY = 500;
+    private static final long MAX_WRITE_DELAY = 1500;
+
+    private IOService ioService;
+    private RecordingCache cache;
+    private UserExplorerDataWriter writer;
+
+    private OrganizationalUnit organizationalUnit;
+    private Repository repository;
+    private Project project1;
+    private Project project2;
+
+    @Before
+    public void setUp() {
+        ioService = mock( IOService.class );
+        organizationalUnit = mock( OrganizationalUnit.class );
+        repository = mock( Repository.class );
+        project1 = mock( Project.class );
+        project2 = mock( Project.class );
+        when( organizationalUnit.getName() ).thenReturn( "ou" );
+        when( repository.getAlias() ).thenReturn( "repository" );
+        when( repository.getUri() ).thenReturn( "default://repository" );
+        cache = new RecordingCache();
+        writer = makeWriter( 256 );
+    }
+
+    @After
+    public void tearDown() {
+        writer.destroy();
+    }
+
+    @Test
+    public void testBurstOfNavigationsIsWrittenOnce() throws Exception {
+        final Path userNav = mock( Path.class );
+        final Path lastUserNav = mock( Path.class );
+        store( userNav,
+               lastUserNav,
+               project1,
+               Option.BUSINESS_CONTENT );
+        store( userNav,
+               lastUserNav,
+               project2,
+               Option.TECHNICAL_CONTENT );
+
+        cache.awaitWrites( 2 );
+        awaitWriter();
+        assertEquals( 1,
+                      cache.getWriteCount( userNav ) );
+        assertEquals( 1,
+                      cache.getWriteCount( lastUserNav ) );
+        verify( ioService,
+                times( 1 ) ).startBatch();
+
+        //Both navigations are written, the last being the user's last navigation
+        final UserExplorerData content = (UserExplorerData) cache.getWritten( userNav );
+        assertEquals( project2,
+                      content.get( organizationalUnit,
+                                   repository ) );
+        final UserExplorerLastData lastContent = (UserExplorerLastData) cache.getWritten( lastUserNav );
+        assertEquals( Collections.singleton( Option.TECHNICAL_CONTENT ),
+                      lastContent.getOptions() );
+        assertNull( writer.getPendingLastContent( userNav ) );
+    }
+
+    @Test
+    public void testEachNavigationPostponesTheWrite() throws Exception {
+        final Path userNav = mock( Path.class );
+        final Path lastUserNav = mock( Path.class );
+        store( userNav,
+               lastUserNav,
+               project1,
+               Option.BUSINESS_CONTENT );
+        Thread.sleep( WRITE_DELAY * 3 / 5 );
+        store( userNav,
+               lastUserNav,
+               project2,
+               Option.BUSINESS_CONTENT );
+        Thread.sleep( WRITE_DELAY * 3 / 5 );
+
+        //The first navigation's delay has passed, but not that of the second
+        assertEquals( 0,
+                      cache.getWriteCount( userNav ) );
+        assertNotNull( writer.getPendingLastContent( userNav ) );
+
+        cache.awaitWrites( 2 );
+        assertEquals( 1,
+                      cache.getWriteCount( userNav ) );
+    }
+
+    @Test
+    public void testContinuousNavigationsAreWrittenWithinMaxDelay() throws Exception {
+        final Path userNav = mock( Path.class );
+        final Path lastUserNav = mock( Path.class );
+        final long start = System.currentTimeMillis();
+        while ( System.currentTimeMillis() - start < MAX_WRITE_DELAY * 2 ) {
+            store( userNav,
+                   lastUserNav,
+                   project1,
+                   Option.BUSINESS_CONTENT );
+            Thread.sleep( WRITE_DELAY / 5 );
+        }
+        assertTrue( cache.getWriteCount( userNav ) >= 1 );
+    }
+
+    @Test
+    public void testUsersAreWrittenInOneBatch() throws Exception {
+        writer.destroy();
+        writer = makeWriter( 3 );
+        final List<Path> userNavs = new ArrayList<Path>();
+        for ( int i = 0; i < 3; i++ ) {
+            final Path userNav = mock( Path.class );
+            userNavs.add( userNav );
+            store( userNav,
+                   mock( Path.class ),
+                   project1,
+                   Option.BUSINESS_CONTENT );
+        }
+
+        //Reaching the maximum number of pending users writes them without waiting for the delay
+        cache.awaitWrites( 6 );
+        awaitWriter();
+        for ( Path userNav : userNavs ) {
+            assertEquals( 1,
+                          cache.getWriteCount( userNav ) );
+        }
+        verify( ioService,
+                times( 1 ) ).startBatch();
+        verify( ioService,
+                times( 1 ) ).endBatch();
+    }
+
+    @Test
+    public void testNavigationsArePendingUntilWritten() throws Exception {
+        final Path userNav = mock( Path.class );
+        final Path lastUserNav = mock( Path.class );
+        cache.blockWrites();
+        store( userNav,
+               lastUserNav,
+               project1,
+               Option.BUSINESS_CONTENT );
+
+        //Navigations being written are still seen by reads
+        cache.awaitBlockedWrite();
+        assertNotNull( writer.getPendingLastContent( userNav ) );
+        final UserExplorerData content = new UserExplorerData();
+        writer.applyPending( userNav,
+                             content );
+        assertEquals( project1,
+                      content.get( organizationalUnit,
+                                   repository ) );
+
+        cache.unblockWrites();
+        cache.awaitWrites( 2 );
+        awaitWriter();
+        assertNull( writer.getPendingLastContent( userNav ) );
+    }
+
+    @Test
+    public void testDeletedProjectIsNotWritten() throws Exception {
+        final Path userNav = mock( Path.class );
+        final Path lastUserNav = mock( Path.class );
+        store( userNav,
+               lastUserNav,
+               project1,
+               Option.BUSINESS_CONTENT );
+        writer.deleteProject( project1 );
+
+        assertNull( writer.getPendingLastContent( userNav ) );
+        Thread.sleep( WRITE_DELAY * 2 );
+        assertEquals( 0,
+                      cache.getWriteCount( userNav ) );
+    }
+
+    private UserExplorerDataWriter makeWriter( final int maxPendingUsers ) {
+        final UserExplorerDataWriter writer = new UserExplorerDataWriter( ioService,
+                                                                          cache,
+                                                                          WRITE_DELAY,
+                                                                          MAX_WRITE_DELAY,
+                                                                          maxPendingUsers );
+        writer.init();
+        return writer;
+    }
+
+    //Wait for the writer to finish the write in progress
+    private void awaitWriter() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch( 1 );
+        writer.execute( new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        } );
+        assertTrue( latch.await( 10,
+                                 TimeUnit.SECONDS ) );
+    }
+
+    private void store( final Path userNav,
+                        final Path lastUserNav,
+                        final Project project,
+                        final Option option ) {
+        writer.store( userNav,
+                      lastUserNav,
+                      organizationalUnit,
+                      repository,
+                      project,
+                      null,
+                      null,
+                      Collections.singleton( option ) );
+    }
+
+    //Records the state written, rather than writing it
+    private static class RecordingCache extends UserExplorerDataCache {
+
+        private final Map<Path, Object> written = new HashMap<Path, Object>();
+        private final Map<Path, Integer> writeCounts = new HashMap<Path, Integer>();
+        private int writes;
+
+        private CountDownLatch blocked;
+        private CountDownLatch unblock;
+
+        @Override
+        public UserExplorerData getUserContent( final Path userNav ) {
+            synchronized ( this ) {
+                return (UserExplorerData) written.get( userNav );
+            }
+        }
+
+        @Override
+        public void write( final Path path,
+                           final Object content ) {
+            if ( unblock != null ) {
+                blocked.countDown();
+                try {
+                    unblock.await();
+                } catch ( InterruptedException e ) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            synchronized ( this ) {
+                written.put( path,
+                             content );
+                final Integer count = writeCounts.get( path );
+                writeCounts.put( path,
+                                 count == null ? 1 : count + 1 );
+                writes++;
+                notifyAll();
+            }
+        }
+
+        private synchronized Object getWritten( final Path path ) {
+            return written.get( path );
+        }
+
+        private synchronized int getWriteCount( final Path path ) {
+            final Integer count = writeCounts.get( path );
+            return count == null ? 0 : count;
+        }
+
+        private synchronized void awaitWrites( final int count ) throws InterruptedException {
+            final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis( 10 );
+            while ( writes < count && System.currentTimeMillis() < deadline ) {
+                wait( 100 );
+            }
+            assertEquals( count,
+                          writes );
+        }
+
+        private void blockWrites() {
+            blocked = new CountDownLatch( 1 );
+            unblock = new CountDownLatch( 1 );
+        }
+
+        private void awaitBlockedWrite() throws InterruptedException {
+            assertTrue( blocked.await( 10,
+                                       TimeUnit.SECONDS ) );
+        }
+
+        private void unblockWrites() {
+            unblock.countDown();
+        }
+
+    }
+
+}
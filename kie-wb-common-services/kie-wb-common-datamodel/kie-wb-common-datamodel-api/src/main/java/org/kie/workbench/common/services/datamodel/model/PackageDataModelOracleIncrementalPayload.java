@@ -54,6 +54,9 @@ public class PackageDataModelOracleIncrementalPayload {
     //Map {factType, Map<fieldName, Set<Annotation>>} containing the FactType's Field annotations.
     private Map<String, Map<String, Set<Annotation>>> typeFieldsAnnotations = new HashMap<String, Map<String, Set<Annotation>>>();
 
+    // Package-level enumeration definitions derived from "Workbench" enumerations, for the Fact Types in this payload.
+    private Map<String, String[]> workbenchEnumLists = new HashMap<String, String[]>();
+
     //Method information used (exclusively) by ExpressionWidget and ActionCallMethodWidget
     private Map<String, List<MethodInfo>> methodInformation = new HashMap<String, List<MethodInfo>>();
 
@@ -116,6 +119,14 @@ public class PackageDataModelOracleIncrementalPayload {
         this.typeFieldsAnnotations = typeFieldsAnnotations;
     }
 
+    public Map<String, String[]> getWorkbenchEnumDefinitions() {
+        return workbenchEnumLists;
+    }
+
+    public void setWorkbenchEnumDefinitions( final Map<String, String[]> workbenchEnumLists ) {
+        this.workbenchEnumLists = workbenchEnumLists;
+    }
+
     public Map<String, List<MethodInfo>> getMethodInformation() {
         return methodInformation;
     }
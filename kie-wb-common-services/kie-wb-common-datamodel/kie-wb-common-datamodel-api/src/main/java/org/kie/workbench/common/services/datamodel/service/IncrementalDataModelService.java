@@ -15,6 +15,8 @@
  */
 package org.kie.workbench.common.services.datamodel.service;
 
+import java.util.Set;
+
 import org.drools.workbench.models.datamodel.imports.Imports;
 import org.jboss.errai.bus.server.annotations.Remote;
 import org.kie.workbench.common.services.datamodel.model.PackageDataModelOracleIncrementalPayload;
@@ -30,4 +32,15 @@ public interface IncrementalDataModelService {
                                                          final Imports imports,
                                                          final String factType );
 
+    /**
+     * Get incremental updates for multiple Fact Types in a single request
+     * @param resourcePath
+     * @param imports
+     * @param factTypes
+     * @return The combined content of all Fact Types
+     */
+    PackageDataModelOracleIncrementalPayload getUpdates( final Path resourcePath,
+                                                         final Imports imports,
+                                                         final Set<String> factTypes );
+
 }
@@ -16,7 +16,6 @@
 package org.kie.workbench.common.services.datamodel.backend.server;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -26,12 +25,16 @@ import java.util.Set;
 
 import org.drools.workbench.models.datamodel.oracle.Annotation;
 import org.drools.workbench.models.datamodel.oracle.DataType;
-import org.drools.workbench.models.datamodel.oracle.MethodInfo;
 import org.drools.workbench.models.datamodel.oracle.ModelField;
 import org.drools.workbench.models.datamodel.oracle.PackageDataModelOracle;
 import org.drools.workbench.models.datamodel.oracle.ProjectDataModelOracle;
 import org.drools.workbench.models.datamodel.oracle.TypeSource;
-import org.kie.workbench.common.services.datamodel.model.LazyModelField;
+import org.drools.workbench.models.datamodel.rule.DSLSentence;
+import org.kie.workbench.common.services.datamodel.backend.server.builder.projects.HasProjectDataModelOracleIndex;
+import org.kie.workbench.common.services.datamodel.backend.server.builder.projects.ProjectDataModelOracleIndex;
+import org.kie.workbench.common.services.datamodel.backend.server.builder.util.DataEnumLoader;
+import org.kie.workbench.common.services.datamodel.backend.server.cache.BaselinePayloadCache;
+import org.kie.workbench.common.services.datamodel.backend.server.cache.HasBaselinePayloadCache;
 import org.kie.workbench.common.services.datamodel.model.PackageDataModelOracleBaselinePayload;
 import org.kie.workbench.common.services.datamodel.model.PackageDataModelOracleIncrementalPayload;
 
@@ -175,6 +178,10 @@ public class DataModelOracleUtilities {
         if ( oracle.getProjectModelFields().containsKey( fullyQualifiedClassName ) ) {
             return fullyQualifiedClassName;
         }
+        if ( oracle instanceof HasProjectDataModelOracleIndex ) {
+            return ( (HasProjectDataModelOracleIndex) oracle ).getIndex().getFactName( fullyQualifiedClassName );
+        }
+        //Oracles without an index are scanned rather than indexed for a single look-up
         for ( Map.Entry<String, ModelField[]> entry : oracle.getProjectModelFields().entrySet() ) {
             for ( ModelField mf : entry.getValue() ) {
                 if ( DataType.TYPE_THIS.equals( mf.getName() ) && fullyQualifiedClassName.equals( mf.getClassName() ) ) {
@@ -213,255 +220,198 @@ public class DataModelOracleUtilities {
     public static void populateDataModel( final PackageDataModelOracle oracle,
                                           final PackageDataModelOracleBaselinePayload dataModel,
                                           final Set<String> usedFullyQualifiedClassNames ) {
+        //Baseline payloads are cached with the oracle from which they were built
+        final BaselinePayloadCache cache = ( oracle instanceof HasBaselinePayloadCache ) ? ( (HasBaselinePayloadCache) oracle ).getBaselinePayloadCache() : null;
+        PackageDataModelOracleBaselinePayload baseline = ( cache == null ) ? null : cache.getPayload( usedFullyQualifiedClassNames );
+        if ( baseline == null ) {
+            baseline = new PackageDataModelOracleBaselinePayload();
+            buildDataModel( oracle,
+                            baseline,
+                            usedFullyQualifiedClassNames );
+            if ( cache != null ) {
+                cache.setPayload( usedFullyQualifiedClassNames,
+                                  baseline );
+            }
+        }
+        copyDataModel( baseline,
+                       dataModel );
+
+        //Workbench enumerations loaded lazily may be refreshed, so are read from the oracle rather than the cached payload.
+        //When loaded lazily only those of the types used are sent, so other entries are not evaluated; the rest follow
+        //with incremental content. Otherwise all are sent, as the client looks up enumerations of any type synchronously.
+        if ( DataEnumLoader.isLazy() ) {
+            final Set<String> baselineFullyQualifiedClassNames = new HashSet<String>( usedFullyQualifiedClassNames );
+            baselineFullyQualifiedClassNames.addAll( oracle.getPackageGlobals().values() );
+            dataModel.setWorkbenchEnumDefinitions( getWorkbenchEnumDefinitions( oracle,
+                                                                                baselineFullyQualifiedClassNames ) );
+        } else {
+            dataModel.setWorkbenchEnumDefinitions( new HashMap<String, String[]>( oracle.getPackageWorkbenchDefinitions() ) );
+        }
+    }
+
+    private static void buildDataModel( final PackageDataModelOracle oracle,
+                                        final PackageDataModelOracleBaselinePayload dataModel,
+                                        final Set<String> usedFullyQualifiedClassNames ) {
+        final ProjectDataModelOracleIndex index = ProjectDataModelOracleIndex.getIndex( oracle );
+        final ProjectDataModelOracleIndex.TypeDefinitions definitions = getTypeDefinitions( index,
+                                                                                            usedFullyQualifiedClassNames );
         dataModel.setProjectName( oracle.getProjectName() );
         dataModel.setPackageName( oracle.getPackageName() );
         dataModel.setModelFields( setupModelFields( usedFullyQualifiedClassNames,
+                                                    index,
                                                     oracle.getProjectModelFields(),
                                                     oracle.getPackageGlobals() ) );
-        dataModel.setFieldParametersType( filterFieldParametersTypes( usedFullyQualifiedClassNames,
-                                                                      oracle.getProjectFieldParametersType() ) );
-        dataModel.setEventTypes( filterEventTypes( usedFullyQualifiedClassNames,
-                                                   oracle.getProjectEventTypes() ) );
-        dataModel.setTypeSources( filterTypeSources( usedFullyQualifiedClassNames,
-                                                     oracle.getProjectTypeSources() ) );
-        dataModel.setSuperTypes( filterSuperTypes( usedFullyQualifiedClassNames,
-                                                   oracle.getProjectSuperTypes() ) );
-        dataModel.setTypeAnnotations( filterTypeAnnotations( usedFullyQualifiedClassNames,
-                                                             oracle.getProjectTypeAnnotations() ) );
-        dataModel.setTypeFieldsAnnotations( filterTypeFieldsAnnotations( usedFullyQualifiedClassNames,
-                                                                         oracle.getProjectTypeFieldsAnnotations() ) );
-        dataModel.setJavaEnumDefinitions( oracle.getProjectJavaEnumDefinitions() );
-        dataModel.setWorkbenchEnumDefinitions( oracle.getPackageWorkbenchDefinitions() );
-        dataModel.setMethodInformation( filterMethodInformation( usedFullyQualifiedClassNames,
-                                                                 oracle.getProjectMethodInformation() ) );
-        dataModel.setCollectionTypes( filterCollectionTypes( usedFullyQualifiedClassNames,
-                                                             oracle.getProjectCollectionTypes() ) );
-        dataModel.setDslConditionSentences( oracle.getPackageDslConditionSentences() );
-        dataModel.setDslActionSentences( oracle.getPackageDslActionSentences() );
-        dataModel.setGlobalTypes( oracle.getPackageGlobals() );
-        dataModel.setPackageNames( oracle.getProjectPackageNames() );
+        dataModel.setFieldParametersType( definitions.getFieldParametersType() );
+        dataModel.setEventTypes( definitions.getEventTypes() );
+        dataModel.setTypeSources( definitions.getTypeSources() );
+        dataModel.setSuperTypes( definitions.getSuperTypes() );
+        dataModel.setTypeAnnotations( definitions.getTypeAnnotations() );
+        dataModel.setTypeFieldsAnnotations( definitions.getTypeFieldsAnnotations() );
+        dataModel.setJavaEnumDefinitions( new HashMap<String, String[]>( oracle.getProjectJavaEnumDefinitions() ) );
+        dataModel.setMethodInformation( definitions.getMethodInformation() );
+        dataModel.setCollectionTypes( definitions.getCollectionTypes() );
+        dataModel.setDslConditionSentences( new ArrayList<DSLSentence>( oracle.getPackageDslConditionSentences() ) );
+        dataModel.setDslActionSentences( new ArrayList<DSLSentence>( oracle.getPackageDslActionSentences() ) );
+        dataModel.setGlobalTypes( new HashMap<String, String>( oracle.getPackageGlobals() ) );
+        dataModel.setPackageNames( new ArrayList<String>( oracle.getProjectPackageNames() ) );
     }
 
-    public static void populateDataModel( final PackageDataModelOracle oracle,
-                                          final PackageDataModelOracleIncrementalPayload dataModel,
-                                          final String usedFullyQualifiedClassName ) {
-        final Set<String> usedFullyQualifiedClassNames = new HashSet<String>();
-        usedFullyQualifiedClassNames.add( usedFullyQualifiedClassName );
-        dataModel.setModelFields( filterModelFields( usedFullyQualifiedClassNames,
-                                                     oracle.getProjectModelFields() ) );
-        dataModel.setFieldParametersType( filterFieldParametersTypes( usedFullyQualifiedClassNames,
-                                                                      oracle.getProjectFieldParametersType() ) );
-        dataModel.setEventTypes( filterEventTypes( usedFullyQualifiedClassNames,
-                                                   oracle.getProjectEventTypes() ) );
-        dataModel.setTypeSources( filterTypeSources( usedFullyQualifiedClassNames,
-                                                     oracle.getProjectTypeSources() ) );
-        dataModel.setSuperTypes( filterSuperTypes( usedFullyQualifiedClassNames,
-                                                   oracle.getProjectSuperTypes() ) );
-        dataModel.setTypeAnnotations( filterTypeAnnotations( usedFullyQualifiedClassNames,
-                                                             oracle.getProjectTypeAnnotations() ) );
-        dataModel.setTypeFieldsAnnotations( filterTypeFieldsAnnotations( usedFullyQualifiedClassNames,
-                                                                         oracle.getProjectTypeFieldsAnnotations() ) );
-        dataModel.setMethodInformation( filterMethodInformation( usedFullyQualifiedClassNames,
-                                                                 oracle.getProjectMethodInformation() ) );
-        dataModel.setCollectionTypes( filterCollectionTypes( usedFullyQualifiedClassNames,
-                                                             oracle.getProjectCollectionTypes() ) );
+    //The baseline is cached and shared, so each caller receives its own maps and lists, which it may modify
+    private static void copyDataModel( final PackageDataModelOracleBaselinePayload source,
+                                       final PackageDataModelOracleBaselinePayload target ) {
+        target.setProjectName( source.getProjectName() );
+        target.setPackageName( source.getPackageName() );
+        target.setModelFields( copy( source.getModelFields() ) );
+        target.setFieldParametersType( copy( source.getFieldParametersType() ) );
+        target.setEventTypes( copy( source.getEventTypes() ) );
+        target.setTypeSources( copy( source.getTypeSources() ) );
+        target.setSuperTypes( copy( source.getSuperTypes() ) );
+        target.setTypeAnnotations( copy( source.getTypeAnnotations() ) );
+        target.setTypeFieldsAnnotations( copy( source.getTypeFieldsAnnotations() ) );
+        target.setJavaEnumDefinitions( copy( source.getJavaEnumDefinitions() ) );
+        target.setWorkbenchEnumDefinitions( copy( source.getWorkbenchEnumDefinitions() ) );
+        target.setMethodInformation( copy( source.getMethodInformation() ) );
+        target.setCollectionTypes( copy( source.getCollectionTypes() ) );
+        target.setDslConditionSentences( copy( source.getDslConditionSentences() ) );
+        target.setDslActionSentences( copy( source.getDslActionSentences() ) );
+        target.setGlobalTypes( copy( source.getGlobals() ) );
+        target.setPackageNames( copy( source.getPackageNames() ) );
     }
 
-    //Setup Model Fields for lazy loading client-side
-    private static Map<String, ModelField[]> setupModelFields( final Set<String> usedFullyQualifiedClassNames,
-                                                               final Map<String, ModelField[]> projectModelFields,
-                                                               final Map<String, String> packageGlobals ) {
-        final Map<String, ModelField[]> scopedModelFields = new HashMap<String, ModelField[]>();
-        for ( Map.Entry<String, ModelField[]> e : projectModelFields.entrySet() ) {
-            final String mfQualifiedType = e.getKey();
-            if ( usedFullyQualifiedClassNames.contains( mfQualifiedType ) ) {
-                scopedModelFields.put( mfQualifiedType,
-                                       e.getValue() );
-            } else if ( packageGlobals.containsValue( mfQualifiedType ) ) {
-                scopedModelFields.put( mfQualifiedType,
-                                       e.getValue() );
-            } else {
-                scopedModelFields.put( mfQualifiedType,
-                                       makeLazyProxyModelField( e.getValue() ) );
-            }
-        }
-        return scopedModelFields;
+    private static <V> Map<String, V> copy( final Map<String, V> source ) {
+        return source == null ? new HashMap<String, V>() : new HashMap<String, V>( source );
     }
 
-    //AsyncPackageDataModelOracle.getFactNameFromType() uses THIS to determine the simple Type from a FQCN.
-    //Therefore ensure we provide this minimal information for every Type in the DMO to prevent getFactNameFromType()
-    //needing a callback to the server which makes things more complicated than really needed.
-    private static ModelField[] makeLazyProxyModelField( final ModelField[] modelFields ) {
-        for ( ModelField modelField : modelFields ) {
-            if ( DataType.TYPE_THIS.equals( modelField.getName() ) ) {
-                final ModelField[] result = new ModelField[ 1 ];
-                //LazyModelField is a place-holder to tell AsyncPackageDataModelOracle that it needs to load more information
-                result[ 0 ] = new LazyModelField( modelField.getName(),
-                                                  modelField.getClassName(),
-                                                  modelField.getClassType(),
-                                                  modelField.getOrigin(),
-                                                  modelField.getAccessorsAndMutators(),
-                                                  modelField.getType() );
-                return result;
-            }
-        }
-        return null;
+    private static <T> List<T> copy( final List<T> source ) {
+        return source == null ? new ArrayList<T>() : new ArrayList<T>( source );
     }
 
-    //Filter Model Fields by the types used
-    private static Map<String, ModelField[]> filterModelFields( final Set<String> usedFullyQualifiedClassNames,
-                                                                final Map<String, ModelField[]> projectModelFields ) {
-        final Map<String, ModelField[]> scopedModelFields = new HashMap<String, ModelField[]>();
-        for ( Map.Entry<String, ModelField[]> e : projectModelFields.entrySet() ) {
-            final String mfQualifiedType = e.getKey();
-            final ModelField[] mfModelFields = e.getValue();
-            if ( isTypeUsed( mfQualifiedType,
-                             usedFullyQualifiedClassNames ) ) {
-                scopedModelFields.put( mfQualifiedType,
-                                       mfModelFields );
-            }
-        }
-        return scopedModelFields;
+    public static void populateDataModel( final PackageDataModelOracle oracle,
+                                          final PackageDataModelOracleIncrementalPayload dataModel,
+                                          final String usedFullyQualifiedClassName ) {
+        final ProjectDataModelOracleIndex.TypeDefinitions definitions = ProjectDataModelOracleIndex.getIndex( oracle ).getTypeDefinitions( usedFullyQualifiedClassName );
+        dataModel.setModelFields( definitions.getModelFields() );
+        dataModel.setWorkbenchEnumDefinitions( getWorkbenchEnumDefinitions( oracle,
+                                                                            Collections.singleton( usedFullyQualifiedClassName ) ) );
+        dataModel.setFieldParametersType( definitions.getFieldParametersType() );
+        dataModel.setEventTypes( definitions.getEventTypes() );
+        dataModel.setTypeSources( definitions.getTypeSources() );
+        dataModel.setSuperTypes( definitions.getSuperTypes() );
+        dataModel.setTypeAnnotations( definitions.getTypeAnnotations() );
+        dataModel.setTypeFieldsAnnotations( definitions.getTypeFieldsAnnotations() );
+        dataModel.setMethodInformation( definitions.getMethodInformation() );
+        dataModel.setCollectionTypes( definitions.getCollectionTypes() );
     }
 
-    //Filter Collection Types by the types used
-    private static Map<String, Boolean> filterCollectionTypes( final Set<String> usedFullyQualifiedClassNames,
-                                                               final Map<String, Boolean> projectCollectionTypes ) {
-        final Map<String, Boolean> scopedCollectionTypes = new HashMap<String, Boolean>();
-        for ( Map.Entry<String, Boolean> e : projectCollectionTypes.entrySet() ) {
-            final String collectionQualifiedType = e.getKey();
-            if ( isTypeUsed( collectionQualifiedType,
-                             usedFullyQualifiedClassNames ) ) {
-                scopedCollectionTypes.put( collectionQualifiedType,
-                                           e.getValue() );
-
-            }
-        }
-        return scopedCollectionTypes;
+    public static void populateDataModel( final PackageDataModelOracle oracle,
+                                          final PackageDataModelOracleIncrementalPayload dataModel,
+                                          final Set<String> usedFullyQualifiedClassNames ) {
+        final ProjectDataModelOracleIndex.TypeDefinitions definitions = getTypeDefinitions( ProjectDataModelOracleIndex.getIndex( oracle ),
+                                                                                            usedFullyQualifiedClassNames );
+        dataModel.setModelFields( definitions.getModelFields() );
+        dataModel.setWorkbenchEnumDefinitions( getWorkbenchEnumDefinitions( oracle,
+                                                                            usedFullyQualifiedClassNames ) );
+        dataModel.setFieldParametersType( definitions.getFieldParametersType() );
+        dataModel.setEventTypes( definitions.getEventTypes() );
+        dataModel.setTypeSources( definitions.getTypeSources() );
+        dataModel.setSuperTypes( definitions.getSuperTypes() );
+        dataModel.setTypeAnnotations( definitions.getTypeAnnotations() );
+        dataModel.setTypeFieldsAnnotations( definitions.getTypeFieldsAnnotations() );
+        dataModel.setMethodInformation( definitions.getMethodInformation() );
+        dataModel.setCollectionTypes( definitions.getCollectionTypes() );
     }
 
-    //Filter Event Types by the types used
-    private static Map<String, Boolean> filterEventTypes( final Set<String> usedFullyQualifiedClassNames,
-                                                          final Map<String, Boolean> projectEventTypes ) {
-        final Map<String, Boolean> scopedEventTypes = new HashMap<String, Boolean>();
-        for ( Map.Entry<String, Boolean> e : projectEventTypes.entrySet() ) {
-            final String eventQualifiedType = e.getKey();
-            if ( isTypeUsed( eventQualifiedType,
-                             usedFullyQualifiedClassNames ) ) {
-                scopedEventTypes.put( eventQualifiedType,
-                                      e.getValue() );
-            }
+    //Workbench enumerations of the fields of the types. Definitions name a Fact by its simple or qualified name; the key
+    //of an entry is the Fact name, then the field name, separated by '#', optionally followed by a "[...]" dependency.
+    //Only the keys are read from the oracle until an entry is matched, so other entries loaded lazily are not evaluated.
+    private static Map<String, String[]> getWorkbenchEnumDefinitions( final PackageDataModelOracle oracle,
+                                                                      final Set<String> fullyQualifiedClassNames ) {
+        final Map<String, String[]> workbenchDefinitions = oracle.getPackageWorkbenchDefinitions();
+        final Map<String, String[]> result = new HashMap<String, String[]>();
+        if ( workbenchDefinitions.isEmpty() ) {
+            return result;
         }
-        return scopedEventTypes;
-    }
-
-    //Filter TypeSource by the types used
-    private static Map<String, TypeSource> filterTypeSources( final Set<String> usedFullyQualifiedClassNames,
-                                                              final Map<String, TypeSource> projectTypeSources ) {
-        final Map<String, TypeSource> scopedTypeSources = new HashMap<String, TypeSource>();
-        for ( Map.Entry<String, TypeSource> e : projectTypeSources.entrySet() ) {
-            final String typeQualifiedType = e.getKey();
-            if ( isTypeUsed( typeQualifiedType,
-                             usedFullyQualifiedClassNames ) ) {
-                scopedTypeSources.put( typeQualifiedType,
-                                       e.getValue() );
-            }
+        final Set<String> factNames = new HashSet<String>();
+        for ( String fullyQualifiedClassName : fullyQualifiedClassNames ) {
+            factNames.add( fullyQualifiedClassName.replace( ".",
+                                                            "#" ) );
+            factNames.add( fullyQualifiedClassName.substring( Math.max( fullyQualifiedClassName.lastIndexOf( '.' ),
+                                                                        fullyQualifiedClassName.lastIndexOf( '$' ) ) + 1 ) );
         }
-        return scopedTypeSources;
-    }
-
-    //Filter Super Types by the types used
-    private static Map<String, List<String>> filterSuperTypes( final Set<String> usedFullyQualifiedClassNames,
-                                                               final Map<String, List<String>> projectSuperTypes ) {
-        final Map<String, List<String>> scopedSuperTypes = new HashMap<String, List<String>>();
-        for ( Map.Entry<String, List<String>> e : projectSuperTypes.entrySet() ) {
-            final String typeQualifiedType = e.getKey();
-            final List<String> superTypeQualifiedTypes = e.getValue();
-            if ( isTypeUsed( typeQualifiedType,
-                             usedFullyQualifiedClassNames ) ) {
-                scopedSuperTypes.put( typeQualifiedType,
-                                      superTypeQualifiedTypes );
+        for ( String key : workbenchDefinitions.keySet() ) {
+            final int dependencyIndex = key.indexOf( '[' );
+            final String factField = dependencyIndex == -1 ? key : key.substring( 0,
+                                                                                  dependencyIndex );
+            final int fieldIndex = factField.lastIndexOf( '#' );
+            if ( fieldIndex == -1 || !factNames.contains( factField.substring( 0,
+                                                                               fieldIndex ) ) ) {
+                continue;
             }
-        }
-        return scopedSuperTypes;
-    }
-
-    //Filter Type Annotations by the types used
-    private static Map<String, Set<Annotation>> filterTypeAnnotations( final Set<String> usedFullyQualifiedClassNames,
-                                                                       final Map<String, Set<Annotation>> projectTypeAnnotations ) {
-        final Map<String, Set<Annotation>> scopedTypeAnnotations = new HashMap<String, Set<Annotation>>();
-        for ( Map.Entry<String, Set<Annotation>> e : projectTypeAnnotations.entrySet() ) {
-            final String typeAnnotationQualifiedType = e.getKey();
-            if ( isTypeUsed( typeAnnotationQualifiedType,
-                             usedFullyQualifiedClassNames ) ) {
-                scopedTypeAnnotations.put( typeAnnotationQualifiedType,
-                                           e.getValue() );
+            final String[] values = workbenchDefinitions.get( key );
+            if ( values != null ) {
+                result.put( key,
+                            values );
             }
         }
-        return scopedTypeAnnotations;
+        return result;
     }
 
-    //Filter Type Fields Annotations by the types used
-    private static Map<String, Map<String, Set<Annotation>>> filterTypeFieldsAnnotations( final Set<String> usedFullyQualifiedClassNames,
-                                                                                          final Map<String, Map<String, Set<Annotation>>> projectTypeFieldsAnnotations ) {
-        final Map<String, Map<String, Set<Annotation>>> scopedTypeFieldsAnnotations = new HashMap<String, Map<String, Set<Annotation>>>();
-        for ( Map.Entry<String, Map<String, Set<Annotation>>> e : projectTypeFieldsAnnotations.entrySet() ) {
-            final String typeAnnotationQualifiedType = e.getKey();
-            if ( isTypeUsed( typeAnnotationQualifiedType,
-                             usedFullyQualifiedClassNames ) ) {
-                scopedTypeFieldsAnnotations.put( typeAnnotationQualifiedType,
-                                                 e.getValue() );
-            }
+    //Merge the definitions of all types used
+    private static ProjectDataModelOracleIndex.TypeDefinitions getTypeDefinitions( final ProjectDataModelOracleIndex index,
+                                                                                   final Set<String> usedFullyQualifiedClassNames ) {
+        final List<ProjectDataModelOracleIndex.TypeDefinitions> definitions = new ArrayList<ProjectDataModelOracleIndex.TypeDefinitions>();
+        for ( String usedFullyQualifiedClassName : usedFullyQualifiedClassNames ) {
+            definitions.add( index.getTypeDefinitions( usedFullyQualifiedClassName ) );
         }
-        return scopedTypeFieldsAnnotations;
+        return ProjectDataModelOracleIndex.TypeDefinitions.merge( definitions );
     }
 
-    //Filter Method Information (used by ActionCallXXX and ExpressionBuilder) by the types used
-    private static Map<String, List<MethodInfo>> filterMethodInformation( final Set<String> usedFullyQualifiedClassNames,
-                                                                          final Map<String, List<MethodInfo>> projectMethodInformation ) {
-        final Map<String, List<MethodInfo>> scopedMethodInformation = new HashMap<String, List<MethodInfo>>();
-        for ( Map.Entry<String, List<MethodInfo>> e : projectMethodInformation.entrySet() ) {
-            final String miQualifiedType = e.getKey();
-            if ( isTypeUsed( miQualifiedType,
-                             usedFullyQualifiedClassNames ) ) {
-                scopedMethodInformation.put( miQualifiedType,
-                                             e.getValue() );
-            }
+    //Setup Model Fields for lazy loading client-side
+    private static Map<String, ModelField[]> setupModelFields( final Set<String> usedFullyQualifiedClassNames,
+                                                               final ProjectDataModelOracleIndex index,
+                                                               final Map<String, ModelField[]> projectModelFields,
+                                                               final Map<String, String> packageGlobals ) {
+        final Map<String, ModelField[]> scopedModelFields = new HashMap<String, ModelField[]>( index.getLazyModelFields() );
+        for ( String usedFullyQualifiedClassName : usedFullyQualifiedClassNames ) {
+            addModelFields( usedFullyQualifiedClassName,
+                            projectModelFields,
+                            scopedModelFields );
         }
-        return scopedMethodInformation;
-    }
-
-    //Filter Field Parameter Types by the types used
-    private static Map<String, String> filterFieldParametersTypes( final Set<String> usedFullyQualifiedClassNames,
-                                                                   final Map<String, String> projectFieldParametersTypes ) {
-        final Map<String, String> scopedFieldParametersType = new HashMap<String, String>();
-        for ( Map.Entry<String, String> e : projectFieldParametersTypes.entrySet() ) {
-            final String fieldName = e.getKey();
-            final String fieldType = e.getValue();
-            final String fFieldName_QualifiedType = getQualifiedTypeFromEncodedFieldName( fieldName );
-            if ( isTypeUsed( fFieldName_QualifiedType,
-                             usedFullyQualifiedClassNames ) ) {
-                scopedFieldParametersType.put( fieldName,
-                                               fieldType );
-            }
+        for ( String globalType : packageGlobals.values() ) {
+            addModelFields( globalType,
+                            projectModelFields,
+                            scopedModelFields );
         }
-        return scopedFieldParametersType;
+        return scopedModelFields;
     }
 
-    private static String getQualifiedTypeFromEncodedFieldName( final String encodedFieldName ) {
-        String typeName = encodedFieldName;
-        int hashIndex = typeName.lastIndexOf( "#" );
-        if ( hashIndex != -1 ) {
-            typeName = typeName.substring( 0,
-                                           hashIndex );
+    private static void addModelFields( final String fullyQualifiedClassName,
+                                        final Map<String, ModelField[]> projectModelFields,
+                                        final Map<String, ModelField[]> scopedModelFields ) {
+        if ( projectModelFields.containsKey( fullyQualifiedClassName ) ) {
+            scopedModelFields.put( fullyQualifiedClassName,
+                                   projectModelFields.get( fullyQualifiedClassName ) );
         }
-        return typeName;
-    }
-
-    private static boolean isTypeUsed( final String fullyQualifiedClassName,
-                                       final Set<String> usedFullyQualifiedClassNames ) {
-        return usedFullyQualifiedClassNames.contains( fullyQualifiedClassName.replaceAll( "\\$",
-                                                                                          "." ) );
     }
 
 }
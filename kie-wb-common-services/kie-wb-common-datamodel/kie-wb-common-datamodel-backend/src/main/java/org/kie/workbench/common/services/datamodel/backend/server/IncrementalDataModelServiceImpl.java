@@ -15,6 +15,8 @@
  */
 package org.kie.workbench.common.services.datamodel.backend.server;
 
+import java.util.HashSet;
+import java.util.Set;
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -73,37 +75,85 @@ public class IncrementalDataModelServiceImpl implements IncrementalDataModelServ
             }
 
             //Get the fully qualified class name of the fact type
-            String fullyQualifiedClassName = null;
+            final String fullyQualifiedClassName = resolveFullyQualifiedClassName( pkg,
+                                                                                   imports,
+                                                                                   factType );
 
-            // Check if the factType is already the FQCN
-            if (factType.contains(".")) {
-                fullyQualifiedClassName = factType;
+            //Retrieve (or build) oracle and populate incremental content
+            final PackageDataModelOracle oracle = cachePackages.assertPackageDataModelOracle( project,
+                                                                                              pkg );
+            DataModelOracleUtilities.populateDataModel( oracle,
+                                                        dataModel,
+                                                        fullyQualifiedClassName );
+            return dataModel;
+
+        } catch ( Exception e ) {
+            throw ExceptionUtilities.handleException( e );
+        }
+
+    }
+
+    @Override
+    public PackageDataModelOracleIncrementalPayload getUpdates( final Path resourcePath,
+                                                                final Imports imports,
+                                                                final Set<String> factTypes ) {
+        PortablePreconditions.checkNotNull( "resourcePath",
+                                            resourcePath );
+        PortablePreconditions.checkNotNull( "imports",
+                                            imports );
+        PortablePreconditions.checkNotNull( "factTypes",
+                                            factTypes );
+
+        final PackageDataModelOracleIncrementalPayload dataModel = new PackageDataModelOracleIncrementalPayload();
+
+        try {
+            //Check resource was within a Project structure
+            final Project project = resolveProject( resourcePath );
+            if ( project == null ) {
+                return dataModel;
+            }
+            //Check resource was within a Package structure
+            final Package pkg = resolvePackage( resourcePath );
+            if ( pkg == null ) {
+                return dataModel;
             }
 
-            if (fullyQualifiedClassName == null) {
-                for (Import imp : imports.getImports()) {
-                    if (imp.getType().endsWith(factType)) {
-                        fullyQualifiedClassName = imp.getType();
-                        break;
-                    }
+            //Get the fully qualified class names of the fact types
+            final Set<String> fullyQualifiedClassNames = new HashSet<String>();
+            for ( String factType : factTypes ) {
+                if ( factType != null ) {
+                    fullyQualifiedClassNames.add( resolveFullyQualifiedClassName( pkg,
+                                                                                  imports,
+                                                                                  factType ) );
                 }
             }
-            if ( fullyQualifiedClassName == null ) {
-                fullyQualifiedClassName = pkg.getPackageName() + "." + factType;
-            }
 
             //Retrieve (or build) oracle and populate incremental content
             final PackageDataModelOracle oracle = cachePackages.assertPackageDataModelOracle( project,
                                                                                               pkg );
             DataModelOracleUtilities.populateDataModel( oracle,
                                                         dataModel,
-                                                        fullyQualifiedClassName );
+                                                        fullyQualifiedClassNames );
             return dataModel;
 
         } catch ( Exception e ) {
             throw ExceptionUtilities.handleException( e );
         }
+    }
 
+    private String resolveFullyQualifiedClassName( final Package pkg,
+                                                   final Imports imports,
+                                                   final String factType ) {
+        // Check if the factType is already the FQCN
+        if ( factType.contains( "." ) ) {
+            return factType;
+        }
+        for ( Import imp : imports.getImports() ) {
+            if ( imp.getType().endsWith( factType ) ) {
+                return imp.getType();
+            }
+        }
+        return pkg.getPackageName() + "." + factType;
     }
 
     private Project resolveProject( final Path resourcePath ) {
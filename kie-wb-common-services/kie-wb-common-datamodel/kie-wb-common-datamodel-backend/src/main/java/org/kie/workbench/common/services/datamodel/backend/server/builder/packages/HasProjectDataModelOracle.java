@@ -0,0 +1,27 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.workbench.common.services.datamodel.backend.server.builder.packages;
+
+import org.drools.workbench.models.datamodel.oracle.ProjectDataModelOracle;
+
+/**
+ * Package DataModelOracles that are views of a Project's DataModelOracle, and so keep it reachable
+ */
+public interface HasProjectDataModelOracle {
+
+    ProjectDataModelOracle getProjectOracle();
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.workbench.common.services.datamodel.backend.server.builder.packages;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.kie.workbench.common.services.datamodel.backend.server.builder.util.DataEnumProvider;
+
+/**
+ * Read-only view of Workbench enumerations, keyed by Fact#field, whose values are only calculated when requested.
+ * Looking up a single key only evaluates that key, and the keys can be read without evaluating any; iterating the
+ * entries evaluates every key. A key whose values cannot be calculated is contained, but its values are null.
+ */
+final class LazyDataEnumMap extends AbstractMap<String, String[]> {
+
+    private final Map<String, DataEnumProvider> providers;
+
+    LazyDataEnumMap( final Map<String, DataEnumProvider> providers ) {
+        this.providers = providers;
+    }
+
+    @Override
+    public String[] get( final Object key ) {
+        final DataEnumProvider provider = providers.get( key );
+        return provider == null ? null : provider.getValues();
+    }
+
+    @Override
+    public boolean containsKey( final Object key ) {
+        return providers.containsKey( key );
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return Collections.unmodifiableSet( providers.keySet() );
+    }
+
+    @Override
+    public int size() {
+        return providers.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return providers.isEmpty();
+    }
+
+    @Override
+    public Set<Entry<String, String[]>> entrySet() {
+        //Entries whose values could not be calculated are omitted, as they would have been if loaded eagerly
+        final Map<String, String[]> values = new LinkedHashMap<String, String[]>();
+        for ( Map.Entry<String, DataEnumProvider> e : providers.entrySet() ) {
+            final String[] v = e.getValue().getValues();
+            if ( v != null ) {
+                values.put( e.getKey(),
+                            v );
+            }
+        }
+        return Collections.unmodifiableMap( values ).entrySet();
+    }
+
+}
@@ -9,12 +9,13 @@ import java.util.Map;
 
 import org.drools.compiler.lang.dsl.DSLMappingEntry;
 import org.drools.compiler.lang.dsl.DSLTokenizedMappingFile;
-import org.drools.workbench.models.commons.backend.oracle.PackageDataModelOracleImpl;
 import org.drools.workbench.models.commons.backend.oracle.ProjectDataModelOracleImpl;
 import org.drools.workbench.models.datamodel.oracle.PackageDataModelOracle;
 import org.drools.workbench.models.datamodel.oracle.ProjectDataModelOracle;
 import org.drools.workbench.models.datamodel.rule.DSLSentence;
 import org.kie.workbench.common.services.datamodel.backend.server.builder.util.DataEnumLoader;
+import org.kie.workbench.common.services.datamodel.backend.server.builder.util.DataEnumLoaderCache;
+import org.kie.workbench.common.services.datamodel.backend.server.builder.util.DataEnumProvider;
 import org.kie.workbench.common.services.datamodel.backend.server.builder.util.GlobalsParser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,10 +30,10 @@ public final class PackageDataModelOracleBuilder {
 
     private final String packageName;
 
-    private PackageDataModelOracleImpl packageOracle = new PackageDataModelOracleImpl();
+    private PackageDataModelOracleView packageOracle;
     private ProjectDataModelOracle projectOracle = new ProjectDataModelOracleImpl();
 
-    private Map<String, String[]> factFieldEnums = new HashMap<String, String[]>();
+    private Map<String, DataEnumProvider> factFieldEnums = new HashMap<String, DataEnumProvider>();
     private List<DSLSentence> dslConditionSentences = new ArrayList<DSLSentence>();
     private List<DSLSentence> dslActionSentences = new ArrayList<DSLSentence>();
     //These are not used anywhere in Guvnor 5.5.x, but have been retained for future scope
@@ -64,7 +65,7 @@ public final class PackageDataModelOracleBuilder {
                                                   final String[] values ) {
         final String qualifiedFactField = factType + "#" + fieldName;
         factFieldEnums.put( qualifiedFactField,
-                            values );
+                            DataEnumProvider.constant( values ) );
         return this;
     }
 
@@ -77,10 +78,11 @@ public final class PackageDataModelOracleBuilder {
 
     private void parseEnumDefinition( final String enumDefinition,
                                       final ClassLoader classLoader ) {
-        final DataEnumLoader enumLoader = new DataEnumLoader( enumDefinition,
-                                                              classLoader );
+        //Unchanged definitions are shared between builds, rather than compiled and executed by MVEL each time
+        final DataEnumLoader enumLoader = DataEnumLoaderCache.getInstance().getLoader( enumDefinition,
+                                                                                       classLoader );
         if ( !enumLoader.hasErrors() ) {
-            factFieldEnums.putAll( enumLoader.getData() );
+            factFieldEnums.putAll( enumLoader.getProviders() );
         }
     }
 
@@ -148,19 +150,8 @@ public final class PackageDataModelOracleBuilder {
     }
 
     public PackageDataModelOracle build() {
-        //Copy Project DMO into Package DMO
-        final ProjectDataModelOracleImpl pd = (ProjectDataModelOracleImpl) projectOracle;
-        packageOracle.addProjectModelFields( pd.getProjectModelFields() );
-        packageOracle.addProjectFieldParametersType( pd.getProjectFieldParametersType() );
-        packageOracle.addProjectJavaEnumDefinitions( pd.getProjectJavaEnumDefinitions() );
-        packageOracle.addProjectMethodInformation( pd.getProjectMethodInformation() );
-        packageOracle.addProjectCollectionTypes( pd.getProjectCollectionTypes() );
-        packageOracle.addProjectEventTypes( pd.getProjectEventTypes() );
-        packageOracle.addProjectTypeSources( pd.getProjectTypeSources() );
-        packageOracle.addProjectSuperTypes( pd.getProjectSuperTypes() );
-        packageOracle.addProjectTypeAnnotations( pd.getProjectTypeAnnotations() );
-        packageOracle.addProjectTypeFieldsAnnotations( pd.getProjectTypeFieldsAnnotations() );
-        packageOracle.addProjectPackageNames( pd.getProjectPackageNames() );
+        //Package DMO is a view over the Project DMO, which is shared by all Packages in the Project
+        packageOracle = new PackageDataModelOracleView( projectOracle );
 
         //Add Package DMO specifics
         loadEnums();
@@ -176,13 +167,8 @@ public final class PackageDataModelOracleBuilder {
     }
 
     private void loadEnums() {
-        final Map<String, String[]> loadableEnums = new HashMap<String, String[]>();
-        for ( Map.Entry<String, String[]> e : factFieldEnums.entrySet() ) {
-            final String qualifiedFactField = e.getKey();
-            loadableEnums.put( qualifiedFactField,
-                               e.getValue() );
-        }
-        packageOracle.addPackageWorkbenchEnumDefinitions( loadableEnums );
+        //Entries loaded lazily are evaluated when first requested from the oracle
+        packageOracle.addPackageWorkbenchEnumProviders( factFieldEnums );
     }
 
     private void loadDsls() {
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.workbench.common.services.datamodel.backend.server.builder.packages;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.drools.workbench.models.commons.backend.oracle.PackageDataModelOracleImpl;
+import org.drools.workbench.models.datamodel.oracle.Annotation;
+import org.drools.workbench.models.datamodel.oracle.MethodInfo;
+import org.drools.workbench.models.datamodel.oracle.ModelField;
+import org.drools.workbench.models.datamodel.oracle.ProjectDataModelOracle;
+import org.drools.workbench.models.datamodel.oracle.TypeSource;
+import org.kie.workbench.common.services.datamodel.backend.server.builder.projects.HasProjectDataModelOracleIndex;
+import org.kie.workbench.common.services.datamodel.backend.server.builder.projects.ProjectDataModelOracleIndex;
+import org.kie.workbench.common.services.datamodel.backend.server.builder.util.DataEnumProvider;
+import org.kie.workbench.common.services.datamodel.backend.server.cache.BaselinePayloadCache;
+import org.kie.workbench.common.services.datamodel.backend.server.cache.HasBaselinePayloadCache;
+
+/**
+ * PackageDataModelOracle layered over a Project's DataModelOracle. Only Package-level definitions (Workbench
+ * enumerations, DSL sentences and Globals) are held by the view; Project-level definitions are read from the
+ * Project's oracle, which is shared by all Packages in the Project and must not be modified once built. Workbench
+ * enumerations are held as DataEnumProviders so entries loaded lazily are only evaluated when first requested.
+ */
+final class PackageDataModelOracleView extends PackageDataModelOracleImpl implements HasProjectDataModelOracle,
+                                                                                      HasProjectDataModelOracleIndex,
+                                                                                      HasBaselinePayloadCache {
+
+    private final ProjectDataModelOracle projectOracle;
+    private volatile ProjectDataModelOracleIndex index;
+    private final BaselinePayloadCache baselinePayloadCache = new BaselinePayloadCache();
+
+    private final Map<String, ModelField[]> projectModelFields;
+    private final Map<String, String> projectFieldParametersType;
+    private final Map<String, String[]> projectJavaEnumDefinitions;
+    private final Map<String, List<MethodInfo>> projectMethodInformation;
+    private final Map<String, Boolean> projectCollectionTypes;
+    private final Map<String, Boolean> projectEventTypes;
+    private final Map<String, TypeSource> projectTypeSources;
+    private final Map<String, List<String>> projectSuperTypes;
+    private final Map<String, Set<Annotation>> projectTypeAnnotations;
+    private final Map<String, Map<String, Set<Annotation>>> projectTypeFieldsAnnotations;
+    private final List<String> projectPackageNames;
+
+    private final Map<String, DataEnumProvider> workbenchEnumProviders = new HashMap<String, DataEnumProvider>();
+    private final Map<String, String[]> workbenchEnumDefinitions = new LazyDataEnumMap( workbenchEnumProviders );
+
+    PackageDataModelOracleView( final ProjectDataModelOracle projectOracle ) {
+        this.projectOracle = projectOracle;
+        this.projectModelFields = Collections.unmodifiableMap( projectOracle.getProjectModelFields() );
+        this.projectFieldParametersType = Collections.unmodifiableMap( projectOracle.getProjectFieldParametersType() );
+        this.projectJavaEnumDefinitions = Collections.unmodifiableMap( projectOracle.getProjectJavaEnumDefinitions() );
+        this.projectMethodInformation = Collections.unmodifiableMap( projectOracle.getProjectMethodInformation() );
+        this.projectCollectionTypes = Collections.unmodifiableMap( projectOracle.getProjectCollectionTypes() );
+        this.projectEventTypes = Collections.unmodifiableMap( projectOracle.getProjectEventTypes() );
+        this.projectTypeSources = Collections.unmodifiableMap( projectOracle.getProjectTypeSources() );
+        this.projectSuperTypes = Collections.unmodifiableMap( projectOracle.getProjectSuperTypes() );
+        this.projectTypeAnnotations = Collections.unmodifiableMap( projectOracle.getProjectTypeAnnotations() );
+        this.projectTypeFieldsAnnotations = Collections.unmodifiableMap( projectOracle.getProjectTypeFieldsAnnotations() );
+        this.projectPackageNames = Collections.unmodifiableList( projectOracle.getProjectPackageNames() );
+    }
+
+    @Override
+    public Map<String, ModelField[]> getProjectModelFields() {
+        return projectModelFields;
+    }
+
+    @Override
+    public Map<String, String> getProjectFieldParametersType() {
+        return projectFieldParametersType;
+    }
+
+    @Override
+    public Map<String, String[]> getProjectJavaEnumDefinitions() {
+        return projectJavaEnumDefinitions;
+    }
+
+    @Override
+    public Map<String, List<MethodInfo>> getProjectMethodInformation() {
+        return projectMethodInformation;
+    }
+
+    @Override
+    public Map<String, Boolean> getProjectCollectionTypes() {
+        return projectCollectionTypes;
+    }
+
+    @Override
+    public Map<String, Boolean> getProjectEventTypes() {
+        return projectEventTypes;
+    }
+
+    @Override
+    public Map<String, TypeSource> getProjectTypeSources() {
+        return projectTypeSources;
+    }
+
+    @Override
+    public Map<String, List<String>> getProjectSuperTypes() {
+        return projectSuperTypes;
+    }
+
+    @Override
+    public Map<String, Set<Annotation>> getProjectTypeAnnotations() {
+        return projectTypeAnnotations;
+    }
+
+    @Override
+    public Map<String, Map<String, Set<Annotation>>> getProjectTypeFieldsAnnotations() {
+        return projectTypeFieldsAnnotations;
+    }
+
+    @Override
+    public List<String> getProjectPackageNames() {
+        return projectPackageNames;
+    }
+
+    @Override
+    public void addPackageWorkbenchEnumDefinitions( final Map<String, String[]> dataEnumLists ) {
+        for ( Map.Entry<String, String[]> e : dataEnumLists.entrySet() ) {
+            workbenchEnumProviders.put( e.getKey(),
+                                        DataEnumProvider.constant( e.getValue() ) );
+        }
+    }
+
+    void addPackageWorkbenchEnumProviders( final Map<String, DataEnumProvider> providers ) {
+        workbenchEnumProviders.putAll( providers );
+    }
+
+    @Override
+    public Map<String, String[]> getPackageWorkbenchDefinitions() {
+        return workbenchEnumDefinitions;
+    }
+
+    @Override
+    public ProjectDataModelOracle getProjectOracle() {
+        return projectOracle;
+    }
+
+    @Override
+    public ProjectDataModelOracleIndex getIndex() {
+        //The Project's oracle normally carries its own index, in which case this is cheap
+        ProjectDataModelOracleIndex result = index;
+        if ( result == null ) {
+            synchronized ( this ) {
+                result = index;
+                if ( result == null ) {
+                    result = index = ProjectDataModelOracleIndex.getIndex( projectOracle );
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public BaselinePayloadCache getBaselinePayloadCache() {
+        return baselinePayloadCache;
+    }
+
+}
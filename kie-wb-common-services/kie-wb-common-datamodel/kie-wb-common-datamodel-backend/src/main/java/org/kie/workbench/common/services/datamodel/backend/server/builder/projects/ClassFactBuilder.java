@@ -11,6 +11,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -25,12 +26,23 @@ import org.drools.workbench.models.datamodel.oracle.MethodInfo;
 import org.drools.workbench.models.datamodel.oracle.ModelField;
 import org.drools.workbench.models.datamodel.oracle.TypeSource;
 import org.kie.workbench.common.services.datamodel.backend.server.builder.util.AnnotationUtils;
+import org.kie.workbench.common.services.datamodel.backend.server.builder.util.NameInterner;
+import org.uberfire.commons.data.Pair;
 
 /**
  * Builder for Fact Types originating from a .class
  */
 public class ClassFactBuilder extends BaseFactBuilder {
 
+    private static final Map<String, Class<?>> PRIMITIVE_TYPES = new HashMap<String, Class<?>>();
+
+    static {
+        for ( Class<?> primitive : new Class<?>[]{ boolean.class, byte.class, char.class, short.class, int.class, long.class, float.class, double.class, void.class } ) {
+            PRIMITIVE_TYPES.put( primitive.getName(),
+                                 primitive );
+        }
+    }
+
     private final ClassToGenericClassConverter typeSystemConverter = new JavaTypeSystemTranslator();
 
     private final Map<String, List<MethodInfo>> methodInformation = new HashMap<String, List<MethodInfo>>();
@@ -50,10 +62,29 @@ public class ClassFactBuilder extends BaseFactBuilder {
                clazz,
                isEvent,
                typeSource );
-        this.superTypes = getSuperTypes(clazz);
-        this.annotations.addAll( getAnnotations( clazz ) );
-        this.fieldAnnotations.putAll( getFieldsAnnotations( clazz ) );
-        loadClassFields( clazz );
+
+        //Introspection results are shared between Projects; only introspect if the class has changed
+        final ClassFactDescriptorCache cache = ClassFactDescriptorCache.getInstance();
+        final String key = cache.makeKey( clazz );
+        ClassFactDescriptor descriptor = cache.getDescriptor( key );
+        Map<String, Class<?>> fieldClasses = resolveFieldClasses( clazz,
+                                                                  descriptor );
+        if ( descriptor == null || fieldClasses == null ) {
+            descriptor = introspect( clazz );
+            fieldClasses = resolveFieldClasses( clazz,
+                                                descriptor );
+            if ( fieldClasses == null ) {
+                throw new IOException( "Unable to resolve field types of " + clazz.getName() );
+            }
+            cache.putDescriptor( key,
+                                 descriptor );
+        }
+
+        this.superTypes = new ArrayList<String>( descriptor.getSuperTypes() );
+        this.annotations.addAll( descriptor.getAnnotations() );
+        this.fieldAnnotations.putAll( descriptor.getFieldAnnotations() );
+        loadClassFields( descriptor,
+                         fieldClasses );
     }
 
     @Override
@@ -69,7 +100,7 @@ public class ClassFactBuilder extends BaseFactBuilder {
         ArrayList<String> strings = new ArrayList<String>();
         Class<?> superType = clazz.getSuperclass();
         while(superType != null){
-            strings.add(superType.getName());
+            strings.add(NameInterner.getInstance().intern(superType.getName()));
             superType = superType.getSuperclass();
         }
 
@@ -122,12 +153,80 @@ public class ClassFactBuilder extends BaseFactBuilder {
         return fieldAnnotations;
     }
 
-    private void loadClassFields( final Class<?> clazz ) throws IOException {
-        if ( clazz == null ) {
+    private void loadClassFields( final ClassFactDescriptor descriptor,
+                                  final Map<String, Class<?>> fieldClasses ) throws IOException {
+        final String factType = getType();
+
+        for ( final ModelField modelField : descriptor.getModelFields() ) {
+            addField( modelField );
+        }
+        for ( final Pair<String, String> fieldFactType : descriptor.getFieldFactTypes() ) {
+            fieldFactBuilders.put( fieldFactType.getK1(),
+                                   new ClassFactBuilder( builder,
+                                                         fieldClasses.get( fieldFactType.getK2() ),
+                                                         false,
+                                                         typeSource ) );
+        }
+
+        //Java enums are resolved from the field's class each time as their constants are not covered by the descriptor's key
+        for ( final Map.Entry<String, String> fieldType : descriptor.getFieldTypes().entrySet() ) {
+            addEnumsForField( factType,
+                              fieldType.getKey(),
+                              fieldClasses.get( fieldType.getValue() ) );
+        }
+
+        this.fieldParametersType.putAll( descriptor.getFieldParametersType() );
+        this.methodInformation.put( factType,
+                                    new ArrayList<MethodInfo>( descriptor.getMethodInformation() ) );
+    }
+
+    //Resolve the classes referenced by a descriptor, returning null if any cannot be resolved
+    private Map<String, Class<?>> resolveFieldClasses( final Class<?> clazz,
+                                                       final ClassFactDescriptor descriptor ) {
+        if ( descriptor == null ) {
+            return null;
+        }
+        final Map<String, Class<?>> fieldClasses = new HashMap<String, Class<?>>();
+        try {
+            for ( String className : descriptor.getFieldTypes().values() ) {
+                resolveFieldClass( clazz,
+                                   className,
+                                   fieldClasses );
+            }
+            for ( Pair<String, String> fieldFactType : descriptor.getFieldFactTypes() ) {
+                resolveFieldClass( clazz,
+                                   fieldFactType.getK2(),
+                                   fieldClasses );
+            }
+        } catch ( ClassNotFoundException cnfe ) {
+            return null;
+        }
+        return fieldClasses;
+    }
+
+    private void resolveFieldClass( final Class<?> clazz,
+                                    final String className,
+                                    final Map<String, Class<?>> fieldClasses ) throws ClassNotFoundException {
+        if ( fieldClasses.containsKey( className ) ) {
             return;
         }
+        Class<?> fieldClass = PRIMITIVE_TYPES.get( className );
+        if ( fieldClass == null ) {
+            fieldClass = Class.forName( className,
+                                        false,
+                                        clazz.getClassLoader() );
+        }
+        fieldClasses.put( className,
+                          fieldClass );
+    }
 
+    private ClassFactDescriptor introspect( final Class<?> clazz ) throws IOException {
         final String factType = getType();
+        final NameInterner names = NameInterner.getInstance();
+        final List<ModelField> modelFields = new ArrayList<ModelField>();
+        final Map<String, String> fieldParametersType = new HashMap<String, String>();
+        final Map<String, String> fieldTypes = new LinkedHashMap<String, String>();
+        final List<Pair<String, String>> fieldFactTypes = new ArrayList<Pair<String, String>>();
 
         //Get all getters and setters for the class. This does not handle delegated properties
         final ClassFieldInspector inspector = new ClassFieldInspector( clazz );
@@ -148,7 +247,8 @@ public class ClassFactBuilder extends BaseFactBuilder {
                 //If a Field cannot be found is is really a delegated property so use the Method return type
                 if ( methodSignatures.containsKey( qualifiedName ) ) {
                     final MethodSignature m = methodSignatures.get( qualifiedName );
-                    addParametricTypeForField( factType,
+                    addParametricTypeForField( fieldParametersType,
+                                               factType,
                                                fieldName,
                                                m.genericType );
 
@@ -156,23 +256,23 @@ public class ClassFactBuilder extends BaseFactBuilder {
                     final String genericReturnType = typeSystemConverter.translateClassToGenericType( returnType );
                     final FieldAccessorsAndMutators accessorAndMutator = methodSignatures.containsKey( qualifiedName ) ? methodSignatures.get( qualifiedName ).accessorAndMutator : FieldAccessorsAndMutators.BOTH;
 
-                    addField( new ModelField( fieldName,
-                                              returnType.getName(),
-                                              ModelField.FIELD_CLASS_TYPE.REGULAR_CLASS,
-                                              ModelField.FIELD_ORIGIN.DELEGATED,
-                                              accessorAndMutator,
-                                              genericReturnType ) );
+                    modelFields.add( new ModelField( names.intern( fieldName ),
+                                                     names.intern( returnType.getName() ),
+                                                     ModelField.FIELD_CLASS_TYPE.REGULAR_CLASS,
+                                                     ModelField.FIELD_ORIGIN.DELEGATED,
+                                                     accessorAndMutator,
+                                                     names.intern( genericReturnType ) ) );
 
-                    addEnumsForField( factType,
-                                      fieldName,
-                                      returnType );
+                    fieldTypes.put( fieldName,
+                                    names.intern( returnType.getName() ) );
 
                 }
             } else {
 
                 //Otherwise we can use the results of ClassFieldInspector
                 final Field field = inspector.getFieldTypesField().get( fieldName );
-                addParametricTypeForField( factType,
+                addParametricTypeForField( fieldParametersType,
+                                           factType,
                                            fieldName,
                                            field.getGenericType() );
 
@@ -183,18 +283,18 @@ public class ClassFactBuilder extends BaseFactBuilder {
                 final String genericReturnType = typeSystemConverter.translateClassToGenericType( returnType );
                 final FieldAccessorsAndMutators accessorAndMutator = methodSignatures.containsKey( qualifiedName ) ? methodSignatures.get( qualifiedName ).accessorAndMutator : FieldAccessorsAndMutators.BOTH;
 
-                fieldFactBuilders.put(genericReturnType, new ClassFactBuilder(builder, returnType, false, typeSource));
+                fieldFactTypes.add( new Pair<String, String>( genericReturnType,
+                                                              returnType.getName() ) );
 
-                addField(new ModelField(fieldName,
-                        returnType.getName(),
-                        ModelField.FIELD_CLASS_TYPE.REGULAR_CLASS,
-                        declaredClassFields.contains(field) ? ModelField.FIELD_ORIGIN.DECLARED : ModelField.FIELD_ORIGIN.INHERITED,
-                        accessorAndMutator,
-                        genericReturnType));
+                modelFields.add( new ModelField( names.intern( fieldName ),
+                                                 names.intern( returnType.getName() ),
+                                                 ModelField.FIELD_CLASS_TYPE.REGULAR_CLASS,
+                                                 declaredClassFields.contains( field ) ? ModelField.FIELD_ORIGIN.DECLARED : ModelField.FIELD_ORIGIN.INHERITED,
+                                                 accessorAndMutator,
+                                                 names.intern( genericReturnType ) ) );
 
-                addEnumsForField( factType,
-                                  fieldName,
-                                  returnType );
+                fieldTypes.put( fieldName,
+                                names.intern( returnType.getName() ) );
             }
 
         }
@@ -208,12 +308,19 @@ public class ClassFactBuilder extends BaseFactBuilder {
             final String genericType = mi.getParametricReturnType();
             if ( genericType != null ) {
                 final String qualifiedFactFieldName = factType + "#" + mi.getNameWithParameters();
-                this.fieldParametersType.put( qualifiedFactFieldName,
-                                              genericType );
+                fieldParametersType.put( qualifiedFactFieldName,
+                                         genericType );
             }
         }
-        this.methodInformation.put( factType,
-                                    methodInformation );
+
+        return new ClassFactDescriptor( modelFields,
+                                        fieldParametersType,
+                                        methodInformation,
+                                        getSuperTypes( clazz ),
+                                        getAnnotations( clazz ),
+                                        getFieldsAnnotations( clazz ),
+                                        fieldTypes,
+                                        fieldFactTypes );
     }
 
     // Remove the unneeded "fields" that come from java.lang.Object
@@ -337,7 +444,8 @@ public class ClassFactBuilder extends BaseFactBuilder {
         }
     }
 
-    private void addParametricTypeForField( final String className,
+    private void addParametricTypeForField( final Map<String, String> fieldParametersType,
+                                            final String className,
                                             final String fieldName,
                                             final Type type ) {
         final String qualifiedFactFieldName = className + "#" + fieldName;
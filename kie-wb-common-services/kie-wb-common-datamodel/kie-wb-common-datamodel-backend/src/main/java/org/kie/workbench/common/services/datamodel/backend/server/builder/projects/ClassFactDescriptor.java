@@ -0,0 +1,100 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.workbench.common.services.datamodel.backend.server.builder.projects;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.drools.workbench.models.datamodel.oracle.Annotation;
+import org.drools.workbench.models.datamodel.oracle.MethodInfo;
+import org.drools.workbench.models.datamodel.oracle.ModelField;
+import org.uberfire.commons.data.Pair;
+
+/**
+ * Immutable result of introspecting a class. Descriptors hold class names rather than Class references so
+ * they can be shared between Projects without retaining the Projects' ClassLoaders.
+ */
+final class ClassFactDescriptor {
+
+    private final List<ModelField> modelFields;
+    private final Map<String, String> fieldParametersType;
+    private final List<MethodInfo> methodInformation;
+    private final List<String> superTypes;
+    private final Set<Annotation> annotations;
+    private final Map<String, Set<Annotation>> fieldAnnotations;
+
+    //Class names of the Fact Type's fields {fieldName, className}, used to resolve Java enums
+    private final Map<String, String> fieldTypes;
+
+    //Class names of fields for which a Fact Type is also created {genericType, className}, in declaration order
+    private final List<Pair<String, String>> fieldFactTypes;
+
+    ClassFactDescriptor( final List<ModelField> modelFields,
+                         final Map<String, String> fieldParametersType,
+                         final List<MethodInfo> methodInformation,
+                         final List<String> superTypes,
+                         final Set<Annotation> annotations,
+                         final Map<String, Set<Annotation>> fieldAnnotations,
+                         final Map<String, String> fieldTypes,
+                         final List<Pair<String, String>> fieldFactTypes ) {
+        this.modelFields = Collections.unmodifiableList( new ArrayList<ModelField>( modelFields ) );
+        this.fieldParametersType = Collections.unmodifiableMap( new LinkedHashMap<String, String>( fieldParametersType ) );
+        this.methodInformation = Collections.unmodifiableList( new ArrayList<MethodInfo>( methodInformation ) );
+        this.superTypes = Collections.unmodifiableList( new ArrayList<String>( superTypes ) );
+        this.annotations = Collections.unmodifiableSet( new LinkedHashSet<Annotation>( annotations ) );
+        this.fieldAnnotations = Collections.unmodifiableMap( new LinkedHashMap<String, Set<Annotation>>( fieldAnnotations ) );
+        this.fieldTypes = Collections.unmodifiableMap( new LinkedHashMap<String, String>( fieldTypes ) );
+        this.fieldFactTypes = Collections.unmodifiableList( new ArrayList<Pair<String, String>>( fieldFactTypes ) );
+    }
+
+    List<ModelField> getModelFields() {
+        return modelFields;
+    }
+
+    Map<String, String> getFieldParametersType() {
+        return fieldParametersType;
+    }
+
+    List<MethodInfo> getMethodInformation() {
+        return methodInformation;
+    }
+
+    List<String> getSuperTypes() {
+        return superTypes;
+    }
+
+    Set<Annotation> getAnnotations() {
+        return annotations;
+    }
+
+    Map<String, Set<Annotation>> getFieldAnnotations() {
+        return fieldAnnotations;
+    }
+
+    Map<String, String> getFieldTypes() {
+        return fieldTypes;
+    }
+
+    List<Pair<String, String>> getFieldFactTypes() {
+        return fieldFactTypes;
+    }
+
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.workbench.common.services.datamodel.backend.server.builder.projects;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Process-wide LRU cache of ClassFactDescriptors shared by all Projects. Descriptors are keyed by class name and
+ * a hash of the bytes of the class and its super-types, so a class is only introspected again when it, or a
+ * type it inherits from, has actually changed.
+ */
+final class ClassFactDescriptorCache {
+
+    private static final int MAX_ENTRIES = Integer.getInteger( "org.kie.workbench.datamodel.classFactCacheSize",
+                                                               10000 );
+
+    private static final ClassFactDescriptorCache INSTANCE = new ClassFactDescriptorCache( MAX_ENTRIES );
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final int maxEntries;
+
+    private final Map<String, ClassFactDescriptor> descriptors;
+
+    static ClassFactDescriptorCache getInstance() {
+        return INSTANCE;
+    }
+
+    ClassFactDescriptorCache( final int maxEntries ) {
+        this.maxEntries = maxEntries;
+        this.descriptors = Collections.synchronizedMap( new LinkedHashMap<String, ClassFactDescriptor>( 16,
+                                                                                                        0.75f,
+                                                                                                        true ) {
+            @Override
+            protected boolean removeEldestEntry( final Map.Entry<String, ClassFactDescriptor> eldest ) {
+                return size() > ClassFactDescriptorCache.this.maxEntries;
+            }
+        } );
+    }
+
+    /**
+     * Make the key for a class, or null if the class cannot be cached because its bytes are not available.
+     * @param clazz
+     * @return
+     */
+    String makeKey( final Class<?> clazz ) {
+        if ( maxEntries <= 0 || clazz.isPrimitive() || clazz.isArray() ) {
+            return null;
+        }
+        try {
+            final MessageDigest digest = MessageDigest.getInstance( "SHA-1" );
+            for ( Class<?> type : getHierarchy( clazz ) ) {
+                digest.update( type.getName().getBytes( "UTF-8" ) );
+
+                //Classes loaded by the bootstrap ClassLoader cannot change for the lifetime of the JVM
+                final ClassLoader classLoader = type.getClassLoader();
+                if ( classLoader != null ) {
+                    final byte[] bytes = getBytes( classLoader,
+                                                   type );
+                    if ( bytes == null ) {
+                        return null;
+                    }
+                    digest.update( bytes );
+                }
+            }
+            return clazz.getName() + "@" + toHex( digest.digest() );
+
+        } catch ( NoSuchAlgorithmException e ) {
+            return null;
+        } catch ( IOException e ) {
+            return null;
+        }
+    }
+
+    ClassFactDescriptor getDescriptor( final String key ) {
+        return key == null ? null : descriptors.get( key );
+    }
+
+    void putDescriptor( final String key,
+                        final ClassFactDescriptor descriptor ) {
+        if ( key != null ) {
+            descriptors.put( key,
+                             descriptor );
+        }
+    }
+
+    int size() {
+        return descriptors.size();
+    }
+
+    void clear() {
+        descriptors.clear();
+    }
+
+    //The class, its super-classes and all interfaces it implements; these all affect the introspected fields and methods
+    private Set<Class<?>> getHierarchy( final Class<?> clazz ) {
+        final Set<Class<?>> hierarchy = new LinkedHashSet<Class<?>>();
+        addHierarchy( clazz,
+                      hierarchy );
+        return hierarchy;
+    }
+
+    private void addHierarchy( final Class<?> clazz,
+                               final Set<Class<?>> hierarchy ) {
+        if ( clazz == null || !hierarchy.add( clazz ) ) {
+            return;
+        }
+        addHierarchy( clazz.getSuperclass(),
+                      hierarchy );
+        for ( Class<?> i : clazz.getInterfaces() ) {
+            addHierarchy( i,
+                          hierarchy );
+        }
+    }
+
+    private byte[] getBytes( final ClassLoader classLoader,
+                             final Class<?> clazz ) throws IOException {
+        final InputStream is = classLoader.getResourceAsStream( clazz.getName().replace( '.',
+                                                                                          '/' ) + ".class" );
+        if ( is == null ) {
+            return null;
+        }
+        try {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[ 4096 ];
+            int read;
+            while ( ( read = is.read( buffer ) ) != -1 ) {
+                bytes.write( buffer,
+                             0,
+                             read );
+            }
+            return bytes.toByteArray();
+        } finally {
+            is.close();
+        }
+    }
+
+    private String toHex( final byte[] bytes ) {
+        final char[] chars = new char[ bytes.length * 2 ];
+        for ( int i = 0; i < bytes.length; i++ ) {
+            chars[ i * 2 ] = HEX[ ( bytes[ i ] >> 4 ) & 0xF ];
+            chars[ i * 2 + 1 ] = HEX[ bytes[ i ] & 0xF ];
+        }
+        return new String( chars );
+    }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.workbench.common.services.datamodel.backend.server.builder.projects;
+
+import java.util.Map;
+
+import org.drools.workbench.models.commons.backend.oracle.ProjectDataModelOracleImpl;
+import org.drools.workbench.models.datamodel.oracle.TypeSource;
+
+/**
+ * ProjectDataModelOracle carrying an index of its definitions. The index is built when the oracle has been
+ * completely populated by ProjectDataModelOracleBuilder; the oracle must not be modified afterwards. Event types,
+ * collection types and type sources are held in a compact TypeFlagTable, shared with the index.
+ */
+final class IndexedProjectDataModelOracle extends ProjectDataModelOracleImpl implements HasProjectDataModelOracleIndex {
+
+    private final TypeFlagTable typeFlags = new TypeFlagTable();
+
+    private volatile ProjectDataModelOracleIndex index;
+
+    @Override
+    public void addProjectCollectionTypes( final Map<String, Boolean> collectionTypes ) {
+        typeFlags.addCollectionTypes( collectionTypes );
+    }
+
+    @Override
+    public void addProjectEventTypes( final Map<String, Boolean> eventTypes ) {
+        typeFlags.addEventTypes( eventTypes );
+    }
+
+    @Override
+    public void addProjectTypeSources( final Map<String, TypeSource> typeSources ) {
+        typeFlags.addTypeSources( typeSources );
+    }
+
+    @Override
+    public Map<String, Boolean> getProjectCollectionTypes() {
+        return typeFlags.getCollectionTypes();
+    }
+
+    @Override
+    public Map<String, Boolean> getProjectEventTypes() {
+        return typeFlags.getEventTypes();
+    }
+
+    @Override
+    public Map<String, TypeSource> getProjectTypeSources() {
+        return typeFlags.getTypeSources();
+    }
+
+    TypeFlagTable getTypeFlags() {
+        return typeFlags;
+    }
+
+    @Override
+    public ProjectDataModelOracleIndex getIndex() {
+        ProjectDataModelOracleIndex result = index;
+        if ( result == null ) {
+            synchronized ( this ) {
+                result = index;
+                if ( result == null ) {
+                    result = index = new ProjectDataModelOracleIndex( this,
+                                                                   typeFlags );
+                }
+            }
+        }
+        return result;
+    }
+
+}
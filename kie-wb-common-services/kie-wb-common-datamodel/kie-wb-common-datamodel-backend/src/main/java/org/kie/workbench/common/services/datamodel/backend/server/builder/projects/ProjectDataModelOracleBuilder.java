@@ -6,21 +6,23 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
-import org.drools.workbench.models.commons.backend.oracle.ProjectDataModelOracleImpl;
 import org.drools.workbench.models.datamodel.oracle.ProjectDataModelOracle;
 import org.drools.workbench.models.datamodel.oracle.TypeSource;
 import org.kie.workbench.common.services.datamodel.backend.server.builder.util.DataEnumLoader;
+import org.kie.workbench.common.services.datamodel.backend.server.builder.util.DataEnumLoaderCache;
 
 /**
  * Builder for DataModelOracle
  */
 public final class ProjectDataModelOracleBuilder {
 
-    private ProjectDataModelOracleImpl oracle = new ProjectDataModelOracleImpl();
+    private IndexedProjectDataModelOracle oracle = new IndexedProjectDataModelOracle();
 
     private Map<String, FactBuilder> factTypeBuilders = new HashMap<String, FactBuilder>();
-    private Map<String, String[]> factFieldEnums = new HashMap<String, String[]>();
+    //ClassFactBuilders add Java enums as they introspect classes, which may happen concurrently
+    private Map<String, String[]> factFieldEnums = new ConcurrentHashMap<String, String[]>();
     private List<String> packageNames = new ArrayList<String>();
 
     private List<String> errors = new ArrayList<String>();
@@ -70,11 +72,32 @@ public final class ProjectDataModelOracleBuilder {
     public ProjectDataModelOracleBuilder addClass( final Class clazz,
                                                    final boolean isEvent,
                                                    final TypeSource typeSource ) throws IOException {
-        final FactBuilder builder = new ClassFactBuilder( this,
-                                                          clazz,
-                                                          isEvent,
-                                                          typeSource );
-        factTypeBuilders.put(clazz.getName(), builder);
+        return addClass( introspectClass( clazz,
+                                          isEvent,
+                                          typeSource ) );
+    }
+
+    /**
+     * Introspect a class without adding it to the DataModelOracle. Introspection of different classes can
+     * be performed concurrently; the results should then be added with addClass(ClassFactBuilder).
+     * @param clazz The class to introspect
+     * @param isEvent Whether the class is a CEP Event
+     * @param typeSource Where the class was defined
+     * @return
+     * @throws IOException
+     */
+    public ClassFactBuilder introspectClass( final Class clazz,
+                                             final boolean isEvent,
+                                             final TypeSource typeSource ) throws IOException {
+        return new ClassFactBuilder( this,
+                                     clazz,
+                                     isEvent,
+                                     typeSource );
+    }
+
+    public ProjectDataModelOracleBuilder addClass( final ClassFactBuilder builder ) {
+        factTypeBuilders.put( builder.getType(),
+                              builder );
         return this;
     }
 
@@ -96,8 +119,9 @@ public final class ProjectDataModelOracleBuilder {
 
     private void parseEnumDefinition( final String enumDefinition,
                                       final ClassLoader classLoader ) {
-        final DataEnumLoader enumLoader = new DataEnumLoader( enumDefinition,
-                                                              classLoader );
+        //Unchanged definitions are shared between builds, rather than compiled and executed by MVEL each time
+        final DataEnumLoader enumLoader = DataEnumLoaderCache.getInstance().getLoader( enumDefinition,
+                                                                                       classLoader );
         if ( enumLoader.hasErrors() ) {
             logEnumErrors( enumLoader );
         } else {
@@ -114,6 +138,9 @@ public final class ProjectDataModelOracleBuilder {
         loadEnums();
         loadPackageNames();
 
+        //Index the completed oracle so look-ups do not need to scan every definition
+        oracle.getIndex();
+
         return oracle;
     }
 
@@ -0,0 +1,361 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.workbench.common.services.datamodel.backend.server.builder.projects;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.drools.workbench.models.datamodel.oracle.Annotation;
+import org.drools.workbench.models.datamodel.oracle.DataType;
+import org.drools.workbench.models.datamodel.oracle.MethodInfo;
+import org.drools.workbench.models.datamodel.oracle.ModelField;
+import org.drools.workbench.models.datamodel.oracle.ProjectDataModelOracle;
+import org.drools.workbench.models.datamodel.oracle.TypeSource;
+import org.kie.workbench.common.services.datamodel.model.LazyModelField;
+
+/**
+ * Index of the Project-level definitions of a DataModelOracle, so the definitions for a single type can be
+ * retrieved without scanning every definition in the Project. Types are indexed by their fully qualified class
+ * name, with nested class names using '.' rather than '$'.
+ */
+public final class ProjectDataModelOracleIndex {
+
+    private final Map<String, TypeDefinitions> typeDefinitions = new HashMap<String, TypeDefinitions>();
+
+    //{Fully qualified class name, Fact name} as defined by each Fact Type's TYPE_THIS field
+    private final Map<String, String> factNames = new HashMap<String, String>();
+
+    //Model Fields with all but the TYPE_THIS field of each type removed, for lazy loading client-side
+    private final Map<String, ModelField[]> lazyModelFields = new HashMap<String, ModelField[]>();
+
+    /**
+     * Get the index for a DataModelOracle. Oracles that do not carry an index get a new one on every call, so callers
+     * should keep the index for as long as they use the oracle.
+     * @param oracle
+     * @return
+     */
+    public static ProjectDataModelOracleIndex getIndex( final ProjectDataModelOracle oracle ) {
+        if ( oracle instanceof HasProjectDataModelOracleIndex ) {
+            return ( (HasProjectDataModelOracleIndex) oracle ).getIndex();
+        }
+        return new ProjectDataModelOracleIndex( oracle );
+    }
+
+    public ProjectDataModelOracleIndex( final ProjectDataModelOracle oracle ) {
+        this( oracle,
+              makeTypeFlags( oracle ) );
+    }
+
+    ProjectDataModelOracleIndex( final ProjectDataModelOracle oracle,
+                                 final TypeFlagTable typeFlags ) {
+        for ( Map.Entry<String, ModelField[]> e : oracle.getProjectModelFields().entrySet() ) {
+            final TypeDefinitions definitions = assertTypeDefinitions( e.getKey() );
+            definitions.modelFields = put( definitions.modelFields,
+                                           e.getKey(),
+                                           e.getValue() );
+            lazyModelFields.put( e.getKey(),
+                                 makeLazyProxyModelField( e.getValue() ) );
+            for ( ModelField mf : e.getValue() ) {
+                if ( DataType.TYPE_THIS.equals( mf.getName() ) && !factNames.containsKey( mf.getClassName() ) ) {
+                    factNames.put( mf.getClassName(),
+                                   e.getKey() );
+                }
+            }
+        }
+        for ( Map.Entry<String, String> e : oracle.getProjectFieldParametersType().entrySet() ) {
+            final TypeDefinitions definitions = assertTypeDefinitions( getQualifiedTypeFromEncodedFieldName( e.getKey() ) );
+            definitions.fieldParametersType = put( definitions.fieldParametersType,
+                                                   e.getKey(),
+                                                   e.getValue() );
+        }
+        typeFlags.trim();
+        for ( int id = 0; id < typeFlags.size(); id++ ) {
+            assertTypeDefinitions( typeFlags.getName( id ) ).addTypeId( typeFlags,
+                                                                       id );
+        }
+        for ( Map.Entry<String, List<String>> e : oracle.getProjectSuperTypes().entrySet() ) {
+            final TypeDefinitions definitions = assertTypeDefinitions( e.getKey() );
+            definitions.superTypes = put( definitions.superTypes,
+                                          e.getKey(),
+                                          e.getValue() );
+        }
+        for ( Map.Entry<String, Set<Annotation>> e : oracle.getProjectTypeAnnotations().entrySet() ) {
+            final TypeDefinitions definitions = assertTypeDefinitions( e.getKey() );
+            definitions.typeAnnotations = put( definitions.typeAnnotations,
+                                               e.getKey(),
+                                               e.getValue() );
+        }
+        for ( Map.Entry<String, Map<String, Set<Annotation>>> e : oracle.getProjectTypeFieldsAnnotations().entrySet() ) {
+            final TypeDefinitions definitions = assertTypeDefinitions( e.getKey() );
+            definitions.typeFieldsAnnotations = put( definitions.typeFieldsAnnotations,
+                                                     e.getKey(),
+                                                     e.getValue() );
+        }
+        for ( Map.Entry<String, List<MethodInfo>> e : oracle.getProjectMethodInformation().entrySet() ) {
+            final TypeDefinitions definitions = assertTypeDefinitions( e.getKey() );
+            definitions.methodInformation = put( definitions.methodInformation,
+                                                 e.getKey(),
+                                                 e.getValue() );
+        }
+    }
+
+    //Oracles not built by ProjectDataModelOracleBuilder hold their type flags in Maps
+    private static TypeFlagTable makeTypeFlags( final ProjectDataModelOracle oracle ) {
+        if ( oracle instanceof IndexedProjectDataModelOracle ) {
+            return ( (IndexedProjectDataModelOracle) oracle ).getTypeFlags();
+        }
+        final TypeFlagTable typeFlags = new TypeFlagTable();
+        typeFlags.addEventTypes( oracle.getProjectEventTypes() );
+        typeFlags.addCollectionTypes( oracle.getProjectCollectionTypes() );
+        typeFlags.addTypeSources( oracle.getProjectTypeSources() );
+        return typeFlags;
+    }
+
+    /**
+     * Get the definitions of a type
+     * @param fullyQualifiedClassName The FQCN of the type, with nested class names using '.'
+     * @return The definitions, empty if the type is not known
+     */
+    public TypeDefinitions getTypeDefinitions( final String fullyQualifiedClassName ) {
+        final TypeDefinitions definitions = typeDefinitions.get( fullyQualifiedClassName );
+        return definitions == null ? TypeDefinitions.EMPTY : definitions;
+    }
+
+    /**
+     * Get the name of the Fact Type for a class
+     * @param fullyQualifiedClassName The FQCN of the class
+     * @return The Fact Type's name, or null if no Fact Type exists for the class
+     */
+    public String getFactName( final String fullyQualifiedClassName ) {
+        return factNames.get( fullyQualifiedClassName );
+    }
+
+    /**
+     * Get the Model Fields of all types, with only the TYPE_THIS field of each type as a LazyModelField.
+     * @return
+     */
+    public Map<String, ModelField[]> getLazyModelFields() {
+        return Collections.unmodifiableMap( lazyModelFields );
+    }
+
+    private TypeDefinitions assertTypeDefinitions( final String type ) {
+        final String key = type.replaceAll( "\\$",
+                                            "." );
+        TypeDefinitions definitions = typeDefinitions.get( key );
+        if ( definitions == null ) {
+            definitions = new TypeDefinitions();
+            typeDefinitions.put( key,
+                                 definitions );
+        }
+        return definitions;
+    }
+
+    //Most types have definitions of only some kinds, so each TypeDefinitions Map is allocated on first use
+    private static <V> Map<String, V> put( final Map<String, V> map,
+                                           final String key,
+                                           final V value ) {
+        final Map<String, V> result = map == null ? new HashMap<String, V>( 2 ) : map;
+        result.put( key,
+                    value );
+        return result;
+    }
+
+    private static String getQualifiedTypeFromEncodedFieldName( final String encodedFieldName ) {
+        String typeName = encodedFieldName;
+        int hashIndex = typeName.lastIndexOf( "#" );
+        if ( hashIndex != -1 ) {
+            typeName = typeName.substring( 0,
+                                           hashIndex );
+        }
+        return typeName;
+    }
+
+    //AsyncPackageDataModelOracle.getFactNameFromType() uses THIS to determine the simple Type from a FQCN.
+    //Therefore ensure we provide this minimal information for every Type in the DMO to prevent getFactNameFromType()
+    //needing a callback to the server which makes things more complicated than really needed.
+    private static ModelField[] makeLazyProxyModelField( final ModelField[] modelFields ) {
+        for ( ModelField modelField : modelFields ) {
+            if ( DataType.TYPE_THIS.equals( modelField.getName() ) ) {
+                final ModelField[] result = new ModelField[ 1 ];
+                //LazyModelField is a place-holder to tell AsyncPackageDataModelOracle that it needs to load more information
+                result[ 0 ] = new LazyModelField( modelField.getName(),
+                                                  modelField.getClassName(),
+                                                  modelField.getClassType(),
+                                                  modelField.getOrigin(),
+                                                  modelField.getAccessorsAndMutators(),
+                                                  modelField.getType() );
+                return result;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The Project-level definitions of a single type. Definitions are keyed as they are in the DataModelOracle.
+     * Callers receive copies of the definitions they can modify freely. Event types, collection types and type
+     * sources are held as ids in the index's TypeFlagTable and only expanded into Maps when requested.
+     */
+    public static final class TypeDefinitions {
+
+        //Declared before EMPTY, which is initialised with it
+        private static final int[] NO_TYPE_IDS = new int[ 0 ];
+
+        private static final TypeDefinitions EMPTY = new TypeDefinitions();
+
+        //Null until the type has a definition of the kind
+        private Map<String, ModelField[]> modelFields;
+        private Map<String, String> fieldParametersType;
+        private Map<String, List<String>> superTypes;
+        private Map<String, Set<Annotation>> typeAnnotations;
+        private Map<String, Map<String, Set<Annotation>>> typeFieldsAnnotations;
+        private Map<String, List<MethodInfo>> methodInformation;
+
+        private TypeFlagTable typeFlags;
+        private int[] typeIds = NO_TYPE_IDS;
+
+        private TypeDefinitions() {
+        }
+
+        private void addTypeId( final TypeFlagTable typeFlags,
+                                final int id ) {
+            this.typeFlags = typeFlags;
+            typeIds = Arrays.copyOf( typeIds,
+                                     typeIds.length + 1 );
+            typeIds[ typeIds.length - 1 ] = id;
+        }
+
+        /**
+         * Combine the definitions of multiple types, all from the same index
+         * @param definitions
+         * @return
+         */
+        public static TypeDefinitions merge( final Collection<TypeDefinitions> definitions ) {
+            final TypeDefinitions merged = new TypeDefinitions();
+            int typeIdCount = 0;
+            for ( TypeDefinitions d : definitions ) {
+                typeIdCount += d.typeIds.length;
+            }
+            merged.typeIds = new int[ typeIdCount ];
+            typeIdCount = 0;
+            for ( TypeDefinitions d : definitions ) {
+                merged.modelFields = putAll( merged.modelFields,
+                                             d.modelFields );
+                merged.fieldParametersType = putAll( merged.fieldParametersType,
+                                                     d.fieldParametersType );
+                if ( d.typeFlags != null ) {
+                    merged.typeFlags = d.typeFlags;
+                }
+                System.arraycopy( d.typeIds,
+                                  0,
+                                  merged.typeIds,
+                                  typeIdCount,
+                                  d.typeIds.length );
+                typeIdCount += d.typeIds.length;
+                merged.superTypes = putAll( merged.superTypes,
+                                            d.superTypes );
+                merged.typeAnnotations = putAll( merged.typeAnnotations,
+                                                 d.typeAnnotations );
+                merged.typeFieldsAnnotations = putAll( merged.typeFieldsAnnotations,
+                                                       d.typeFieldsAnnotations );
+                merged.methodInformation = putAll( merged.methodInformation,
+                                                   d.methodInformation );
+            }
+            return merged;
+        }
+
+        private static <V> Map<String, V> putAll( final Map<String, V> map,
+                                                  final Map<String, V> definitions ) {
+            if ( definitions == null ) {
+                return map;
+            }
+            final Map<String, V> result = map == null ? new HashMap<String, V>() : map;
+            result.putAll( definitions );
+            return result;
+        }
+
+        //Callers may modify what they receive
+        private static <V> Map<String, V> copy( final Map<String, V> definitions ) {
+            return definitions == null ? new HashMap<String, V>() : new HashMap<String, V>( definitions );
+        }
+
+        public Map<String, ModelField[]> getModelFields() {
+            return copy( modelFields );
+        }
+
+        public Map<String, String> getFieldParametersType() {
+            return copy( fieldParametersType );
+        }
+
+        public Map<String, Boolean> getEventTypes() {
+            final Map<String, Boolean> eventTypes = new HashMap<String, Boolean>( typeIds.length );
+            for ( int id : typeIds ) {
+                final Boolean isEvent = typeFlags.getEventType( id );
+                if ( isEvent != null ) {
+                    eventTypes.put( typeFlags.getName( id ),
+                                    isEvent );
+                }
+            }
+            return eventTypes;
+        }
+
+        public Map<String, TypeSource> getTypeSources() {
+            final Map<String, TypeSource> typeSources = new HashMap<String, TypeSource>( typeIds.length );
+            for ( int id : typeIds ) {
+                final TypeSource typeSource = typeFlags.getTypeSource( id );
+                if ( typeSource != null ) {
+                    typeSources.put( typeFlags.getName( id ),
+                                     typeSource );
+                }
+            }
+            return typeSources;
+        }
+
+        public Map<String, List<String>> getSuperTypes() {
+            return copy( superTypes );
+        }
+
+        public Map<String, Set<Annotation>> getTypeAnnotations() {
+            return copy( typeAnnotations );
+        }
+
+        public Map<String, Map<String, Set<Annotation>>> getTypeFieldsAnnotations() {
+            return copy( typeFieldsAnnotations );
+        }
+
+        public Map<String, List<MethodInfo>> getMethodInformation() {
+            return copy( methodInformation );
+        }
+
+        public Map<String, Boolean> getCollectionTypes() {
+            final Map<String, Boolean> collectionTypes = new HashMap<String, Boolean>( typeIds.length );
+            for ( int id : typeIds ) {
+                final Boolean isCollection = typeFlags.getCollectionType( id );
+                if ( isCollection != null ) {
+                    collectionTypes.put( typeFlags.getName( id ),
+                                         isCollection );
+                }
+            }
+            return collectionTypes;
+        }
+
+    }
+
+}
@@ -0,0 +1,534 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.workbench.common.services.datamodel.backend.server.builder.projects;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.drools.workbench.models.datamodel.oracle.Annotation;
+import org.drools.workbench.models.datamodel.oracle.FieldAccessorsAndMutators;
+import org.drools.workbench.models.datamodel.oracle.MethodInfo;
+import org.drools.workbench.models.datamodel.oracle.ModelField;
+import org.drools.workbench.models.datamodel.oracle.ProjectDataModelOracle;
+import org.drools.workbench.models.datamodel.oracle.TypeSource;
+import org.kie.workbench.common.services.datamodel.backend.server.builder.util.NameInterner;
+
+/**
+ * Reads and writes Project DataModelOracles as compact binary snapshots, so an oracle can be restored after a
+ * restart without loading and introspecting the Project's classes. Every String is written once and referenced
+ * by position thereafter, as class names are repeated throughout an oracle. Each snapshot records a key
+ * describing what the oracle was built from; a snapshot is only read if its key matches the expected key.
+ * Names read from a snapshot are shared with other oracles through the NameInterner.
+ */
+public final class ProjectDataModelOracleSnapshot {
+
+    private static final int MAGIC = 0x444D4F53;
+
+    //Increment whenever the format changes; snapshots of other versions are ignored
+    private static final int VERSION = 1;
+
+    //Tags preceding each String; any larger value is a reference to a String already read
+    private static final int STRING_NULL = 0;
+    private static final int STRING_NEW = 1;
+    private static final int STRING_REFERENCE = 2;
+
+    private ProjectDataModelOracleSnapshot() {
+    }
+
+    /**
+     * Write a snapshot of an oracle. The snapshot is written to a uniquely named temporary file in the same directory
+     * that is then renamed to the target, so readers never see a partial snapshot and concurrent writers do not
+     * interfere. Where renaming over an existing file is not supported (e.g. Windows) the target is deleted first.
+     * @param file The snapshot file
+     * @param key Key describing what the oracle was built from
+     * @param oracle The oracle
+     * @throws IOException
+     */
+    public static void write( final File file,
+                              final String key,
+                              final ProjectDataModelOracle oracle ) throws IOException {
+        final File tmp = File.createTempFile( file.getName(),
+                                              ".tmp",
+                                              file.getAbsoluteFile().getParentFile() );
+        try {
+            final DataOutputStream out = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( tmp ) ) );
+            try {
+                new Writer( out ).write( key,
+                                         oracle );
+            } finally {
+                out.close();
+            }
+            if ( !tmp.renameTo( file ) && !( file.delete() && tmp.renameTo( file ) ) ) {
+                throw new IOException( "Unable to write snapshot '" + file + "'." );
+            }
+        } finally {
+            //Only remains if the snapshot was not written
+            tmp.delete();
+        }
+    }
+
+    /**
+     * Read a snapshot of an oracle. The file is read in full and closed before the snapshot is decoded, so it can be
+     * replaced or deleted while the oracle is restored.
+     * @param file The snapshot file
+     * @param key The expected key
+     * @return The oracle, or null if the file does not exist or was written for another key or format version
+     * @throws IOException if the snapshot cannot be read or is corrupt
+     */
+    public static ProjectDataModelOracle read( final File file,
+                                               final String key ) throws IOException {
+        if ( !file.isFile() ) {
+            return null;
+        }
+        final byte[] bytes = new byte[ (int) file.length() ];
+        final DataInputStream fis = new DataInputStream( new FileInputStream( file ) );
+        try {
+            fis.readFully( bytes );
+        } finally {
+            fis.close();
+        }
+        try {
+            final DataInputStream in = new DataInputStream( new ByteArrayInputStream( bytes ) );
+            return new Reader( in ).read( key );
+        } catch ( RuntimeException re ) {
+            throw new IOException( "Corrupt snapshot '" + file + "'.",
+                                   re );
+        }
+    }
+
+    private static class Writer {
+
+        private final DataOutputStream out;
+        private final Map<String, Integer> strings = new HashMap<String, Integer>();
+
+        private Writer( final DataOutputStream out ) {
+            this.out = out;
+        }
+
+        private void write( final String key,
+                            final ProjectDataModelOracle oracle ) throws IOException {
+            out.writeInt( MAGIC );
+            out.writeInt( VERSION );
+            writeString( key );
+
+            writeStrings( oracle.getProjectPackageNames() );
+
+            writeSize( oracle.getProjectModelFields().size() );
+            for ( Map.Entry<String, ModelField[]> e : oracle.getProjectModelFields().entrySet() ) {
+                writeString( e.getKey() );
+                writeModelFields( e.getValue() );
+            }
+
+            writeSize( oracle.getProjectFieldParametersType().size() );
+            for ( Map.Entry<String, String> e : oracle.getProjectFieldParametersType().entrySet() ) {
+                writeString( e.getKey() );
+                writeString( e.getValue() );
+            }
+
+            writeSize( oracle.getProjectJavaEnumDefinitions().size() );
+            for ( Map.Entry<String, String[]> e : oracle.getProjectJavaEnumDefinitions().entrySet() ) {
+                writeString( e.getKey() );
+                writeStrings( e.getValue() == null ? null : Arrays.asList( e.getValue() ) );
+            }
+
+            writeSize( oracle.getProjectMethodInformation().size() );
+            for ( Map.Entry<String, List<MethodInfo>> e : oracle.getProjectMethodInformation().entrySet() ) {
+                writeString( e.getKey() );
+                writeMethodInformation( e.getValue() );
+            }
+
+            writeBooleans( oracle.getProjectCollectionTypes() );
+            writeBooleans( oracle.getProjectEventTypes() );
+
+            writeSize( oracle.getProjectTypeSources().size() );
+            for ( Map.Entry<String, TypeSource> e : oracle.getProjectTypeSources().entrySet() ) {
+                writeString( e.getKey() );
+                writeEnum( e.getValue() );
+            }
+
+            writeSize( oracle.getProjectSuperTypes().size() );
+            for ( Map.Entry<String, List<String>> e : oracle.getProjectSuperTypes().entrySet() ) {
+                writeString( e.getKey() );
+                writeStrings( e.getValue() );
+            }
+
+            writeSize( oracle.getProjectTypeAnnotations().size() );
+            for ( Map.Entry<String, Set<Annotation>> e : oracle.getProjectTypeAnnotations().entrySet() ) {
+                writeString( e.getKey() );
+                writeAnnotations( e.getValue() );
+            }
+
+            writeSize( oracle.getProjectTypeFieldsAnnotations().size() );
+            for ( Map.Entry<String, Map<String, Set<Annotation>>> e : oracle.getProjectTypeFieldsAnnotations().entrySet() ) {
+                writeString( e.getKey() );
+                if ( e.getValue() == null ) {
+                    writeSize( -1 );
+                    continue;
+                }
+                writeSize( e.getValue().size() );
+                for ( Map.Entry<String, Set<Annotation>> fe : e.getValue().entrySet() ) {
+                    writeString( fe.getKey() );
+                    writeAnnotations( fe.getValue() );
+                }
+            }
+        }
+
+        private void writeModelFields( final ModelField[] modelFields ) throws IOException {
+            if ( modelFields == null ) {
+                writeSize( -1 );
+                return;
+            }
+            writeSize( modelFields.length );
+            for ( ModelField mf : modelFields ) {
+                writeString( mf.getName() );
+                writeString( mf.getClassName() );
+                writeEnum( mf.getClassType() );
+                writeEnum( mf.getOrigin() );
+                writeEnum( mf.getAccessorsAndMutators() );
+                writeString( mf.getType() );
+            }
+        }
+
+        private void writeMethodInformation( final List<MethodInfo> methodInformation ) throws IOException {
+            if ( methodInformation == null ) {
+                writeSize( -1 );
+                return;
+            }
+            writeSize( methodInformation.size() );
+            for ( MethodInfo mi : methodInformation ) {
+                writeString( mi.getName() );
+                writeStrings( mi.getParams() );
+                writeString( mi.getReturnClassType() );
+                writeString( mi.getParametricReturnType() );
+                writeString( mi.getGenericType() );
+            }
+        }
+
+        private void writeAnnotations( final Set<Annotation> annotations ) throws IOException {
+            if ( annotations == null ) {
+                writeSize( -1 );
+                return;
+            }
+            writeSize( annotations.size() );
+            for ( Annotation a : annotations ) {
+                writeString( a.getQualifiedTypeName() );
+                final Map<String, Object> attributes = a.getAttributes();
+                writeSize( attributes.size() );
+                for ( Map.Entry<String, Object> e : attributes.entrySet() ) {
+                    writeString( e.getKey() );
+                    //Attribute values are recorded as Strings by ClassFactBuilder
+                    writeString( e.getValue() == null ? null : e.getValue().toString() );
+                }
+            }
+        }
+
+        private void writeBooleans( final Map<String, Boolean> booleans ) throws IOException {
+            writeSize( booleans.size() );
+            for ( Map.Entry<String, Boolean> e : booleans.entrySet() ) {
+                writeString( e.getKey() );
+                out.writeByte( e.getValue() == null ? -1 : ( e.getValue() ? 1 : 0 ) );
+            }
+        }
+
+        private void writeEnum( final Enum<?> value ) throws IOException {
+            writeString( value == null ? null : value.name() );
+        }
+
+        private void writeStrings( final List<String> values ) throws IOException {
+            if ( values == null ) {
+                writeSize( -1 );
+                return;
+            }
+            writeSize( values.size() );
+            for ( String value : values ) {
+                writeString( value );
+            }
+        }
+
+        private void writeString( final String value ) throws IOException {
+            if ( value == null ) {
+                writeVarInt( STRING_NULL );
+                return;
+            }
+            final Integer index = strings.get( value );
+            if ( index != null ) {
+                writeVarInt( STRING_REFERENCE + index );
+                return;
+            }
+            strings.put( value,
+                         strings.size() );
+            writeVarInt( STRING_NEW );
+            //Not DataOutput.writeUTF(), as Java enum definitions may exceed its 64K limit
+            final byte[] bytes = value.getBytes( "UTF-8" );
+            writeVarInt( bytes.length );
+            out.write( bytes );
+        }
+
+        //Sizes of -1 denote null
+        private void writeSize( final int size ) throws IOException {
+            writeVarInt( size + 1 );
+        }
+
+        private void writeVarInt( int value ) throws IOException {
+            while ( ( value & ~0x7F ) != 0 ) {
+                out.writeByte( ( value & 0x7F ) | 0x80 );
+                value >>>= 7;
+            }
+            out.writeByte( value );
+        }
+
+    }
+
+    private static class Reader {
+
+        private final DataInputStream in;
+        private final List<String> strings = new ArrayList<String>();
+        private final NameInterner names = NameInterner.getInstance();
+
+        private Reader( final DataInputStream in ) {
+            this.in = in;
+        }
+
+        private ProjectDataModelOracle read( final String key ) throws IOException {
+            if ( in.readInt() != MAGIC || in.readInt() != VERSION ) {
+                return null;
+            }
+            if ( !key.equals( readString() ) ) {
+                return null;
+            }
+
+            final IndexedProjectDataModelOracle oracle = new IndexedProjectDataModelOracle();
+            oracle.addProjectPackageNames( readStrings() );
+
+            int size = readSize();
+            final Map<String, ModelField[]> modelFields = new HashMap<String, ModelField[]>( capacity( size ) );
+            for ( int i = 0; i < size; i++ ) {
+                modelFields.put( readString(),
+                                 readModelFields() );
+            }
+            oracle.addProjectModelFields( modelFields );
+
+            size = readSize();
+            final Map<String, String> fieldParametersType = new HashMap<String, String>( capacity( size ) );
+            for ( int i = 0; i < size; i++ ) {
+                fieldParametersType.put( readString(),
+                                         readString() );
+            }
+            oracle.addProjectFieldParametersType( fieldParametersType );
+
+            size = readSize();
+            final Map<String, String[]> javaEnumDefinitions = new HashMap<String, String[]>( capacity( size ) );
+            for ( int i = 0; i < size; i++ ) {
+                final String qualifiedFactField = readString();
+                final List<String> values = readStrings();
+                javaEnumDefinitions.put( qualifiedFactField,
+                                         values == null ? null : values.toArray( new String[ values.size() ] ) );
+            }
+            oracle.addProjectJavaEnumDefinitions( javaEnumDefinitions );
+
+            size = readSize();
+            final Map<String, List<MethodInfo>> methodInformation = new HashMap<String, List<MethodInfo>>( capacity( size ) );
+            for ( int i = 0; i < size; i++ ) {
+                methodInformation.put( readString(),
+                                       readMethodInformation() );
+            }
+            oracle.addProjectMethodInformation( methodInformation );
+
+            oracle.addProjectCollectionTypes( readBooleans() );
+            oracle.addProjectEventTypes( readBooleans() );
+
+            size = readSize();
+            final Map<String, TypeSource> typeSources = new HashMap<String, TypeSource>( capacity( size ) );
+            for ( int i = 0; i < size; i++ ) {
+                typeSources.put( readString(),
+                                 readEnum( TypeSource.class ) );
+            }
+            oracle.addProjectTypeSources( typeSources );
+
+            size = readSize();
+            final Map<String, List<String>> superTypes = new HashMap<String, List<String>>( capacity( size ) );
+            for ( int i = 0; i < size; i++ ) {
+                superTypes.put( readString(),
+                                readStrings() );
+            }
+            oracle.addProjectSuperTypes( superTypes );
+
+            size = readSize();
+            final Map<String, Set<Annotation>> typeAnnotations = new HashMap<String, Set<Annotation>>( capacity( size ) );
+            for ( int i = 0; i < size; i++ ) {
+                typeAnnotations.put( readString(),
+                                     readAnnotations() );
+            }
+            oracle.addProjectTypeAnnotations( typeAnnotations );
+
+            size = readSize();
+            final Map<String, Map<String, Set<Annotation>>> typeFieldsAnnotations = new HashMap<String, Map<String, Set<Annotation>>>( capacity( size ) );
+            for ( int i = 0; i < size; i++ ) {
+                final String type = readString();
+                final int fieldCount = readSize();
+                Map<String, Set<Annotation>> fieldsAnnotations = null;
+                if ( fieldCount >= 0 ) {
+                    fieldsAnnotations = new HashMap<String, Set<Annotation>>( capacity( fieldCount ) );
+                    for ( int j = 0; j < fieldCount; j++ ) {
+                        fieldsAnnotations.put( readString(),
+                                               readAnnotations() );
+                    }
+                }
+                typeFieldsAnnotations.put( type,
+                                           fieldsAnnotations );
+            }
+            oracle.addProjectTypeFieldsAnnotations( typeFieldsAnnotations );
+
+            //Index the restored oracle, as ProjectDataModelOracleBuilder does for a newly built oracle
+            oracle.getIndex();
+
+            return oracle;
+        }
+
+        private ModelField[] readModelFields() throws IOException {
+            final int size = readSize();
+            if ( size < 0 ) {
+                return null;
+            }
+            final ModelField[] modelFields = new ModelField[ size ];
+            for ( int i = 0; i < size; i++ ) {
+                modelFields[ i ] = new ModelField( readString(),
+                                                   readString(),
+                                                   readEnum( ModelField.FIELD_CLASS_TYPE.class ),
+                                                   readEnum( ModelField.FIELD_ORIGIN.class ),
+                                                   readEnum( FieldAccessorsAndMutators.class ),
+                                                   readString() );
+            }
+            return modelFields;
+        }
+
+        private List<MethodInfo> readMethodInformation() throws IOException {
+            final int size = readSize();
+            if ( size < 0 ) {
+                return null;
+            }
+            final List<MethodInfo> methodInformation = new ArrayList<MethodInfo>( size );
+            for ( int i = 0; i < size; i++ ) {
+                methodInformation.add( new MethodInfo( readString(),
+                                                       readStrings(),
+                                                       readString(),
+                                                       readString(),
+                                                       readString() ) );
+            }
+            return methodInformation;
+        }
+
+        private Set<Annotation> readAnnotations() throws IOException {
+            final int size = readSize();
+            if ( size < 0 ) {
+                return null;
+            }
+            final Set<Annotation> annotations = new LinkedHashSet<Annotation>( capacity( size ) );
+            for ( int i = 0; i < size; i++ ) {
+                final Annotation annotation = new Annotation( readString() );
+                final int attributeCount = readSize();
+                for ( int j = 0; j < attributeCount; j++ ) {
+                    annotation.addAttribute( readString(),
+                                             readString() );
+                }
+                annotations.add( annotation );
+            }
+            return annotations;
+        }
+
+        private Map<String, Boolean> readBooleans() throws IOException {
+            final int size = readSize();
+            final Map<String, Boolean> booleans = new HashMap<String, Boolean>( capacity( size ) );
+            for ( int i = 0; i < size; i++ ) {
+                final String key = readString();
+                final byte value = in.readByte();
+                booleans.put( key,
+                              value < 0 ? null : Boolean.valueOf( value == 1 ) );
+            }
+            return booleans;
+        }
+
+        private <E extends Enum<E>> E readEnum( final Class<E> type ) throws IOException {
+            final String name = readString();
+            return name == null ? null : Enum.valueOf( type,
+                                                       name );
+        }
+
+        private List<String> readStrings() throws IOException {
+            final int size = readSize();
+            if ( size < 0 ) {
+                return null;
+            }
+            final List<String> values = new ArrayList<String>( size );
+            for ( int i = 0; i < size; i++ ) {
+                values.add( readString() );
+            }
+            return values;
+        }
+
+        private String readString() throws IOException {
+            final int tag = readVarInt();
+            if ( tag == STRING_NULL ) {
+                return null;
+            }
+            if ( tag == STRING_NEW ) {
+                final byte[] bytes = new byte[ readVarInt() ];
+                in.readFully( bytes );
+                final String value = names.intern( new String( bytes,
+                                                               "UTF-8" ) );
+                strings.add( value );
+                return value;
+            }
+            return strings.get( tag - STRING_REFERENCE );
+        }
+
+        private int readSize() throws IOException {
+            return readVarInt() - 1;
+        }
+
+        private int readVarInt() throws IOException {
+            int value = 0;
+            int shift = 0;
+            int b;
+            do {
+                b = in.readUnsignedByte();
+                value |= ( b & 0x7F ) << shift;
+                shift += 7;
+            } while ( ( b & 0x80 ) != 0 );
+            return value;
+        }
+
+        private static int capacity( final int size ) {
+            return Math.max( 16,
+                             (int) ( size / 0.75f ) + 1 );
+        }
+
+    }
+
+}
@@ -0,0 +1,342 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.workbench.common.services.datamodel.backend.server.builder.projects;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.drools.workbench.models.datamodel.oracle.TypeSource;
+
+/**
+ * Compact store of the per-type flags of a Project DataModelOracle: whether a type is an event, whether it is a
+ * collection and its TypeSource. Type names are held in a sorted array, found by binary search, and a type's id is
+ * its position in the array. Its flags are held in a single byte at the same position, rather than as a boxed entry
+ * in each of three Maps. The table is populated whilst the oracle is built and must not be modified afterwards, as
+ * adding a type changes the ids of those after it. Null values are not stored.
+ */
+final class TypeFlagTable {
+
+    private static final TypeSource[] TYPE_SOURCES = TypeSource.values();
+
+    //Flags; the remaining high bits hold the TypeSource's ordinal + 1, or 0 if the type has no TypeSource
+    private static final int HAS_EVENT = 1;
+    private static final int IS_EVENT = 1 << 1;
+    private static final int HAS_COLLECTION = 1 << 2;
+    private static final int IS_COLLECTION = 1 << 3;
+    private static final int TYPE_SOURCE_SHIFT = 4;
+
+    //Sorted type names, and the flags of each type at the same position
+    private String[] names = new String[ 16 ];
+    private byte[] flags = new byte[ 16 ];
+    private int size;
+
+    private int eventTypeCount;
+    private int collectionTypeCount;
+    private int typeSourceCount;
+
+    private final Map<String, Boolean> eventTypes = new FlagMap( HAS_EVENT,
+                                                                 IS_EVENT );
+    private final Map<String, Boolean> collectionTypes = new FlagMap( HAS_COLLECTION,
+                                                                      IS_COLLECTION );
+    private final Map<String, TypeSource> typeSources = new TypeSourceMap();
+
+    /**
+     * Get the id of a type
+     * @param type
+     * @return The id, or -1 if the table holds no flags for the type
+     */
+    int getId( final Object type ) {
+        if ( !( type instanceof String ) ) {
+            return -1;
+        }
+        final int id = Arrays.binarySearch( names,
+                                            0,
+                                            size,
+                                            type );
+        return id < 0 ? -1 : id;
+    }
+
+    String getName( final int id ) {
+        return names[ id ];
+    }
+
+    void addEventTypes( final Map<String, Boolean> types ) {
+        for ( Map.Entry<String, Boolean> e : types.entrySet() ) {
+            if ( e.getValue() != null ) {
+                final int id = assertId( e.getKey() );
+                if ( ( flags[ id ] & HAS_EVENT ) == 0 ) {
+                    eventTypeCount++;
+                }
+                flags[ id ] = (byte) ( ( flags[ id ] & ~IS_EVENT ) | HAS_EVENT | ( e.getValue() ? IS_EVENT : 0 ) );
+            }
+        }
+    }
+
+    void addCollectionTypes( final Map<String, Boolean> types ) {
+        for ( Map.Entry<String, Boolean> e : types.entrySet() ) {
+            if ( e.getValue() != null ) {
+                final int id = assertId( e.getKey() );
+                if ( ( flags[ id ] & HAS_COLLECTION ) == 0 ) {
+                    collectionTypeCount++;
+                }
+                flags[ id ] = (byte) ( ( flags[ id ] & ~IS_COLLECTION ) | HAS_COLLECTION | ( e.getValue() ? IS_COLLECTION : 0 ) );
+            }
+        }
+    }
+
+    void addTypeSources( final Map<String, TypeSource> types ) {
+        for ( Map.Entry<String, TypeSource> e : types.entrySet() ) {
+            if ( e.getValue() != null ) {
+                final int id = assertId( e.getKey() );
+                if ( getTypeSource( id ) == null ) {
+                    typeSourceCount++;
+                }
+                flags[ id ] = (byte) ( ( flags[ id ] & ( ( 1 << TYPE_SOURCE_SHIFT ) - 1 ) ) | ( ( e.getValue().ordinal() + 1 ) << TYPE_SOURCE_SHIFT ) );
+            }
+        }
+    }
+
+    /**
+     * Read-only view of event types
+     * @return
+     */
+    Map<String, Boolean> getEventTypes() {
+        return eventTypes;
+    }
+
+    /**
+     * Read-only view of collection types
+     * @return
+     */
+    Map<String, Boolean> getCollectionTypes() {
+        return collectionTypes;
+    }
+
+    /**
+     * Read-only view of type sources
+     * @return
+     */
+    Map<String, TypeSource> getTypeSources() {
+        return typeSources;
+    }
+
+    /**
+     * Whether a type is an event
+     * @param id
+     * @return The flag, or null if the table holds no value for the type
+     */
+    Boolean getEventType( final int id ) {
+        return getFlag( id,
+                        HAS_EVENT,
+                        IS_EVENT );
+    }
+
+    /**
+     * Whether a type is a collection
+     * @param id
+     * @return The flag, or null if the table holds no value for the type
+     */
+    Boolean getCollectionType( final int id ) {
+        return getFlag( id,
+                        HAS_COLLECTION,
+                        IS_COLLECTION );
+    }
+
+    /**
+     * Source of a type
+     * @param id
+     * @return The TypeSource, or null if the table holds no value for the type
+     */
+    TypeSource getTypeSource( final int id ) {
+        final int ordinal = ( ( flags[ id ] & 0xFF ) >>> TYPE_SOURCE_SHIFT ) - 1;
+        return ordinal < 0 ? null : TYPE_SOURCES[ ordinal ];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Release unused capacity once the table has been populated
+     */
+    void trim() {
+        if ( size < names.length ) {
+            names = Arrays.copyOf( names,
+                                   size );
+            flags = Arrays.copyOf( flags,
+                                   size );
+        }
+    }
+
+    private int assertId( final String type ) {
+        final int id = Arrays.binarySearch( names,
+                                            0,
+                                            size,
+                                            type );
+        if ( id >= 0 ) {
+            return id;
+        }
+        final int insertion = -id - 1;
+        if ( size == names.length ) {
+            names = Arrays.copyOf( names,
+                                   Math.max( 16,
+                                             size * 2 ) );
+            flags = Arrays.copyOf( flags,
+                                   names.length );
+        }
+        System.arraycopy( names,
+                          insertion,
+                          names,
+                          insertion + 1,
+                          size - insertion );
+        System.arraycopy( flags,
+                          insertion,
+                          flags,
+                          insertion + 1,
+                          size - insertion );
+        names[ insertion ] = type;
+        flags[ insertion ] = 0;
+        size++;
+        return insertion;
+    }
+
+    private Boolean getFlag( final int id,
+                             final int has,
+                             final int is ) {
+        if ( ( flags[ id ] & has ) == 0 ) {
+            return null;
+        }
+        return ( flags[ id ] & is ) != 0;
+    }
+
+    /**
+     * Read-only Map view of the types having a value for one of the flags
+     */
+    private abstract class FlagView<V> extends AbstractMap<String, V> {
+
+        abstract V getValue( final int id );
+
+        abstract int count();
+
+        @Override
+        public V get( final Object key ) {
+            final int id = getId( key );
+            return id < 0 ? null : getValue( id );
+        }
+
+        @Override
+        public boolean containsKey( final Object key ) {
+            return get( key ) != null;
+        }
+
+        @Override
+        public int size() {
+            return count();
+        }
+
+        @Override
+        public Set<Entry<String, V>> entrySet() {
+            return new AbstractSet<Entry<String, V>>() {
+                @Override
+                public Iterator<Entry<String, V>> iterator() {
+                    return new Iterator<Entry<String, V>>() {
+
+                        private int next = advance( 0 );
+
+                        private int advance( int id ) {
+                            while ( id < size && getValue( id ) == null ) {
+                                id++;
+                            }
+                            return id;
+                        }
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < size;
+                        }
+
+                        @Override
+                        public Entry<String, V> next() {
+                            if ( !hasNext() ) {
+                                throw new NoSuchElementException();
+                            }
+                            final Entry<String, V> entry = new SimpleImmutableEntry<String, V>( names[ next ],
+                                                                                              getValue( next ) );
+                            next = advance( next + 1 );
+                            return entry;
+                        }
+
+                        @Override
+                        public void remove() {
+                            throw new UnsupportedOperationException();
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return count();
+                }
+            };
+        }
+
+    }
+
+    private class FlagMap extends FlagView<Boolean> {
+
+        private final int has;
+        private final int is;
+
+        private FlagMap( final int has,
+                         final int is ) {
+            this.has = has;
+            this.is = is;
+        }
+
+        @Override
+        Boolean getValue( final int id ) {
+            return getFlag( id,
+                            has,
+                            is );
+        }
+
+        @Override
+        int count() {
+            return has == HAS_EVENT ? eventTypeCount : collectionTypeCount;
+        }
+
+    }
+
+    private class TypeSourceMap extends FlagView<TypeSource> {
+
+        @Override
+        TypeSource getValue( final int id ) {
+            return getTypeSource( id );
+        }
+
+        @Override
+        int count() {
+            return typeSourceCount;
+        }
+
+    }
+
+}
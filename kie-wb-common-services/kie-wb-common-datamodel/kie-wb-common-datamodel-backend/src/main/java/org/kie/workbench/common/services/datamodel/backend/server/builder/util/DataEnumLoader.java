@@ -33,11 +33,30 @@ import org.mvel2.ParserContext;
 
 /**
  * Use MVEL to load up map/list of valid items for fields - used by the Guided rule editor.
+ * <p>
+ * When loaded lazily each entry of the definition is compiled separately, to report errors, and only evaluated when
+ * its values are first requested, so entries calling into Project classes to calculate their values do not slow down loading. Lazy
+ * loading is enabled with -Dorg.kie.workbench.datamodel.lazyEnums=true; lazily evaluated values are recalculated
+ * once older than -Dorg.kie.workbench.datamodel.enumRefreshInterval milliseconds, if set. Definitions that are a
+ * single MVEL expression (i.e. starting with "=") are always evaluated when loaded.
  */
 public class DataEnumLoader {
 
+    private static final boolean LAZY = Boolean.getBoolean( "org.kie.workbench.datamodel.lazyEnums" );
+
+    private static final long REFRESH_INTERVAL = Long.getLong( "org.kie.workbench.datamodel.enumRefreshInterval",
+                                                               0 );
+
     private final List<String> errors;
-    private final Map<String, String[]> data;
+    private final Map<String, DataEnumProvider> providers;
+
+    /**
+     * Whether Workbench enumerations are loaded lazily by default
+     * @return
+     */
+    public static boolean isLazy() {
+        return LAZY;
+    }
 
     /**
      * This is the source of the asset, which is an MVEL map (minus the outer "[") of course.
@@ -52,9 +71,155 @@ public class DataEnumLoader {
      */
     public DataEnumLoader( final String mvelSource,
                            final ClassLoader classLoader ) {
+        this( mvelSource,
+              classLoader,
+              LAZY );
+    }
+
+    /**
+     * This is the source of the asset, which is an MVEL map (minus the outer "[") of course.
+     * @param lazy Whether entries are evaluated when their values are first requested, rather than when loaded
+     */
+    public DataEnumLoader( final String mvelSource,
+                           final ClassLoader classLoader,
+                           final boolean lazy ) {
         this.errors = new ArrayList<String>();
-        this.data = loadEnum( mvelSource,
-                              classLoader );
+        Map<String, DataEnumProvider> providers = lazy ? loadLazyEnum( mvelSource,
+                                                                       classLoader ) : null;
+        if ( providers == null ) {
+            providers = new HashMap<String, DataEnumProvider>();
+            for ( Map.Entry<String, String[]> e : loadEnum( mvelSource,
+                                                            classLoader ).entrySet() ) {
+                providers.put( e.getKey(),
+                               DataEnumProvider.constant( e.getValue() ) );
+            }
+        }
+        this.providers = Collections.unmodifiableMap( providers );
+    }
+
+    //Returns null if the definition cannot be split into separate entries, in which case it is loaded eagerly
+    private Map<String, DataEnumProvider> loadLazyEnum( final String mvelSource,
+                                                        final ClassLoader classLoader ) {
+        if ( mvelSource == null || ( mvelSource.trim().equals( "" ) ) || mvelSource.startsWith( "=" ) ) {
+            return null;
+        }
+        final List<String[]> entries = splitEntries( addCommasForNewLines( mvelSource ) );
+        if ( entries == null ) {
+            return null;
+        }
+
+        final Map<String, DataEnumProvider> newMap = new HashMap<String, DataEnumProvider>();
+        try {
+
+            final ParserConfiguration pconf = new ParserConfiguration();
+            pconf.setClassLoader( classLoader );
+
+            for ( String[] entry : entries ) {
+                //Compiled only to report errors now; the provider compiles the entry again when it is evaluated
+                MVEL.compileExpression( entry[ 1 ],
+                                        new ParserContext( pconf ) );
+                final String key = makeEnumKey( entry[ 0 ] );
+                validateKey( key );
+                newMap.put( key,
+                            DataEnumProvider.lazy( key,
+                                                   entry[ 1 ],
+                                                   classLoader,
+                                                   REFRESH_INTERVAL ) );
+            }
+
+        } catch ( RuntimeException e ) {
+            addError( "Unable to load enumeration data." );
+            addError( e.getMessage() );
+            addError( "Error type: " + e.getClass().getName() );
+            return Collections.emptyMap();
+        }
+        return newMap;
+    }
+
+    //Split "'key' : value, 'key' : value" into {key, value} pairs, or return null if the source is not of that form
+    static List<String[]> splitEntries( final String source ) {
+        final List<String[]> entries = new ArrayList<String[]>();
+        int depth = 0;
+        char quote = 0;
+        int start = 0;
+        int colon = -1;
+        for ( int i = 0; i <= source.length(); i++ ) {
+            //A virtual trailing comma closes the last entry
+            final char c = ( i < source.length() ) ? source.charAt( i ) : ',';
+            if ( quote != 0 ) {
+                if ( c == '\\' ) {
+                    i++;
+                } else if ( c == quote ) {
+                    quote = 0;
+                }
+                continue;
+            }
+            switch ( c ) {
+                case '\'':
+                case '"':
+                    quote = c;
+                    break;
+                case '(':
+                case '[':
+                case '{':
+                    depth++;
+                    break;
+                case ')':
+                case ']':
+                case '}':
+                    depth--;
+                    break;
+                case ':':
+                    if ( depth == 0 && colon == -1 ) {
+                        colon = i;
+                    }
+                    break;
+                case ',':
+                    if ( depth == 0 ) {
+                        final String[] entry = makeEntry( source,
+                                                          start,
+                                                          colon,
+                                                          i );
+                        if ( entry == null ) {
+                            return null;
+                        }
+                        entries.add( entry );
+                        start = i + 1;
+                        colon = -1;
+                    }
+                    break;
+            }
+        }
+        if ( quote != 0 || depth != 0 ) {
+            return null;
+        }
+        return entries;
+    }
+
+    private static String[] makeEntry( final String source,
+                                       final int start,
+                                       final int colon,
+                                       final int end ) {
+        if ( colon == -1 ) {
+            return null;
+        }
+        final String key = source.substring( start,
+                                             colon ).trim();
+        final String value = source.substring( colon + 1,
+                                               end ).trim();
+        if ( key.length() < 2 || value.length() == 0 ) {
+            return null;
+        }
+        final char quote = key.charAt( 0 );
+        if ( ( quote != '\'' && quote != '"' ) || key.charAt( key.length() - 1 ) != quote ) {
+            return null;
+        }
+        final String unquotedKey = key.substring( 1,
+                                                  key.length() - 1 );
+        if ( unquotedKey.indexOf( quote ) != -1 || unquotedKey.indexOf( '\\' ) != -1 ) {
+            return null;
+        }
+        return new String[]{ unquotedKey, value };
     }
 
     private Map<String, String[]> loadEnum( String mvelSource,
@@ -101,28 +266,16 @@ public class DataEnumLoader {
             String key = makeEnumKey( entry.getKey() );
             validateKey( key );
             Object list = entry.getValue();
-            if ( !( list instanceof List<?> || list instanceof String ) ) {
+            final String[] values = DataEnumProvider.toValues( list );
+            if ( values == null ) {
                 if ( list == null ) {
                     addError( "The item with " + key + " is null." );
                 } else {
                     addError( "The item with " + key + " is not a list or a string, it is a " + list.getClass().getName() );
                 }
                 return Collections.emptyMap();
-            } else if ( list instanceof String ) {
-                newMap.put( key, new String[]{ (String) list } );
-            } else {
-                List<?> items = (List<?>) list;
-                String[] newItems = new String[ items.size() ];
-                for ( int i = 0; i < items.size(); i++ ) {
-                    Object listItem = items.get( i );
-                    if ( !( listItem instanceof String ) ) {
-                        newItems[ i ] = listItem.toString();
-                    } else {
-                        newItems[ i ] = (String) listItem;
-                    }
-                }
-                newMap.put( key, newItems );
             }
+            newMap.put( key, values );
         }
         return newMap;
     }
@@ -183,7 +336,7 @@ public class DataEnumLoader {
         }
     }
 
-    private String addCommasForNewLines( String mvelSource ) {
+    private static String addCommasForNewLines( String mvelSource ) {
         StringTokenizer st = new StringTokenizer( mvelSource, "\r\n" );
         StringBuilder buf = new StringBuilder();
         while ( st.hasMoreTokens() ) {
@@ -211,7 +364,7 @@ public class DataEnumLoader {
      * Return a list of any errors found.
      */
     public List<String> getErrors() {
-        return this.errors;
+        return Collections.unmodifiableList( this.errors );
     }
 
     public boolean hasErrors() {
@@ -219,13 +372,28 @@ public class DataEnumLoader {
     }
 
     /**
-     * Return the map of Fact.field to List (of Strings).
+     * Return the map of Fact.field to List (of Strings). Entries loaded lazily are evaluated.
      */
     public Map<String, String[]> getData() {
-        return this.data;
+        final Map<String, String[]> data = new HashMap<String, String[]>();
+        for ( Map.Entry<String, DataEnumProvider> e : providers.entrySet() ) {
+            final String[] values = e.getValue().getValues();
+            if ( values != null ) {
+                data.put( e.getKey(),
+                          values );
+            }
+        }
+        return Collections.unmodifiableMap( data );
+    }
+
+    /**
+     * Return the map of Fact.field to the provider of its values, without evaluating entries loaded lazily.
+     */
+    public Map<String, DataEnumProvider> getProviders() {
+        return this.providers;
     }
 
-    private String makeEnumKey( final String userDefinedKey ) {
+    private static String makeEnumKey( final String userDefinedKey ) {
         //Use of "." as a delimiter between Fact and Field leads to problems with fully qualified class names
         String systemDefinedKey = userDefinedKey.replace( ".",
                                                           "#" );
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.workbench.common.services.datamodel.backend.server.builder.util;
+
+import java.io.UnsupportedEncodingException;
+import java.lang.ref.WeakReference;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Process-wide LRU cache of DataEnumLoaders shared by all Projects and Packages. Loaders are keyed by a hash of the
+ * enumeration's definition and the identity of the ClassLoader used to evaluate it, so a definition is only compiled
+ * and executed again by MVEL when it, or the Project's ClassLoader, has changed. ClassLoaders are only weakly
+ * referenced; entries for ClassLoaders that have been discarded can never be matched and are evicted as the least
+ * recently used.
+ * <p>
+ * Definitions that fail to load are not cached, so they are loaded again on the next request. Definitions whose values
+ * are calculated (i.e. that are not only String literals) may depend upon data outside the definition, so they expire
+ * after -Dorg.kie.workbench.datamodel.enumCacheExpiry milliseconds (default 60000).
+ */
+public final class DataEnumLoaderCache {
+
+    private static final int MAX_ENTRIES = Integer.getInteger( "org.kie.workbench.datamodel.enumCacheSize",
+                                                               1000 );
+
+    private static final long EXPIRY = Long.getLong( "org.kie.workbench.datamodel.enumCacheExpiry",
+                                                     60000 );
+
+    //A definition consisting only of String literals, in lists, keyed by String literals
+    private static final Pattern LITERAL_DEFINITION = Pattern.compile( "(\\s|,|:|\\[|\\]|'([^'\\\\]|\\\\.)*'|\"([^\"\\\\]|\\\\.)*\")*" );
+
+    private static final DataEnumLoaderCache INSTANCE = new DataEnumLoaderCache( MAX_ENTRIES,
+                                                                                 EXPIRY );
+
+    private final int maxEntries;
+
+    private final long expiry;
+
+    private final Map<Key, CachedLoader> loaders;
+
+    public static DataEnumLoaderCache getInstance() {
+        return INSTANCE;
+    }
+
+    DataEnumLoaderCache( final int maxEntries,
+                         final long expiry ) {
+        this.maxEntries = maxEntries;
+        this.expiry = expiry;
+        this.loaders = Collections.synchronizedMap( new LinkedHashMap<Key, CachedLoader>( 16,
+                                                                                          0.75f,
+                                                                                          true ) {
+            @Override
+            protected boolean removeEldestEntry( final Map.Entry<Key, CachedLoader> eldest ) {
+                return size() > DataEnumLoaderCache.this.maxEntries;
+            }
+        } );
+    }
+
+    /**
+     * Get the loader for an enumeration definition, parsing the definition if it has not been parsed before with the
+     * same ClassLoader. The returned loader is shared and must not be modified.
+     * @param mvelSource The enumeration definition
+     * @param classLoader The ClassLoader used to evaluate the definition
+     * @return
+     */
+    public DataEnumLoader getLoader( final String mvelSource,
+                                     final ClassLoader classLoader ) {
+        final Key key = makeKey( mvelSource,
+                                 classLoader );
+        if ( key == null ) {
+            return new DataEnumLoader( mvelSource,
+                                       classLoader );
+        }
+        final long now = System.currentTimeMillis();
+        final CachedLoader cached = loaders.get( key );
+        if ( cached != null && cached.expires > now ) {
+            return cached.loader;
+        }
+
+        //Concurrent requests for the same definition may both parse it; the results are equivalent
+        final DataEnumLoader loader = new DataEnumLoader( mvelSource,
+                                                          classLoader );
+        if ( loader.hasErrors() ) {
+            loaders.remove( key );
+            return loader;
+        }
+        final boolean isLiteral = isLiteral( mvelSource );
+        if ( !isLiteral && expiry <= 0 ) {
+            return loader;
+        }
+        loaders.put( key,
+                     new CachedLoader( loader,
+                                       isLiteral ? Long.MAX_VALUE : now + expiry ) );
+        return loader;
+    }
+
+    //Check whether a definition contains only String literals, whose values cannot change unless the definition does
+    static boolean isLiteral( final String mvelSource ) {
+        return LITERAL_DEFINITION.matcher( mvelSource ).matches();
+    }
+
+    int size() {
+        return loaders.size();
+    }
+
+    void clear() {
+        loaders.clear();
+    }
+
+    private Key makeKey( final String mvelSource,
+                         final ClassLoader classLoader ) {
+        if ( maxEntries <= 0 || mvelSource == null || classLoader == null ) {
+            return null;
+        }
+        try {
+            final MessageDigest digest = MessageDigest.getInstance( "SHA-1" );
+            return new Key( digest.digest( mvelSource.getBytes( "UTF-8" ) ),
+                            classLoader );
+
+        } catch ( NoSuchAlgorithmException e ) {
+            return null;
+        } catch ( UnsupportedEncodingException e ) {
+            return null;
+        }
+    }
+
+    private static final class CachedLoader {
+
+        private final DataEnumLoader loader;
+        private final long expires;
+
+        private CachedLoader( final DataEnumLoader loader,
+                              final long expires ) {
+            this.loader = loader;
+            this.expires = expires;
+        }
+
+    }
+
+    private static final class Key {
+
+        private final byte[] hash;
+        private final WeakReference<ClassLoader> classLoader;
+        private final int hashCode;
+
+        private Key( final byte[] hash,
+                     final ClassLoader classLoader ) {
+            this.hash = hash;
+            this.classLoader = new WeakReference<ClassLoader>( classLoader );
+            this.hashCode = 31 * Arrays.hashCode( hash ) + System.identityHashCode( classLoader );
+        }
+
+        @Override
+        public boolean equals( final Object o ) {
+            if ( this == o ) {
+                return true;
+            }
+            if ( !( o instanceof Key ) ) {
+                return false;
+            }
+            final Key other = (Key) o;
+            if ( hashCode != other.hashCode || !Arrays.equals( hash,
+                                                               other.hash ) ) {
+                return false;
+            }
+            //A discarded ClassLoader never equals another, even if both references have been cleared
+            final ClassLoader cl = classLoader.get();
+            return cl != null && cl == other.classLoader.get();
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+    }
+
+}
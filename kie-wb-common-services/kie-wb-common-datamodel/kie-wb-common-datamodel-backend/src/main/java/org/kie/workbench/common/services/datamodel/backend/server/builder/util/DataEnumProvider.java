@@ -0,0 +1,177 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.workbench.common.services.datamodel.backend.server.builder.util;
+
+import java.io.Serializable;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.List;
+
+import org.drools.core.util.MVELSafeHelper;
+import org.mvel2.MVEL;
+import org.mvel2.ParserConfiguration;
+import org.mvel2.ParserContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Provides the values of a single Workbench enumeration entry (Fact.field). Values are either known when the
+ * enumeration is loaded or are calculated from an MVEL expression the first time they are requested.
+ * Calculated values are memoized and, if a refresh interval is set, recalculated once they are older than the
+ * interval so data-driven enumerations can reflect changes in the data they are drawn from.
+ * <p>
+ * Providers are shared through the process-wide DataEnumLoaderCache, so they hold the expression's source and only a
+ * weak reference to the Project ClassLoader; the expression is compiled when evaluated. A compiled expression would
+ * otherwise keep the ClassLoader, and with it every Project class, reachable for as long as the provider is cached.
+ */
+public abstract class DataEnumProvider {
+
+    private static final Logger log = LoggerFactory.getLogger( DataEnumProvider.class );
+
+    /**
+     * Get the values of the enumeration
+     * @return The values, or null if they could not be calculated
+     */
+    public abstract String[] getValues();
+
+    /**
+     * Whether the values have already been calculated, so requesting them is cheap
+     * @return
+     */
+    public abstract boolean isEvaluated();
+
+    public static DataEnumProvider constant( final String[] values ) {
+        return new ConstantDataEnumProvider( values );
+    }
+
+    static DataEnumProvider lazy( final String key,
+                                  final String expression,
+                                  final ClassLoader classLoader,
+                                  final long refreshInterval ) {
+        return new LazyDataEnumProvider( key,
+                                         expression,
+                                         classLoader,
+                                         refreshInterval );
+    }
+
+    /**
+     * Convert the result of evaluating an enumeration entry to its values
+     * @param value The result of evaluating the entry
+     * @return The values, or null if the result is not a List or String
+     */
+    static String[] toValues( final Object value ) {
+        if ( value instanceof String ) {
+            return new String[]{ (String) value };
+        } else if ( value instanceof List<?> ) {
+            final List<?> items = (List<?>) value;
+            final String[] values = new String[ items.size() ];
+            for ( int i = 0; i < items.size(); i++ ) {
+                final Object item = items.get( i );
+                values[ i ] = ( item instanceof String ) ? (String) item : String.valueOf( item );
+            }
+            return values;
+        }
+        return null;
+    }
+
+    private static final class ConstantDataEnumProvider extends DataEnumProvider {
+
+        private final String[] values;
+
+        private ConstantDataEnumProvider( final String[] values ) {
+            this.values = values;
+        }
+
+        @Override
+        public String[] getValues() {
+            return values;
+        }
+
+        @Override
+        public boolean isEvaluated() {
+            return true;
+        }
+
+    }
+
+    private static final class LazyDataEnumProvider extends DataEnumProvider {
+
+        private final String key;
+        private final String expression;
+        private final WeakReference<ClassLoader> classLoader;
+        private final long refreshInterval;
+
+        private String[] values;
+        private long evaluatedAt;
+        private boolean evaluated;
+
+        private LazyDataEnumProvider( final String key,
+                                      final String expression,
+                                      final ClassLoader classLoader,
+                                      final long refreshInterval ) {
+            this.key = key;
+            this.expression = expression;
+            this.classLoader = new WeakReference<ClassLoader>( classLoader );
+            this.refreshInterval = refreshInterval;
+        }
+
+        @Override
+        public synchronized String[] getValues() {
+            if ( !isEvaluated() ) {
+                values = evaluate();
+                evaluatedAt = System.currentTimeMillis();
+                evaluated = true;
+            }
+            return values;
+        }
+
+        @Override
+        public synchronized boolean isEvaluated() {
+            if ( !evaluated ) {
+                return false;
+            }
+            return refreshInterval <= 0 || System.currentTimeMillis() - evaluatedAt < refreshInterval;
+        }
+
+        private String[] evaluate() {
+            final ClassLoader cl = classLoader.get();
+            if ( cl == null ) {
+                //The Project has been rebuilt with a new ClassLoader; keep any values already calculated
+                log.warn( "Unable to load enumeration data for " + key + ": the Project ClassLoader has been discarded" );
+                return values;
+            }
+            try {
+                final ParserConfiguration pconf = new ParserConfiguration();
+                pconf.setClassLoader( cl );
+                final Serializable compiled = MVEL.compileExpression( expression,
+                                                                      new ParserContext( pconf ) );
+                final Object value = MVELSafeHelper.getEvaluator().executeExpression( compiled,
+                                                                                      new HashMap<String, Object>() );
+                final String[] result = toValues( value );
+                if ( result == null ) {
+                    log.warn( "The item with " + key + " is not a list or a string, it is " + ( value == null ? "null" : "a " + value.getClass().getName() ) );
+                }
+                return result;
+
+            } catch ( RuntimeException e ) {
+                log.warn( "Unable to load enumeration data for " + key + ": " + e.getMessage() );
+                return null;
+            }
+        }
+
+    }
+
+}
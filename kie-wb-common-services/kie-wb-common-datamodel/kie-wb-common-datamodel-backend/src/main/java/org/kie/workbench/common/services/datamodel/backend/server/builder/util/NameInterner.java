@@ -0,0 +1,98 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.workbench.common.services.datamodel.backend.server.builder.util;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Process-wide interner of the class, type and field names held by DataModelOracles. Every Project ClassLoader
+ * yields its own copy of a class's name, so equal names are otherwise held once per Project oracle. Names are held
+ * weakly, so a name is discarded once no oracle refers to it. The interner is split into independently locked
+ * stripes so Projects can be introspected in parallel; String.intern() is not used as it fills the permanent
+ * generation on older JVMs.
+ */
+public final class NameInterner {
+
+    private static final boolean enabled = !"false".equals( System.getProperty( "org.kie.workbench.datamodel.internNames" ) );
+
+    //Number of independently locked stripes; a power of two
+    private static final int STRIPES = 16;
+
+    private static final NameInterner INSTANCE = new NameInterner( enabled );
+
+    private final boolean isEnabled;
+
+    //Each stripe is guarded by itself
+    private final Map<String, WeakReference<String>>[] stripes;
+
+    public static NameInterner getInstance() {
+        return INSTANCE;
+    }
+
+    @SuppressWarnings("unchecked")
+    NameInterner( final boolean isEnabled ) {
+        this.isEnabled = isEnabled;
+        this.stripes = new Map[ STRIPES ];
+        for ( int i = 0; i < STRIPES; i++ ) {
+            stripes[ i ] = new WeakHashMap<String, WeakReference<String>>();
+        }
+    }
+
+    /**
+     * Intern a name
+     * @param name
+     * @return The canonical instance, or null if the name is null
+     */
+    public String intern( final String name ) {
+        if ( !isEnabled || name == null ) {
+            return name;
+        }
+        final Map<String, WeakReference<String>> stripe = getStripe( name );
+        synchronized ( stripe ) {
+            final WeakReference<String> reference = stripe.get( name );
+            if ( reference != null ) {
+                final String canonical = reference.get();
+                if ( canonical != null ) {
+                    return canonical;
+                }
+            }
+            stripe.put( name,
+                        new WeakReference<String>( name ) );
+            return name;
+        }
+    }
+
+    int size() {
+        int size = 0;
+        for ( Map<String, WeakReference<String>> stripe : stripes ) {
+            synchronized ( stripe ) {
+                size = size + stripe.size();
+            }
+        }
+        return size;
+    }
+
+    private Map<String, WeakReference<String>> getStripe( final String name ) {
+        //Spread the hash so all of its bits select the stripe
+        int h = name.hashCode();
+        h ^= ( h >>> 16 );
+        h ^= ( h >>> 8 );
+        return stripes[ h & ( STRIPES - 1 ) ];
+    }
+
+}
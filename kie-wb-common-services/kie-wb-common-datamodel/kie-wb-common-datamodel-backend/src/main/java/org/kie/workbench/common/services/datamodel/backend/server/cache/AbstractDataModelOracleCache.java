@@ -0,0 +1,597 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.workbench.common.services.datamodel.backend.server.cache;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Base LRU cache for DataModelOracles. Entries are built outside of any cache-wide lock so building an entry
+ * for one key never blocks callers for another key. Concurrent callers for the same key share a single in-flight
+ * build, and invalidating a key supersedes any build for that key that is still in progress. The most recently
+ * requested keys are remembered, even once invalidated or evicted, so their entries can be rebuilt ahead of use.
+ * <p/>
+ * Entries are weighed when cached and the least recently used entries are evicted once the total weight exceeds
+ * the cache's budget, so a single large Project's oracle displaces as many small ones as it needs to. Evicted
+ * entries are held by SoftReferences, unless disabled, so they remain available until the garbage collector needs
+ * the memory. The most recently cached entry is always retained, even if it alone exceeds the budget. Listeners are
+ * told of entries evicted because the budget was exceeded, so entries depending upon them can be evicted in turn.
+ * <p/>
+ * Hits, misses, build and wait times, evictions and invalidations are measured by DataModelOracleCacheMetrics,
+ * which subclasses may register as an MBean. Each request is also logged, with its outcome and duration, at DEBUG.
+ */
+public abstract class AbstractDataModelOracleCache<KEY, CONTENT> {
+
+    private static final Logger log = LoggerFactory.getLogger( AbstractDataModelOracleCache.class );
+
+    //Evicted entries are held softly unless disabled
+    private static final boolean softReferences = !"false".equals( System.getProperty( "org.kie.workbench.datamodel.softReferences" ) );
+
+    //In-flight builds, keyed by the entry they are building
+    private final ConcurrentMap<KEY, FutureTask<CONTENT>> builds = new ConcurrentHashMap<KEY, FutureTask<CONTENT>>();
+
+    //Distinguishes the caches of different deployments in the same MBeanServer. Defaults to the identity of the
+    //deployment's ClassLoader, which differs between deployments and between redeployments.
+    private static final String jmxContext = System.getProperty( "org.kie.workbench.datamodel.jmxContext",
+                                                                 "deployment-" + Integer.toHexString( System.identityHashCode( AbstractDataModelOracleCache.class.getClassLoader() ) ) );
+
+    private static final int MAX_RECENT_KEYS = Integer.getInteger( "org.kie.workbench.datamodel.recentKeysSize",
+                                                                   256 );
+
+    //Most recently requested keys, in access order
+    private final Map<KEY, Boolean> recentKeys = Collections.synchronizedMap( new LinkedHashMap<KEY, Boolean>( 16,
+                                                                                                             0.75f,
+                                                                                                             true ) {
+        @Override
+        protected boolean removeEldestEntry( final Map.Entry<KEY, Boolean> eldest ) {
+            return size() > MAX_RECENT_KEYS;
+        }
+    } );
+
+    //Guards publication of a built entry against a concurrent invalidation. This is never held whilst building.
+    private final Object publicationLock = new Object();
+
+    //Cached entries, in access order. Guarded by itself.
+    private final LinkedHashMap<KEY, CacheEntry<CONTENT>> entries = new LinkedHashMap<KEY, CacheEntry<CONTENT>>( 16,
+                                                                                                             0.75f,
+                                                                                                             true );
+
+    //Total weight of the entries that are strongly held. Guarded by entries.
+    private long weight;
+
+    private final long maxWeight;
+
+    private final DataModelOracleCacheMetrics metrics;
+
+    private final List<EvictionListener<KEY, CONTENT>> evictionListeners = new CopyOnWriteArrayList<EvictionListener<KEY, CONTENT>>();
+
+    private ObjectName mbeanName;
+
+    /**
+     * Create a cache with an unlimited budget, with each entry weighing 1.
+     */
+    protected AbstractDataModelOracleCache() {
+        this( null,
+              Long.MAX_VALUE );
+    }
+
+    /**
+     * Create a cache with a budget
+     * @param name Name of the cache, identifying its metrics; defaults to the class name if null
+     * @param maxWeight The maximum total weight of entries that are strongly held
+     */
+    protected AbstractDataModelOracleCache( final String name,
+                                            final long maxWeight ) {
+        this.maxWeight = maxWeight;
+        this.metrics = new DataModelOracleCacheMetrics( name == null ? getClass().getSimpleName() : name,
+                                                        this );
+    }
+
+    /**
+     * Name a key in metrics and logs
+     * @param key
+     * @return
+     */
+    protected String getKeyName( final KEY key ) {
+        return String.valueOf( key );
+    }
+
+    public DataModelOracleCacheMetrics getMetrics() {
+        return metrics;
+    }
+
+    public void addMetricsRegistry( final DataModelOracleCacheMetricsRegistry registry ) {
+        metrics.addRegistry( registry );
+    }
+
+    public void removeMetricsRegistry( final DataModelOracleCacheMetricsRegistry registry ) {
+        metrics.removeRegistry( registry );
+    }
+
+    public void addEvictionListener( final EvictionListener<KEY, CONTENT> listener ) {
+        evictionListeners.add( listener );
+    }
+
+    public void removeEvictionListener( final EvictionListener<KEY, CONTENT> listener ) {
+        evictionListeners.remove( listener );
+    }
+
+    /**
+     * Register the cache's metrics with the platform MBeanServer. Failures are logged.
+     */
+    protected void registerMBean() {
+        try {
+            final ObjectName name = new ObjectName( "org.kie.workbench.datamodel:type=DataModelOracleCache,context=" + ObjectName.quote( jmxContext ) + ",name=" + ObjectName.quote( metrics.getName() ) );
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if ( server.isRegistered( name ) ) {
+                server.unregisterMBean( name );
+            }
+            server.registerMBean( metrics,
+                                  name );
+            mbeanName = name;
+        } catch ( Exception e ) {
+            log.warn( "Unable to register metrics for DataModelOracle cache " + metrics.getName() + ": " + e.getMessage() );
+        }
+    }
+
+    protected void unregisterMBean() {
+        if ( mbeanName == null ) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean( mbeanName );
+        } catch ( Exception e ) {
+            log.warn( e.getMessage() );
+        }
+        mbeanName = null;
+    }
+
+    /**
+     * Estimate the weight of an entry. Weights are only meaningful relative to each other and the budget.
+     * @param key The key of the entry
+     * @param content The entry
+     * @return
+     */
+    protected long weigh( final KEY key,
+                          final CONTENT content ) {
+        return 1;
+    }
+
+    /**
+     * Return the cached entry for a key
+     * @param key The key of the entry
+     * @return The entry, or null if the entry is not cached or has been reclaimed by the garbage collector
+     */
+    public CONTENT getEntry( final KEY key ) {
+        final CONTENT content;
+        final Map<KEY, CONTENT> evicted;
+        synchronized ( entries ) {
+            final CacheEntry<CONTENT> entry = entries.get( key );
+            if ( entry == null ) {
+                return null;
+            }
+            content = entry.get();
+            if ( content == null ) {
+                entries.remove( key );
+                return null;
+            }
+            if ( !entry.isSoft() ) {
+                return content;
+            }
+            //An entry that had been evicted is used again so is held strongly once more
+            entry.harden( content );
+            weight += entry.weight;
+            evicted = evict( key );
+        }
+        notifyEvicted( evicted );
+        return content;
+    }
+
+    /**
+     * Cache an entry, evicting the least recently used entries if the budget is exceeded.
+     * @param key The key of the entry
+     * @param content The entry
+     */
+    public void setEntry( final KEY key,
+                          final CONTENT content ) {
+        //Weigh outside of the lock as weighing a large entry is not free
+        final long entryWeight = Math.max( 1,
+                                           weigh( key,
+                                                  content ) );
+        final Map<KEY, CONTENT> evicted;
+        synchronized ( entries ) {
+            release( entries.put( key,
+                                  new CacheEntry<CONTENT>( content,
+                                                           entryWeight ) ) );
+            weight += entryWeight;
+            evicted = evict( key );
+        }
+        notifyEvicted( evicted );
+    }
+
+    /**
+     * Evict the entries for the given keys as if the budget had been exceeded, so they are held softly if enabled.
+     * Entries that have already been evicted are unaffected. Listeners are not told of these evictions.
+     * @param keys The keys of the entries
+     */
+    protected void evictEntries( final Collection<KEY> keys ) {
+        synchronized ( entries ) {
+            for ( KEY key : keys ) {
+                final CacheEntry<CONTENT> entry = entries.get( key );
+                if ( entry == null || entry.isSoft() ) {
+                    continue;
+                }
+                weight -= entry.weight;
+                metrics.evicted( getKeyName( key ),
+                                 entry.weight );
+                if ( softReferences ) {
+                    entry.soften();
+                } else {
+                    entries.remove( key );
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the entries that are strongly held, without affecting their recency.
+     * @return A copy of the entries
+     */
+    protected Map<KEY, CONTENT> getStronglyHeldEntries() {
+        final Map<KEY, CONTENT> result = new HashMap<KEY, CONTENT>();
+        synchronized ( entries ) {
+            for ( Map.Entry<KEY, CacheEntry<CONTENT>> e : entries.entrySet() ) {
+                if ( !e.getValue().isSoft() ) {
+                    result.put( e.getKey(),
+                                e.getValue().get() );
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Remove the entry for a key. Builds in progress are unaffected; use invalidateEntry() to supersede them.
+     * @param key The key of the entry
+     */
+    public void invalidateCache( final KEY key ) {
+        synchronized ( entries ) {
+            release( entries.remove( key ) );
+        }
+    }
+
+    /**
+     * Remove all entries
+     */
+    public void invalidateCache() {
+        synchronized ( entries ) {
+            entries.clear();
+            weight = 0;
+        }
+    }
+
+    /**
+     * Return the keys of all cached entries, including those held softly that have not been reclaimed yet.
+     * @return A copy of the keys
+     */
+    public Set<KEY> getKeys() {
+        synchronized ( entries ) {
+            return new HashSet<KEY>( entries.keySet() );
+        }
+    }
+
+    /**
+     * Return the total weight of the entries that are strongly held
+     * @return
+     */
+    public long getWeight() {
+        synchronized ( entries ) {
+            return weight;
+        }
+    }
+
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    /**
+     * Return the cached entry for a key, building it with the factory if it does not exist.
+     * @param key The key of the entry
+     * @param factory Factory to build the entry if it is not cached
+     * @return
+     */
+    protected CONTENT assertEntry( final KEY key,
+                                   final Callable<CONTENT> factory ) {
+        recentKeys.put( key,
+                        Boolean.TRUE );
+        final long start = System.nanoTime();
+        boolean isMiss = false;
+        while ( true ) {
+            final CONTENT content = getEntry( key );
+            if ( content != null ) {
+                if ( !isMiss ) {
+                    metrics.hit( getKeyName( key ) );
+                }
+                logRequest( key,
+                            isMiss ? "miss" : "hit",
+                            start );
+                return content;
+            }
+            if ( !isMiss ) {
+                isMiss = true;
+                metrics.miss( getKeyName( key ) );
+            }
+
+            boolean isOwner = false;
+            FutureTask<CONTENT> build = builds.get( key );
+            if ( build == null ) {
+                final FutureTask<CONTENT> newBuild = new FutureTask<CONTENT>( factory );
+                build = builds.putIfAbsent( key,
+                                            newBuild );
+                if ( build == null ) {
+                    //Another build may have been published since the entry was last checked
+                    final CONTENT published = getEntry( key );
+                    if ( published != null ) {
+                        builds.remove( key,
+                                       newBuild );
+                        logRequest( key,
+                                    "miss",
+                                    start );
+                        return published;
+                    }
+                    build = newBuild;
+                    isOwner = true;
+                    newBuild.run();
+                }
+            }
+
+            final long waitStart = System.nanoTime();
+            try {
+                final CONTENT result = build.get();
+                if ( isOwner ) {
+                    metrics.build( getKeyName( key ),
+                                   System.nanoTime() - start,
+                                   true );
+                    publish( key,
+                             build,
+                             result );
+                    logRequest( key,
+                                "build",
+                                start );
+                } else {
+                    metrics.waited( getKeyName( key ),
+                                    System.nanoTime() - waitStart );
+                    logRequest( key,
+                                "wait",
+                                start );
+                }
+                return result;
+
+            } catch ( CancellationException ce ) {
+                //The build was superseded by an invalidation; try again
+
+            } catch ( InterruptedException ie ) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException( ie );
+
+            } catch ( ExecutionException ee ) {
+                if ( isOwner ) {
+                    builds.remove( key,
+                                   build );
+                    metrics.build( getKeyName( key ),
+                                   System.nanoTime() - start,
+                                   false );
+                }
+                logRequest( key,
+                            "failed",
+                            start );
+                final Throwable cause = ee.getCause();
+                if ( cause instanceof RuntimeException ) {
+                    throw (RuntimeException) cause;
+                } else if ( cause instanceof Error ) {
+                    throw (Error) cause;
+                }
+                throw new RuntimeException( cause );
+            }
+        }
+    }
+
+    /**
+     * Invalidate the entry for a key, superseding any build for the key that is still in progress.
+     * @param key The key of the entry
+     */
+    protected void invalidateEntry( final KEY key ) {
+        final FutureTask<CONTENT> build;
+        synchronized ( publicationLock ) {
+            build = builds.remove( key );
+            invalidateCache( key );
+        }
+        metrics.invalidated( getKeyName( key ) );
+        if ( build != null ) {
+            build.cancel( false );
+        }
+    }
+
+    /**
+     * Return the keys of all cached entries and all entries that are being built.
+     * @return
+     */
+    protected Set<KEY> getKeysIncludingBuilds() {
+        final Set<KEY> keys = getKeys();
+        keys.addAll( builds.keySet() );
+        return keys;
+    }
+
+    /**
+     * Return the most recently requested keys, most recent first. Keys are retained after their entries have been
+     * invalidated or evicted.
+     * @return
+     */
+    public List<KEY> getRecentKeys() {
+        final List<KEY> keys;
+        synchronized ( recentKeys ) {
+            keys = new ArrayList<KEY>( recentKeys.keySet() );
+        }
+        Collections.reverse( keys );
+        return keys;
+    }
+
+    //Only publish the result if the build has not been superseded by an invalidation in the meantime
+    private void publish( final KEY key,
+                          final FutureTask<CONTENT> build,
+                          final CONTENT content ) {
+        synchronized ( publicationLock ) {
+            if ( builds.remove( key,
+                                build ) ) {
+                setEntry( key,
+                          content );
+            }
+        }
+    }
+
+    //Evict the least recently used entries, other than the given entry, until the budget is no longer exceeded.
+    //Entries that have already been reclaimed by the garbage collector are removed along the way. Returns the
+    //entries evicted, so listeners can be told once the lock is released.
+    private Map<KEY, CONTENT> evict( final KEY retainedKey ) {
+        final Map<KEY, CONTENT> evicted = new LinkedHashMap<KEY, CONTENT>();
+        final Iterator<Map.Entry<KEY, CacheEntry<CONTENT>>> itr = entries.entrySet().iterator();
+        while ( itr.hasNext() ) {
+            final Map.Entry<KEY, CacheEntry<CONTENT>> e = itr.next();
+            final CacheEntry<CONTENT> entry = e.getValue();
+            if ( entry.isSoft() ) {
+                if ( entry.get() == null ) {
+                    itr.remove();
+                }
+                continue;
+            }
+            if ( weight <= maxWeight ) {
+                continue;
+            }
+            if ( e.getKey().equals( retainedKey ) ) {
+                continue;
+            }
+            weight -= entry.weight;
+            metrics.evicted( getKeyName( e.getKey() ),
+                             entry.weight );
+            evicted.put( e.getKey(),
+                         entry.get() );
+            if ( softReferences ) {
+                entry.soften();
+            } else {
+                itr.remove();
+            }
+        }
+        return evicted;
+    }
+
+    private void notifyEvicted( final Map<KEY, CONTENT> evicted ) {
+        for ( Map.Entry<KEY, CONTENT> e : evicted.entrySet() ) {
+            for ( EvictionListener<KEY, CONTENT> listener : evictionListeners ) {
+                try {
+                    listener.onEvicted( e.getKey(),
+                                        e.getValue() );
+                } catch ( RuntimeException re ) {
+                    log.warn( "Unable to notify eviction of " + getKeyName( e.getKey() ) + ": " + re.getMessage() );
+                }
+            }
+        }
+    }
+
+    private void logRequest( final KEY key,
+                             final String outcome,
+                             final long start ) {
+        if ( log.isDebugEnabled() ) {
+            log.debug( "DataModelOracle request cache={} key={} outcome={} durationMs={}",
+                       new Object[]{ metrics.getName(), getKeyName( key ), outcome, TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start ) } );
+        }
+    }
+
+    private void release( final CacheEntry<CONTENT> entry ) {
+        if ( entry != null && !entry.isSoft() ) {
+            weight -= entry.weight;
+        }
+    }
+
+    /**
+     * Told of entries evicted from a cache because its budget was exceeded. Listeners are called once the cache's
+     * lock has been released, on the thread that caused the eviction.
+     */
+    public interface EvictionListener<KEY, CONTENT> {
+
+        void onEvicted( final KEY key,
+                        final CONTENT content );
+
+    }
+
+    /**
+     * A cached entry, held strongly whilst within the cache's budget and softly once evicted.
+     */
+    private static class CacheEntry<CONTENT> {
+
+        private final long weight;
+        private CONTENT content;
+        private SoftReference<CONTENT> softContent;
+
+        private CacheEntry( final CONTENT content,
+                            final long weight ) {
+            this.content = content;
+            this.weight = weight;
+        }
+
+        private CONTENT get() {
+            return content != null ? content : softContent.get();
+        }
+
+        private boolean isSoft() {
+            return content == null;
+        }
+
+        private void soften() {
+            softContent = new SoftReference<CONTENT>( content );
+            content = null;
+        }
+
+        private void harden( final CONTENT content ) {
+            this.content = content;
+            this.softContent = null;
+        }
+
+    }
+
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.workbench.common.services.datamodel.backend.server.cache;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.kie.workbench.common.services.datamodel.model.PackageDataModelOracleBaselinePayload;
+
+/**
+ * A simple LRU cache of the baseline payloads built from a single Package DataModelOracle, keyed by the set of
+ * types used by the editor requesting the payload. A new cache is created with each oracle, so cached payloads
+ * are discarded whenever the oracle is invalidated or evicted. Cached payloads are shared and must not be modified.
+ */
+public final class BaselinePayloadCache {
+
+    private static final int MAX_ENTRIES = Integer.getInteger( "org.kie.workbench.datamodel.baselinePayloadCacheSize",
+                                                               16 );
+
+    private final Map<Set<String>, PackageDataModelOracleBaselinePayload> payloads;
+
+    public BaselinePayloadCache() {
+        this.payloads = Collections.synchronizedMap( new LinkedHashMap<Set<String>, PackageDataModelOracleBaselinePayload>( 16,
+                                                                                                                             0.75f,
+                                                                                                                             true ) {
+            @Override
+            protected boolean removeEldestEntry( final Map.Entry<Set<String>, PackageDataModelOracleBaselinePayload> eldest ) {
+                return size() > MAX_ENTRIES;
+            }
+        } );
+    }
+
+    public PackageDataModelOracleBaselinePayload getPayload( final Set<String> usedFullyQualifiedClassNames ) {
+        return payloads.get( usedFullyQualifiedClassNames );
+    }
+
+    public void setPayload( final Set<String> usedFullyQualifiedClassNames,
+                            final PackageDataModelOracleBaselinePayload payload ) {
+        if ( MAX_ENTRIES > 0 ) {
+            payloads.put( Collections.unmodifiableSet( new HashSet<String>( usedFullyQualifiedClassNames ) ),
+                          payload );
+        }
+    }
+
+    public int size() {
+        return payloads.size();
+    }
+
+}
@@ -0,0 +1,277 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.workbench.common.services.datamodel.backend.server.cache;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Performance metrics of a single DataModelOracle cache. Measurements are accumulated here, for JMX, and forwarded
+ * to any registered DataModelOracleCacheMetricsRegistry. Measurement failures in a registry are logged and ignored.
+ */
+public final class DataModelOracleCacheMetrics implements DataModelOracleCacheMetricsMXBean {
+
+    private static final Logger log = LoggerFactory.getLogger( DataModelOracleCacheMetrics.class );
+
+    private static final int MAX_BUILD_TIMES = Integer.getInteger( "org.kie.workbench.datamodel.buildTimesSize",
+                                                                   256 );
+
+    private final String name;
+    private final AbstractDataModelOracleCache<?, ?> cache;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong builds = new AtomicLong();
+    private final AtomicLong buildFailures = new AtomicLong();
+    private final AtomicLong buildTime = new AtomicLong();
+    private final AtomicLong maxBuildTime = new AtomicLong();
+    private final AtomicLong waits = new AtomicLong();
+    private final AtomicLong waitTime = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    //Duration of the last build of each recently built entry, in access order. Guarded by itself.
+    private final Map<String, Long> lastBuildTimes = new LinkedHashMap<String, Long>( 16,
+                                                                                      0.75f,
+                                                                                      true ) {
+        @Override
+        protected boolean removeEldestEntry( final Map.Entry<String, Long> eldest ) {
+            return size() > MAX_BUILD_TIMES;
+        }
+    };
+
+    private final List<DataModelOracleCacheMetricsRegistry> registries = new CopyOnWriteArrayList<DataModelOracleCacheMetricsRegistry>();
+
+    DataModelOracleCacheMetrics( final String name,
+                                 final AbstractDataModelOracleCache<?, ?> cache ) {
+        this.name = name;
+        this.cache = cache;
+    }
+
+    void addRegistry( final DataModelOracleCacheMetricsRegistry registry ) {
+        registries.add( registry );
+    }
+
+    void removeRegistry( final DataModelOracleCacheMetricsRegistry registry ) {
+        registries.remove( registry );
+    }
+
+    void hit( final String key ) {
+        hits.incrementAndGet();
+        for ( DataModelOracleCacheMetricsRegistry registry : registries ) {
+            try {
+                registry.onHit( name,
+                                key );
+            } catch ( RuntimeException e ) {
+                log.warn( e.getMessage() );
+            }
+        }
+    }
+
+    void miss( final String key ) {
+        misses.incrementAndGet();
+        for ( DataModelOracleCacheMetricsRegistry registry : registries ) {
+            try {
+                registry.onMiss( name,
+                                 key );
+            } catch ( RuntimeException e ) {
+                log.warn( e.getMessage() );
+            }
+        }
+    }
+
+    void build( final String key,
+                final long durationNanos,
+                final boolean succeeded ) {
+        builds.incrementAndGet();
+        if ( !succeeded ) {
+            buildFailures.incrementAndGet();
+        }
+        final long durationMillis = TimeUnit.NANOSECONDS.toMillis( durationNanos );
+        buildTime.addAndGet( durationMillis );
+        long max = maxBuildTime.get();
+        while ( durationMillis > max && !maxBuildTime.compareAndSet( max,
+                                                                     durationMillis ) ) {
+            max = maxBuildTime.get();
+        }
+        synchronized ( lastBuildTimes ) {
+            lastBuildTimes.put( key,
+                                durationMillis );
+        }
+        for ( DataModelOracleCacheMetricsRegistry registry : registries ) {
+            try {
+                registry.onBuild( name,
+                                  key,
+                                  durationNanos,
+                                  succeeded );
+            } catch ( RuntimeException e ) {
+                log.warn( e.getMessage() );
+            }
+        }
+    }
+
+    void waited( final String key,
+                 final long durationNanos ) {
+        waits.incrementAndGet();
+        waitTime.addAndGet( TimeUnit.NANOSECONDS.toMillis( durationNanos ) );
+        for ( DataModelOracleCacheMetricsRegistry registry : registries ) {
+            try {
+                registry.onWait( name,
+                                 key,
+                                 durationNanos );
+            } catch ( RuntimeException e ) {
+                log.warn( e.getMessage() );
+            }
+        }
+    }
+
+    void evicted( final String key,
+                  final long weight ) {
+        evictions.incrementAndGet();
+        for ( DataModelOracleCacheMetricsRegistry registry : registries ) {
+            try {
+                registry.onEviction( name,
+                                     key,
+                                     weight );
+            } catch ( RuntimeException e ) {
+                log.warn( e.getMessage() );
+            }
+        }
+    }
+
+    void invalidated( final String key ) {
+        invalidations.incrementAndGet();
+        for ( DataModelOracleCacheMetricsRegistry registry : registries ) {
+            try {
+                registry.onInvalidation( name,
+                                         key );
+            } catch ( RuntimeException e ) {
+                log.warn( e.getMessage() );
+            }
+        }
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getHits() {
+        return hits.get();
+    }
+
+    @Override
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @Override
+    public double getHitRatio() {
+        final long h = hits.get();
+        final long total = h + misses.get();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    @Override
+    public long getBuilds() {
+        return builds.get();
+    }
+
+    @Override
+    public long getBuildFailures() {
+        return buildFailures.get();
+    }
+
+    @Override
+    public double getAverageBuildTime() {
+        final long b = builds.get();
+        return b == 0 ? 0 : (double) buildTime.get() / b;
+    }
+
+    @Override
+    public long getMaxBuildTime() {
+        return maxBuildTime.get();
+    }
+
+    @Override
+    public long getWaits() {
+        return waits.get();
+    }
+
+    @Override
+    public long getWaitTime() {
+        return waitTime.get();
+    }
+
+    @Override
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    @Override
+    public long getInvalidations() {
+        return invalidations.get();
+    }
+
+    @Override
+    public int getSize() {
+        return cache.getKeys().size();
+    }
+
+    @Override
+    public long getWeight() {
+        return cache.getWeight();
+    }
+
+    @Override
+    public long getMaxWeight() {
+        return cache.getMaxWeight();
+    }
+
+    @Override
+    public Map<String, Long> getLastBuildTimes() {
+        synchronized ( lastBuildTimes ) {
+            return new HashMap<String, Long>( lastBuildTimes );
+        }
+    }
+
+    @Override
+    public void reset() {
+        hits.set( 0 );
+        misses.set( 0 );
+        builds.set( 0 );
+        buildFailures.set( 0 );
+        buildTime.set( 0 );
+        maxBuildTime.set( 0 );
+        waits.set( 0 );
+        waitTime.set( 0 );
+        evictions.set( 0 );
+        invalidations.set( 0 );
+        synchronized ( lastBuildTimes ) {
+            lastBuildTimes.clear();
+        }
+    }
+
+}
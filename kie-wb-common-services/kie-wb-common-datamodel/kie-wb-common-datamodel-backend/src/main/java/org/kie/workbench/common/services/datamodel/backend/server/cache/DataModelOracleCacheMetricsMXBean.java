@@ -0,0 +1,65 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.workbench.common.services.datamodel.backend.server.cache;
+
+import java.util.Map;
+
+/**
+ * Management interface exposing the performance of a DataModelOracle cache over JMX. Times are in milliseconds.
+ */
+public interface DataModelOracleCacheMetricsMXBean {
+
+    String getName();
+
+    long getHits();
+
+    long getMisses();
+
+    double getHitRatio();
+
+    long getBuilds();
+
+    long getBuildFailures();
+
+    double getAverageBuildTime();
+
+    long getMaxBuildTime();
+
+    /**
+     * Number of requests that waited for a build of the same entry already in progress for another caller
+     */
+    long getWaits();
+
+    long getWaitTime();
+
+    long getEvictions();
+
+    long getInvalidations();
+
+    int getSize();
+
+    long getWeight();
+
+    long getMaxWeight();
+
+    /**
+     * Duration of the most recent build of each recently built entry, keyed by the entry's name
+     */
+    Map<String, Long> getLastBuildTimes();
+
+    void reset();
+
+}
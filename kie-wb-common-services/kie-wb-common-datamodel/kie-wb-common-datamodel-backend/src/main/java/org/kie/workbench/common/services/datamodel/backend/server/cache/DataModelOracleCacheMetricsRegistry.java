@@ -0,0 +1,47 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.workbench.common.services.datamodel.backend.server.cache;
+
+/**
+ * Receives measurements from the DataModelOracle caches, so they can be forwarded to a metrics library. Registries
+ * are discovered with CDI; implementations must be thread-safe and must not block as they are called by threads
+ * requesting oracles. Keys are named by the cache, e.g. by the URI of a Project or Package.
+ */
+public interface DataModelOracleCacheMetricsRegistry {
+
+    void onHit( String cacheName,
+                String key );
+
+    void onMiss( String cacheName,
+                 String key );
+
+    void onBuild( String cacheName,
+                  String key,
+                  long durationNanos,
+                  boolean succeeded );
+
+    void onWait( String cacheName,
+                 String key,
+                 long durationNanos );
+
+    void onEviction( String cacheName,
+                     String key,
+                     long weight );
+
+    void onInvalidation( String cacheName,
+                         String key );
+
+}
@@ -0,0 +1,393 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.workbench.common.services.datamodel.backend.server.cache;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.guvnor.common.services.project.builder.events.InvalidateDMOPackageCacheEvent;
+import org.guvnor.common.services.project.builder.events.InvalidateDMOProjectCacheEvent;
+import org.guvnor.common.services.project.model.Package;
+import org.guvnor.common.services.project.model.Project;
+import org.guvnor.common.services.project.service.ProjectService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.uberfire.backend.server.util.Paths;
+import org.uberfire.backend.vfs.Path;
+import org.uberfire.commons.services.cdi.Startup;
+import org.uberfire.io.IOService;
+
+/**
+ * Builds DataModelOracles in the background so users do not wait for them to be built when opening an editor.
+ * After start-up the oracles of recently used Projects are built, most recent first; when a Project or Package
+ * oracle is invalidated it is rebuilt, together with the Project's recently used Package oracles, once changes to
+ * the Project have settled. Warm-up stops building new oracles once a cache is full, so it never evicts oracles that
+ * have been used. Warm-up is enabled with -Dorg.kie.workbench.datamodel.warmUp=true.
+ * <p>
+ * Recently used Projects are recorded in a file when the server stops, so they are still known after a restart. The
+ * file is set with -Dorg.kie.workbench.datamodel.warmUpHistory and defaults to ".niogit/datamodel-warmup" in the
+ * directory set by -Dorg.uberfire.nio.git.dir, alongside the repositories. At most
+ * -Dorg.kie.workbench.datamodel.warmUpThreads (default 2) oracles are built at once.
+ */
+@ApplicationScoped
+@Startup
+public class DataModelOracleWarmUpService {
+
+    private static final Logger log = LoggerFactory.getLogger( DataModelOracleWarmUpService.class );
+
+    private static final boolean warmUpEnabled = Boolean.getBoolean( "org.kie.workbench.datamodel.warmUp" );
+
+    private static final int warmUpThreads = Math.max( 1,
+                                                       Integer.getInteger( "org.kie.workbench.datamodel.warmUpThreads",
+                                                                           2 ) );
+
+    //Delay before warming up after start-up, so the application can finish starting
+    private static final long startUpDelay = Long.getLong( "org.kie.workbench.datamodel.warmUpStartDelay",
+                                                           30000 );
+
+    //Delay after the last change to a Project or Package before rebuilding its oracle, so a burst of changes (e.g. a
+    //push) only causes a single rebuild
+    private static final long invalidationDelay = Long.getLong( "org.kie.workbench.datamodel.warmUpInvalidationDelay",
+                                                                5000 );
+
+    //Maximum number of a Project's recently used Packages to rebuild with the Project
+    private static final int packagesPerProject = Integer.getInteger( "org.kie.workbench.datamodel.warmUpPackagesPerProject",
+                                                                      10 );
+
+    private static final File historyFile = new File( System.getProperty( "org.kie.workbench.datamodel.warmUpHistory",
+                                                                          new File( new File( System.getProperty( "org.uberfire.nio.git.dir",
+                                                                                                                  System.getProperty( "user.dir" ) ),
+                                                                                              ".niogit" ),
+                                                                                    "datamodel-warmup" ).getPath() ) ).getAbsoluteFile();
+
+    @Inject
+    @Named("ioStrategy")
+    private IOService ioService;
+
+    @Inject
+    private ProjectService projectService;
+
+    @Inject
+    @Named("ProjectDataModelOracleCache")
+    private LRUProjectDataModelOracleCache cacheProjects;
+
+    @Inject
+    @Named("PackageDataModelOracleCache")
+    private LRUDataModelOracleCache cachePackages;
+
+    private File history = historyFile;
+
+    private long delay = invalidationDelay;
+
+    //Null if warm-up is disabled
+    private ScheduledExecutorService executor;
+
+    //Projects and Packages whose warm-up is scheduled but has not started
+    private final Map<Object, WarmUpTask> scheduled = new HashMap<Object, WarmUpTask>();
+
+    public DataModelOracleWarmUpService() {
+    }
+
+    //Used by tests
+    DataModelOracleWarmUpService( final ProjectService projectService,
+                                  final LRUProjectDataModelOracleCache cacheProjects,
+                                  final LRUDataModelOracleCache cachePackages,
+                                  final ScheduledExecutorService executor,
+                                  final File history,
+                                  final long delay ) {
+        this.projectService = projectService;
+        this.cacheProjects = cacheProjects;
+        this.cachePackages = cachePackages;
+        this.executor = executor;
+        this.history = history;
+        this.delay = delay;
+    }
+
+    @PostConstruct
+    public void init() {
+        if ( !warmUpEnabled ) {
+            return;
+        }
+        //Warm-up must not compete with users' requests
+        executor = new ScheduledThreadPoolExecutor( warmUpThreads,
+                                                    new DaemonThreadFactory( "dmo-warm-up",
+                                                                             Thread.MIN_PRIORITY ) );
+        executor.schedule( new Runnable() {
+                               @Override
+                               public void run() {
+                                   warmUp();
+                               }
+                           },
+                           startUpDelay,
+                           TimeUnit.MILLISECONDS );
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if ( executor == null ) {
+            return;
+        }
+        executor.shutdownNow();
+        writeHistory( cacheProjects.getRecentKeys() );
+    }
+
+    /**
+     * Schedule warm-up of the oracles of recently used Projects, most recent first.
+     */
+    public void warmUp() {
+        if ( executor == null ) {
+            return;
+        }
+        for ( String uri : readHistory() ) {
+            final Project project = resolveProject( uri );
+            if ( project != null ) {
+                scheduleProject( project,
+                                 0 );
+            }
+        }
+    }
+
+    public void onProjectInvalidated( @Observes final InvalidateDMOProjectCacheEvent event ) {
+        if ( executor == null || event.getResourcePath() == null ) {
+            return;
+        }
+        //Package resources do not invalidate the Project's oracle, only that of their Package
+        if ( isPackageResource( event.getResourcePath() ) ) {
+            schedulePackage( event.getResourcePath() );
+            return;
+        }
+        final Project project = projectService.resolveProject( event.getResourcePath() );
+        if ( project != null ) {
+            scheduleProject( project,
+                             delay );
+        }
+    }
+
+    public void onPackageInvalidated( @Observes final InvalidateDMOPackageCacheEvent event ) {
+        if ( executor == null || event.getResourcePath() == null ) {
+            return;
+        }
+        schedulePackage( event.getResourcePath() );
+    }
+
+    private void schedulePackage( final Path resourcePath ) {
+        final Project project = projectService.resolveProject( resourcePath );
+        final Package pkg = projectService.resolvePackage( resourcePath );
+        if ( project != null && pkg != null ) {
+            schedulePackage( project,
+                             pkg,
+                             delay );
+        }
+    }
+
+    private void scheduleProject( final Project project,
+                                  final long delay ) {
+        schedule( project,
+                  new Runnable() {
+                      @Override
+                      public void run() {
+                          if ( isFull( cacheProjects ) ) {
+                              log.debug( "DataModelOracle cache is full; not warming up Project " + project.getRootPath().toURI() );
+                              return;
+                          }
+                          try {
+                              cacheProjects.assertProjectDataModelOracle( project );
+                          } catch ( Exception e ) {
+                              log.warn( "Unable to warm up DataModelOracle for Project " + project.getRootPath().toURI() + ": " + e.getMessage() );
+                              return;
+                          }
+                          for ( Package pkg : getRecentPackages( project ) ) {
+                              schedulePackage( project,
+                                               pkg,
+                                               0 );
+                          }
+                      }
+                  },
+                  delay );
+    }
+
+    private void schedulePackage( final Project project,
+                                  final Package pkg,
+                                  final long delay ) {
+        schedule( pkg,
+                  new Runnable() {
+                      @Override
+                      public void run() {
+                          if ( isFull( cachePackages ) ) {
+                              log.debug( "DataModelOracle cache is full; not warming up Package " + pkg.getPackageName() );
+                              return;
+                          }
+                          try {
+                              cachePackages.assertPackageDataModelOracle( project,
+                                                                          pkg );
+                          } catch ( Exception e ) {
+                              log.warn( "Unable to warm up DataModelOracle for Package " + pkg.getPackageName() + ": " + e.getMessage() );
+                          }
+                      }
+                  },
+                  delay );
+    }
+
+    //Schedule warm-up of a Project or Package. A change postpones warm-up already scheduled until the changes have
+    //settled, whereas warming up without delay leaves warm-up already scheduled as it is.
+    private void schedule( final Object key,
+                           final Runnable warmUp,
+                           final long delay ) {
+        synchronized ( scheduled ) {
+            final WarmUpTask previous = scheduled.get( key );
+            if ( previous != null ) {
+                if ( delay == 0 ) {
+                    return;
+                }
+                previous.future.cancel( false );
+            }
+            final WarmUpTask task = new WarmUpTask( key,
+                                                    warmUp );
+            task.future = executor.schedule( task,
+                                             delay,
+                                             TimeUnit.MILLISECONDS );
+            scheduled.put( key,
+                           task );
+        }
+    }
+
+    //Building another oracle once the cache is full would evict one that has been used
+    private static boolean isFull( final AbstractDataModelOracleCache<?, ?> cache ) {
+        return cache.getWeight() >= cache.getMaxWeight();
+    }
+
+    //Packages of a Project whose oracles were recently used, most recent first
+    private List<Package> getRecentPackages( final Project project ) {
+        final List<Package> packages = new ArrayList<Package>();
+        for ( Package pkg : cachePackages.getRecentKeys() ) {
+            if ( packages.size() >= packagesPerProject ) {
+                break;
+            }
+            final Path path = pkg.getPackageMainSrcPath();
+            if ( path != null && project.equals( projectService.resolveProject( path ) ) ) {
+                packages.add( pkg );
+            }
+        }
+        return packages;
+    }
+
+    boolean isPackageResource( final Path resourcePath ) {
+        return PackageResources.isPackageResource( Paths.convert( resourcePath ) );
+    }
+
+    //Returns null if the Project no longer exists
+    Project resolveProject( final String uri ) {
+        try {
+            return projectService.resolveProject( Paths.convert( ioService.get( URI.create( uri ) ) ) );
+        } catch ( Exception e ) {
+            log.debug( "Unable to resolve Project " + uri + ": " + e.getMessage() );
+            return null;
+        }
+    }
+
+    List<String> readHistory() {
+        final List<String> uris = new ArrayList<String>();
+        if ( !history.isFile() ) {
+            return uris;
+        }
+        try {
+            final BufferedReader reader = new BufferedReader( new InputStreamReader( new FileInputStream( history ),
+                                                                                     "UTF-8" ) );
+            try {
+                String line;
+                while ( ( line = reader.readLine() ) != null ) {
+                    if ( line.trim().length() > 0 ) {
+                        uris.add( line.trim() );
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch ( IOException ioe ) {
+            log.warn( "Unable to read DataModelOracle warm-up history " + history.getAbsolutePath() + ": " + ioe.getMessage() );
+        }
+        return uris;
+    }
+
+    void writeHistory( final List<Project> projects ) {
+        try {
+            final File parent = history.getParentFile();
+            if ( parent != null && !parent.isDirectory() && !parent.mkdirs() ) {
+                throw new IOException( "Unable to create directory " + parent.getAbsolutePath() );
+            }
+            final BufferedWriter writer = new BufferedWriter( new OutputStreamWriter( new FileOutputStream( history ),
+                                                                                      "UTF-8" ) );
+            try {
+                for ( Project project : projects ) {
+                    writer.write( project.getRootPath().toURI() );
+                    writer.newLine();
+                }
+            } finally {
+                writer.close();
+            }
+        } catch ( IOException ioe ) {
+            log.warn( "Unable to write DataModelOracle warm-up history " + history.getAbsolutePath() + ": " + ioe.getMessage() );
+        }
+    }
+
+    private class WarmUpTask implements Runnable {
+
+        private final Object key;
+        private final Runnable warmUp;
+        private ScheduledFuture<?> future;
+
+        private WarmUpTask( final Object key,
+                            final Runnable warmUp ) {
+            this.key = key;
+            this.warmUp = warmUp;
+        }
+
+        @Override
+        public void run() {
+            synchronized ( scheduled ) {
+                //Superseded by a later change
+                if ( scheduled.get( key ) != this ) {
+                    return;
+                }
+                scheduled.remove( key );
+            }
+            warmUp.run();
+        }
+
+    }
+
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.workbench.common.services.datamodel.backend.server.cache;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.drools.workbench.models.datamodel.oracle.Annotation;
+import org.drools.workbench.models.datamodel.oracle.MethodInfo;
+import org.drools.workbench.models.datamodel.oracle.ModelField;
+import org.drools.workbench.models.datamodel.oracle.ProjectDataModelOracle;
+
+/**
+ * Estimates the memory retained by DataModelOracles, in bytes. Estimates count the definitions held by an oracle
+ * rather than measuring it, so are approximate but cheap; they are intended for weighing oracles against each other.
+ */
+public final class DataModelOracleWeigher {
+
+    //Approximate sizes of each kind of definition, including the map entries and Strings holding them
+    private static final long ENTRY = 64;
+    private static final long MODEL_FIELD = 120;
+    private static final long METHOD_INFO = 160;
+    private static final long METHOD_PARAMETER = 16;
+    private static final long ANNOTATION = 96;
+    private static final long ANNOTATION_ATTRIBUTE = 96;
+    private static final long ENUM_VALUE = 64;
+    private static final long CHAR = 2;
+
+    //A type's definitions in the index: the object and the small Maps holding its definitions of each kind
+    private static final long TYPE_DEFINITIONS = 160;
+
+    //A type in the TypeFlagTable: its name's slot in the sorted array of names, its flags and its id in the index
+    private static final long TYPE_ID = 8 + 1 + 4;
+
+    //Fixed cost of an oracle and its index
+    private static final long ORACLE = 4096;
+
+    private DataModelOracleWeigher() {
+    }
+
+    /**
+     * Estimate the memory retained by a Project's DataModelOracle, including its index.
+     * @param oracle
+     * @return
+     */
+    public static long weigh( final ProjectDataModelOracle oracle ) {
+        long weight = ORACLE;
+        weight += ENTRY * oracle.getProjectPackageNames().size();
+
+        for ( ModelField[] modelFields : oracle.getProjectModelFields().values() ) {
+            weight += ENTRY;
+            if ( modelFields != null ) {
+                weight += MODEL_FIELD * modelFields.length;
+            }
+        }
+        weight += ENTRY * oracle.getProjectFieldParametersType().size();
+        for ( String[] values : oracle.getProjectJavaEnumDefinitions().values() ) {
+            weight += ENTRY;
+            if ( values != null ) {
+                weight += ENUM_VALUE * values.length;
+            }
+        }
+        for ( List<MethodInfo> methodInformation : oracle.getProjectMethodInformation().values() ) {
+            weight += ENTRY;
+            if ( methodInformation != null ) {
+                for ( MethodInfo mi : methodInformation ) {
+                    weight += METHOD_INFO;
+                    if ( mi.getParams() != null ) {
+                        weight += METHOD_PARAMETER * mi.getParams().size();
+                    }
+                }
+            }
+        }
+        //Type flags are held once per type, by id
+        weight += TYPE_ID * countTypes( oracle );
+        for ( List<String> superTypes : oracle.getProjectSuperTypes().values() ) {
+            weight += ENTRY;
+            if ( superTypes != null ) {
+                weight += ENTRY * superTypes.size();
+            }
+        }
+        for ( Set<Annotation> annotations : oracle.getProjectTypeAnnotations().values() ) {
+            weight += ENTRY + weigh( annotations );
+        }
+        for ( Map<String, Set<Annotation>> fieldsAnnotations : oracle.getProjectTypeFieldsAnnotations().values() ) {
+            weight += ENTRY;
+            if ( fieldsAnnotations != null ) {
+                for ( Set<Annotation> annotations : fieldsAnnotations.values() ) {
+                    weight += ENTRY + weigh( annotations );
+                }
+            }
+        }
+
+        //The index holds, for each type, its definitions, its Fact name and a proxy of its TYPE_THIS field. Types'
+        //definitions are indexed as they are requested, but are counted as if all had been.
+        weight += ( TYPE_DEFINITIONS + ENTRY * 3 + MODEL_FIELD ) * oracle.getProjectModelFields().size();
+        //Definitions are shared with the oracle, but referenced again by the index
+        weight += ENTRY * ( oracle.getProjectModelFields().size()
+                + oracle.getProjectFieldParametersType().size()
+                + oracle.getProjectMethodInformation().size()
+                + oracle.getProjectSuperTypes().size()
+                + oracle.getProjectTypeAnnotations().size()
+                + oracle.getProjectTypeFieldsAnnotations().size() );
+        return weight;
+    }
+
+    //Types with an event flag, a collection flag or a TypeSource
+    private static int countTypes( final ProjectDataModelOracle oracle ) {
+        final Set<String> types = new HashSet<String>( oracle.getProjectTypeSources().keySet() );
+        types.addAll( oracle.getProjectEventTypes().keySet() );
+        types.addAll( oracle.getProjectCollectionTypes().keySet() );
+        return types.size();
+    }
+
+    /**
+     * Estimate the memory retained by a Package's DataModelOracle from the resources it was built from. The
+     * Project-level definitions it exposes are shared with the Project's oracle so are not counted.
+     * @param resources The Package's resources, or null if they are not known
+     * @return
+     */
+    static long weigh( final PackageResources resources ) {
+        long weight = ORACLE;
+        if ( resources == null ) {
+            return weight;
+        }
+        weight += weigh( resources.getEnumerations() );
+        weight += weigh( resources.getDsls() );
+        weight += weigh( resources.getGlobals() );
+        return weight;
+    }
+
+    private static long weigh( final Set<Annotation> annotations ) {
+        if ( annotations == null ) {
+            return 0;
+        }
+        long weight = 0;
+        for ( Annotation a : annotations ) {
+            weight += ANNOTATION + ANNOTATION_ATTRIBUTE * a.getAttributes().size();
+        }
+        return weight;
+    }
+
+    //Definitions are parsed into structures of roughly the size of their source
+    private static long weigh( final Iterable<String> definitions ) {
+        long weight = 0;
+        for ( String definition : definitions ) {
+            weight += ENTRY + CHAR * definition.length();
+        }
+        return weight;
+    }
+
+}
@@ -1,17 +1,27 @@
 package org.kie.workbench.common.services.datamodel.backend.server.cache;
 
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.event.Observes;
+import javax.enterprise.inject.Any;
+import javax.enterprise.inject.Instance;
 import javax.inject.Inject;
 import javax.inject.Named;
 
 import org.drools.workbench.models.datamodel.oracle.PackageDataModelOracle;
 import org.drools.workbench.models.datamodel.oracle.ProjectDataModelOracle;
-import org.guvnor.common.services.backend.cache.LRUCache;
-import org.guvnor.common.services.backend.file.FileDiscoveryService;
 import org.guvnor.common.services.builder.LRUBuilderCache;
 import org.guvnor.common.services.project.builder.events.InvalidateDMOPackageCacheEvent;
 import org.guvnor.common.services.project.builder.events.InvalidateDMOProjectCacheEvent;
@@ -21,36 +31,40 @@ import org.guvnor.common.services.project.model.Project;
 import org.guvnor.common.services.project.service.ProjectService;
 import org.kie.api.builder.KieModule;
 import org.kie.scanner.KieModuleMetaData;
-import org.kie.workbench.common.services.backend.file.DSLFileFilter;
-import org.kie.workbench.common.services.backend.file.EnumerationsFileFilter;
-import org.kie.workbench.common.services.backend.file.GlobalsFileFilter;
+import org.kie.workbench.common.services.datamodel.backend.server.builder.packages.HasProjectDataModelOracle;
 import org.kie.workbench.common.services.datamodel.backend.server.builder.packages.PackageDataModelOracleBuilder;
 import org.uberfire.backend.server.util.Paths;
 import org.uberfire.backend.vfs.Path;
 import org.uberfire.commons.validation.PortablePreconditions;
 import org.uberfire.io.IOService;
-import org.uberfire.java.nio.file.DirectoryStream;
+import org.uberfire.java.nio.file.Files;
 
 /**
- * A simple LRU cache for Package DataModelOracles
+ * A simple LRU cache for Package DataModelOracles, evicting oracles against an estimate of the memory they retain.
+ * Oracles for different Packages are built concurrently.
+ * A change to a single Workbench enumeration, DSL or Globals definition only re-reads that resource when the
+ * Package's oracle is next rebuilt; other changes rebuild the oracle from scratch. A Package's resources are found
+ * with a single listing of its folder and read in parallel.
  */
 @ApplicationScoped
 @Named("PackageDataModelOracleCache")
-public class LRUDataModelOracleCache extends LRUCache<Package, PackageDataModelOracle> {
+public class LRUDataModelOracleCache extends AbstractDataModelOracleCache<Package, PackageDataModelOracle> {
 
-    private static final DirectoryStream.Filter<org.uberfire.java.nio.file.Path> FILTER_ENUMERATIONS = new EnumerationsFileFilter();
+    //Resources are read in parallel unless disabled
+    private static final boolean parallelRead = !"false".equals( System.getProperty( "org.kie.workbench.datamodel.parallelBuild" ) );
 
-    private static final DirectoryStream.Filter<org.uberfire.java.nio.file.Path> FILTER_GLOBALS = new GlobalsFileFilter();
+    private static final int parallelReadThreads = Math.max( 1,
+                                                             Integer.getInteger( "org.kie.workbench.datamodel.parallelReadThreads",
+                                                                                 4 ) );
 
-    private static final DirectoryStream.Filter<org.uberfire.java.nio.file.Path> FILTER_DSLS = new DSLFileFilter();
+    //Estimated memory, in bytes, that cached Package oracles may retain before the least recently used are evicted
+    private static final long maxWeight = Long.getLong( "org.kie.workbench.datamodel.packageCacheMaxWeight",
+                                                        32L * 1024 * 1024 );
 
     @Inject
     @Named("ioStrategy")
     private IOService ioService;
 
-    @Inject
-    private FileDiscoveryService fileDiscoveryService;
-
     @Inject
     @Named("ProjectDataModelOracleCache")
     private LRUProjectDataModelOracleCache cacheProjects;
@@ -61,7 +75,72 @@ public class LRUDataModelOracleCache extends LRUCache<Package, PackageDataModelO
     @Inject
     private LRUBuilderCache builderCache;
 
-    public synchronized void invalidatePackageCache( @Observes final InvalidateDMOPackageCacheEvent event ) {
+    @Inject
+    @Any
+    private Instance<DataModelOracleCacheMetricsRegistry> metricsRegistries;
+
+    //Bounded pool shared by all Package builds; null if resources are read serially
+    private ExecutorService resourceReadExecutor;
+
+    //Resources read for Packages whose oracles are cached, being built or invalidated by a change to a single resource
+    private final ConcurrentMap<Package, PackageResources> packageResources = new ConcurrentHashMap<Package, PackageResources>();
+
+    //Incremented whenever resources are discarded, so resources read concurrently with a discard are not retained
+    private final AtomicLong discards = new AtomicLong();
+
+    //Packages invalidated by a change to a single resource that have not been rebuilt since
+    private final Set<Package> patchedPackages = Collections.newSetFromMap( new ConcurrentHashMap<Package, Boolean>() );
+
+    //Package oracles are evicted with the Project oracle they are views of
+    private final EvictionListener<Project, ProjectDataModelOracle> projectEvictionListener = new EvictionListener<Project, ProjectDataModelOracle>() {
+        @Override
+        public void onEvicted( final Project project,
+                               final ProjectDataModelOracle projectOracle ) {
+            evictPackages( projectOracle );
+        }
+    };
+
+    public LRUDataModelOracleCache() {
+        super( "Package",
+               maxWeight );
+    }
+
+    @PostConstruct
+    public void init() {
+        for ( DataModelOracleCacheMetricsRegistry registry : metricsRegistries ) {
+            addMetricsRegistry( registry );
+        }
+        registerMBean();
+        cacheProjects.addEvictionListener( projectEvictionListener );
+        if ( parallelRead && parallelReadThreads > 1 ) {
+            resourceReadExecutor = Executors.newFixedThreadPool( parallelReadThreads,
+                                                                 new DaemonThreadFactory( "dmo-resource-read" ) );
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        cacheProjects.removeEvictionListener( projectEvictionListener );
+        unregisterMBean();
+        if ( resourceReadExecutor != null ) {
+            resourceReadExecutor.shutdownNow();
+        }
+    }
+
+    @Override
+    protected String getKeyName( final Package pkg ) {
+        final Path packageMainSrcPath = pkg.getPackageMainSrcPath();
+        return packageMainSrcPath == null ? pkg.getPackageName() : packageMainSrcPath.toURI();
+    }
+
+    //Package oracles are weighed by the resources they were built from, as their Project-level definitions are shared
+    @Override
+    protected long weigh( final Package pkg,
+                          final PackageDataModelOracle oracle ) {
+        return DataModelOracleWeigher.weigh( packageResources.get( pkg ) );
+    }
+
+    public void invalidatePackageCache( @Observes final InvalidateDMOPackageCacheEvent event ) {
         PortablePreconditions.checkNotNull( "event",
                                             event );
         final Path resourcePath = event.getResourcePath();
@@ -69,11 +148,12 @@ public class LRUDataModelOracleCache extends LRUCache<Package, PackageDataModelO
 
         //If resource was not within a Package there's nothing to invalidate
         if ( pkg != null ) {
-            invalidateCache( pkg );
+            invalidatePackage( pkg,
+                               resourcePath );
         }
     }
 
-    public synchronized void invalidateProjectPackagesCache( @Observes final InvalidateDMOProjectCacheEvent event ) {
+    public void invalidateProjectPackagesCache( @Observes final InvalidateDMOProjectCacheEvent event ) {
         PortablePreconditions.checkNotNull( "event",
                                             event );
         final Path resourcePath = event.getResourcePath();
@@ -84,9 +164,19 @@ public class LRUDataModelOracleCache extends LRUCache<Package, PackageDataModelO
             return;
         }
 
+        //Package resources do not contribute to the Project's oracle so only the containing Package is affected
+        if ( PackageResources.isPackageResource( Paths.convert( resourcePath ) ) ) {
+            final Package pkg = projectService.resolvePackage( resourcePath );
+            if ( pkg != null ) {
+                invalidatePackage( pkg,
+                                   resourcePath );
+            }
+            return;
+        }
+
         final String projectUri = project.getRootPath().toURI();
         final List<Package> cacheEntriesToInvalidate = new ArrayList<Package>();
-        for ( final Package pkg : getKeys() ) {
+        for ( final Package pkg : getKeysIncludingBuilds() ) {
             final Path packageMainSrcPath = pkg.getPackageMainSrcPath();
             final Path packageTestSrcPath = pkg.getPackageTestSrcPath();
             final Path packageMainResourcesPath = pkg.getPackageMainResourcesPath();
@@ -102,44 +192,142 @@ public class LRUDataModelOracleCache extends LRUCache<Package, PackageDataModelO
             }
         }
         for ( final Package pkg : cacheEntriesToInvalidate ) {
-            invalidateCache( pkg );
+            discardPackageResources( pkg );
+            invalidateEntry( pkg );
+        }
+    }
+
+    private void invalidatePackage( final Package pkg,
+                                    final Path resourcePath ) {
+        //Patch the Package's resources with the changed resource if possible, otherwise re-read them all on rebuild
+        if ( !patchPackageResources( pkg,
+                                     resourcePath ) ) {
+            discardPackageResources( pkg );
+        }
+        invalidateEntry( pkg );
+    }
+
+    private boolean patchPackageResources( final Package pkg,
+                                           final Path resourcePath ) {
+        final org.uberfire.java.nio.file.Path nioResourcePath = Paths.convert( resourcePath );
+        if ( !PackageResources.isPackageResource( nioResourcePath ) ) {
+            return false;
+        }
+
+        //Only resources directly within the Package's resources folder contribute to its oracle
+        final Path packageMainResourcesPath = pkg.getPackageMainResourcesPath();
+        if ( packageMainResourcesPath == null || !Paths.convert( packageMainResourcesPath ).equals( nioResourcePath.getParent() ) ) {
+            return false;
+        }
+
+        final String definition = Files.exists( nioResourcePath ) ? ioService.readAllString( nioResourcePath ) : null;
+        while ( true ) {
+            final PackageResources resources = packageResources.get( pkg );
+            if ( resources == null ) {
+                return false;
+            }
+            patchedPackages.add( pkg );
+            if ( packageResources.replace( pkg,
+                                           resources,
+                                           resources.update( nioResourcePath,
+                                                             definition ) ) ) {
+                return true;
+            }
         }
     }
 
+    private void discardPackageResources( final Package pkg ) {
+        discards.incrementAndGet();
+        packageResources.remove( pkg );
+        patchedPackages.remove( pkg );
+    }
+
     //Check the DataModelOracle for the Package has been created, otherwise create one!
-    public synchronized PackageDataModelOracle assertPackageDataModelOracle( final Project project,
-                                                                             final Package pkg ) {
-        PackageDataModelOracle oracle = getEntry( pkg );
-        if ( oracle == null ) {
-            oracle = makePackageDataModelOracle( project,
-                                                 pkg );
-            setEntry( pkg,
-                      oracle );
+    public PackageDataModelOracle assertPackageDataModelOracle( final Project project,
+                                                                final Package pkg ) {
+        //Package oracles are views of the Project's oracle so the Project's oracle is used, and kept recent, with them
+        final ProjectDataModelOracle projectOracle = cacheProjects.assertProjectDataModelOracle( project );
+        final Callable<PackageDataModelOracle> factory = new Callable<PackageDataModelOracle>() {
+            @Override
+            public PackageDataModelOracle call() throws Exception {
+                return makePackageDataModelOracle( project,
+                                                   projectOracle,
+                                                   pkg );
+            }
+        };
+        final PackageDataModelOracle oracle = assertEntry( pkg,
+                                                           factory );
+        //An evicted Package oracle may outlive the Project oracle it was built from, if that has since been rebuilt
+        if ( oracle instanceof HasProjectDataModelOracle && ( (HasProjectDataModelOracle) oracle ).getProjectOracle() != projectOracle ) {
+            invalidateEntry( pkg );
+            return assertEntry( pkg,
+                                factory );
         }
         return oracle;
     }
 
+    //Evict the Package oracles that are views of a Project oracle evicted from the Project cache. They would otherwise
+    //keep the Project oracle strongly reachable, outside of either cache's budget.
+    private void evictPackages( final ProjectDataModelOracle projectOracle ) {
+        final List<Package> packages = new ArrayList<Package>();
+        for ( Map.Entry<Package, PackageDataModelOracle> e : getStronglyHeldEntries().entrySet() ) {
+            if ( e.getValue() instanceof HasProjectDataModelOracle && ( (HasProjectDataModelOracle) e.getValue() ).getProjectOracle() == projectOracle ) {
+                packages.add( e.getKey() );
+            }
+        }
+        evictEntries( packages );
+    }
+
     private PackageDataModelOracle makePackageDataModelOracle( final Project project,
+                                                               final ProjectDataModelOracle projectOracle,
                                                                final Package pkg ) {
         final String packageName = pkg.getPackageName();
         final PackageDataModelOracleBuilder dmoBuilder = PackageDataModelOracleBuilder.newPackageOracleBuilder( packageName );
-        final ProjectDataModelOracle projectOracle = cacheProjects.assertProjectDataModelOracle( project );
         dmoBuilder.setProjectOracle( projectOracle );
 
+        //Re-use the resources read when the oracle was last built, if they have been kept up to date
+        patchedPackages.remove( pkg );
+        PackageResources resources = packageResources.get( pkg );
+        if ( resources == null ) {
+            final long discardsBeforeLoad = discards.get();
+            resources = loadPackageResources( pkg );
+            packageResources.put( pkg,
+                                  resources );
+            if ( discards.get() != discardsBeforeLoad ) {
+                packageResources.remove( pkg,
+                                         resources );
+            }
+        }
+
         //Add Guvnor enumerations
         loadEnumsForPackage( dmoBuilder,
                              project,
-                             pkg );
+                             resources );
 
         //Add DSLs
-        loadDslsForPackage( dmoBuilder,
-                            pkg );
+        for ( final String dslDefinition : resources.getDsls() ) {
+            dmoBuilder.addDsl( dslDefinition );
+        }
 
         //Add Globals
-        loadGlobalsForPackage( dmoBuilder,
-                               pkg );
+        for ( final String definition : resources.getGlobals() ) {
+            dmoBuilder.addGlobals( definition );
+        }
 
-        return dmoBuilder.build();
+        final PackageDataModelOracle oracle = dmoBuilder.build();
+        discardEvictedPackageResources();
+        return oracle;
+    }
+
+    //Resources for Packages that have been evicted from the cache could become stale so are discarded
+    private void discardEvictedPackageResources() {
+        final Set<Package> retained = getKeysIncludingBuilds();
+        retained.addAll( patchedPackages );
+        for ( final Package pkg : new ArrayList<Package>( packageResources.keySet() ) ) {
+            if ( !retained.contains( pkg ) ) {
+                packageResources.remove( pkg );
+            }
+        }
     }
 
     private BuildMessage makeMessage( final String msg ) {
@@ -151,39 +339,19 @@ public class LRUDataModelOracleCache extends LRUCache<Package, PackageDataModelO
 
     private void loadEnumsForPackage( final PackageDataModelOracleBuilder dmoBuilder,
                                       final Project project,
-                                      final Package pkg ) {
+                                      final PackageResources resources ) {
         final KieModule module = builderCache.assertBuilder( project ).getKieModuleIgnoringErrors();
         final ClassLoader classLoader = KieModuleMetaData.Factory.newKieModuleMetaData( module ).getClassLoader();
-        final org.uberfire.java.nio.file.Path nioPackagePath = Paths.convert( pkg.getPackageMainResourcesPath() );
-        final Collection<org.uberfire.java.nio.file.Path> enumFiles = fileDiscoveryService.discoverFiles( nioPackagePath,
-                                                                                                          FILTER_ENUMERATIONS );
-        for ( final org.uberfire.java.nio.file.Path path : enumFiles ) {
-            final String enumDefinition = ioService.readAllString( path );
+        for ( final String enumDefinition : resources.getEnumerations() ) {
             dmoBuilder.addEnum( enumDefinition,
                                 classLoader );
         }
     }
 
-    private void loadDslsForPackage( final PackageDataModelOracleBuilder dmoBuilder,
-                                     final Package pkg ) {
-        final org.uberfire.java.nio.file.Path nioPackagePath = Paths.convert( pkg.getPackageMainResourcesPath() );
-        final Collection<org.uberfire.java.nio.file.Path> dslFiles = fileDiscoveryService.discoverFiles( nioPackagePath,
-                                                                                                         FILTER_DSLS );
-        for ( final org.uberfire.java.nio.file.Path path : dslFiles ) {
-            final String dslDefinition = ioService.readAllString( path );
-            dmoBuilder.addDsl( dslDefinition );
-        }
-    }
-
-    private void loadGlobalsForPackage( final PackageDataModelOracleBuilder dmoBuilder,
-                                        final Package pkg ) {
+    private PackageResources loadPackageResources( final Package pkg ) {
         final org.uberfire.java.nio.file.Path nioPackagePath = Paths.convert( pkg.getPackageMainResourcesPath() );
-        final Collection<org.uberfire.java.nio.file.Path> globalFiles = fileDiscoveryService.discoverFiles( nioPackagePath,
-                                                                                                            FILTER_GLOBALS );
-        for ( final org.uberfire.java.nio.file.Path path : globalFiles ) {
-            final String definition = ioService.readAllString( path );
-            dmoBuilder.addGlobals( definition );
-        }
+        return new PackageResourcesLoader( ioService,
+                                           resourceReadExecutor ).load( nioPackagePath );
     }
 
 }
@@ -1,21 +1,35 @@
 package org.kie.workbench.common.services.datamodel.backend.server.cache;
 
+import java.io.File;
 import java.io.IOException;
-import java.lang.reflect.Field;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.event.Observes;
+import javax.enterprise.inject.Any;
+import javax.enterprise.inject.Instance;
 import javax.inject.Inject;
 import javax.inject.Named;
 
+import org.drools.compiler.kie.builder.impl.InternalKieModule;
 import org.drools.core.rule.TypeMetaInfo;
 import org.drools.workbench.models.datamodel.imports.Import;
 import org.drools.workbench.models.datamodel.imports.Imports;
 import org.drools.workbench.models.datamodel.oracle.ProjectDataModelOracle;
 import org.drools.workbench.models.datamodel.oracle.TypeSource;
-import org.guvnor.common.services.backend.cache.LRUCache;
 import org.guvnor.common.services.builder.Builder;
 import org.guvnor.common.services.builder.LRUBuilderCache;
 import org.guvnor.common.services.project.builder.events.InvalidateDMOProjectCacheEvent;
+import org.guvnor.common.services.project.model.POM;
 import org.guvnor.common.services.project.model.Project;
 import org.guvnor.common.services.project.model.ProjectImports;
 import org.guvnor.common.services.project.service.POMService;
@@ -23,22 +37,44 @@ import org.guvnor.common.services.project.service.ProjectService;
 import org.uberfire.io.IOService;
 import org.uberfire.java.nio.file.Files;
 import org.uberfire.commons.validation.PortablePreconditions;
+import org.kie.api.builder.KieModule;
+import org.kie.scanner.ArtifactResolver;
+import org.kie.scanner.DependencyDescriptor;
 import org.kie.scanner.KieModuleMetaData;
+import org.kie.workbench.common.services.datamodel.backend.server.builder.projects.ClassFactBuilder;
 import org.kie.workbench.common.services.datamodel.backend.server.builder.projects.ProjectDataModelOracleBuilder;
+import org.kie.workbench.common.services.datamodel.backend.server.builder.projects.ProjectDataModelOracleSnapshot;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.uberfire.backend.server.util.Paths;
 import org.uberfire.backend.vfs.Path;
 
 /**
- * A simple LRU cache for Project DataModelOracles
+ * A simple LRU cache for Project DataModelOracles, evicting oracles against an estimate of the memory they retain.
+ * Oracles for different Projects are built concurrently. If a
+ * snapshot directory is configured, built oracles are also written to disk and restored from there when a Project's
+ * classes and dependencies are unchanged, rather than being rebuilt after a restart.
  */
 @ApplicationScoped
 @Named("ProjectDataModelOracleCache")
-public class LRUProjectDataModelOracleCache extends LRUCache<Project, ProjectDataModelOracle> {
+public class LRUProjectDataModelOracleCache extends AbstractDataModelOracleCache<Project, ProjectDataModelOracle> {
 
     private static final Logger log = LoggerFactory.getLogger( LRUProjectDataModelOracleCache.class );
 
+    //Classes are introspected in parallel unless disabled
+    private static final boolean parallelBuild = !"false".equals( System.getProperty( "org.kie.workbench.datamodel.parallelBuild" ) );
+
+    //Estimated memory, in bytes, that cached Project oracles may retain before the least recently used are evicted
+    private static final long maxWeight = Long.getLong( "org.kie.workbench.datamodel.projectCacheMaxWeight",
+                                                        256L * 1024 * 1024 );
+
+    //Directory in which Project oracles are snapshot so they can be restored after a restart; disabled if not set
+    private static final String snapshotDir = System.getProperty( "org.kie.workbench.datamodel.snapshotDir" );
+
+    private static final int parallelBuildThreads = Math.max( 1,
+                                                              Integer.getInteger( "org.kie.workbench.datamodel.parallelBuildThreads",
+                                                                                  Runtime.getRuntime().availableProcessors() ) );
+
     @Inject
     private POMService pomService;
 
@@ -52,65 +88,145 @@ public class LRUProjectDataModelOracleCache extends LRUCache<Project, ProjectDat
     @Inject
     private LRUBuilderCache cache;
 
-    public synchronized void invalidateProjectCache( @Observes final InvalidateDMOProjectCacheEvent event ) {
+    @Inject
+    @Any
+    private Instance<DataModelOracleCacheMetricsRegistry> metricsRegistries;
+
+    //Bounded pool shared by all Project builds; null if classes are introspected serially
+    private ExecutorService introspectionExecutor;
+
+    public LRUProjectDataModelOracleCache() {
+        super( "Project",
+               maxWeight );
+    }
+
+    @PostConstruct
+    public void init() {
+        for ( DataModelOracleCacheMetricsRegistry registry : metricsRegistries ) {
+            addMetricsRegistry( registry );
+        }
+        registerMBean();
+        if ( parallelBuild && parallelBuildThreads > 1 ) {
+            introspectionExecutor = Executors.newFixedThreadPool( parallelBuildThreads,
+                                                                  new DaemonThreadFactory( "dmo-introspection" ) );
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        unregisterMBean();
+        if ( introspectionExecutor != null ) {
+            introspectionExecutor.shutdownNow();
+        }
+    }
+
+    @Override
+    protected String getKeyName( final Project project ) {
+        return project.getRootPath().toURI();
+    }
+
+    @Override
+    protected long weigh( final Project project,
+                          final ProjectDataModelOracle oracle ) {
+        return DataModelOracleWeigher.weigh( oracle );
+    }
+
+    public void invalidateProjectCache( @Observes final InvalidateDMOProjectCacheEvent event ) {
         PortablePreconditions.checkNotNull( "event",
                                             event );
         final Path resourcePath = event.getResourcePath();
+
+        //Package resources do not contribute to the Project's oracle; LRUDataModelOracleCache handles them
+        if ( PackageResources.isPackageResource( Paths.convert( resourcePath ) ) ) {
+            return;
+        }
+
         final Project project = projectService.resolveProject( resourcePath );
 
         //If resource was not within a Project there's nothing to invalidate
         if ( project != null ) {
-            invalidateCache( project );
+            invalidateEntry( project );
         }
     }
 
     //Check the ProjectOracle for the Project has been created, otherwise create one!
-    public synchronized ProjectDataModelOracle assertProjectDataModelOracle( final Project project ) {
-        ProjectDataModelOracle projectOracle = getEntry( project );
-        if ( projectOracle == null ) {
-            projectOracle = makeProjectOracle( project );
-            setEntry( project,
-                      projectOracle );
-        }
-        return projectOracle;
+    public ProjectDataModelOracle assertProjectDataModelOracle( final Project project ) {
+        return assertEntry( project,
+                            new Callable<ProjectDataModelOracle>() {
+                                @Override
+                                public ProjectDataModelOracle call() throws Exception {
+                                    return makeProjectOracle( project );
+                                }
+                            } );
     }
 
     private ProjectDataModelOracle makeProjectOracle( final Project project ) {
         //Get a Builder for the project
         final Builder builder = cache.assertBuilder( project );
+        final KieModule kieModule = builder.getKieModuleIgnoringErrors();
+        final Imports imports = loadExternalImports( project );
+
+        //Restore the ProjectOracle from a snapshot if one was written for the same classes and dependencies
+        final File snapshotFile = getSnapshotFile( project );
+        final String snapshotKey = ( snapshotFile == null ? null : makeSnapshotKey( project,
+                                                                                   kieModule,
+                                                                                   imports ) );
+        if ( snapshotKey != null ) {
+            try {
+                final ProjectDataModelOracle oracle = ProjectDataModelOracleSnapshot.read( snapshotFile,
+                                                                                           snapshotKey );
+                if ( oracle != null ) {
+                    return oracle;
+                }
+            } catch ( IOException ioe ) {
+                log.warn( "Unable to read DataModelOracle snapshot for Project " + project.getRootPath().toURI() + ": " + ioe.getMessage() );
+            }
+        }
+
+        final ProjectDataModelOracle oracle = buildProjectOracle( builder,
+                                                                  kieModule,
+                                                                  imports );
+
+        if ( snapshotKey != null ) {
+            try {
+                ProjectDataModelOracleSnapshot.write( snapshotFile,
+                                                      snapshotKey,
+                                                      oracle );
+            } catch ( IOException ioe ) {
+                log.warn( "Unable to write DataModelOracle snapshot for Project " + project.getRootPath().toURI() + ": " + ioe.getMessage() );
+            }
+        }
+
+        return oracle;
+    }
 
+    private ProjectDataModelOracle buildProjectOracle( final Builder builder,
+                                                       final KieModule kieModule,
+                                                       final Imports imports ) {
         //Create the ProjectOracle...
-        final KieModuleMetaData kieModuleMetaData = KieModuleMetaData.Factory.newKieModuleMetaData( builder.getKieModuleIgnoringErrors() );
+        final KieModuleMetaData kieModuleMetaData = KieModuleMetaData.Factory.newKieModuleMetaData( kieModule );
         final ProjectDataModelOracleBuilder pdBuilder = ProjectDataModelOracleBuilder.newProjectOracleBuilder();
 
         // Add all packages
         pdBuilder.addPackages( kieModuleMetaData.getPackages() );
 
-        //Add all classes from the KieModule metaData
+        //Introspect all classes from the KieModule metaData and add them in their original order
+        final List<ClassIntrospection> introspections = new ArrayList<ClassIntrospection>();
         for ( final String packageName : kieModuleMetaData.getPackages() ) {
             for ( final String className : kieModuleMetaData.getClasses( packageName ) ) {
-                try {
-                    final Class clazz = kieModuleMetaData.getClass( packageName,
-                                                                    className );
-                    final TypeMetaInfo typeMetaInfo = kieModuleMetaData.getTypeMetaInfo( clazz );
-                    final TypeSource typeSource = builder.getClassSource( kieModuleMetaData,
-                                                                          clazz );
-                    pdBuilder.addClass( clazz,
-                                        typeMetaInfo.isEvent(),
-                                        typeSource );
-
-                } catch ( Throwable e ) {
-                    log.error( e.getMessage() );
-                }
+                introspections.add( new ClassIntrospection( pdBuilder,
+                                                            builder,
+                                                            kieModuleMetaData,
+                                                            packageName,
+                                                            className ) );
             }
         }
+        for ( final ClassFactBuilder classFactBuilder : introspect( introspections ) ) {
+            pdBuilder.addClass( classFactBuilder );
+        }
 
         //Add external imports. The availability of these classes is checked in Builder and failed fast. Here we load them into the DMO
-        final org.uberfire.java.nio.file.Path nioExternalImportsPath = Paths.convert( project.getImportsPath() );
-        if ( Files.exists( nioExternalImportsPath ) ) {
-            final Path externalImportsPath = Paths.convert( nioExternalImportsPath );
-            final ProjectImports projectImports = projectService.load( externalImportsPath );
-            final Imports imports = projectImports.getImports();
+        if ( imports != null ) {
             for ( final Import item : imports.getImports() ) {
                 try {
                     Class clazz = this.getClass().getClassLoader().loadClass( item.getType() );
@@ -128,5 +244,179 @@ public class LRUProjectDataModelOracleCache extends LRUCache<Project, ProjectDat
 
         return pdBuilder.build();
     }
-}
 
+    private Imports loadExternalImports( final Project project ) {
+        final org.uberfire.java.nio.file.Path nioExternalImportsPath = Paths.convert( project.getImportsPath() );
+        if ( !Files.exists( nioExternalImportsPath ) ) {
+            return null;
+        }
+        final Path externalImportsPath = Paths.convert( nioExternalImportsPath );
+        final ProjectImports projectImports = projectService.load( externalImportsPath );
+        return projectImports.getImports();
+    }
+
+    //Snapshots of different Projects are stored in separate files named after the Project's root
+    private File getSnapshotFile( final Project project ) {
+        if ( snapshotDir == null ) {
+            return null;
+        }
+        final File dir = new File( snapshotDir );
+        if ( !dir.isDirectory() && !dir.mkdirs() ) {
+            log.warn( "Unable to create DataModelOracle snapshot directory '" + snapshotDir + "'." );
+            return null;
+        }
+        try {
+            return new File( dir,
+                             toHex( MessageDigest.getInstance( "SHA-1" ).digest( project.getRootPath().toURI().getBytes( "UTF-8" ) ) ) + ".dmo" );
+        } catch ( Exception e ) {
+            log.warn( e.getMessage() );
+            return null;
+        }
+    }
+
+    //The key covers the Project's GAV, every resource in its KieModule (so classes declared in DRL are included),
+    //its dependencies and its external imports. Dependencies are those Maven resolves, including transitive ones,
+    //so version ranges, LATEST and RELEASE are covered by the versions they currently resolve to. Projects
+    //depending upon SNAPSHOTs are never snapshot as the content of a SNAPSHOT dependency can change without its
+    //version changing.
+    private String makeSnapshotKey( final Project project,
+                                    final KieModule kieModule,
+                                    final Imports imports ) {
+        if ( !( kieModule instanceof InternalKieModule ) ) {
+            return null;
+        }
+        final InternalKieModule internalKieModule = (InternalKieModule) kieModule;
+        try {
+            final POM pom = pomService.load( project.getPomXMLPath() );
+            final MessageDigest digest = MessageDigest.getInstance( "SHA-1" );
+            final List<String> dependencies = new ArrayList<String>();
+            for ( DependencyDescriptor dependency : ArtifactResolver.getResolverFor( internalKieModule.getPomModel() ).getAllDependecies() ) {
+                final String version = dependency.getVersion();
+                if ( version == null || version.endsWith( "-SNAPSHOT" ) ) {
+                    return null;
+                }
+                dependencies.add( dependency.getGroupId() + ":" + dependency.getArtifactId() + ":" + version );
+            }
+            Collections.sort( dependencies );
+            for ( String dependency : dependencies ) {
+                update( digest,
+                        dependency );
+            }
+            if ( imports != null ) {
+                for ( final Import item : imports.getImports() ) {
+                    update( digest,
+                            item.getType() );
+                }
+            }
+            final List<String> fileNames = new ArrayList<String>( internalKieModule.getFileNames() );
+            Collections.sort( fileNames );
+            for ( String fileName : fileNames ) {
+                update( digest,
+                        fileName );
+                final byte[] bytes = internalKieModule.getBytes( fileName );
+                if ( bytes != null ) {
+                    digest.update( bytes );
+                }
+            }
+            return pom.getGav().toString() + "#" + toHex( digest.digest() );
+
+        } catch ( Exception e ) {
+            log.warn( "Unable to determine DataModelOracle snapshot key for Project " + project.getRootPath().toURI() + ": " + e.getMessage() );
+            return null;
+        }
+    }
+
+    private static void update( final MessageDigest digest,
+                                final String value ) throws IOException {
+        digest.update( String.valueOf( value ).getBytes( "UTF-8" ) );
+        digest.update( (byte) 0 );
+    }
+
+    private static String toHex( final byte[] bytes ) {
+        final StringBuilder sb = new StringBuilder( bytes.length * 2 );
+        for ( byte b : bytes ) {
+            sb.append( Character.forDigit( ( b >> 4 ) & 0xF,
+                                           16 ) ).append( Character.forDigit( b & 0xF,
+                                                                              16 ) );
+        }
+        return sb.toString();
+    }
+
+    //Introspect classes in parallel (if enabled) returning results in the same order as the introspections
+    private List<ClassFactBuilder> introspect( final List<ClassIntrospection> introspections ) {
+        final List<ClassFactBuilder> classFactBuilders = new ArrayList<ClassFactBuilder>();
+        if ( introspectionExecutor == null || introspections.size() < 2 ) {
+            for ( ClassIntrospection introspection : introspections ) {
+                addIfNotNull( classFactBuilders,
+                              introspection.call() );
+            }
+            return classFactBuilders;
+        }
+
+        try {
+            for ( Future<ClassFactBuilder> result : introspectionExecutor.invokeAll( introspections ) ) {
+                try {
+                    addIfNotNull( classFactBuilders,
+                                  result.get() );
+                } catch ( ExecutionException ee ) {
+                    log.error( ee.getMessage() );
+                }
+            }
+        } catch ( InterruptedException ie ) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException( ie );
+        }
+        return classFactBuilders;
+    }
+
+    private void addIfNotNull( final List<ClassFactBuilder> classFactBuilders,
+                               final ClassFactBuilder classFactBuilder ) {
+        if ( classFactBuilder != null ) {
+            classFactBuilders.add( classFactBuilder );
+        }
+    }
+
+    /**
+     * Loads and introspects a single class from the KieModule. Failures are logged and yield null.
+     */
+    private static class ClassIntrospection implements Callable<ClassFactBuilder> {
+
+        private final ProjectDataModelOracleBuilder pdBuilder;
+        private final Builder builder;
+        private final KieModuleMetaData kieModuleMetaData;
+        private final String packageName;
+        private final String className;
+
+        private ClassIntrospection( final ProjectDataModelOracleBuilder pdBuilder,
+                                    final Builder builder,
+                                    final KieModuleMetaData kieModuleMetaData,
+                                    final String packageName,
+                                    final String className ) {
+            this.pdBuilder = pdBuilder;
+            this.builder = builder;
+            this.kieModuleMetaData = kieModuleMetaData;
+            this.packageName = packageName;
+            this.className = className;
+        }
+
+        @Override
+        public ClassFactBuilder call() {
+            try {
+                final Class clazz = kieModuleMetaData.getClass( packageName,
+                                                                className );
+                final TypeMetaInfo typeMetaInfo = kieModuleMetaData.getTypeMetaInfo( clazz );
+                final TypeSource typeSource = builder.getClassSource( kieModuleMetaData,
+                                                                      clazz );
+                return pdBuilder.introspectClass( clazz,
+                                                  typeMetaInfo.isEvent(),
+                                                  typeSource );
+
+            } catch ( Throwable e ) {
+                log.error( e.getMessage() );
+                return null;
+            }
+        }
+
+    }
+
+}
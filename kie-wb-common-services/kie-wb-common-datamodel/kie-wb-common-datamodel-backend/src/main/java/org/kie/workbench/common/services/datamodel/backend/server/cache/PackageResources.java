@@ -0,0 +1,123 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.workbench.common.services.datamodel.backend.server.cache;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.kie.workbench.common.services.backend.file.DSLFileFilter;
+import org.kie.workbench.common.services.backend.file.EnumerationsFileFilter;
+import org.kie.workbench.common.services.backend.file.GlobalsFileFilter;
+import org.uberfire.java.nio.file.DirectoryStream;
+import org.uberfire.java.nio.file.Path;
+
+/**
+ * Immutable snapshot of the Package-level resources (Workbench enumerations, DSLs and Globals) contributing to a
+ * PackageDataModelOracle. A change to a single resource produces a new snapshot with only that resource replaced,
+ * so the Package's DataModelOracle can be rebuilt without re-reading every resource in the Package.
+ */
+final class PackageResources {
+
+    static final DirectoryStream.Filter<Path> FILTER_ENUMERATIONS = new EnumerationsFileFilter();
+
+    static final DirectoryStream.Filter<Path> FILTER_GLOBALS = new GlobalsFileFilter();
+
+    static final DirectoryStream.Filter<Path> FILTER_DSLS = new DSLFileFilter();
+
+    //Definitions keyed by the URI of the resource from which they were read
+    private final Map<String, String> enumerations;
+    private final Map<String, String> dsls;
+    private final Map<String, String> globals;
+
+    PackageResources( final Map<String, String> enumerations,
+                      final Map<String, String> dsls,
+                      final Map<String, String> globals ) {
+        this.enumerations = Collections.unmodifiableMap( new LinkedHashMap<String, String>( enumerations ) );
+        this.dsls = Collections.unmodifiableMap( new LinkedHashMap<String, String>( dsls ) );
+        this.globals = Collections.unmodifiableMap( new LinkedHashMap<String, String>( globals ) );
+    }
+
+    /**
+     * Check whether a resource only contributes to the DataModelOracle of the Package containing it.
+     * @param path
+     * @return
+     */
+    static boolean isPackageResource( final Path path ) {
+        if ( path == null || path.getFileName() == null ) {
+            return false;
+        }
+        return FILTER_ENUMERATIONS.accept( path ) || FILTER_DSLS.accept( path ) || FILTER_GLOBALS.accept( path );
+    }
+
+    static String makeKey( final Path path ) {
+        return path.toUri().toString();
+    }
+
+    /**
+     * Return a copy of this snapshot with the definition of a single resource replaced.
+     * @param path The changed resource; must be a Package resource
+     * @param definition The new definition, or null if the resource has been deleted
+     * @return
+     */
+    PackageResources update( final Path path,
+                             final String definition ) {
+        final String key = makeKey( path );
+        return new PackageResources( update( enumerations,
+                                             FILTER_ENUMERATIONS.accept( path ),
+                                             key,
+                                             definition ),
+                                     update( dsls,
+                                             FILTER_DSLS.accept( path ),
+                                             key,
+                                             definition ),
+                                     update( globals,
+                                             FILTER_GLOBALS.accept( path ),
+                                             key,
+                                             definition ) );
+    }
+
+    Collection<String> getEnumerations() {
+        return enumerations.values();
+    }
+
+    Collection<String> getDsls() {
+        return dsls.values();
+    }
+
+    Collection<String> getGlobals() {
+        return globals.values();
+    }
+
+    private static Map<String, String> update( final Map<String, String> definitions,
+                                               final boolean accept,
+                                               final String key,
+                                               final String definition ) {
+        if ( !accept ) {
+            return definitions;
+        }
+        final Map<String, String> updated = new LinkedHashMap<String, String>( definitions );
+        if ( definition == null ) {
+            updated.remove( key );
+        } else {
+            updated.put( key,
+                         definition );
+        }
+        return updated;
+    }
+
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.workbench.common.services.datamodel.backend.server.cache;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.uberfire.io.IOService;
+import org.uberfire.java.nio.file.DirectoryStream;
+import org.uberfire.java.nio.file.Files;
+import org.uberfire.java.nio.file.Path;
+
+/**
+ * Loads the Package-level resources (Workbench enumerations, DSLs and Globals) of a Package. The Package's folder
+ * is listed once, classifying each entry as it is found, and the resources are then read in parallel if an
+ * ExecutorService is provided. Definitions are returned in the order in which the resources were listed.
+ */
+final class PackageResourcesLoader {
+
+    private final IOService ioService;
+    private final ExecutorService executor;
+
+    /**
+     * @param ioService IOService used to list and read resources
+     * @param executor Executor for parallel reads, or null to read serially on the calling thread
+     */
+    PackageResourcesLoader( final IOService ioService,
+                            final ExecutorService executor ) {
+        this.ioService = ioService;
+        this.executor = executor;
+    }
+
+    PackageResources load( final Path packagePath ) {
+        final List<Path> enumerations = new ArrayList<Path>();
+        final List<Path> dsls = new ArrayList<Path>();
+        final List<Path> globals = new ArrayList<Path>();
+        if ( packagePath != null && Files.isDirectory( packagePath ) ) {
+            final DirectoryStream<Path> entries = ioService.newDirectoryStream( packagePath );
+            for ( final Path entry : entries ) {
+                classify( entry,
+                          enumerations,
+                          dsls,
+                          globals );
+            }
+        }
+
+        final List<Path> paths = new ArrayList<Path>( enumerations.size() + dsls.size() + globals.size() );
+        paths.addAll( enumerations );
+        paths.addAll( dsls );
+        paths.addAll( globals );
+        final List<String> definitions = read( paths );
+
+        return new PackageResources( toMap( enumerations,
+                                            definitions.subList( 0,
+                                                                 enumerations.size() ) ),
+                                     toMap( dsls,
+                                            definitions.subList( enumerations.size(),
+                                                                 enumerations.size() + dsls.size() ) ),
+                                     toMap( globals,
+                                            definitions.subList( enumerations.size() + dsls.size(),
+                                                                 paths.size() ) ) );
+    }
+
+    private void classify( final Path entry,
+                           final List<Path> enumerations,
+                           final List<Path> dsls,
+                           final List<Path> globals ) {
+        //Filters only look at the file name so are cheaper than checking the entry is a regular file
+        final List<Path> target;
+        if ( PackageResources.FILTER_ENUMERATIONS.accept( entry ) ) {
+            target = enumerations;
+        } else if ( PackageResources.FILTER_DSLS.accept( entry ) ) {
+            target = dsls;
+        } else if ( PackageResources.FILTER_GLOBALS.accept( entry ) ) {
+            target = globals;
+        } else {
+            return;
+        }
+        if ( Files.isRegularFile( entry ) ) {
+            target.add( entry );
+        }
+    }
+
+    //Read resources in parallel (if enabled) returning definitions in the same order as the paths
+    private List<String> read( final List<Path> paths ) {
+        final List<String> definitions = new ArrayList<String>( paths.size() );
+        if ( executor == null || paths.size() < 2 ) {
+            for ( Path path : paths ) {
+                definitions.add( ioService.readAllString( path ) );
+            }
+            return definitions;
+        }
+
+        final List<Callable<String>> reads = new ArrayList<Callable<String>>( paths.size() );
+        for ( final Path path : paths ) {
+            reads.add( new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    return ioService.readAllString( path );
+                }
+            } );
+        }
+        try {
+            for ( Future<String> result : executor.invokeAll( reads ) ) {
+                definitions.add( result.get() );
+            }
+        } catch ( InterruptedException ie ) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException( ie );
+        } catch ( ExecutionException ee ) {
+            //Failures are propagated as they would be if the resources were read serially
+            if ( ee.getCause() instanceof RuntimeException ) {
+                throw (RuntimeException) ee.getCause();
+            }
+            throw new IllegalStateException( ee.getCause() );
+        }
+        return definitions;
+    }
+
+    private Map<String, String> toMap( final List<Path> paths,
+                                       final List<String> definitions ) {
+        final Map<String, String> map = new LinkedHashMap<String, String>();
+        for ( int i = 0; i < paths.size(); i++ ) {
+            map.put( PackageResources.makeKey( paths.get( i ) ),
+                     definitions.get( i ) );
+        }
+        return map;
+    }
+
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.workbench.common.services.datamodel.backend.server;
+
+import java.util.Collections;
+
+import org.drools.workbench.models.datamodel.oracle.PackageDataModelOracle;
+import org.drools.workbench.models.datamodel.oracle.ProjectDataModelOracle;
+import org.drools.workbench.models.datamodel.oracle.TypeSource;
+import org.junit.Test;
+import org.kie.workbench.common.services.datamodel.backend.server.builder.packages.PackageDataModelOracleBuilder;
+import org.kie.workbench.common.services.datamodel.backend.server.builder.projects.ProjectDataModelOracleBuilder;
+import org.kie.workbench.common.services.datamodel.backend.server.builder.util.DataEnumLoader;
+import org.kie.workbench.common.services.datamodel.backend.server.testclasses.Product;
+import org.kie.workbench.common.services.datamodel.backend.server.testclasses.superclasses.PapaSmurf;
+import org.kie.workbench.common.services.datamodel.model.PackageDataModelOracleBaselinePayload;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+public class DataModelOracleUtilitiesTest {
+
+    @Test
+    public void testEagerBaselineHasEnumsOfUnusedTypes() throws Exception {
+        assumeTrue( !DataEnumLoader.isLazy() );
+
+        final ProjectDataModelOracle projectOracle = ProjectDataModelOracleBuilder.newProjectOracleBuilder()
+                .addClass( Product.class,
+                           false,
+                           TypeSource.JAVA_PROJECT )
+                .addClass( PapaSmurf.class,
+                           false,
+                           TypeSource.JAVA_PROJECT )
+                .build();
+        final PackageDataModelOracle oracle = PackageDataModelOracleBuilder.newPackageOracleBuilder( "org.kie" )
+                .setProjectOracle( projectOracle )
+                .addEnum( "Product",
+                          "name",
+                          new String[]{ "a", "b" } )
+                .addEnum( "PapaSmurf",
+                          "name",
+                          new String[]{ "c" } )
+                .build();
+
+        final PackageDataModelOracleBaselinePayload payload = new PackageDataModelOracleBaselinePayload();
+        DataModelOracleUtilities.populateDataModel( oracle,
+                                                    payload,
+                                                    Collections.singleton( Product.class.getName() ) );
+
+        //Enumerations are looked up synchronously by the client, so those of types not yet used are sent too
+        assertArrayEquals( new String[]{ "a", "b" },
+                           payload.getWorkbenchEnumDefinitions().get( "Product#name" ) );
+        assertArrayEquals( new String[]{ "c" },
+                           payload.getWorkbenchEnumDefinitions().get( "PapaSmurf#name" ) );
+    }
+
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.workbench.common.services.datamodel.backend.server.builder.packages;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.kie.workbench.common.services.datamodel.backend.server.builder.util.DataEnumLoader;
+
+import static org.junit.Assert.*;
+
+public class LazyDataEnumMapTest {
+
+    private static int evaluations;
+
+    //Called from enumeration definitions to count how often they are evaluated
+    public static List<String> values() {
+        evaluations++;
+        return Arrays.asList( "a",
+                              "b" );
+    }
+
+    @Before
+    public void setUp() {
+        evaluations = 0;
+    }
+
+    @Test
+    public void testKeysAreReadWithoutEvaluating() {
+        final String e = "'Fact.field1' : " + getClass().getName() + ".values()\n"
+                + "'Fact.field2' : " + getClass().getName() + ".values()";
+        final LazyDataEnumMap map = new LazyDataEnumMap( new DataEnumLoader( e,
+                                                                             getClass().getClassLoader(),
+                                                                             true ).getProviders() );
+
+        assertTrue( map.containsKey( "Fact#field1" ) );
+        assertFalse( map.containsKey( "Fact#field3" ) );
+        assertEquals( 2,
+                      map.size() );
+        assertFalse( map.isEmpty() );
+        assertTrue( map.keySet().contains( "Fact#field2" ) );
+        assertEquals( 0,
+                      evaluations );
+
+        assertArrayEquals( new String[]{ "a", "b" },
+                           map.get( "Fact#field1" ) );
+        assertEquals( 1,
+                      evaluations );
+    }
+
+}
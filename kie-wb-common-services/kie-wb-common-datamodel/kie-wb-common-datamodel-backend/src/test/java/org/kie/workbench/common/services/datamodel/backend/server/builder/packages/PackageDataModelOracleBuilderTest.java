@@ -0,0 +1,67 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.workbench.common.services.datamodel.backend.server.builder.packages;
+
+import org.drools.workbench.models.datamodel.oracle.PackageDataModelOracle;
+import org.drools.workbench.models.datamodel.oracle.ProjectDataModelOracle;
+import org.junit.Test;
+import org.kie.workbench.common.services.datamodel.backend.server.builder.projects.ProjectDataModelOracleBuilder;
+
+import static org.junit.Assert.*;
+
+public class PackageDataModelOracleBuilderTest {
+
+    @Test
+    public void testPackageOraclesShareProjectOracle() {
+        final ProjectDataModelOracle projectOracle = ProjectDataModelOracleBuilder.newProjectOracleBuilder()
+                .addFact( "org.smurf.Smurf" )
+                .end()
+                .build();
+
+        final PackageDataModelOracle oracle1 = PackageDataModelOracleBuilder.newPackageOracleBuilder( "org.smurf.p1" )
+                .setProjectOracle( projectOracle )
+                .addEnum( "org.smurf.Smurf",
+                          "name",
+                          new String[]{ "Papa", "Brainy" } )
+                .build();
+        final PackageDataModelOracle oracle2 = PackageDataModelOracleBuilder.newPackageOracleBuilder( "org.smurf.p2" )
+                .setProjectOracle( projectOracle )
+                .addGlobals( "global java.util.List list;" )
+                .build();
+
+        //Project definitions are read from the Project oracle
+        assertEquals( projectOracle.getProjectModelFields(),
+                      oracle1.getProjectModelFields() );
+        assertEquals( projectOracle.getProjectModelFields(),
+                      oracle2.getProjectModelFields() );
+        assertTrue( oracle1.getProjectModelFields().containsKey( "org.smurf.Smurf" ) );
+
+        //Package definitions are not shared
+        assertEquals( 1,
+                      oracle1.getPackageWorkbenchDefinitions().size() );
+        assertTrue( oracle2.getPackageWorkbenchDefinitions().isEmpty() );
+        assertTrue( oracle1.getPackageGlobals().isEmpty() );
+        assertEquals( 1,
+                      oracle2.getPackageGlobals().size() );
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testProjectOracleCannotBeModifiedThroughPackageOracle() {
+        final PackageDataModelOracle oracle = PackageDataModelOracleBuilder.newPackageOracleBuilder( "org.smurf" ).build();
+        oracle.getProjectModelFields().clear();
+    }
+
+}
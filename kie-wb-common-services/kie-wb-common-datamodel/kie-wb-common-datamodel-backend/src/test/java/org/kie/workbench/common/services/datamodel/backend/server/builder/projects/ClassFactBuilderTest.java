@@ -3,6 +3,7 @@ package org.kie.workbench.common.services.datamodel.backend.server.builder.proje
 import org.drools.workbench.models.commons.backend.oracle.ProjectDataModelOracleImpl;
 import org.drools.workbench.models.datamodel.oracle.TypeSource;
 import org.junit.Test;
+import org.kie.workbench.common.services.datamodel.backend.server.testclasses.Product;
 import org.kie.workbench.common.services.datamodel.backend.server.testclasses.superclasses.PapaSmurf;
 
 import static org.junit.Assert.*;
@@ -22,4 +23,33 @@ public class ClassFactBuilderTest {
 
         assertEquals(2, oracle.getProjectSuperTypes().get(PapaSmurf.class.getName()).size());
     }
+
+    @Test
+    public void testIntrospectionIsShared() throws Exception {
+        final ClassFactDescriptorCache cache = ClassFactDescriptorCache.getInstance();
+        final String key = cache.makeKey( Product.class );
+        assertNotNull( key );
+
+        final ProjectDataModelOracleImpl oracle1 = new ProjectDataModelOracleImpl();
+        new ClassFactBuilder( ProjectDataModelOracleBuilder.newProjectOracleBuilder(),
+                              Product.class,
+                              false,
+                              TypeSource.JAVA_PROJECT ).build( oracle1 );
+        final ClassFactDescriptor descriptor = cache.getDescriptor( key );
+        assertNotNull( descriptor );
+
+        final ProjectDataModelOracleImpl oracle2 = new ProjectDataModelOracleImpl();
+        new ClassFactBuilder( ProjectDataModelOracleBuilder.newProjectOracleBuilder(),
+                              Product.class,
+                              false,
+                              TypeSource.JAVA_PROJECT ).build( oracle2 );
+        assertSame( descriptor,
+                    cache.getDescriptor( key ) );
+
+        assertEquals( oracle1.getProjectModelFields().get( Product.class.getName() ).length,
+                      oracle2.getProjectModelFields().get( Product.class.getName() ).length );
+        assertEquals( oracle1.getProjectMethodInformation(),
+                      oracle2.getProjectMethodInformation() );
+    }
+
 }
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.workbench.common.services.datamodel.backend.server.builder.projects;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.drools.workbench.models.datamodel.oracle.ProjectDataModelOracle;
+import org.drools.workbench.models.datamodel.oracle.TypeSource;
+import org.junit.Test;
+import org.kie.workbench.common.services.datamodel.backend.server.testclasses.Product;
+import org.kie.workbench.common.services.datamodel.backend.server.testclasses.annotations.SmurfHouse;
+import org.kie.workbench.common.services.datamodel.backend.server.testclasses.superclasses.PapaSmurf;
+
+import static org.junit.Assert.*;
+
+public class ProjectDataModelOracleBuilderTest {
+
+    private static final Class[] CLASSES = new Class[]{ Product.class, SmurfHouse.class, PapaSmurf.class };
+
+    @Test
+    public void testConcurrentIntrospectionMatchesSerial() throws Exception {
+        final ProjectDataModelOracleBuilder serialBuilder = ProjectDataModelOracleBuilder.newProjectOracleBuilder();
+        for ( Class clazz : CLASSES ) {
+            serialBuilder.addClass( clazz,
+                                    false,
+                                    TypeSource.JAVA_PROJECT );
+        }
+        final ProjectDataModelOracle serialOracle = serialBuilder.build();
+
+        final ProjectDataModelOracleBuilder parallelBuilder = ProjectDataModelOracleBuilder.newProjectOracleBuilder();
+        final ExecutorService es = Executors.newFixedThreadPool( CLASSES.length );
+        final List<Callable<ClassFactBuilder>> introspections = new ArrayList<Callable<ClassFactBuilder>>();
+        for ( final Class clazz : CLASSES ) {
+            introspections.add( new Callable<ClassFactBuilder>() {
+                @Override
+                public ClassFactBuilder call() throws Exception {
+                    return parallelBuilder.introspectClass( clazz,
+                                                            false,
+                                                            TypeSource.JAVA_PROJECT );
+                }
+            } );
+        }
+        for ( Future<ClassFactBuilder> result : es.invokeAll( introspections ) ) {
+            parallelBuilder.addClass( result.get() );
+        }
+        es.shutdown();
+        final ProjectDataModelOracle parallelOracle = parallelBuilder.build();
+
+        assertEquals( serialOracle.getProjectModelFields().keySet(),
+                      parallelOracle.getProjectModelFields().keySet() );
+        assertEquals( serialOracle.getProjectSuperTypes(),
+                      parallelOracle.getProjectSuperTypes() );
+        assertEquals( serialOracle.getProjectTypeFieldsAnnotations(),
+                      parallelOracle.getProjectTypeFieldsAnnotations() );
+        assertEquals( serialOracle.getProjectJavaEnumDefinitions().keySet(),
+                      parallelOracle.getProjectJavaEnumDefinitions().keySet() );
+        assertTrue( parallelOracle.getProjectJavaEnumDefinitions().containsKey( Product.class.getName() + "#colour" ) );
+    }
+
+}
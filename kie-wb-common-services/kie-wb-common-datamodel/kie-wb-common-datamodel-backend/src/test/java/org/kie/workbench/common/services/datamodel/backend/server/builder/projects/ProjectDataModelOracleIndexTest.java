@@ -0,0 +1,67 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.workbench.common.services.datamodel.backend.server.builder.projects;
+
+import org.drools.workbench.models.datamodel.oracle.ProjectDataModelOracle;
+import org.drools.workbench.models.datamodel.oracle.TypeSource;
+import org.junit.Test;
+import org.kie.workbench.common.services.datamodel.backend.server.testclasses.Product;
+import org.kie.workbench.common.services.datamodel.backend.server.testclasses.superclasses.PapaSmurf;
+import org.kie.workbench.common.services.datamodel.backend.server.testclasses.superclasses.Smurf;
+
+import static org.junit.Assert.*;
+
+public class ProjectDataModelOracleIndexTest {
+
+    @Test
+    public void testIndex() throws Exception {
+        final ProjectDataModelOracle oracle = ProjectDataModelOracleBuilder.newProjectOracleBuilder()
+                .addClass( Product.class,
+                           false,
+                           TypeSource.JAVA_PROJECT )
+                .addClass( PapaSmurf.class,
+                           false,
+                           TypeSource.JAVA_PROJECT )
+                .build();
+
+        final ProjectDataModelOracleIndex index = ProjectDataModelOracleIndex.getIndex( oracle );
+        assertSame( index,
+                    ProjectDataModelOracleIndex.getIndex( oracle ) );
+
+        final ProjectDataModelOracleIndex.TypeDefinitions definitions = index.getTypeDefinitions( Product.class.getName() );
+        assertArrayEquals( oracle.getProjectModelFields().get( Product.class.getName() ),
+                           definitions.getModelFields().get( Product.class.getName() ) );
+        assertEquals( TypeSource.JAVA_PROJECT,
+                      definitions.getTypeSources().get( Product.class.getName() ) );
+        assertEquals( 1,
+                      definitions.getTypeSources().size() );
+        assertTrue( index.getTypeDefinitions( "org.smurf.Unknown" ).getModelFields().isEmpty() );
+
+        assertEquals( Product.class.getName(),
+                      index.getFactName( Product.class.getName() ) );
+
+        final ProjectDataModelOracleIndex.TypeDefinitions smurfDefinitions = index.getTypeDefinitions( PapaSmurf.class.getName() );
+        assertEquals( Smurf.class.getName(),
+                      smurfDefinitions.getSuperTypes().get( PapaSmurf.class.getName() ).get( 0 ) );
+        assertTrue( smurfDefinitions.getFieldParametersType().isEmpty() );
+
+        assertEquals( oracle.getProjectModelFields().keySet(),
+                      index.getLazyModelFields().keySet() );
+        assertEquals( 1,
+                      index.getLazyModelFields().get( Product.class.getName() ).length );
+    }
+
+}
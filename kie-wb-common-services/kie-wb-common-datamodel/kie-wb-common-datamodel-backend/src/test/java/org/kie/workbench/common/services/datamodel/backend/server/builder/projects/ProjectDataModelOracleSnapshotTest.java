@@ -0,0 +1,290 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.workbench.common.services.datamodel.backend.server.builder.projects;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.drools.workbench.models.datamodel.oracle.Annotation;
+import org.drools.workbench.models.datamodel.oracle.MethodInfo;
+import org.drools.workbench.models.datamodel.oracle.ModelField;
+import org.drools.workbench.models.datamodel.oracle.ProjectDataModelOracle;
+import org.drools.workbench.models.datamodel.oracle.TypeSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.kie.workbench.common.services.datamodel.backend.server.testclasses.Product;
+import org.kie.workbench.common.services.datamodel.backend.server.testclasses.annotations.Smurf;
+import org.kie.workbench.common.services.datamodel.backend.server.testclasses.annotations.SmurfHouse;
+import org.kie.workbench.common.services.datamodel.backend.server.testclasses.superclasses.PapaSmurf;
+
+import static org.junit.Assert.*;
+
+public class ProjectDataModelOracleSnapshotTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile( "snapshot",
+                                    ".dmo" );
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        final ProjectDataModelOracle oracle = ProjectDataModelOracleBuilder.newProjectOracleBuilder()
+                .addClass( Product.class,
+                           false,
+                           TypeSource.JAVA_PROJECT )
+                .addClass( PapaSmurf.class,
+                           false,
+                           TypeSource.JAVA_PROJECT )
+                .addClass( Smurf.class,
+                           true,
+                           TypeSource.JAVA_DEPENDENCY )
+                .addClass( SmurfHouse.class,
+                           false,
+                           TypeSource.JAVA_PROJECT )
+                .build();
+
+        ProjectDataModelOracleSnapshot.write( file,
+                                              "key",
+                                              oracle );
+        final ProjectDataModelOracle restored = ProjectDataModelOracleSnapshot.read( file,
+                                                                                     "key" );
+        assertNotNull( restored );
+        assertTrue( restored instanceof HasProjectDataModelOracleIndex );
+
+        assertEquals( oracle.getProjectPackageNames(),
+                      restored.getProjectPackageNames() );
+        assertEquals( oracle.getProjectModelFields().keySet(),
+                      restored.getProjectModelFields().keySet() );
+        for ( Map.Entry<String, ModelField[]> e : oracle.getProjectModelFields().entrySet() ) {
+            assertModelFieldsEqual( e.getValue(),
+                                    restored.getProjectModelFields().get( e.getKey() ) );
+        }
+        assertEquals( oracle.getProjectFieldParametersType(),
+                      restored.getProjectFieldParametersType() );
+        assertEquals( oracle.getProjectJavaEnumDefinitions().keySet(),
+                      restored.getProjectJavaEnumDefinitions().keySet() );
+        for ( Map.Entry<String, String[]> e : oracle.getProjectJavaEnumDefinitions().entrySet() ) {
+            assertArrayEquals( e.getValue(),
+                               restored.getProjectJavaEnumDefinitions().get( e.getKey() ) );
+        }
+        assertEquals( oracle.getProjectMethodInformation().keySet(),
+                      restored.getProjectMethodInformation().keySet() );
+        for ( Map.Entry<String, List<MethodInfo>> e : oracle.getProjectMethodInformation().entrySet() ) {
+            assertMethodInformationEqual( e.getValue(),
+                                          restored.getProjectMethodInformation().get( e.getKey() ) );
+        }
+        assertEquals( oracle.getProjectCollectionTypes(),
+                      restored.getProjectCollectionTypes() );
+        assertEquals( oracle.getProjectEventTypes(),
+                      restored.getProjectEventTypes() );
+        assertEquals( oracle.getProjectTypeSources(),
+                      restored.getProjectTypeSources() );
+        assertEquals( oracle.getProjectSuperTypes(),
+                      restored.getProjectSuperTypes() );
+
+        assertEquals( oracle.getProjectTypeAnnotations().keySet(),
+                      restored.getProjectTypeAnnotations().keySet() );
+        for ( Map.Entry<String, Set<Annotation>> e : oracle.getProjectTypeAnnotations().entrySet() ) {
+            assertAnnotationsEqual( e.getValue(),
+                                    restored.getProjectTypeAnnotations().get( e.getKey() ) );
+        }
+        assertEquals( oracle.getProjectTypeFieldsAnnotations().keySet(),
+                      restored.getProjectTypeFieldsAnnotations().keySet() );
+        for ( Map.Entry<String, Map<String, Set<Annotation>>> e : oracle.getProjectTypeFieldsAnnotations().entrySet() ) {
+            final Map<String, Set<Annotation>> restoredFieldsAnnotations = restored.getProjectTypeFieldsAnnotations().get( e.getKey() );
+            assertEquals( e.getValue().keySet(),
+                          restoredFieldsAnnotations.keySet() );
+            for ( Map.Entry<String, Set<Annotation>> fe : e.getValue().entrySet() ) {
+                assertAnnotationsEqual( fe.getValue(),
+                                        restoredFieldsAnnotations.get( fe.getKey() ) );
+            }
+        }
+
+        assertEquals( Smurf.class.getName(),
+                      ProjectDataModelOracleIndex.getIndex( restored ).getFactName( Smurf.class.getName() ) );
+    }
+
+    @Test
+    public void testKeyMismatch() throws Exception {
+        final ProjectDataModelOracle oracle = ProjectDataModelOracleBuilder.newProjectOracleBuilder()
+                .addClass( Product.class )
+                .build();
+
+        ProjectDataModelOracleSnapshot.write( file,
+                                              "key",
+                                              oracle );
+        assertNull( ProjectDataModelOracleSnapshot.read( file,
+                                                         "anotherKey" ) );
+        assertNull( ProjectDataModelOracleSnapshot.read( new File( file.getPath() + ".missing" ),
+                                                         "key" ) );
+    }
+
+    @Test
+    public void testNotASnapshot() throws Exception {
+        final FileOutputStream fos = new FileOutputStream( file );
+        try {
+            fos.write( "Not a snapshot".getBytes( "UTF-8" ) );
+        } finally {
+            fos.close();
+        }
+        assertNull( ProjectDataModelOracleSnapshot.read( file,
+                                                         "key" ) );
+    }
+
+    @Test
+    public void testReplaceSnapshot() throws Exception {
+        final File directory = File.createTempFile( "snapshots",
+                                                    "" );
+        assertTrue( directory.delete() );
+        assertTrue( directory.mkdir() );
+        final File snapshot = new File( directory,
+                                        "project.dmo" );
+        try {
+            final ProjectDataModelOracle oracle = ProjectDataModelOracleBuilder.newProjectOracleBuilder()
+                    .addClass( Product.class )
+                    .build();
+
+            ProjectDataModelOracleSnapshot.write( snapshot,
+                                                  "key1",
+                                                  oracle );
+            ProjectDataModelOracleSnapshot.write( snapshot,
+                                                  "key2",
+                                                  oracle );
+            assertNull( ProjectDataModelOracleSnapshot.read( snapshot,
+                                                             "key1" ) );
+            assertNotNull( ProjectDataModelOracleSnapshot.read( snapshot,
+                                                                "key2" ) );
+
+            //No temporary files are left behind and the snapshot is not held open once read
+            assertArrayEquals( new String[]{ "project.dmo" },
+                               directory.list() );
+            assertTrue( snapshot.delete() );
+        } finally {
+            snapshot.delete();
+            directory.delete();
+        }
+    }
+
+    @Test
+    public void testRestoredNamesAreShared() throws Exception {
+        final ProjectDataModelOracle oracle = ProjectDataModelOracleBuilder.newProjectOracleBuilder()
+                .addClass( Product.class )
+                .addClass( PapaSmurf.class )
+                .build();
+
+        ProjectDataModelOracleSnapshot.write( file,
+                                              "key",
+                                              oracle );
+        final ProjectDataModelOracle restored1 = ProjectDataModelOracleSnapshot.read( file,
+                                                                                      "key" );
+        final ProjectDataModelOracle restored2 = ProjectDataModelOracleSnapshot.read( file,
+                                                                                      "key" );
+
+        //Names are retained once however many oracles are restored
+        final Map<String, Boolean> names1 = new IdentityHashMap<String, Boolean>();
+        addNames( restored1,
+                  names1 );
+        final Map<String, Boolean> names2 = new IdentityHashMap<String, Boolean>( names1 );
+        addNames( restored2,
+                  names2 );
+        assertFalse( names1.isEmpty() );
+        assertEquals( names1.size(),
+                      names2.size() );
+    }
+
+    private void addNames( final ProjectDataModelOracle oracle,
+                           final Map<String, Boolean> names ) {
+        for ( ModelField[] modelFields : oracle.getProjectModelFields().values() ) {
+            for ( ModelField modelField : modelFields ) {
+                names.put( modelField.getName(),
+                           Boolean.TRUE );
+                names.put( modelField.getClassName(),
+                           Boolean.TRUE );
+                names.put( modelField.getType(),
+                           Boolean.TRUE );
+            }
+        }
+    }
+
+    private void assertModelFieldsEqual( final ModelField[] expected,
+                                         final ModelField[] actual ) {
+        assertEquals( expected.length,
+                      actual.length );
+        for ( int i = 0; i < expected.length; i++ ) {
+            assertEquals( expected[ i ].getName(),
+                          actual[ i ].getName() );
+            assertEquals( expected[ i ].getClassName(),
+                          actual[ i ].getClassName() );
+            assertEquals( expected[ i ].getClassType(),
+                          actual[ i ].getClassType() );
+            assertEquals( expected[ i ].getOrigin(),
+                          actual[ i ].getOrigin() );
+            assertEquals( expected[ i ].getAccessorsAndMutators(),
+                          actual[ i ].getAccessorsAndMutators() );
+            assertEquals( expected[ i ].getType(),
+                          actual[ i ].getType() );
+        }
+    }
+
+    private void assertMethodInformationEqual( final List<MethodInfo> expected,
+                                               final List<MethodInfo> actual ) {
+        assertEquals( expected.size(),
+                      actual.size() );
+        for ( int i = 0; i < expected.size(); i++ ) {
+            assertEquals( expected.get( i ).getName(),
+                          actual.get( i ).getName() );
+            assertEquals( expected.get( i ).getParams(),
+                          actual.get( i ).getParams() );
+            assertEquals( expected.get( i ).getReturnClassType(),
+                          actual.get( i ).getReturnClassType() );
+            assertEquals( expected.get( i ).getParametricReturnType(),
+                          actual.get( i ).getParametricReturnType() );
+            assertEquals( expected.get( i ).getGenericType(),
+                          actual.get( i ).getGenericType() );
+        }
+    }
+
+    private void assertAnnotationsEqual( final Set<Annotation> expected,
+                                         final Set<Annotation> actual ) {
+        assertEquals( expected.size(),
+                      actual.size() );
+        for ( Annotation a : expected ) {
+            boolean found = false;
+            for ( Annotation b : actual ) {
+                if ( a.getQualifiedTypeName().equals( b.getQualifiedTypeName() ) ) {
+                    assertEquals( a.getAttributes(),
+                                  b.getAttributes() );
+                    found = true;
+                }
+            }
+            assertTrue( found );
+        }
+    }
+
+}
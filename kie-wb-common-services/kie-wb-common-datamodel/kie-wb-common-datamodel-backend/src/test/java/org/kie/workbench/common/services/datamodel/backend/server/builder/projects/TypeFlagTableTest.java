@@ -0,0 +1,175 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.workbench.common.services.datamodel.backend.server.builder.projects;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.drools.workbench.models.datamodel.oracle.TypeSource;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TypeFlagTableTest {
+
+    @Test
+    public void testFlags() {
+        final Map<String, Boolean> eventTypes = new HashMap<String, Boolean>();
+        eventTypes.put( "org.test.Event",
+                        true );
+        eventTypes.put( "org.test.Fact",
+                        false );
+        final Map<String, Boolean> collectionTypes = new HashMap<String, Boolean>();
+        collectionTypes.put( "java.util.List",
+                             true );
+        collectionTypes.put( "org.test.Fact",
+                             false );
+        final Map<String, TypeSource> typeSources = new HashMap<String, TypeSource>();
+        typeSources.put( "org.test.Event",
+                         TypeSource.JAVA_PROJECT );
+        typeSources.put( "java.util.List",
+                         TypeSource.JAVA_DEPENDENCY );
+        typeSources.put( "org.test.Declared",
+                         TypeSource.DECLARED );
+
+        final TypeFlagTable table = new TypeFlagTable();
+        table.addEventTypes( eventTypes );
+        table.addCollectionTypes( collectionTypes );
+        table.addTypeSources( typeSources );
+
+        assertEquals( 4,
+                      table.size() );
+        assertEquals( eventTypes,
+                      table.getEventTypes() );
+        assertEquals( collectionTypes,
+                      table.getCollectionTypes() );
+        assertEquals( typeSources,
+                      table.getTypeSources() );
+
+        assertTrue( table.getEventTypes().containsKey( "org.test.Fact" ) );
+        assertFalse( table.getEventTypes().containsKey( "java.util.List" ) );
+        assertNull( table.getCollectionTypes().get( "org.test.Event" ) );
+        assertNull( table.getTypeSources().get( "org.test.Fact" ) );
+        assertEquals( -1,
+                      table.getId( "org.test.Unknown" ) );
+
+        final int id = table.getId( "org.test.Event" );
+        assertEquals( "org.test.Event",
+                      table.getName( id ) );
+        assertEquals( Boolean.TRUE,
+                      table.getEventType( id ) );
+        assertNull( table.getCollectionType( id ) );
+        assertEquals( TypeSource.JAVA_PROJECT,
+                      table.getTypeSource( id ) );
+    }
+
+    @Test
+    public void testReplaceFlags() {
+        final TypeFlagTable table = new TypeFlagTable();
+        table.addEventTypes( singleton( "org.test.Fact",
+                                        true ) );
+        table.addEventTypes( singleton( "org.test.Fact",
+                                        false ) );
+        table.addTypeSources( singleton( "org.test.Fact",
+                                         TypeSource.JAVA_PROJECT ) );
+        table.addTypeSources( singleton( "org.test.Fact",
+                                         TypeSource.DECLARED ) );
+
+        assertEquals( 1,
+                      table.getEventTypes().size() );
+        assertEquals( Boolean.FALSE,
+                      table.getEventTypes().get( "org.test.Fact" ) );
+        assertEquals( 1,
+                      table.getTypeSources().size() );
+        assertEquals( TypeSource.DECLARED,
+                      table.getTypeSources().get( "org.test.Fact" ) );
+        assertTrue( table.getCollectionTypes().isEmpty() );
+    }
+
+    @Test
+    public void testManyTypes() {
+        final TypeFlagTable table = new TypeFlagTable();
+        final Map<String, Boolean> eventTypes = new HashMap<String, Boolean>();
+        final Map<String, TypeSource> typeSources = new HashMap<String, TypeSource>();
+        for ( int i = 0; i < 100; i++ ) {
+            eventTypes.put( "org.test.Fact" + i,
+                            i % 2 == 0 );
+            table.addEventTypes( singleton( "org.test.Fact" + i,
+                                            i % 2 == 0 ) );
+        }
+        for ( int i = 99; i >= 50; i-- ) {
+            typeSources.put( "org.test.Fact" + i,
+                             TypeSource.JAVA_PROJECT );
+            table.addTypeSources( singleton( "org.test.Fact" + i,
+                                             TypeSource.JAVA_PROJECT ) );
+        }
+        table.trim();
+
+        assertEquals( 100,
+                      table.size() );
+        assertEquals( eventTypes,
+                      table.getEventTypes() );
+        assertEquals( typeSources,
+                      table.getTypeSources() );
+        for ( int i = 0; i < 100; i++ ) {
+            final int id = table.getId( "org.test.Fact" + i );
+            assertEquals( "org.test.Fact" + i,
+                          table.getName( id ) );
+            assertEquals( i % 2 == 0,
+                          table.getEventType( id ) );
+        }
+        assertEquals( -1,
+                      table.getId( new Object() ) );
+    }
+
+    @Test
+    public void testIndexTypeDefinitions() {
+        final TypeFlagTable table = new TypeFlagTable();
+        table.addEventTypes( singleton( "org.test.Event",
+                                        true ) );
+        table.addTypeSources( singleton( "org.test.Event",
+                                         TypeSource.JAVA_PROJECT ) );
+        table.addCollectionTypes( singleton( "java.util.List",
+                                             true ) );
+
+        final IndexedProjectDataModelOracle oracle = new IndexedProjectDataModelOracle();
+        oracle.addProjectEventTypes( table.getEventTypes() );
+        oracle.addProjectTypeSources( table.getTypeSources() );
+        oracle.addProjectCollectionTypes( table.getCollectionTypes() );
+
+        final ProjectDataModelOracleIndex index = oracle.getIndex();
+        final ProjectDataModelOracleIndex.TypeDefinitions merged = ProjectDataModelOracleIndex.TypeDefinitions.merge( Arrays.asList( index.getTypeDefinitions( "org.test.Event" ),
+                                                                                                                                      index.getTypeDefinitions( "java.util.List" ),
+                                                                                                                                      index.getTypeDefinitions( "org.test.Unknown" ) ) );
+        assertEquals( table.getEventTypes(),
+                      merged.getEventTypes() );
+        assertEquals( table.getTypeSources(),
+                      merged.getTypeSources() );
+        assertEquals( table.getCollectionTypes(),
+                      merged.getCollectionTypes() );
+        assertTrue( index.getTypeDefinitions( "org.test.Unknown" ).getEventTypes().isEmpty() );
+    }
+
+    private static <T> Map<String, T> singleton( final String type,
+                                                 final T value ) {
+        final Map<String, T> map = new HashMap<String, T>();
+        map.put( type,
+                 value );
+        return map;
+    }
+
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.workbench.common.services.datamodel.backend.server.builder.util;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DataEnumLoaderCacheTest {
+
+    private static final String ENUM_DEFINITION = "'Fact.field' : ['a', 'b', 'c']";
+
+    @Test
+    public void testUnchangedDefinitionIsShared() {
+        final DataEnumLoaderCache cache = new DataEnumLoaderCache( 10,
+                                                                 60000 );
+        final ClassLoader classLoader = getClass().getClassLoader();
+
+        final DataEnumLoader loader1 = cache.getLoader( ENUM_DEFINITION,
+                                                        classLoader );
+        final DataEnumLoader loader2 = cache.getLoader( new String( ENUM_DEFINITION ),
+                                                        classLoader );
+        assertSame( loader1,
+                    loader2 );
+        assertEquals( 3,
+                      loader1.getData().get( "Fact#field" ).length );
+
+        final DataEnumLoader loader3 = cache.getLoader( ENUM_DEFINITION + ", 'Fact.field2' : ['d']",
+                                                        classLoader );
+        assertNotSame( loader1,
+                       loader3 );
+        assertEquals( 2,
+                      loader3.getData().size() );
+    }
+
+    @Test
+    public void testDefinitionIsReloadedForDifferentClassLoader() {
+        final DataEnumLoaderCache cache = new DataEnumLoaderCache( 10,
+                                                                 60000 );
+        final ClassLoader classLoader1 = new URLClassLoader( new URL[ 0 ],
+                                                             getClass().getClassLoader() );
+        final ClassLoader classLoader2 = new URLClassLoader( new URL[ 0 ],
+                                                             getClass().getClassLoader() );
+
+        final DataEnumLoader loader1 = cache.getLoader( ENUM_DEFINITION,
+                                                        classLoader1 );
+        final DataEnumLoader loader2 = cache.getLoader( ENUM_DEFINITION,
+                                                        classLoader2 );
+        assertNotSame( loader1,
+                       loader2 );
+        assertEquals( 2,
+                      cache.size() );
+    }
+
+    @Test
+    public void testCacheIsBounded() {
+        final DataEnumLoaderCache cache = new DataEnumLoaderCache( 2,
+                                                                 60000 );
+        final ClassLoader classLoader = getClass().getClassLoader();
+        for ( int i = 0; i < 5; i++ ) {
+            cache.getLoader( "'Fact.field" + i + "' : ['a']",
+                             classLoader );
+        }
+        assertEquals( 2,
+                      cache.size() );
+    }
+
+    @Test
+    public void testErrorsAreNotCached() {
+        final DataEnumLoaderCache cache = new DataEnumLoaderCache( 10,
+                                                                 60000 );
+        final DataEnumLoader loader = cache.getLoader( "'Fact.field2[]':'[1, 2, 3]'",
+                                                       getClass().getClassLoader() );
+        assertTrue( loader.hasErrors() );
+        assertNotSame( loader,
+                       cache.getLoader( "'Fact.field2[]':'[1, 2, 3]'",
+                                        getClass().getClassLoader() ) );
+        assertEquals( 0,
+                      cache.size() );
+    }
+
+    @Test
+    public void testCalculatedDefinitionsExpire() throws Exception {
+        final DataEnumLoaderCache cache = new DataEnumLoaderCache( 10,
+                                                                 50 );
+        final ClassLoader classLoader = getClass().getClassLoader();
+        final String calculated = "'Fact.field' : java.util.Arrays.asList( 'a', 'b' )";
+
+        final DataEnumLoader loader1 = cache.getLoader( calculated,
+                                                        classLoader );
+        assertSame( loader1,
+                    cache.getLoader( calculated,
+                                     classLoader ) );
+        final DataEnumLoader literal = cache.getLoader( ENUM_DEFINITION,
+                                                        classLoader );
+
+        Thread.sleep( 100 );
+
+        assertNotSame( loader1,
+                       cache.getLoader( calculated,
+                                        classLoader ) );
+        assertSame( literal,
+                    cache.getLoader( ENUM_DEFINITION,
+                                     classLoader ) );
+    }
+
+    @Test
+    public void testIsLiteral() {
+        assertTrue( DataEnumLoaderCache.isLiteral( ENUM_DEFINITION ) );
+        assertTrue( DataEnumLoaderCache.isLiteral( "'Fact.field[type=a]' : ['x, y', \"z\"]\n'Fact.other' : 'a, b'" ) );
+        assertFalse( DataEnumLoaderCache.isLiteral( "'Fact.field' : (new org.Service()).getValues()" ) );
+        assertFalse( DataEnumLoaderCache.isLiteral( "=['Fact.field' : ['a']]" ) );
+    }
+
+}
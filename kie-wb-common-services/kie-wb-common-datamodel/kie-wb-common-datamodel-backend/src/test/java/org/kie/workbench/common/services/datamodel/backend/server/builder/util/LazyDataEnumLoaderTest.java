@@ -0,0 +1,150 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.workbench.common.services.datamodel.backend.server.builder.util;
+
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LazyDataEnumLoaderTest {
+
+    private static int evaluations;
+
+    //Called from enumeration definitions to count how often they are evaluated
+    public static List<String> values() {
+        evaluations++;
+        return Arrays.asList( "a",
+                              "b" );
+    }
+
+    @Before
+    public void setUp() {
+        evaluations = 0;
+    }
+
+    @Test
+    public void testEntriesAreEvaluatedOnDemand() {
+        final String e = "'Fact.field1' : " + getClass().getName() + ".values()\n"
+                + "'Fact.field2' : " + getClass().getName() + ".values()";
+        final DataEnumLoader loader = new DataEnumLoader( e,
+                                                          getClass().getClassLoader(),
+                                                          true );
+        assertFalse( loader.hasErrors() );
+        assertEquals( 0,
+                      evaluations );
+
+        final Map<String, DataEnumProvider> providers = loader.getProviders();
+        assertEquals( 2,
+                      providers.size() );
+        assertArrayEquals( new String[]{ "a", "b" },
+                           providers.get( "Fact#field1" ).getValues() );
+        assertEquals( 1,
+                      evaluations );
+
+        //Values are memoized
+        providers.get( "Fact#field1" ).getValues();
+        assertEquals( 1,
+                      evaluations );
+        assertFalse( providers.get( "Fact#field2" ).isEvaluated() );
+    }
+
+    @Test
+    public void testLazyAndEagerLoadingAreEquivalent() {
+        final String e = "'Fact.field1' : ['a', 'b',\n'c']\n"
+                + "'Fact.field2[field1=a]' : '[1, 2, 3]'\n"
+                + "\"Fact.field3\" : \"x:y\"";
+        final Map<String, String[]> eager = new DataEnumLoader( e,
+                                                                getClass().getClassLoader(),
+                                                                false ).getData();
+        final Map<String, String[]> lazy = new DataEnumLoader( e,
+                                                               getClass().getClassLoader(),
+                                                               true ).getData();
+        assertEquals( 3,
+                      eager.size() );
+        assertEquals( eager.keySet(),
+                      lazy.keySet() );
+        for ( String key : eager.keySet() ) {
+            assertArrayEquals( eager.get( key ),
+                               lazy.get( key ) );
+        }
+    }
+
+    @Test
+    public void testInvalidKeysAreReportedWhenLoaded() {
+        final String e = "'Fact.field[]' : ['a']";
+        final DataEnumLoader loader = new DataEnumLoader( e,
+                                                          getClass().getClassLoader(),
+                                                          true );
+        assertTrue( loader.hasErrors() );
+        assertTrue( loader.getErrors().contains( "Invalid dependent definition: Empty [] detected." ) );
+    }
+
+    @Test
+    public void testExpressionDefinitionsAreLoadedEagerly() {
+        final String e = "=['Fact.field' : " + getClass().getName() + ".values()]";
+        final DataEnumLoader loader = new DataEnumLoader( e,
+                                                          getClass().getClassLoader(),
+                                                          true );
+        assertEquals( 1,
+                      evaluations );
+        assertTrue( loader.getProviders().get( "Fact#field" ).isEvaluated() );
+    }
+
+    @Test
+    public void testValuesAreRefreshed() throws Exception {
+        final DataEnumProvider provider = DataEnumProvider.lazy( "Fact#field",
+                                                                 getClass().getName() + ".values()",
+                                                                 getClass().getClassLoader(),
+                                                                 1 );
+        provider.getValues();
+        Thread.sleep( 10 );
+        assertFalse( provider.isEvaluated() );
+        provider.getValues();
+        assertEquals( 2,
+                      evaluations );
+    }
+
+    @Test
+    public void testProvidersDoNotHoldClassLoader() throws Exception {
+        ClassLoader classLoader = new URLClassLoader( new URL[ 0 ],
+                                                      getClass().getClassLoader() );
+        final WeakReference<ClassLoader> reference = new WeakReference<ClassLoader>( classLoader );
+        final String e = "'Fact.field' : " + getClass().getName() + ".values()";
+        final DataEnumLoader loader = new DataEnumLoader( e,
+                                                          classLoader,
+                                                          true );
+        assertArrayEquals( new String[]{ "a", "b" },
+                           loader.getProviders().get( "Fact#field" ).getValues() );
+
+        classLoader = null;
+        for ( int i = 0; i < 50 && reference.get() != null; i++ ) {
+            System.gc();
+            Thread.sleep( 10 );
+        }
+        assertNull( reference.get() );
+        assertEquals( 1,
+                      loader.getProviders().size() );
+    }
+
+}
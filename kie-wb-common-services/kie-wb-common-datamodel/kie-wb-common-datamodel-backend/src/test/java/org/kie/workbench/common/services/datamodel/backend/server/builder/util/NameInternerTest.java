@@ -0,0 +1,116 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.workbench.common.services.datamodel.backend.server.builder.util;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class NameInternerTest {
+
+    @Test
+    public void testEqualNamesAreShared() {
+        final NameInterner names = new NameInterner( true );
+        final String name1 = names.intern( new String( "org.test.Fact" ) );
+        final String name2 = names.intern( new String( "org.test.Fact" ) );
+        final String name3 = names.intern( new String( "org.test.AnotherFact" ) );
+        assertSame( name1,
+                    name2 );
+        assertNotSame( name1,
+                       name3 );
+        assertNull( names.intern( null ) );
+        assertEquals( 2,
+                      names.size() );
+    }
+
+    @Test
+    public void testRetainedNames() {
+        final NameInterner names = new NameInterner( true );
+
+        //Every Project ClassLoader yields its own copy of each name; only one copy per name is retained
+        final List<String> interned = new ArrayList<String>();
+        for ( int project = 0; project < 10; project++ ) {
+            for ( int type = 0; type < 100; type++ ) {
+                interned.add( names.intern( new String( "org.test.Fact" + type ) ) );
+            }
+        }
+        final Map<String, Boolean> retained = new IdentityHashMap<String, Boolean>();
+        for ( String name : interned ) {
+            retained.put( name,
+                          Boolean.TRUE );
+        }
+        assertEquals( 100,
+                      retained.size() );
+        assertEquals( 100,
+                      names.size() );
+
+        //Names no longer referenced are discarded
+        interned.clear();
+        retained.clear();
+        for ( int attempt = 0; attempt < 50 && names.size() > 0; attempt++ ) {
+            System.gc();
+            Thread.yield();
+        }
+        assertEquals( 0,
+                      names.size() );
+    }
+
+    @Test
+    public void testConcurrentInterning() throws Exception {
+        final NameInterner names = new NameInterner( true );
+        final String[][] results = new String[ 4 ][ 1000 ];
+        final Thread[] threads = new Thread[ results.length ];
+        for ( int i = 0; i < threads.length; i++ ) {
+            final String[] result = results[ i ];
+            threads[ i ] = new Thread() {
+                @Override
+                public void run() {
+                    for ( int j = 0; j < result.length; j++ ) {
+                        result[ j ] = names.intern( new String( "org.test.Fact" + j ) );
+                    }
+                }
+            };
+            threads[ i ].start();
+        }
+        for ( Thread thread : threads ) {
+            thread.join();
+        }
+        for ( int i = 1; i < results.length; i++ ) {
+            for ( int j = 0; j < results[ i ].length; j++ ) {
+                assertSame( results[ 0 ][ j ],
+                            results[ i ][ j ] );
+            }
+        }
+    }
+
+    @Test
+    public void testDisabled() {
+        final NameInterner names = new NameInterner( false );
+        final String name = new String( "org.test.Fact" );
+        assertSame( name,
+                    names.intern( name ) );
+        assertNotSame( name,
+                       names.intern( new String( "org.test.Fact" ) ) );
+        assertEquals( 0,
+                      names.size() );
+    }
+
+}
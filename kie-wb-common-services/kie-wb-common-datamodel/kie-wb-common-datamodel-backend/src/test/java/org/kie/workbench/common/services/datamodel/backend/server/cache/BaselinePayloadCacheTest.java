@@ -0,0 +1,115 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.workbench.common.services.datamodel.backend.server.cache;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.drools.workbench.models.datamodel.oracle.PackageDataModelOracle;
+import org.drools.workbench.models.datamodel.oracle.ProjectDataModelOracle;
+import org.drools.workbench.models.datamodel.oracle.TypeSource;
+import org.junit.Test;
+import org.kie.workbench.common.services.datamodel.backend.server.DataModelOracleUtilities;
+import org.kie.workbench.common.services.datamodel.backend.server.builder.packages.PackageDataModelOracleBuilder;
+import org.kie.workbench.common.services.datamodel.backend.server.builder.projects.ProjectDataModelOracleBuilder;
+import org.kie.workbench.common.services.datamodel.backend.server.testclasses.Product;
+import org.kie.workbench.common.services.datamodel.backend.server.testclasses.superclasses.PapaSmurf;
+import org.kie.workbench.common.services.datamodel.model.LazyModelField;
+import org.kie.workbench.common.services.datamodel.model.PackageDataModelOracleBaselinePayload;
+
+import static org.junit.Assert.*;
+
+public class BaselinePayloadCacheTest {
+
+    @Test
+    public void testBaselinePayloadIsCachedWithOracle() throws Exception {
+        final ProjectDataModelOracle projectOracle = ProjectDataModelOracleBuilder.newProjectOracleBuilder()
+                .addClass( Product.class,
+                           false,
+                           TypeSource.JAVA_PROJECT )
+                .addClass( PapaSmurf.class,
+                           false,
+                           TypeSource.JAVA_PROJECT )
+                .build();
+        final PackageDataModelOracle oracle = PackageDataModelOracleBuilder.newPackageOracleBuilder( "org.kie" )
+                .setProjectOracle( projectOracle )
+                .build();
+
+        final Set<String> usedTypes = new HashSet<String>();
+        usedTypes.add( Product.class.getName() );
+
+        final PackageDataModelOracleBaselinePayload payload1 = new PackageDataModelOracleBaselinePayload();
+        DataModelOracleUtilities.populateDataModel( oracle,
+                                                    payload1,
+                                                    usedTypes );
+        final PackageDataModelOracleBaselinePayload payload2 = new PackageDataModelOracleBaselinePayload();
+        DataModelOracleUtilities.populateDataModel( oracle,
+                                                    payload2,
+                                                    Collections.singleton( Product.class.getName() ) );
+
+        assertEquals( payload1.getModelFields(),
+                      payload2.getModelFields() );
+        assertEquals( 1,
+                      ( (HasBaselinePayloadCache) oracle ).getBaselinePayloadCache().size() );
+        assertFalse( payload1.getModelFields().get( Product.class.getName() )[ 0 ] instanceof LazyModelField );
+        assertTrue( payload1.getModelFields().get( PapaSmurf.class.getName() )[ 0 ] instanceof LazyModelField );
+
+        //A different set of used types is built separately
+        final PackageDataModelOracleBaselinePayload payload3 = new PackageDataModelOracleBaselinePayload();
+        DataModelOracleUtilities.populateDataModel( oracle,
+                                                    payload3,
+                                                    Collections.singleton( PapaSmurf.class.getName() ) );
+        assertFalse( payload3.getModelFields().get( PapaSmurf.class.getName() )[ 0 ] instanceof LazyModelField );
+        assertEquals( 2,
+                      ( (HasBaselinePayloadCache) oracle ).getBaselinePayloadCache().size() );
+    }
+
+    @Test
+    public void testCallersMayModifyCachedPayload() throws Exception {
+        final ProjectDataModelOracle projectOracle = ProjectDataModelOracleBuilder.newProjectOracleBuilder()
+                .addClass( Product.class,
+                           false,
+                           TypeSource.JAVA_PROJECT )
+                .build();
+        final PackageDataModelOracle oracle = PackageDataModelOracleBuilder.newPackageOracleBuilder( "org.kie" )
+                .setProjectOracle( projectOracle )
+                .addGlobals( "global org.kie.workbench.common.services.datamodel.backend.server.testclasses.Product p;" )
+                .build();
+        final Set<String> usedTypes = Collections.singleton( Product.class.getName() );
+
+        final PackageDataModelOracleBaselinePayload payload1 = new PackageDataModelOracleBaselinePayload();
+        DataModelOracleUtilities.populateDataModel( oracle,
+                                                    payload1,
+                                                    usedTypes );
+        payload1.getModelFields().clear();
+        payload1.getSuperTypes().clear();
+        payload1.getGlobals().clear();
+        payload1.getPackageNames().clear();
+
+        //The cached baseline is unaffected
+        final PackageDataModelOracleBaselinePayload payload2 = new PackageDataModelOracleBaselinePayload();
+        DataModelOracleUtilities.populateDataModel( oracle,
+                                                    payload2,
+                                                    usedTypes );
+        assertEquals( 1,
+                      ( (HasBaselinePayloadCache) oracle ).getBaselinePayloadCache().size() );
+        assertTrue( payload2.getModelFields().containsKey( Product.class.getName() ) );
+        assertEquals( Product.class.getName(),
+                      payload2.getGlobals().get( "p" ) );
+    }
+
+}
@@ -0,0 +1,393 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.workbench.common.services.datamodel.backend.server.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the in-flight build handling of AbstractDataModelOracleCache
+ */
+public class DataModelOracleCacheTest {
+
+    @Test
+    public void testConcurrentRequestsShareSingleBuild() throws Exception {
+        final TestCache cache = new TestCache();
+        final AtomicInteger builds = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch( 1 );
+
+        final Callable<String> factory = new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                builds.incrementAndGet();
+                release.await( 10,
+                               TimeUnit.SECONDS );
+                return "oracle";
+            }
+        };
+
+        final ExecutorService es = Executors.newFixedThreadPool( 5 );
+        final Future<?>[] results = new Future<?>[ 5 ];
+        for ( int i = 0; i < results.length; i++ ) {
+            results[ i ] = es.submit( new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    return cache.assertEntry( "project",
+                                              factory );
+                }
+            } );
+        }
+        Thread.sleep( 200 );
+        release.countDown();
+
+        for ( Future<?> result : results ) {
+            assertEquals( "oracle",
+                          result.get( 10,
+                                      TimeUnit.SECONDS ) );
+        }
+        es.shutdown();
+
+        assertEquals( 1,
+                      builds.get() );
+        assertEquals( "oracle",
+                      cache.getEntry( "project" ) );
+    }
+
+    @Test
+    public void testBuildsForDifferentKeysDoNotBlock() throws Exception {
+        final TestCache cache = new TestCache();
+        final CountDownLatch release = new CountDownLatch( 1 );
+
+        final ExecutorService es = Executors.newSingleThreadExecutor();
+        final Future<String> blocked = es.submit( new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return cache.assertEntry( "project1",
+                                          new Callable<String>() {
+                                              @Override
+                                              public String call() throws Exception {
+                                                  release.await( 10,
+                                                                 TimeUnit.SECONDS );
+                                                  return "oracle1";
+                                              }
+                                          } );
+            }
+        } );
+        Thread.sleep( 100 );
+
+        assertEquals( "oracle2",
+                      cache.assertEntry( "project2",
+                                         new Callable<String>() {
+                                             @Override
+                                             public String call() throws Exception {
+                                                 return "oracle2";
+                                             }
+                                         } ) );
+        assertFalse( blocked.isDone() );
+
+        release.countDown();
+        assertEquals( "oracle1",
+                      blocked.get( 10,
+                                   TimeUnit.SECONDS ) );
+        es.shutdown();
+    }
+
+    @Test
+    public void testInvalidationSupersedesInFlightBuild() throws Exception {
+        final TestCache cache = new TestCache();
+        final AtomicInteger builds = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch( 1 );
+        final CountDownLatch release = new CountDownLatch( 1 );
+
+        final ExecutorService es = Executors.newSingleThreadExecutor();
+        final Future<String> result = es.submit( new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return cache.assertEntry( "project",
+                                          new Callable<String>() {
+                                              @Override
+                                              public String call() throws Exception {
+                                                  final int build = builds.incrementAndGet();
+                                                  if ( build == 1 ) {
+                                                      started.countDown();
+                                                      release.await( 10,
+                                                                     TimeUnit.SECONDS );
+                                                  }
+                                                  return "oracle" + build;
+                                              }
+                                          } );
+            }
+        } );
+
+        assertTrue( started.await( 10,
+                                   TimeUnit.SECONDS ) );
+        cache.invalidateEntry( "project" );
+        release.countDown();
+
+        //The stale build is discarded and the caller receives the rebuilt entry
+        assertEquals( "oracle2",
+                      result.get( 10,
+                                  TimeUnit.SECONDS ) );
+        assertEquals( "oracle2",
+                      cache.getEntry( "project" ) );
+        es.shutdown();
+    }
+
+    @Test
+    public void testFailedBuildIsNotCached() throws Exception {
+        final TestCache cache = new TestCache();
+        try {
+            cache.assertEntry( "project",
+                               new Callable<String>() {
+                                   @Override
+                                   public String call() throws Exception {
+                                       throw new IllegalArgumentException( "failed" );
+                                   }
+                               } );
+            fail( "Expected IllegalArgumentException" );
+        } catch ( IllegalArgumentException e ) {
+            assertEquals( "failed",
+                          e.getMessage() );
+        }
+
+        assertEquals( "oracle",
+                      cache.assertEntry( "project",
+                                         new Callable<String>() {
+                                             @Override
+                                             public String call() throws Exception {
+                                                 return "oracle";
+                                             }
+                                         } ) );
+    }
+
+    @Test
+    public void testRecentKeysAreRetainedAfterInvalidation() {
+        final TestCache cache = new TestCache();
+        final Callable<String> factory = new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return "oracle";
+            }
+        };
+        cache.assertEntry( "project1",
+                           factory );
+        cache.assertEntry( "project2",
+                           factory );
+        cache.assertEntry( "project1",
+                           factory );
+        cache.invalidateEntry( "project1" );
+
+        assertEquals( Arrays.asList( "project1",
+                                     "project2" ),
+                      cache.getRecentKeys() );
+    }
+
+    @Test
+    public void testEvictionByWeight() {
+        final WeighedTestCache cache = new WeighedTestCache( 10 );
+        cache.setEntry( "project1",
+                        "12345" );
+        cache.setEntry( "project2",
+                        "1234" );
+        assertEquals( 9,
+                      cache.getWeight() );
+
+        //project1 is least recently used so is evicted, but remains available until reclaimed
+        cache.setEntry( "project3",
+                        "123" );
+        assertEquals( 7,
+                      cache.getWeight() );
+        assertEquals( 3,
+                      cache.getKeys().size() );
+
+        //Using project1 again holds it strongly once more, evicting project2 instead
+        assertEquals( "12345",
+                      cache.getEntry( "project1" ) );
+        assertEquals( 8,
+                      cache.getWeight() );
+    }
+
+    @Test
+    public void testEntryExceedingBudgetIsRetained() {
+        final WeighedTestCache cache = new WeighedTestCache( 10 );
+        cache.setEntry( "project1",
+                        "12345" );
+        cache.setEntry( "project2",
+                        "12345678901" );
+        assertEquals( 11,
+                      cache.getWeight() );
+        assertEquals( "12345678901",
+                      cache.getEntry( "project2" ) );
+
+        cache.invalidateCache( "project2" );
+        assertEquals( 0,
+                      cache.getWeight() );
+        assertNull( cache.getEntry( "project2" ) );
+    }
+
+    @Test
+    public void testDependentEntriesAreEvictedWithTheirDependency() {
+        final WeighedTestCache projects = new WeighedTestCache( 10 );
+        final WeighedTestCache packages = new WeighedTestCache( 100 );
+        final List<String> evicted = new ArrayList<String>();
+        projects.addEvictionListener( new AbstractDataModelOracleCache.EvictionListener<String, String>() {
+            @Override
+            public void onEvicted( final String key,
+                                   final String content ) {
+                evicted.add( key );
+                final List<String> dependents = new ArrayList<String>();
+                for ( Map.Entry<String, String> e : packages.getStronglyHeldEntries().entrySet() ) {
+                    if ( e.getValue().startsWith( content ) ) {
+                        dependents.add( e.getKey() );
+                    }
+                }
+                packages.evictEntries( dependents );
+            }
+        } );
+        projects.setEntry( "project1",
+                           "12345" );
+        projects.setEntry( "project2",
+                           "1234" );
+        packages.setEntry( "package1",
+                           "12345.a" );
+        packages.setEntry( "package2",
+                           "1234.b" );
+        assertEquals( 13,
+                      packages.getWeight() );
+
+        //Evicting project1 evicts the package depending upon it, which remains available until reclaimed
+        projects.setEntry( "project3",
+                           "123" );
+        assertEquals( Arrays.asList( "project1" ),
+                      evicted );
+        assertEquals( 6,
+                      packages.getWeight() );
+        assertEquals( Collections.singleton( "package2" ),
+                      packages.getStronglyHeldEntries().keySet() );
+        assertEquals( "12345.a",
+                      packages.getEntry( "package1" ) );
+    }
+
+    @Test
+    public void testMetrics() {
+        final TestCache cache = new TestCache();
+        final AtomicInteger registryBuilds = new AtomicInteger();
+        cache.addMetricsRegistry( new DataModelOracleCacheMetricsRegistry() {
+            @Override
+            public void onHit( final String cacheName,
+                               final String key ) {
+            }
+
+            @Override
+            public void onMiss( final String cacheName,
+                                final String key ) {
+            }
+
+            @Override
+            public void onBuild( final String cacheName,
+                                 final String key,
+                                 final long durationNanos,
+                                 final boolean succeeded ) {
+                registryBuilds.incrementAndGet();
+            }
+
+            @Override
+            public void onWait( final String cacheName,
+                                final String key,
+                                final long durationNanos ) {
+            }
+
+            @Override
+            public void onEviction( final String cacheName,
+                                    final String key,
+                                    final long weight ) {
+            }
+
+            @Override
+            public void onInvalidation( final String cacheName,
+                                        final String key ) {
+            }
+        } );
+        final Callable<String> factory = new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return "oracle";
+            }
+        };
+        cache.assertEntry( "project1",
+                           factory );
+        cache.assertEntry( "project1",
+                           factory );
+        cache.assertEntry( "project2",
+                           factory );
+        cache.invalidateEntry( "project1" );
+
+        final DataModelOracleCacheMetrics metrics = cache.getMetrics();
+        assertEquals( 1,
+                      metrics.getHits() );
+        assertEquals( 2,
+                      metrics.getMisses() );
+        assertEquals( 2,
+                      metrics.getBuilds() );
+        assertEquals( 0,
+                      metrics.getBuildFailures() );
+        assertEquals( 1,
+                      metrics.getInvalidations() );
+        assertEquals( 1,
+                      metrics.getSize() );
+        assertTrue( metrics.getLastBuildTimes().containsKey( "project2" ) );
+        assertEquals( 2,
+                      registryBuilds.get() );
+
+        metrics.reset();
+        assertEquals( 0,
+                      metrics.getHits() );
+    }
+
+    private static class TestCache extends AbstractDataModelOracleCache<String, String> {
+
+    }
+
+    private static class WeighedTestCache extends AbstractDataModelOracleCache<String, String> {
+
+        private WeighedTestCache( final long maxWeight ) {
+            super( "WeighedTestCache",
+                   maxWeight );
+        }
+
+        @Override
+        protected long weigh( final String key,
+                              final String content ) {
+            return content.length();
+        }
+
+    }
+
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.workbench.common.services.datamodel.backend.server.cache;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+import org.guvnor.common.services.project.builder.events.InvalidateDMOPackageCacheEvent;
+import org.guvnor.common.services.project.builder.events.InvalidateDMOProjectCacheEvent;
+import org.guvnor.common.services.project.model.Package;
+import org.guvnor.common.services.project.model.Project;
+import org.guvnor.common.services.project.service.ProjectService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.uberfire.backend.vfs.Path;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class DataModelOracleWarmUpServiceTest {
+
+    private static final long DELAY = 200;
+
+    private ProjectService projectService;
+    private LRUProjectDataModelOracleCache cacheProjects;
+    private LRUDataModelOracleCache cachePackages;
+    private ScheduledExecutorService executor;
+    private File history;
+    private DataModelOracleWarmUpService service;
+
+    private Project project1;
+    private Project project2;
+
+    @Before
+    public void setUp() throws Exception {
+        projectService = mock( ProjectService.class );
+        cacheProjects = mock( LRUProjectDataModelOracleCache.class );
+        cachePackages = mock( LRUDataModelOracleCache.class );
+        when( cacheProjects.getMaxWeight() ).thenReturn( 100L );
+        when( cachePackages.getMaxWeight() ).thenReturn( 100L );
+        when( cachePackages.getRecentKeys() ).thenReturn( Collections.<Package>emptyList() );
+        executor = new ScheduledThreadPoolExecutor( 1 );
+        //The history is written to a directory that does not exist yet
+        final File directory = File.createTempFile( "warmup",
+                                                    "" );
+        directory.delete();
+        history = new File( directory,
+                            "datamodel-warmup" );
+
+        project1 = makeProject( "default://p1" );
+        project2 = makeProject( "default://p2" );
+
+        service = new DataModelOracleWarmUpService( projectService,
+                                                    cacheProjects,
+                                                    cachePackages,
+                                                    executor,
+                                                    history,
+                                                    DELAY ) {
+            @Override
+            Project resolveProject( final String uri ) {
+                if ( uri.equals( "default://p1" ) ) {
+                    return project1;
+                } else if ( uri.equals( "default://p2" ) ) {
+                    return project2;
+                }
+                return null;
+            }
+
+            @Override
+            boolean isPackageResource( final Path resourcePath ) {
+                return resourcePath.getFileName().endsWith( ".enumeration" );
+            }
+        };
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        history.delete();
+        history.getParentFile().delete();
+    }
+
+    @Test
+    public void testHistoryIsWrittenAndRead() {
+        service.writeHistory( Arrays.asList( project2,
+                                             project1 ) );
+        assertEquals( Arrays.asList( "default://p2",
+                                     "default://p1" ),
+                      service.readHistory() );
+    }
+
+    @Test
+    public void testOnlyRecentlyUsedProjectsAreWarmedUp() {
+        service.writeHistory( Arrays.asList( project2,
+                                             makeProject( "default://deleted" ) ) );
+        service.warmUp();
+
+        verify( cacheProjects,
+                timeout( 1000 ) ).assertProjectDataModelOracle( project2 );
+        verify( cacheProjects,
+                never() ).assertProjectDataModelOracle( project1 );
+    }
+
+    @Test
+    public void testWarmUpStopsWhenCacheIsFull() throws Exception {
+        when( cacheProjects.getWeight() ).thenReturn( 100L );
+        service.writeHistory( Arrays.asList( project1 ) );
+        service.warmUp();
+
+        Thread.sleep( DELAY );
+        verify( cacheProjects,
+                never() ).assertProjectDataModelOracle( any( Project.class ) );
+    }
+
+    @Test
+    public void testChangesAreDebounced() throws Exception {
+        final Path resourcePath = makePath( "Fact.java" );
+        when( projectService.resolveProject( resourcePath ) ).thenReturn( project1 );
+        final InvalidateDMOProjectCacheEvent event = mock( InvalidateDMOProjectCacheEvent.class );
+        when( event.getResourcePath() ).thenReturn( resourcePath );
+
+        //Each change postpones the rebuild, so it does not happen while changes continue
+        for ( int i = 0; i < 4; i++ ) {
+            service.onProjectInvalidated( event );
+            Thread.sleep( DELAY / 2 );
+        }
+        verify( cacheProjects,
+                never() ).assertProjectDataModelOracle( project1 );
+
+        Thread.sleep( DELAY * 2 );
+        verify( cacheProjects,
+                times( 1 ) ).assertProjectDataModelOracle( project1 );
+    }
+
+    @Test
+    public void testPackageResourceChangesOnlyRebuildPackage() {
+        final Path resourcePath = makePath( "Fact.enumeration" );
+        final Package pkg = mock( Package.class );
+        when( projectService.resolveProject( resourcePath ) ).thenReturn( project1 );
+        when( projectService.resolvePackage( resourcePath ) ).thenReturn( pkg );
+        final InvalidateDMOProjectCacheEvent projectEvent = mock( InvalidateDMOProjectCacheEvent.class );
+        when( projectEvent.getResourcePath() ).thenReturn( resourcePath );
+        final InvalidateDMOPackageCacheEvent packageEvent = mock( InvalidateDMOPackageCacheEvent.class );
+        when( packageEvent.getResourcePath() ).thenReturn( resourcePath );
+
+        service.onProjectInvalidated( projectEvent );
+        service.onPackageInvalidated( packageEvent );
+
+        verify( cachePackages,
+                timeout( 1000 ) ).assertPackageDataModelOracle( project1,
+                                                                 pkg );
+        verify( cacheProjects,
+                never() ).assertProjectDataModelOracle( project1 );
+        verify( cachePackages,
+                times( 1 ) ).assertPackageDataModelOracle( project1,
+                                                           pkg );
+    }
+
+    private Path makePath( final String fileName ) {
+        final Path path = mock( Path.class );
+        when( path.getFileName() ).thenReturn( fileName );
+        return path;
+    }
+
+    private Project makeProject( final String uri ) {
+        final Path rootPath = mock( Path.class );
+        when( rootPath.toURI() ).thenReturn( uri );
+        final Project project = mock( Project.class );
+        when( project.getRootPath() ).thenReturn( rootPath );
+        return project;
+    }
+
+}
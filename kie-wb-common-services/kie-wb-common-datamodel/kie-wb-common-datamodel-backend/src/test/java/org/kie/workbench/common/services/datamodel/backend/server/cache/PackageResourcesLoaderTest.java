@@ -0,0 +1,82 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.workbench.common.services.datamodel.backend.server.cache;
+
+import java.net.URL;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.uberfire.io.IOService;
+import org.uberfire.io.impl.IOServiceDotFileImpl;
+import org.uberfire.java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+public class PackageResourcesLoaderTest {
+
+    private final IOService ioService = new IOServiceDotFileImpl();
+
+    private Path packagePath;
+
+    @Before
+    public void setUp() throws Exception {
+        final URL packageUrl = this.getClass().getResource( "/PackageResourcesLoaderTest/org/test" );
+        packagePath = ioService.get( packageUrl.toURI() );
+    }
+
+    @Test
+    public void testSerialLoad() {
+        assertResources( new PackageResourcesLoader( ioService,
+                                                     null ).load( packagePath ) );
+    }
+
+    @Test
+    public void testParallelLoad() {
+        final ExecutorService executor = Executors.newFixedThreadPool( 2 );
+        try {
+            assertResources( new PackageResourcesLoader( ioService,
+                                                         executor ).load( packagePath ) );
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testLoadMissingPackage() {
+        final PackageResources resources = new PackageResourcesLoader( ioService,
+                                                                       null ).load( packagePath.resolve( "missing" ) );
+        assertTrue( resources.getEnumerations().isEmpty() );
+        assertTrue( resources.getDsls().isEmpty() );
+        assertTrue( resources.getGlobals().isEmpty() );
+    }
+
+    private void assertResources( final PackageResources resources ) {
+        //Folders named like resources are ignored
+        assertEquals( 2,
+                      resources.getEnumerations().size() );
+        assertTrue( resources.getEnumerations().contains( "'Person.name' : ['a', 'b']\n" ) );
+        assertTrue( resources.getEnumerations().contains( "'Person.age' : ['1', '2']\n" ) );
+        assertEquals( 1,
+                      resources.getDsls().size() );
+        assertTrue( resources.getDsls().contains( "[when]There is a Person=Person()\n" ) );
+        assertEquals( 1,
+                      resources.getGlobals().size() );
+        assertTrue( resources.getGlobals().contains( "global java.util.List list;\n" ) );
+    }
+
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.workbench.common.services.datamodel.backend.server.cache;
+
+import java.net.URL;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.uberfire.java.nio.file.Path;
+import org.uberfire.java.nio.fs.file.SimpleFileSystemProvider;
+
+import static org.junit.Assert.*;
+
+public class PackageResourcesTest {
+
+    private final SimpleFileSystemProvider fs = new SimpleFileSystemProvider();
+
+    private Path packagePath;
+
+    @Before
+    public void setUp() throws Exception {
+        final URL packageUrl = this.getClass().getResource( "/DataModelBackendTest1/src/main/java/t3p1" );
+        packagePath = fs.getPath( packageUrl.toURI() );
+    }
+
+    @Test
+    public void testIsPackageResource() {
+        assertTrue( PackageResources.isPackageResource( packagePath.resolve( "a.enumeration" ) ) );
+        assertTrue( PackageResources.isPackageResource( packagePath.resolve( "a.dsl" ) ) );
+        assertTrue( PackageResources.isPackageResource( packagePath.resolve( "a.gdrl" ) ) );
+        assertFalse( PackageResources.isPackageResource( packagePath.resolve( "a.java" ) ) );
+        assertFalse( PackageResources.isPackageResource( packagePath.resolve( "a.drl" ) ) );
+    }
+
+    @Test
+    public void testUpdateReplacesOnlyChangedResource() {
+        final Path enum1 = packagePath.resolve( "enum1.enumeration" );
+        final Path enum2 = packagePath.resolve( "enum2.enumeration" );
+        final Path dsl = packagePath.resolve( "dsl.dsl" );
+
+        final Map<String, String> enumerations = new HashMap<String, String>();
+        enumerations.put( PackageResources.makeKey( enum1 ),
+                          "enum1" );
+        enumerations.put( PackageResources.makeKey( enum2 ),
+                          "enum2" );
+        final Map<String, String> dsls = new HashMap<String, String>();
+        dsls.put( PackageResources.makeKey( dsl ),
+                  "dsl" );
+
+        final PackageResources resources = new PackageResources( enumerations,
+                                                                 dsls,
+                                                                 Collections.<String, String>emptyMap() );
+
+        final PackageResources updated = resources.update( enum1,
+                                                           "enum1-updated" );
+        assertEquals( 2,
+                      updated.getEnumerations().size() );
+        assertTrue( updated.getEnumerations().contains( "enum1-updated" ) );
+        assertTrue( updated.getEnumerations().contains( "enum2" ) );
+        assertEquals( 1,
+                      updated.getDsls().size() );
+        assertTrue( updated.getDsls().contains( "dsl" ) );
+
+        //The original snapshot is unchanged
+        assertTrue( resources.getEnumerations().contains( "enum1" ) );
+
+        final PackageResources deleted = updated.update( enum2,
+                                                         null );
+        assertEquals( 1,
+                      deleted.getEnumerations().size() );
+        assertTrue( deleted.getEnumerations().contains( "enum1-updated" ) );
+
+        final PackageResources added = deleted.update( packagePath.resolve( "globals.gdrl" ),
+                                                       "global java.util.List list;" );
+        assertEquals( 1,
+                      added.getGlobals().size() );
+    }
+
+}
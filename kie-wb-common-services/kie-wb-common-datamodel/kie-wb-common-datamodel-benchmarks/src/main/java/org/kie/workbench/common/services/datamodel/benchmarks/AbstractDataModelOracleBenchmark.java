@@ -0,0 +1,101 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.workbench.common.services.datamodel.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.drools.workbench.models.datamodel.oracle.PackageDataModelOracle;
+import org.drools.workbench.models.datamodel.oracle.ProjectDataModelOracle;
+import org.kie.workbench.common.services.datamodel.backend.server.builder.packages.PackageDataModelOracleBuilder;
+import org.kie.workbench.common.services.datamodel.backend.server.builder.projects.ProjectDataModelOracleBuilder;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Base of the DataModelOracle benchmarks, generating a synthetic model of the parametrized size. Throughput and
+ * sampled latency (including percentiles) are reported for each benchmark; run with "-prof gc" to report allocation rate:
+ * <pre>
+ * mvn clean install -Pbenchmarks
+ * java -jar kie-wb-common-datamodel-benchmarks/target/benchmarks.jar -prof gc
+ * </pre>
+ * Introspection results are cached between builds of the same classes, as they are in a running workbench. Run with
+ * "-jvmArgs -Dorg.kie.workbench.datamodel.classFactCacheSize=0" to measure builds without the cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public abstract class AbstractDataModelOracleBenchmark {
+
+    @Param({"100", "1000", "5000", "20000"})
+    public int classCount;
+
+    @Param({"1", "8"})
+    public int hierarchyDepth;
+
+    @Param({"10"})
+    public int fieldsPerClass;
+
+    @Param({"true"})
+    public boolean annotated;
+
+    protected SyntheticModel model;
+
+    @Setup
+    public void generateModel() throws IOException {
+        model = new SyntheticModel( classCount,
+                                    hierarchyDepth,
+                                    fieldsPerClass,
+                                    annotated );
+        setup();
+    }
+
+    /**
+     * Additional set-up once the model has been generated
+     */
+    protected void setup() throws IOException {
+    }
+
+    protected ProjectDataModelOracle buildProjectDataModelOracle() throws IOException {
+        final ProjectDataModelOracleBuilder builder = ProjectDataModelOracleBuilder.newProjectOracleBuilder();
+        for ( Class<?> clazz : model.getClasses() ) {
+            builder.addClass( clazz );
+        }
+        return builder.build();
+    }
+
+    protected PackageDataModelOracle buildPackageDataModelOracle( final ProjectDataModelOracle projectOracle ) {
+        final PackageDataModelOracleBuilder builder = PackageDataModelOracleBuilder.newPackageOracleBuilder( SyntheticModel.PACKAGE_NAME );
+        builder.setProjectOracle( projectOracle );
+        for ( String enumDefinition : model.getEnumDefinitions() ) {
+            builder.addEnum( enumDefinition,
+                             model.getClassLoader() );
+        }
+        return builder.build();
+    }
+
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.workbench.common.services.datamodel.benchmarks;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.drools.workbench.models.datamodel.imports.Import;
+import org.drools.workbench.models.datamodel.imports.Imports;
+import org.drools.workbench.models.datamodel.oracle.PackageDataModelOracle;
+import org.kie.workbench.common.services.datamodel.backend.server.DataModelOracleUtilities;
+import org.kie.workbench.common.services.datamodel.model.PackageDataModelOracleBaselinePayload;
+import org.kie.workbench.common.widgets.client.datamodel.AsyncPackageDataModelOracleImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+
+/**
+ * Filter the client-side DataModelOracle of a Package outside of the model's package, which imports half of the model's
+ * classes. Filtering happens whenever the client-side DataModelOracle is populated and when imports change.
+ */
+public class AsyncPackageDataModelOracleFilterBenchmark extends AbstractDataModelOracleBenchmark {
+
+    private AsyncPackageDataModelOracleImpl oracle;
+    private Imports imports;
+    private Import toggledImport;
+
+    @Override
+    protected void setup() throws IOException {
+        final PackageDataModelOracle packageOracle = buildPackageDataModelOracle( buildProjectDataModelOracle() );
+
+        //Load the complete definitions of every type, as if each had been loaded incrementally
+        final Set<String> allTypes = new HashSet<String>();
+        for ( Class<?> clazz : model.getClasses() ) {
+            allTypes.add( clazz.getName() );
+        }
+        final PackageDataModelOracleBaselinePayload dataModel = new PackageDataModelOracleBaselinePayload();
+        DataModelOracleUtilities.populateDataModel( packageOracle,
+                                                    dataModel,
+                                                    allTypes );
+
+        oracle = new AsyncPackageDataModelOracleImpl();
+        oracle.setProjectName( dataModel.getProjectName() );
+        oracle.setPackageName( "org.kie.workbench.benchmarks.rules" );
+        oracle.addModelFields( dataModel.getModelFields() );
+        oracle.addFieldParametersType( dataModel.getFieldParametersType() );
+        oracle.addEventTypes( dataModel.getEventTypes() );
+        oracle.addTypeSources( dataModel.getTypeSources() );
+        oracle.addSuperTypes( dataModel.getSuperTypes() );
+        oracle.addTypeAnnotations( dataModel.getTypeAnnotations() );
+        oracle.addTypeFieldsAnnotations( dataModel.getTypeFieldsAnnotations() );
+        oracle.addJavaEnumDefinitions( dataModel.getJavaEnumDefinitions() );
+        oracle.addWorkbenchEnumDefinitions( dataModel.getWorkbenchEnumDefinitions() );
+        oracle.addMethodInformation( dataModel.getMethodInformation() );
+        oracle.addCollectionTypes( dataModel.getCollectionTypes() );
+        oracle.addGlobals( dataModel.getGlobals() );
+        oracle.addPackageNames( dataModel.getPackageNames() );
+
+        //The oracle holds a reference to the Imports, as it does for those of an editor's model
+        imports = new Imports();
+        for ( int i = 0; i < classCount; i += 2 ) {
+            imports.addImport( new Import( SyntheticModel.getClassName( i ) ) );
+        }
+        oracle.filter( imports );
+
+        //A class that is not otherwise imported, but is referenced by the fields of others
+        toggledImport = new Import( SyntheticModel.getClassName( classCount > 1 ? 1 : 0 ) );
+    }
+
+    @Benchmark
+    public void filter() {
+        oracle.filter();
+    }
+
+    @Benchmark
+    public void filterImportAddedAndRemoved() {
+        imports.addImport( toggledImport );
+        oracle.filterImportAdded( toggledImport );
+        imports.getImports().remove( toggledImport );
+        oracle.filterImportRemoved( toggledImport );
+    }
+
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.workbench.common.services.datamodel.benchmarks;
+
+import java.io.IOException;
+
+import org.drools.workbench.models.datamodel.oracle.PackageDataModelOracle;
+import org.drools.workbench.models.datamodel.oracle.ProjectDataModelOracle;
+import org.openjdk.jmh.annotations.Benchmark;
+
+/**
+ * Build a Package's DataModelOracle, including a Workbench enumeration for each class, over a Project's DataModelOracle
+ */
+public class PackageDataModelOracleBuilderBenchmark extends AbstractDataModelOracleBenchmark {
+
+    private ProjectDataModelOracle projectOracle;
+
+    @Override
+    protected void setup() throws IOException {
+        projectOracle = buildProjectDataModelOracle();
+    }
+
+    @Benchmark
+    public PackageDataModelOracle build() {
+        return buildPackageDataModelOracle( projectOracle );
+    }
+
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.workbench.common.services.datamodel.benchmarks;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.drools.workbench.models.datamodel.oracle.PackageDataModelOracle;
+import org.kie.workbench.common.services.datamodel.backend.server.DataModelOracleUtilities;
+import org.kie.workbench.common.services.datamodel.model.PackageDataModelOracleBaselinePayload;
+import org.kie.workbench.common.services.datamodel.model.PackageDataModelOracleIncrementalPayload;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Populate the payloads sent to the client when an editor is opened (baseline) and when it needs the definitions
+ * of a type it has not yet loaded (incremental).
+ */
+public class PopulateDataModelBenchmark extends AbstractDataModelOracleBenchmark {
+
+    //Number of types used by the resource being edited
+    @Param({"10"})
+    public int usedTypeCount;
+
+    private PackageDataModelOracle packageOracle;
+    private Set<String> usedTypes;
+    private int nextType;
+
+    @Override
+    protected void setup() throws IOException {
+        packageOracle = buildPackageDataModelOracle( buildProjectDataModelOracle() );
+        usedTypes = new HashSet<String>();
+        for ( int i = 0; i < Math.min( usedTypeCount,
+                                       classCount ); i++ ) {
+            usedTypes.add( SyntheticModel.getClassName( i ) );
+        }
+    }
+
+    @Benchmark
+    public PackageDataModelOracleBaselinePayload baseline() {
+        final PackageDataModelOracleBaselinePayload dataModel = new PackageDataModelOracleBaselinePayload();
+        DataModelOracleUtilities.populateDataModel( packageOracle,
+                                                    dataModel,
+                                                    usedTypes );
+        return dataModel;
+    }
+
+    @Benchmark
+    public PackageDataModelOracleIncrementalPayload incremental() {
+        final PackageDataModelOracleIncrementalPayload dataModel = new PackageDataModelOracleIncrementalPayload();
+        DataModelOracleUtilities.populateDataModel( packageOracle,
+                                                    dataModel,
+                                                    SyntheticModel.getClassName( nextType ) );
+        nextType = ( nextType + 1 ) % classCount;
+        return dataModel;
+    }
+
+}
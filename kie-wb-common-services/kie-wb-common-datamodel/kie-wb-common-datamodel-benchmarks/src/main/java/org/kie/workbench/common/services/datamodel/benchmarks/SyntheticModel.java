@@ -0,0 +1,292 @@
+/*
+ * Copyright 2014 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.kie.workbench.common.services.datamodel.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.mvel2.asm.AnnotationVisitor;
+import org.mvel2.asm.ClassWriter;
+import org.mvel2.asm.FieldVisitor;
+import org.mvel2.asm.MethodVisitor;
+import org.mvel2.asm.Opcodes;
+
+/**
+ * A synthetic fact model. Classes are generated as byte-code, with a getter and setter for each field, so they are
+ * introspected exactly as classes from a Project's dependencies are. Every class is a POJO in a single package;
+ * each chain of {@code hierarchyDepth} classes extends the previous class in the chain.
+ */
+public class SyntheticModel {
+
+    public static final String PACKAGE_NAME = "org.kie.workbench.benchmarks.model";
+
+    private static final String[][] FIELD_TYPES = new String[][]{
+            {"Ljava/lang/String;", null},
+            {"Ljava/lang/Integer;", null},
+            {"Ljava/lang/Boolean;", null},
+            {"Ljava/util/Date;", null},
+            {"Ljava/math/BigDecimal;", null},
+            {"Ljava/util/List;", "Ljava/util/List<Ljava/lang/String;>;"}
+    };
+
+    private final SyntheticClassLoader classLoader;
+    private final List<Class<?>> classes = new ArrayList<Class<?>>();
+    private final List<String> enumDefinitions = new ArrayList<String>();
+
+    /**
+     * Generate a model
+     * @param classCount Number of classes
+     * @param hierarchyDepth Length of each chain of classes extending one another; 1 for no inheritance
+     * @param fieldsPerClass Number of fields declared by each class
+     * @param annotated Whether classes and fields are annotated
+     */
+    public SyntheticModel( final int classCount,
+                           final int hierarchyDepth,
+                           final int fieldsPerClass,
+                           final boolean annotated ) {
+        this.classLoader = new SyntheticClassLoader( SyntheticModel.class.getClassLoader() );
+        for ( int i = 0; i < classCount; i++ ) {
+            final String superTypeName = ( i % hierarchyDepth == 0 ) ? "java/lang/Object" : getInternalName( i - 1 );
+            final String referenceTypeName = ( i == 0 ) ? null : getInternalName( i / 2 );
+            final byte[] bytes = generateClass( i,
+                                                superTypeName,
+                                                referenceTypeName,
+                                                fieldsPerClass,
+                                                annotated );
+            classes.add( classLoader.define( getClassName( i ),
+                                             bytes ) );
+            enumDefinitions.add( generateEnumDefinition( i,
+                                                         fieldsPerClass ) );
+        }
+    }
+
+    public static String getClassName( final int index ) {
+        return PACKAGE_NAME + ".Type" + index;
+    }
+
+    public ClassLoader getClassLoader() {
+        return classLoader;
+    }
+
+    public List<Class<?>> getClasses() {
+        return Collections.unmodifiableList( classes );
+    }
+
+    /**
+     * Workbench enumeration definitions, one per class, listing values for each of its String fields
+     * @return
+     */
+    public List<String> getEnumDefinitions() {
+        return Collections.unmodifiableList( enumDefinitions );
+    }
+
+    private static String getInternalName( final int index ) {
+        return getClassName( index ).replace( '.',
+                                              '/' );
+    }
+
+    private static String getFieldName( final int classIndex,
+                                        final int fieldIndex ) {
+        return "type" + classIndex + "Field" + fieldIndex;
+    }
+
+    private static String capitalize( final String name ) {
+        return Character.toUpperCase( name.charAt( 0 ) ) + name.substring( 1 );
+    }
+
+    private static byte[] generateClass( final int index,
+                                         final String superTypeName,
+                                         final String referenceTypeName,
+                                         final int fieldsPerClass,
+                                         final boolean annotated ) {
+        final String internalName = getInternalName( index );
+        final ClassWriter cw = new ClassWriter( ClassWriter.COMPUTE_MAXS );
+        cw.visit( Opcodes.V1_6,
+                  Opcodes.ACC_PUBLIC + Opcodes.ACC_SUPER,
+                  internalName,
+                  null,
+                  superTypeName,
+                  new String[]{"java/io/Serializable"} );
+
+        if ( annotated ) {
+            visitStringAnnotation( cw.visitAnnotation( "Lorg/kie/api/definition/type/Label;",
+                                                       true ),
+                                   "Type " + index );
+            visitStringAnnotation( cw.visitAnnotation( "Lorg/kie/api/definition/type/Description;",
+                                                       true ),
+                                   "Synthetic type " + index );
+            cw.visitAnnotation( "Lorg/kie/api/definition/type/PropertyReactive;",
+                                true ).visitEnd();
+        }
+
+        final MethodVisitor constructor = cw.visitMethod( Opcodes.ACC_PUBLIC,
+                                                          "<init>",
+                                                          "()V",
+                                                          null,
+                                                          null );
+        constructor.visitCode();
+        constructor.visitVarInsn( Opcodes.ALOAD,
+                                  0 );
+        constructor.visitMethodInsn( Opcodes.INVOKESPECIAL,
+                                     superTypeName,
+                                     "<init>",
+                                     "()V" );
+        constructor.visitInsn( Opcodes.RETURN );
+        constructor.visitMaxs( 0,
+                               0 );
+        constructor.visitEnd();
+
+        for ( int j = 0; j < fieldsPerClass; j++ ) {
+            final String fieldName = getFieldName( index,
+                                                   j );
+            String descriptor = FIELD_TYPES[ j % FIELD_TYPES.length ][ 0 ];
+            String signature = FIELD_TYPES[ j % FIELD_TYPES.length ][ 1 ];
+            //The last field of each class refers to another generated class
+            if ( j == fieldsPerClass - 1 && referenceTypeName != null ) {
+                descriptor = "L" + referenceTypeName + ";";
+                signature = null;
+            }
+            final FieldVisitor fv = cw.visitField( Opcodes.ACC_PRIVATE,
+                                                   fieldName,
+                                                   descriptor,
+                                                   signature,
+                                                   null );
+            if ( annotated ) {
+                final AnnotationVisitor position = fv.visitAnnotation( "Lorg/kie/api/definition/type/Position;",
+                                                                       true );
+                position.visit( "value",
+                                j );
+                position.visitEnd();
+                visitStringAnnotation( fv.visitAnnotation( "Lorg/kie/api/definition/type/Label;",
+                                                           true ),
+                                       "Field " + j );
+                if ( j == 0 ) {
+                    fv.visitAnnotation( "Lorg/kie/api/definition/type/Key;",
+                                        true ).visitEnd();
+                }
+            }
+            fv.visitEnd();
+
+            generateAccessors( cw,
+                               internalName,
+                               fieldName,
+                               descriptor,
+                               signature );
+        }
+
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    private static void visitStringAnnotation( final AnnotationVisitor av,
+                                               final String value ) {
+        av.visit( "value",
+                  value );
+        av.visitEnd();
+    }
+
+    private static void generateAccessors( final ClassWriter cw,
+                                           final String internalName,
+                                           final String fieldName,
+                                           final String descriptor,
+                                           final String signature ) {
+        final MethodVisitor getter = cw.visitMethod( Opcodes.ACC_PUBLIC,
+                                                     "get" + capitalize( fieldName ),
+                                                     "()" + descriptor,
+                                                     signature == null ? null : "()" + signature,
+                                                     null );
+        getter.visitCode();
+        getter.visitVarInsn( Opcodes.ALOAD,
+                             0 );
+        getter.visitFieldInsn( Opcodes.GETFIELD,
+                               internalName,
+                               fieldName,
+                               descriptor );
+        getter.visitInsn( Opcodes.ARETURN );
+        getter.visitMaxs( 0,
+                          0 );
+        getter.visitEnd();
+
+        final MethodVisitor setter = cw.visitMethod( Opcodes.ACC_PUBLIC,
+                                                     "set" + capitalize( fieldName ),
+                                                     "(" + descriptor + ")V",
+                                                     signature == null ? null : "(" + signature + ")V",
+                                                     null );
+        setter.visitCode();
+        setter.visitVarInsn( Opcodes.ALOAD,
+                             0 );
+        setter.visitVarInsn( Opcodes.ALOAD,
+                             1 );
+        setter.visitFieldInsn( Opcodes.PUTFIELD,
+                               internalName,
+                               fieldName,
+                               descriptor );
+        setter.visitInsn( Opcodes.RETURN );
+        setter.visitMaxs( 0,
+                          0 );
+        setter.visitEnd();
+    }
+
+    private static String generateEnumDefinition( final int index,
+                                                  final int fieldsPerClass ) {
+        final StringBuilder sb = new StringBuilder();
+        for ( int j = 0; j < fieldsPerClass - 1; j += FIELD_TYPES.length ) {
+            sb.append( "'Type" ).append( index ).append( "." ).append( getFieldName( index,
+                                                                                   j ) ).append( "' : [" );
+            for ( int k = 0; k < 10; k++ ) {
+                sb.append( k == 0 ? "" : ", " ).append( "'value" ).append( k ).append( "'" );
+            }
+            sb.append( "]\n" );
+        }
+        return sb.toString();
+    }
+
+    //Serves the generated byte-code as resources, as ClassFactBuilder reads class files to identify classes
+    private static class SyntheticClassLoader extends ClassLoader {
+
+        private final Map<String, byte[]> resources = new HashMap<String, byte[]>();
+
+        private SyntheticClassLoader( final ClassLoader parent ) {
+            super( parent );
+        }
+
+        private Class<?> define( final String className,
+                                 final byte[] bytes ) {
+            resources.put( className.replace( '.',
+                                              '/' ) + ".class",
+                           bytes );
+            return defineClass( className,
+                                bytes,
+                                0,
+                                bytes.length );
+        }
+
+        @Override
+        public InputStream getResourceAsStream( final String name ) {
+            final byte[] bytes = resources.get( name );
+            if ( bytes != null ) {
+                return new ByteArrayInputStream( bytes );
+            }
+            return super.getResourceAsStream( name );
+        }
+    }
+
+}
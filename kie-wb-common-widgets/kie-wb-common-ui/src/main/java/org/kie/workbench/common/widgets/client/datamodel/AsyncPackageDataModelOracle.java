@@ -19,6 +19,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.drools.workbench.models.datamodel.imports.Import;
 import org.drools.workbench.models.datamodel.imports.Imports;
 import org.drools.workbench.models.datamodel.oracle.Annotation;
 import org.drools.workbench.models.datamodel.oracle.DropDownData;
@@ -167,6 +168,20 @@ public interface AsyncPackageDataModelOracle {
 
     void filter();
 
+    /**
+     * Update the filtered definitions following the addition of an import. Only definitions
+     * affected by the import are updated, rather than re-filtering all definitions.
+     * @param item The import that has been added to the Imports this DMO is filtered by
+     */
+    void filterImportAdded( final Import item );
+
+    /**
+     * Update the filtered definitions following the removal of an import. Only definitions
+     * affected by the import are updated, rather than re-filtering all definitions.
+     * @param item The import that has been removed from the Imports this DMO is filtered by
+     */
+    void filterImportRemoved( final Import item );
+
     // ####################################
     // Population of DMO
     // ####################################
@@ -16,16 +16,21 @@
 package org.kie.workbench.common.widgets.client.datamodel;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import javax.enterprise.context.Dependent;
 import javax.inject.Inject;
 
+import com.google.gwt.core.client.Scheduler;
+import org.drools.workbench.models.datamodel.imports.Import;
 import org.drools.workbench.models.datamodel.imports.Imports;
 import org.drools.workbench.models.datamodel.oracle.Annotation;
 import org.drools.workbench.models.datamodel.oracle.DataType;
@@ -37,6 +42,7 @@ import org.drools.workbench.models.datamodel.oracle.OperatorsOracle;
 import org.drools.workbench.models.datamodel.oracle.TypeSource;
 import org.drools.workbench.models.datamodel.rule.DSLSentence;
 import org.jboss.errai.common.client.api.Caller;
+import org.jboss.errai.common.client.api.ErrorCallback;
 import org.jboss.errai.common.client.api.RemoteCallback;
 import org.kie.workbench.common.services.datamodel.model.LazyModelField;
 import org.kie.workbench.common.services.datamodel.model.PackageDataModelOracleIncrementalPayload;
@@ -155,6 +161,15 @@ public class AsyncPackageDataModelOracleImpl implements AsyncPackageDataModelOra
     // Keep the link between fact name and the full qualified class name inside the package
     private FactNameToFQCNHandleRegistry factNameToFQCNHandleRegistry = new FactNameToFQCNHandleRegistry();
 
+    //Definitions referring to each type, used to filter a change to a single import. Null until first needed after the definitions last changed.
+    private TypeReferenceIndex typeReferences;
+
+    //Fact Types awaiting incremental content from the server, and the requests to complete once it has been loaded
+    private final Map<String, List<IncrementalContentRequest>> pendingUpdates = new LinkedHashMap<String, List<IncrementalContentRequest>>();
+
+    //Fact Types for which incremental content has been requested from the server but not yet received, and the requests to complete once it has been loaded
+    private final Map<String, List<IncrementalContentRequest>> inFlightUpdates = new HashMap<String, List<IncrementalContentRequest>>();
+
     //Public constructor is needed for Errai Marshaller :(
     public AsyncPackageDataModelOracleImpl() {
     }
@@ -288,23 +303,20 @@ public class AsyncPackageDataModelOracleImpl implements AsyncPackageDataModelOra
 
         //Load incremental content
         if ( isFactTypeAnEvent == null ) {
-            service.call( new RemoteCallback<PackageDataModelOracleIncrementalPayload>() {
-
-                @Override
-                public void callback( final PackageDataModelOracleIncrementalPayload dataModel ) {
-                    AsyncPackageDataModelOracleUtilities.populateDataModelOracle( AsyncPackageDataModelOracleImpl.this,
-                                                                                  dataModel );
-                    Boolean isFactTypeAnEvent = filteredEventTypes.get( factType );
-                    if ( isFactTypeAnEvent == null ) {
-                        isFactTypeAnEvent = false;
-                        filteredEventTypes.put( factType,
-                                                isFactTypeAnEvent );
-                    }
-                    callback.callback( isFactTypeAnEvent );
-                }
-            } ).getUpdates( resourcePath,
-                            imports,
-                            factType );
+            loadIncrementalContent( factType,
+                                    new RemoteCallback<PackageDataModelOracleIncrementalPayload>() {
+
+                                        @Override
+                                        public void callback( final PackageDataModelOracleIncrementalPayload dataModel ) {
+                                            Boolean isFactTypeAnEvent = filteredEventTypes.get( factType );
+                                            if ( isFactTypeAnEvent == null ) {
+                                                isFactTypeAnEvent = false;
+                                                filteredEventTypes.put( factType,
+                                                                        isFactTypeAnEvent );
+                                            }
+                                            callback.callback( isFactTypeAnEvent );
+                                        }
+                                    } );
 
         } else {
             callback.callback( isFactTypeAnEvent );
@@ -323,18 +335,15 @@ public class AsyncPackageDataModelOracleImpl implements AsyncPackageDataModelOra
 
         //Load incremental content
         if ( typeSource == null ) {
-            service.call( new RemoteCallback<PackageDataModelOracleIncrementalPayload>() {
-
-                @Override
-                public void callback( final PackageDataModelOracleIncrementalPayload dataModel ) {
-                    AsyncPackageDataModelOracleUtilities.populateDataModelOracle( AsyncPackageDataModelOracleImpl.this,
-                                                                                  dataModel );
-                    final TypeSource typeSource = filteredTypeSources.get( factType );
-                    callback.callback( typeSource );
-                }
-            } ).getUpdates( resourcePath,
-                            imports,
-                            factType );
+            loadIncrementalContent( factType,
+                                    new RemoteCallback<PackageDataModelOracleIncrementalPayload>() {
+
+                                        @Override
+                                        public void callback( final PackageDataModelOracleIncrementalPayload dataModel ) {
+                                            final TypeSource typeSource = filteredTypeSources.get( factType );
+                                            callback.callback( typeSource );
+                                        }
+                                    } );
 
         } else {
             callback.callback( typeSource );
@@ -371,17 +380,14 @@ public class AsyncPackageDataModelOracleImpl implements AsyncPackageDataModelOra
 
         //Load incremental content
         if ( superTypes == null ) {
-            service.call( new RemoteCallback<PackageDataModelOracleIncrementalPayload>() {
+            loadIncrementalContent( factType,
+                                    new RemoteCallback<PackageDataModelOracleIncrementalPayload>() {
 
-                @Override
-                public void callback( final PackageDataModelOracleIncrementalPayload dataModel ) {
-                    AsyncPackageDataModelOracleUtilities.populateDataModelOracle( AsyncPackageDataModelOracleImpl.this,
-                            dataModel );
-                    callback.callback( filteredSuperTypes.get( factType ) );
-                }
-            } ).getUpdates( resourcePath,
-                    imports,
-                    factType );
+                                        @Override
+                                        public void callback( final PackageDataModelOracleIncrementalPayload dataModel ) {
+                                            callback.callback( filteredSuperTypes.get( factType ) );
+                                        }
+                                    } );
 
         } else {
             callback.callback( superTypes );
@@ -400,23 +406,20 @@ public class AsyncPackageDataModelOracleImpl implements AsyncPackageDataModelOra
 
         //Load incremental content
         if ( typeAnnotations == null ) {
-            service.call( new RemoteCallback<PackageDataModelOracleIncrementalPayload>() {
-
-                @Override
-                public void callback( final PackageDataModelOracleIncrementalPayload dataModel ) {
-                    AsyncPackageDataModelOracleUtilities.populateDataModelOracle( AsyncPackageDataModelOracleImpl.this,
-                                                                                  dataModel );
-                    Set<Annotation> typeAnnotations = filteredTypeAnnotations.get( factType );
-                    if ( typeAnnotations == null ) {
-                        typeAnnotations = Collections.EMPTY_SET;
-                        filteredTypeAnnotations.put( factType,
-                                                     typeAnnotations );
-                    }
-                    callback.callback( typeAnnotations );
-                }
-            } ).getUpdates( resourcePath,
-                            imports,
-                            factType );
+            loadIncrementalContent( factType,
+                                    new RemoteCallback<PackageDataModelOracleIncrementalPayload>() {
+
+                                        @Override
+                                        public void callback( final PackageDataModelOracleIncrementalPayload dataModel ) {
+                                            Set<Annotation> typeAnnotations = filteredTypeAnnotations.get( factType );
+                                            if ( typeAnnotations == null ) {
+                                                typeAnnotations = Collections.EMPTY_SET;
+                                                filteredTypeAnnotations.put( factType,
+                                                                             typeAnnotations );
+                                            }
+                                            callback.callback( typeAnnotations );
+                                        }
+                                    } );
 
         } else {
             callback.callback( typeAnnotations );
@@ -435,23 +438,20 @@ public class AsyncPackageDataModelOracleImpl implements AsyncPackageDataModelOra
 
         //Load incremental content
         if ( typeFieldsAnnotations == null ) {
-            service.call( new RemoteCallback<PackageDataModelOracleIncrementalPayload>() {
-
-                @Override
-                public void callback( final PackageDataModelOracleIncrementalPayload dataModel ) {
-                    AsyncPackageDataModelOracleUtilities.populateDataModelOracle( AsyncPackageDataModelOracleImpl.this,
-                                                                                  dataModel );
-                    Map<String, Set<Annotation>> typeFieldsAnnotations = filteredTypeFieldsAnnotations.get( factType );
-                    if ( typeFieldsAnnotations == null ) {
-                        typeFieldsAnnotations = Collections.EMPTY_MAP;
-                        filteredTypeFieldsAnnotations.put( factType,
-                                                           typeFieldsAnnotations );
-                    }
-                    callback.callback( typeFieldsAnnotations );
-                }
-            } ).getUpdates( resourcePath,
-                            imports,
-                            factType );
+            loadIncrementalContent( factType,
+                                    new RemoteCallback<PackageDataModelOracleIncrementalPayload>() {
+
+                                        @Override
+                                        public void callback( final PackageDataModelOracleIncrementalPayload dataModel ) {
+                                            Map<String, Set<Annotation>> typeFieldsAnnotations = filteredTypeFieldsAnnotations.get( factType );
+                                            if ( typeFieldsAnnotations == null ) {
+                                                typeFieldsAnnotations = Collections.EMPTY_MAP;
+                                                filteredTypeFieldsAnnotations.put( factType,
+                                                                                   typeFieldsAnnotations );
+                                            }
+                                            callback.callback( typeFieldsAnnotations );
+                                        }
+                                    } );
 
         } else {
             callback.callback( typeFieldsAnnotations );
@@ -486,24 +486,19 @@ public class AsyncPackageDataModelOracleImpl implements AsyncPackageDataModelOra
 
         //Load incremental content
         if ( fields == null || fields.length == 0 ) {
-            service.call( new RemoteCallback<PackageDataModelOracleIncrementalPayload>() {
-
-                @Override
-                public void callback(final PackageDataModelOracleIncrementalPayload dataModel) {
-                    AsyncPackageDataModelOracleUtilities.populateDataModelOracle(
-                            AsyncPackageDataModelOracleImpl.this,
-                            dataModel);
-
-                    // This will stop an infinite loop if there are no fields to be found
-                    if (dataModel.getModelFields().get(factTypeName) == null || dataModel.getModelFields().get(factTypeName).length == 0) {
-                        callback.callback(new ModelField[0]);
-                    } else {
-                        getFieldCompletions(factType, callback);
-                    }
-                }
-            }).getUpdates( resourcePath,
-                           imports,
-                           factTypeName);
+            loadIncrementalContent( factTypeName,
+                                    new RemoteCallback<PackageDataModelOracleIncrementalPayload>() {
+
+                                        @Override
+                                        public void callback(final PackageDataModelOracleIncrementalPayload dataModel) {
+                                            // This will stop an infinite loop if there are no fields to be found
+                                            if (dataModel.getModelFields().get(factTypeName) == null || dataModel.getModelFields().get(factTypeName).length == 0) {
+                                                callback.callback(new ModelField[0]);
+                                            } else {
+                                                getFieldCompletions(factType, callback);
+                                            }
+                                        }
+                                    } );
 
         } else {
             callback.callback(fields);
@@ -768,19 +763,16 @@ public class AsyncPackageDataModelOracleImpl implements AsyncPackageDataModelOra
 
         //Load incremental content
         if ( methodInformation == null ) {
-            service.call( new RemoteCallback<PackageDataModelOracleIncrementalPayload>() {
-
-                @Override
-                public void callback( final PackageDataModelOracleIncrementalPayload dataModel ) {
-                    AsyncPackageDataModelOracleUtilities.populateDataModelOracle( AsyncPackageDataModelOracleImpl.this,
-                                                                                  dataModel );
-                    final List<MethodInfo> methodInformation = projectMethodInformation.get( fqcnByFactName );
-                    callback.callback( getMethodInfos( parameterCount,
-                                                       methodInformation ) );
-                }
-            } ).getUpdates( resourcePath,
-                            imports,
-                            fqcnByFactName );
+            loadIncrementalContent( fqcnByFactName,
+                                    new RemoteCallback<PackageDataModelOracleIncrementalPayload>() {
+
+                                        @Override
+                                        public void callback( final PackageDataModelOracleIncrementalPayload dataModel ) {
+                                            final List<MethodInfo> methodInformation = projectMethodInformation.get( fqcnByFactName );
+                                            callback.callback( getMethodInfos( parameterCount,
+                                                                               methodInformation ) );
+                                        }
+                                    } );
 
         } else {
             callback.callback( getMethodInfos( parameterCount,
@@ -815,19 +807,16 @@ public class AsyncPackageDataModelOracleImpl implements AsyncPackageDataModelOra
 
         //Load incremental content
         if ( methodInformation == null ) {
-            service.call( new RemoteCallback<PackageDataModelOracleIncrementalPayload>() {
-
-                @Override
-                public void callback( final PackageDataModelOracleIncrementalPayload dataModel ) {
-                    AsyncPackageDataModelOracleUtilities.populateDataModelOracle( AsyncPackageDataModelOracleImpl.this,
-                                                                                  dataModel );
-                    final List<MethodInfo> methodInformation = projectMethodInformation.get( fqcnFactName );
-                    callback.callback( getMethodParams( methodInformation,
-                                                        methodNameWithParams ) );
-                }
-            } ).getUpdates( resourcePath,
-                            imports,
-                            fqcnFactName );
+            loadIncrementalContent( fqcnFactName,
+                                    new RemoteCallback<PackageDataModelOracleIncrementalPayload>() {
+
+                                        @Override
+                                        public void callback( final PackageDataModelOracleIncrementalPayload dataModel ) {
+                                            final List<MethodInfo> methodInformation = projectMethodInformation.get( fqcnFactName );
+                                            callback.callback( getMethodParams( methodInformation,
+                                                                                methodNameWithParams ) );
+                                        }
+                                    } );
 
         } else {
             callback.callback( getMethodParams( methodInformation,
@@ -860,19 +849,16 @@ public class AsyncPackageDataModelOracleImpl implements AsyncPackageDataModelOra
 
         //Load incremental content
         if ( methodInformation == null ) {
-            service.call( new RemoteCallback<PackageDataModelOracleIncrementalPayload>() {
-
-                @Override
-                public void callback( final PackageDataModelOracleIncrementalPayload dataModel ) {
-                    AsyncPackageDataModelOracleUtilities.populateDataModelOracle( AsyncPackageDataModelOracleImpl.this,
-                                                                                  dataModel );
-                    final List<MethodInfo> methodInformation = projectMethodInformation.get( factType );
-                    callback.callback( getMethodInfo( methodInformation,
-                                                      methodNameWithParams ) );
-                }
-            } ).getUpdates( resourcePath,
-                            imports,
-                            factType );
+            loadIncrementalContent( factType,
+                                    new RemoteCallback<PackageDataModelOracleIncrementalPayload>() {
+
+                                        @Override
+                                        public void callback( final PackageDataModelOracleIncrementalPayload dataModel ) {
+                                            final List<MethodInfo> methodInformation = projectMethodInformation.get( factType );
+                                            callback.callback( getMethodInfo( methodInformation,
+                                                                              methodNameWithParams ) );
+                                        }
+                                    } );
 
         } else {
             callback.callback( getMethodInfo( methodInformation,
@@ -930,17 +916,14 @@ public class AsyncPackageDataModelOracleImpl implements AsyncPackageDataModelOra
 
         //Load incremental content
         if ( methodInformation == null ) {
-            service.call( new RemoteCallback<PackageDataModelOracleIncrementalPayload>() {
+            loadIncrementalContent( factType,
+                                    new RemoteCallback<PackageDataModelOracleIncrementalPayload>() {
 
-                @Override
-                public void callback( final PackageDataModelOracleIncrementalPayload dataModel ) {
-                    AsyncPackageDataModelOracleUtilities.populateDataModelOracle( AsyncPackageDataModelOracleImpl.this,
-                                                                                  dataModel );
-                    callback.callback( projectMethodInformation.get( factType ) );
-                }
-            } ).getUpdates( resourcePath,
-                            imports,
-                            factType );
+                                        @Override
+                                        public void callback( final PackageDataModelOracleIncrementalPayload dataModel ) {
+                                            callback.callback( projectMethodInformation.get( factType ) );
+                                        }
+                                    } );
 
         } else {
             callback.callback( methodInformation );
@@ -1229,6 +1212,140 @@ public class AsyncPackageDataModelOracleImpl implements AsyncPackageDataModelOra
         return enumLookupFields;
     }
 
+    // ####################################
+    // Incremental content
+    // ####################################
+
+    //Queue a request for the incremental content of a Fact Type. Requests made within the same event loop are sent
+    //to the server in a single batch; the oracle is populated with the combined content before the callbacks are invoked.
+    //Requests for a Fact Type already awaiting a response from the server are completed by that response.
+    private void loadIncrementalContent( final String factType,
+                                         final RemoteCallback<PackageDataModelOracleIncrementalPayload> callback ) {
+        loadIncrementalContent( factType,
+                                callback,
+                                null );
+    }
+
+    //As above, with an ErrorCallback invoked should the request carrying the Fact Type fail. If null, or if the
+    //ErrorCallback returns true, the failure is also passed to Errai's default error handling.
+    void loadIncrementalContent( final String factType,
+                                 final RemoteCallback<PackageDataModelOracleIncrementalPayload> callback,
+                                 final ErrorCallback<Object> errorCallback ) {
+        final IncrementalContentRequest request = new IncrementalContentRequest( callback,
+                                                                                 errorCallback );
+        final List<IncrementalContentRequest> inFlightRequests = inFlightUpdates.get( factType );
+        if ( inFlightRequests != null ) {
+            inFlightRequests.add( request );
+            return;
+        }
+
+        final boolean isFirstRequest = pendingUpdates.isEmpty();
+        List<IncrementalContentRequest> requests = pendingUpdates.get( factType );
+        if ( requests == null ) {
+            requests = new ArrayList<IncrementalContentRequest>();
+            pendingUpdates.put( factType,
+                                requests );
+        }
+        requests.add( request );
+        if ( isFirstRequest ) {
+            scheduleUpdates();
+        }
+    }
+
+    /**
+     * Schedule sending pending requests for incremental content to the server, once the current event loop ends.
+     */
+    protected void scheduleUpdates() {
+        Scheduler.get().scheduleFinally( new Scheduler.ScheduledCommand() {
+            @Override
+            public void execute() {
+                flushUpdates();
+            }
+        } );
+    }
+
+    void flushUpdates() {
+        if ( pendingUpdates.isEmpty() ) {
+            return;
+        }
+        final Map<String, List<IncrementalContentRequest>> updates = new LinkedHashMap<String, List<IncrementalContentRequest>>( pendingUpdates );
+        pendingUpdates.clear();
+
+        //The in-flight registry shares the batch's Lists of requests, so lookups joining an in-flight Fact Type are
+        //completed, or failed, together with the requests that were sent
+        inFlightUpdates.putAll( updates );
+
+        final RemoteCallback<PackageDataModelOracleIncrementalPayload> batchCallback = new RemoteCallback<PackageDataModelOracleIncrementalPayload>() {
+
+            @Override
+            public void callback( final PackageDataModelOracleIncrementalPayload dataModel ) {
+                clearInFlightUpdates( updates );
+                AsyncPackageDataModelOracleUtilities.populateDataModelOracle( AsyncPackageDataModelOracleImpl.this,
+                                                                              dataModel );
+                for ( List<IncrementalContentRequest> requests : updates.values() ) {
+                    for ( IncrementalContentRequest request : requests ) {
+                        request.callback.callback( dataModel );
+                    }
+                }
+            }
+        };
+
+        //Every request in the batch fails with it. The in-flight Fact Types are cleared first, so a failed request
+        //does not leave subsequent requests for the same Fact Types waiting indefinitely.
+        final ErrorCallback<Object> batchErrorCallback = new ErrorCallback<Object>() {
+
+            @Override
+            public boolean error( final Object message,
+                                  final Throwable throwable ) {
+                clearInFlightUpdates( updates );
+                boolean defaultErrorHandling = false;
+                for ( List<IncrementalContentRequest> requests : updates.values() ) {
+                    for ( IncrementalContentRequest request : requests ) {
+                        if ( request.errorCallback == null ) {
+                            defaultErrorHandling = true;
+                        } else if ( request.errorCallback.error( message,
+                                                                 throwable ) ) {
+                            defaultErrorHandling = true;
+                        }
+                    }
+                }
+                return defaultErrorHandling;
+            }
+        };
+
+        if ( updates.size() == 1 ) {
+            service.call( batchCallback,
+                          batchErrorCallback ).getUpdates( resourcePath,
+                                                           imports,
+                                                           updates.keySet().iterator().next() );
+        } else {
+            service.call( batchCallback,
+                          batchErrorCallback ).getUpdates( resourcePath,
+                                                           imports,
+                                                           new HashSet<String>( updates.keySet() ) );
+        }
+    }
+
+    private void clearInFlightUpdates( final Map<String, List<IncrementalContentRequest>> updates ) {
+        for ( String factType : updates.keySet() ) {
+            inFlightUpdates.remove( factType );
+        }
+    }
+
+    //A lookup awaiting incremental content, completed by the response to the batch carrying it or failed by its error
+    private static class IncrementalContentRequest {
+
+        private final RemoteCallback<PackageDataModelOracleIncrementalPayload> callback;
+        private final ErrorCallback<Object> errorCallback;
+
+        private IncrementalContentRequest( final RemoteCallback<PackageDataModelOracleIncrementalPayload> callback,
+                                           final ErrorCallback<Object> errorCallback ) {
+            this.callback = callback;
+            this.errorCallback = errorCallback;
+        }
+
+    }
+
     // ####################################
     // Imports
     // ####################################
@@ -1241,6 +1358,7 @@ public class AsyncPackageDataModelOracleImpl implements AsyncPackageDataModelOra
 
     @Override
     public void filter() {
+        typeReferences = null;
 
         //Filter and rename Model Fields based on package name and imports
         filteredModelFields = new HashMap<String, ModelField[]>();
@@ -1309,6 +1427,397 @@ public class AsyncPackageDataModelOracleImpl implements AsyncPackageDataModelOra
                                                                                                              projectFieldParametersType ) );
     }
 
+    @Override
+    public void filterImportAdded( final Import item ) {
+        final Imports previousImports = new Imports();
+        for ( Import imp : imports.getImports() ) {
+            if ( !imp.equals( item ) ) {
+                previousImports.addImport( imp );
+            }
+        }
+        filter( item,
+                previousImports );
+    }
+
+    @Override
+    public void filterImportRemoved( final Import item ) {
+        final Imports previousImports = new Imports();
+        for ( Import imp : imports.getImports() ) {
+            previousImports.addImport( imp );
+        }
+        if ( !previousImports.contains( item ) ) {
+            previousImports.addImport( item );
+        }
+        filter( item,
+                previousImports );
+    }
+
+    //Update only the filtered definitions affected by a change to a single import. Definitions affected are those of
+    //the imported type itself and those referring to it, which are renamed according to whether it is imported.
+    private void filter( final Import item,
+                         final Imports previousImports ) {
+        final String importQualifiedType = item.getType();
+        final String importTypeName = AsyncPackageDataModelOracleUtilities.getTypeName( importQualifiedType );
+
+        //Types sharing a name hide one another; let a full filter determine which is in scope
+        if ( isTypeNameInScope( importTypeName,
+                                importQualifiedType ) ) {
+            filter();
+            return;
+        }
+
+        final List<String> qualifiedTypes = getQualifiedTypes( importQualifiedType );
+        final TypeReferenceIndex references = getTypeReferences();
+
+        //Model Fields of the imported type, and of types with fields of the imported type. The Fact Name registry is
+        //updated separately, as filtering with the previous imports would register types no longer in scope.
+        final Map<String, ModelField[]> modelFields = getDefinitions( projectModelFields,
+                                                                      qualifiedTypes );
+        modelFields.putAll( getDefinitions( projectModelFields,
+                                            references.getModelFieldTypes( qualifiedTypes ) ) );
+        for ( String qualifiedType : modelFields.keySet() ) {
+            if ( AsyncPackageDataModelOracleUtilities.isInScope( packageName,
+                                                                 qualifiedType,
+                                                                 previousImports ) ) {
+                filteredModelFields.remove( AsyncPackageDataModelOracleUtilities.getTypeName( qualifiedType ) );
+            }
+        }
+        filteredModelFields.putAll( AsyncPackageDataModelOracleUtilities.filterModelFields( packageName,
+                                                                                            imports,
+                                                                                            modelFields,
+                                                                                            new FactNameToFQCNHandleRegistry() ) );
+        updateFactNameToFQCNHandleRegistry( importTypeName,
+                                            references );
+
+        //Globals of the imported type
+        final Map<String, String> globalTypes = getDefinitions( packageGlobalTypes,
+                                                                references.getGlobals( qualifiedTypes ) );
+        update( filteredGlobalTypes,
+                AsyncPackageDataModelOracleUtilities.filterGlobalTypes( packageName,
+                                                                        previousImports,
+                                                                        globalTypes ),
+                AsyncPackageDataModelOracleUtilities.filterGlobalTypes( packageName,
+                                                                        imports,
+                                                                        globalTypes ) );
+
+        final Map<String, Boolean> collectionTypes = getDefinitions( projectCollectionTypes,
+                                                                     qualifiedTypes );
+        update( filteredCollectionTypes,
+                AsyncPackageDataModelOracleUtilities.filterCollectionTypes( packageName,
+                                                                            previousImports,
+                                                                            collectionTypes ),
+                AsyncPackageDataModelOracleUtilities.filterCollectionTypes( packageName,
+                                                                            imports,
+                                                                            collectionTypes ) );
+
+        final Map<String, Boolean> eventTypes = getDefinitions( projectEventTypes,
+                                                                qualifiedTypes );
+        update( filteredEventTypes,
+                AsyncPackageDataModelOracleUtilities.filterEventTypes( packageName,
+                                                                       previousImports,
+                                                                       eventTypes ),
+                AsyncPackageDataModelOracleUtilities.filterEventTypes( packageName,
+                                                                       imports,
+                                                                       eventTypes ) );
+
+        final Map<String, TypeSource> typeSources = getDefinitions( projectTypeSources,
+                                                                    qualifiedTypes );
+        update( filteredTypeSources,
+                AsyncPackageDataModelOracleUtilities.filterTypeSources( packageName,
+                                                                        previousImports,
+                                                                        typeSources ),
+                AsyncPackageDataModelOracleUtilities.filterTypeSources( packageName,
+                                                                        imports,
+                                                                        typeSources ) );
+
+        //Super Types of the imported type, and of types extending the imported type
+        final Map<String, List<String>> superTypes = getDefinitions( projectSuperTypes,
+                                                                     qualifiedTypes );
+        superTypes.putAll( getDefinitions( projectSuperTypes,
+                                           references.getSubTypes( qualifiedTypes ) ) );
+        update( filteredSuperTypes,
+                AsyncPackageDataModelOracleUtilities.filterSuperTypes( packageName,
+                                                                       previousImports,
+                                                                       superTypes ),
+                AsyncPackageDataModelOracleUtilities.filterSuperTypes( packageName,
+                                                                       imports,
+                                                                       superTypes ) );
+
+        final Map<String, Set<Annotation>> typeAnnotations = getDefinitions( projectTypeAnnotations,
+                                                                             qualifiedTypes );
+        update( filteredTypeAnnotations,
+                AsyncPackageDataModelOracleUtilities.filterTypeAnnotations( packageName,
+                                                                            previousImports,
+                                                                            typeAnnotations ),
+                AsyncPackageDataModelOracleUtilities.filterTypeAnnotations( packageName,
+                                                                            imports,
+                                                                            typeAnnotations ) );
+
+        final Map<String, Map<String, Set<Annotation>>> typeFieldsAnnotations = getDefinitions( projectTypeFieldsAnnotations,
+                                                                                                qualifiedTypes );
+        update( filteredTypeFieldsAnnotations,
+                AsyncPackageDataModelOracleUtilities.filterTypeFieldsAnnotations( packageName,
+                                                                                  previousImports,
+                                                                                  typeFieldsAnnotations ),
+                AsyncPackageDataModelOracleUtilities.filterTypeFieldsAnnotations( packageName,
+                                                                                  imports,
+                                                                                  typeFieldsAnnotations ) );
+
+        //Enum definitions of fields on the imported type. Workbench enumerations are not filtered, but are hidden by Java enumerations.
+        final Map<String, String[]> enumLists = getDefinitions( projectJavaEnumLists,
+                                                                references.getEnumLists( qualifiedTypes ) );
+        final Map<String, String[]> previousEnumLists = AsyncPackageDataModelOracleUtilities.filterEnumDefinitions( packageName,
+                                                                                                                    previousImports,
+                                                                                                                    enumLists );
+        final Map<String, String[]> currentEnumLists = AsyncPackageDataModelOracleUtilities.filterEnumDefinitions( packageName,
+                                                                                                                   imports,
+                                                                                                                   enumLists );
+        update( filteredEnumLists,
+                previousEnumLists,
+                currentEnumLists );
+        for ( String key : previousEnumLists.keySet() ) {
+            if ( !currentEnumLists.containsKey( key ) && packageWorkbenchEnumLists.containsKey( key ) ) {
+                filteredEnumLists.put( key,
+                                       packageWorkbenchEnumLists.get( key ) );
+            }
+        }
+
+        //Field Parameter Types of fields on the imported type, and of fields parametrized by the imported type
+        final Map<String, String> fieldParametersType = getDefinitions( projectFieldParametersType,
+                                                                        references.getFieldParametersTypes( qualifiedTypes ) );
+        update( filteredFieldParametersType,
+                AsyncPackageDataModelOracleUtilities.filterFieldParametersTypes( packageName,
+                                                                                 previousImports,
+                                                                                 fieldParametersType ),
+                AsyncPackageDataModelOracleUtilities.filterFieldParametersTypes( packageName,
+                                                                                 imports,
+                                                                                 fieldParametersType ) );
+    }
+
+    //Check whether a type, other than that given, with the same name is in scope (i.e. in this package or imported)
+    private boolean isTypeNameInScope( final String typeName,
+                                       final String qualifiedType ) {
+        for ( Import imp : imports.getImports() ) {
+            if ( !imp.getType().equals( qualifiedType ) && typeName.equals( AsyncPackageDataModelOracleUtilities.getTypeName( imp.getType() ) ) ) {
+                return true;
+            }
+        }
+        final String packageQualifiedType = ( packageName.isEmpty() ? "" : packageName + "." ) + typeName;
+        return !packageQualifiedType.equals( qualifiedType ) && projectModelFields.containsKey( packageQualifiedType );
+    }
+
+    //Imports use '.' to separate nested class names whereas the DMO uses '$'. Return the possible names of the type in the DMO.
+    private static List<String> getQualifiedTypes( final String importQualifiedType ) {
+        final List<String> qualifiedTypes = new ArrayList<String>();
+        String qualifiedType = importQualifiedType;
+        qualifiedTypes.add( qualifiedType );
+        int dotIndex = qualifiedType.lastIndexOf( "." );
+        while ( dotIndex != -1 ) {
+            qualifiedType = qualifiedType.substring( 0,
+                                                     dotIndex ) + "$" + qualifiedType.substring( dotIndex + 1 );
+            qualifiedTypes.add( qualifiedType );
+            dotIndex = qualifiedType.lastIndexOf( "." );
+        }
+        return qualifiedTypes;
+    }
+
+    private static <T> Map<String, T> getDefinitions( final Map<String, T> definitions,
+                                                      final Collection<String> keys ) {
+        final Map<String, T> result = new HashMap<String, T>();
+        for ( String key : keys ) {
+            if ( definitions.containsKey( key ) ) {
+                result.put( key,
+                            definitions.get( key ) );
+            }
+        }
+        return result;
+    }
+
+    //Map a Fact Name to the type of that name now in scope or, if none is, to any type of that name, as a full filter would
+    private void updateFactNameToFQCNHandleRegistry( final String typeName,
+                                                     final TypeReferenceIndex references ) {
+        String qualifiedType = null;
+        for ( String candidate : references.getTypes( typeName ) ) {
+            if ( AsyncPackageDataModelOracleUtilities.isInScope( packageName,
+                                                                 candidate,
+                                                                 imports ) ) {
+                qualifiedType = candidate;
+                break;
+            }
+            if ( qualifiedType == null ) {
+                qualifiedType = candidate;
+            }
+        }
+        if ( qualifiedType != null ) {
+            factNameToFQCNHandleRegistry.add( typeName,
+                                              qualifiedType );
+        }
+    }
+
+    private TypeReferenceIndex getTypeReferences() {
+        if ( typeReferences == null ) {
+            typeReferences = new TypeReferenceIndex( projectModelFields,
+                                                     projectMethodInformation,
+                                                     projectSuperTypes,
+                                                     projectJavaEnumLists,
+                                                     projectFieldParametersType,
+                                                     packageGlobalTypes );
+        }
+        return typeReferences;
+    }
+
+    //Keys of the definitions belonging to, or referring to, each qualified type
+    private static class TypeReferenceIndex {
+
+        //Fact Name to the types of that name
+        private final Map<String, Set<String>> types = new HashMap<String, Set<String>>();
+
+        //Type to the types with fields of that type
+        private final Map<String, Set<String>> modelFieldTypes = new HashMap<String, Set<String>>();
+
+        //Type to its sub-types
+        private final Map<String, Set<String>> subTypes = new HashMap<String, Set<String>>();
+
+        //Type to the keys of enumerations of its fields
+        private final Map<String, Set<String>> enumLists = new HashMap<String, Set<String>>();
+
+        //Type to the keys of field parameter types of its fields, or parametrized by the type
+        private final Map<String, Set<String>> fieldParametersTypes = new HashMap<String, Set<String>>();
+
+        //Type to the names of globals of that type
+        private final Map<String, Set<String>> globals = new HashMap<String, Set<String>>();
+
+        private TypeReferenceIndex( final Map<String, ModelField[]> projectModelFields,
+                                    final Map<String, List<MethodInfo>> projectMethodInformation,
+                                    final Map<String, List<String>> projectSuperTypes,
+                                    final Map<String, String[]> projectJavaEnumLists,
+                                    final Map<String, String> projectFieldParametersType,
+                                    final Map<String, String> packageGlobalTypes ) {
+            for ( Map.Entry<String, ModelField[]> e : projectModelFields.entrySet() ) {
+                put( types,
+                     AsyncPackageDataModelOracleUtilities.getTypeName( e.getKey() ),
+                     e.getKey() );
+                if ( e.getValue() != null ) {
+                    for ( ModelField mf : e.getValue() ) {
+                        put( modelFieldTypes,
+                             mf.getClassName(),
+                             e.getKey() );
+                        put( modelFieldTypes,
+                             mf.getType(),
+                             e.getKey() );
+                    }
+                }
+            }
+            for ( String qualifiedType : projectMethodInformation.keySet() ) {
+                put( types,
+                     AsyncPackageDataModelOracleUtilities.getTypeName( qualifiedType ),
+                     qualifiedType );
+            }
+            for ( Map.Entry<String, List<String>> e : projectSuperTypes.entrySet() ) {
+                if ( e.getValue() != null ) {
+                    for ( String superType : e.getValue() ) {
+                        put( subTypes,
+                             superType,
+                             e.getKey() );
+                    }
+                }
+            }
+            for ( String key : projectJavaEnumLists.keySet() ) {
+                put( enumLists,
+                     getFieldOwner( key ),
+                     key );
+            }
+            for ( Map.Entry<String, String> e : projectFieldParametersType.entrySet() ) {
+                put( fieldParametersTypes,
+                     getFieldOwner( e.getKey() ),
+                     e.getKey() );
+                put( fieldParametersTypes,
+                     e.getValue(),
+                     e.getKey() );
+            }
+            for ( Map.Entry<String, String> e : packageGlobalTypes.entrySet() ) {
+                put( globals,
+                     e.getValue(),
+                     e.getKey() );
+            }
+        }
+
+        private Set<String> getTypes( final String typeName ) {
+            final Set<String> result = types.get( typeName );
+            return result == null ? Collections.<String>emptySet() : result;
+        }
+
+        private Set<String> getModelFieldTypes( final List<String> qualifiedTypes ) {
+            return get( modelFieldTypes,
+                        qualifiedTypes );
+        }
+
+        private Set<String> getSubTypes( final List<String> qualifiedTypes ) {
+            return get( subTypes,
+                        qualifiedTypes );
+        }
+
+        private Set<String> getEnumLists( final List<String> qualifiedTypes ) {
+            return get( enumLists,
+                        qualifiedTypes );
+        }
+
+        private Set<String> getFieldParametersTypes( final List<String> qualifiedTypes ) {
+            return get( fieldParametersTypes,
+                        qualifiedTypes );
+        }
+
+        private Set<String> getGlobals( final List<String> qualifiedTypes ) {
+            return get( globals,
+                        qualifiedTypes );
+        }
+
+        //The type of a key of the form "qualifiedType#fieldName"
+        private static String getFieldOwner( final String key ) {
+            final int hashIndex = key.lastIndexOf( "#" );
+            return hashIndex == -1 ? key : key.substring( 0,
+                                                          hashIndex );
+        }
+
+        private static void put( final Map<String, Set<String>> index,
+                                 final String qualifiedType,
+                                 final String key ) {
+            if ( qualifiedType == null ) {
+                return;
+            }
+            Set<String> keys = index.get( qualifiedType );
+            if ( keys == null ) {
+                keys = new HashSet<String>();
+                index.put( qualifiedType,
+                           keys );
+            }
+            keys.add( key );
+        }
+
+        private static Set<String> get( final Map<String, Set<String>> index,
+                                        final List<String> qualifiedTypes ) {
+            final Set<String> result = new HashSet<String>();
+            for ( String qualifiedType : qualifiedTypes ) {
+                final Set<String> keys = index.get( qualifiedType );
+                if ( keys != null ) {
+                    result.addAll( keys );
+                }
+            }
+            return result;
+        }
+
+    }
+
+    //Replace the filtered definitions previously derived from a subset of definitions with those currently derived
+    private static <T> void update( final Map<String, T> filteredDefinitions,
+                                    final Map<String, T> previousDefinitions,
+                                    final Map<String, T> currentDefinitions ) {
+        for ( String key : previousDefinitions.keySet() ) {
+            filteredDefinitions.remove( key );
+        }
+        filteredDefinitions.putAll( currentDefinitions );
+    }
+
     // ####################################
     // Population of DMO
     // ####################################
@@ -1326,11 +1835,13 @@ public class AsyncPackageDataModelOracleImpl implements AsyncPackageDataModelOra
     @Override
     public void addModelFields( final Map<String, ModelField[]> modelFields ) {
         this.projectModelFields.putAll( modelFields );
+        this.typeReferences = null;
     }
 
     @Override
     public void addFieldParametersType( final Map<String, String> fieldParametersType ) {
         this.projectFieldParametersType.putAll( fieldParametersType );
+        this.typeReferences = null;
     }
 
     @Override
@@ -1346,6 +1857,7 @@ public class AsyncPackageDataModelOracleImpl implements AsyncPackageDataModelOra
     @Override
     public void addSuperTypes( final Map<String, List<String>> superTypes ) {
         this.projectSuperTypes.putAll( superTypes );
+        this.typeReferences = null;
     }
 
     @Override
@@ -1361,11 +1873,13 @@ public class AsyncPackageDataModelOracleImpl implements AsyncPackageDataModelOra
     @Override
     public void addJavaEnumDefinitions( final Map<String, String[]> dataEnumLists ) {
         this.projectJavaEnumLists.putAll( dataEnumLists );
+        this.typeReferences = null;
     }
 
     @Override
     public void addMethodInformation( final Map<String, List<MethodInfo>> methodInformation ) {
         this.projectMethodInformation.putAll( methodInformation );
+        this.typeReferences = null;
     }
 
     @Override
@@ -1396,6 +1910,7 @@ public class AsyncPackageDataModelOracleImpl implements AsyncPackageDataModelOra
     @Override
     public void addGlobals( final Map<String, String> packageGlobalTypes ) {
         this.packageGlobalTypes.putAll( packageGlobalTypes );
+        this.typeReferences = null;
     }
 
 }
@@ -52,6 +52,7 @@ public class AsyncPackageDataModelOracleUtilities {
         oracle.addTypeAnnotations( payload.getTypeAnnotations() );
         oracle.addTypeFieldsAnnotations( payload.getTypeFieldsAnnotations() );
         oracle.addMethodInformation( payload.getMethodInformation() );
+        oracle.addWorkbenchEnumDefinitions( payload.getWorkbenchEnumDefinitions() );
         oracle.addCollectionTypes( payload.getCollectionTypes() );
     }
 
@@ -459,6 +460,14 @@ public class AsyncPackageDataModelOracleUtilities {
         return correctedMethodInformation;
     }
 
+    //Check whether a type is in scope, i.e. in the package or imported
+    public static boolean isInScope( final String packageName,
+                                     final String qualifiedType,
+                                     final Imports imports ) {
+        return getPackageName( qualifiedType ).equals( packageName ) || isImported( qualifiedType,
+                                                                                    imports );
+    }
+
     private static boolean isImported( final String qualifiedType,
                                        final Imports imports ) {
         final Import item = new Import( qualifiedType.replaceAll( "\\$",
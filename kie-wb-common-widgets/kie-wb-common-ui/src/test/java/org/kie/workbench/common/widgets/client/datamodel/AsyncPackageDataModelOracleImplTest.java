@@ -16,10 +16,12 @@
 package org.kie.workbench.common.widgets.client.datamodel;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.drools.workbench.models.datamodel.imports.Import;
 import org.drools.workbench.models.datamodel.imports.Imports;
@@ -53,7 +55,7 @@ public class AsyncPackageDataModelOracleImplTest {
 
     @Before
     public void setUp() throws Exception {
-        AsyncPackageDataModelOracleImpl oracle = new AsyncPackageDataModelOracleImpl();
+        AsyncPackageDataModelOracleImpl oracle = new MockAsyncPackageDataModelOracleImpl();
         oracle.service = new Service();
 
         personPayload = createPersonPayload();
@@ -313,6 +315,293 @@ public class AsyncPackageDataModelOracleImplTest {
         verify(connectiveOperatorsCallback).callback(any(String[].class));
     }
 
+    @Test
+    public void testLookupsInSameEventLoopAreBatched() throws Exception {
+        final Service service = new Service();
+        final int[] scheduled = new int[1];
+        final AsyncPackageDataModelOracleImpl oracle = new AsyncPackageDataModelOracleImpl() {
+            @Override
+            protected void scheduleUpdates() {
+                scheduled[0]++;
+            }
+        };
+        oracle.service = service;
+        oracle.projectModelFields.putAll(createProjectModelFields());
+        oracle.filter(createImports());
+
+        Callback<ModelField[]> personCallback = spy(new Callback<ModelField[]>() {
+            @Override
+            public void callback(ModelField[] result) {
+                assertEquals(2, result.length);
+            }
+        });
+        Callback<ModelField[]> addressCallback = spy(new Callback<ModelField[]>() {
+            @Override
+            public void callback(ModelField[] result) {
+                assertEquals(3, result.length);
+            }
+        });
+
+        oracle.getFieldCompletions("Person", personCallback);
+        oracle.getFieldCompletions("org.Address", addressCallback);
+
+        assertEquals(1, scheduled[0]);
+        verify(personCallback, never()).callback(any(ModelField[].class));
+        verify(addressCallback, never()).callback(any(ModelField[].class));
+
+        oracle.flushUpdates();
+
+        assertEquals(2, service.batchedFactTypes.size());
+        assertTrue(service.batchedFactTypes.contains("org.test.Person"));
+        assertTrue(service.batchedFactTypes.contains("org.Address"));
+        verify(personCallback).callback(any(ModelField[].class));
+        verify(addressCallback).callback(any(ModelField[].class));
+    }
+
+    @Test
+    public void testFailedBatchFailsEveryRequest() throws Exception {
+        final IncrementalDataModelService remote = mock(IncrementalDataModelService.class);
+        final List<ErrorCallback<Object>> errorCallbacks = new ArrayList<ErrorCallback<Object>>();
+        final AsyncPackageDataModelOracleImpl oracle = new AsyncPackageDataModelOracleImpl() {
+            @Override
+            protected void scheduleUpdates() {
+                //Flushed explicitly below
+            }
+        };
+        oracle.service = new Caller<IncrementalDataModelService>() {
+            @Override
+            public IncrementalDataModelService call() {
+                return remote;
+            }
+
+            @Override
+            public IncrementalDataModelService call(RemoteCallback<?> remoteCallback) {
+                return remote;
+            }
+
+            @Override
+            public IncrementalDataModelService call(RemoteCallback<?> remoteCallback, ErrorCallback<?> errorCallback) {
+                errorCallbacks.add((ErrorCallback<Object>) errorCallback);
+                return remote;
+            }
+        };
+        oracle.projectModelFields.putAll(createProjectModelFields());
+        oracle.filter(createImports());
+
+        final RemoteCallback<PackageDataModelOracleIncrementalPayload> personCallback = mock(RemoteCallback.class);
+        final RemoteCallback<PackageDataModelOracleIncrementalPayload> addressCallback = mock(RemoteCallback.class);
+        final ErrorCallback<Object> personErrorCallback = mock(ErrorCallback.class);
+        final ErrorCallback<Object> addressErrorCallback = mock(ErrorCallback.class);
+
+        oracle.loadIncrementalContent("org.test.Person", personCallback, personErrorCallback);
+        oracle.loadIncrementalContent("org.Address", addressCallback, addressErrorCallback);
+        oracle.flushUpdates();
+
+        assertEquals(1, errorCallbacks.size());
+        final Throwable failure = new RuntimeException("failed");
+        //Neither request wants default error handling
+        assertFalse(errorCallbacks.get(0).error("message", failure));
+
+        verify(personErrorCallback).error("message", failure);
+        verify(addressErrorCallback).error("message", failure);
+        verify(personCallback, never()).callback(any(PackageDataModelOracleIncrementalPayload.class));
+        verify(addressCallback, never()).callback(any(PackageDataModelOracleIncrementalPayload.class));
+
+        //A failed batch does not block later requests for the same Fact Types
+        oracle.loadIncrementalContent("org.test.Person", personCallback, personErrorCallback);
+        oracle.flushUpdates();
+        assertEquals(2, errorCallbacks.size());
+    }
+
+    @Test
+    public void testConcurrentLookupsShareInFlightRequest() throws Exception {
+        final IncrementalDataModelService remote = mock(IncrementalDataModelService.class);
+        final List<RemoteCallback<PackageDataModelOracleIncrementalPayload>> remoteCallbacks = new ArrayList<RemoteCallback<PackageDataModelOracleIncrementalPayload>>();
+        final AsyncPackageDataModelOracleImpl oracle = new MockAsyncPackageDataModelOracleImpl();
+        oracle.service = new Caller<IncrementalDataModelService>() {
+            @Override
+            public IncrementalDataModelService call() {
+                return remote;
+            }
+
+            @Override
+            public IncrementalDataModelService call(RemoteCallback<?> remoteCallback) {
+                remoteCallbacks.add((RemoteCallback<PackageDataModelOracleIncrementalPayload>) remoteCallback);
+                return remote;
+            }
+
+            @Override
+            public IncrementalDataModelService call(RemoteCallback<?> remoteCallback, ErrorCallback<?> errorCallback) {
+                remoteCallbacks.add((RemoteCallback<PackageDataModelOracleIncrementalPayload>) remoteCallback);
+                return remote;
+            }
+        };
+        oracle.projectModelFields.putAll(createProjectModelFields());
+        oracle.filter(createImports());
+
+        Callback<ModelField[]> callback1 = spy(new Callback<ModelField[]>() {
+            @Override
+            public void callback(ModelField[] result) {
+                assertEquals(2, result.length);
+            }
+        });
+        Callback<ModelField[]> callback2 = spy(new Callback<ModelField[]>() {
+            @Override
+            public void callback(ModelField[] result) {
+                assertEquals(2, result.length);
+            }
+        });
+
+        oracle.getFieldCompletions("Person", callback1);
+        oracle.getFieldCompletions("Person", callback2);
+
+        //The second lookup is completed by the first request
+        verify(remote, times(1)).getUpdates(any(Path.class), any(Imports.class), eq("org.test.Person"));
+        assertEquals(1, remoteCallbacks.size());
+
+        remoteCallbacks.get(0).callback(personPayload);
+
+        verify(callback1).callback(any(ModelField[].class));
+        verify(callback2).callback(any(ModelField[].class));
+    }
+
+    @Test
+    public void testFailedInFlightRequestFailsJoinedLookups() throws Exception {
+        final IncrementalDataModelService remote = mock(IncrementalDataModelService.class);
+        final List<ErrorCallback<Object>> errorCallbacks = new ArrayList<ErrorCallback<Object>>();
+        final AsyncPackageDataModelOracleImpl oracle = new MockAsyncPackageDataModelOracleImpl();
+        oracle.service = new Caller<IncrementalDataModelService>() {
+            @Override
+            public IncrementalDataModelService call() {
+                return remote;
+            }
+
+            @Override
+            public IncrementalDataModelService call(RemoteCallback<?> remoteCallback) {
+                return remote;
+            }
+
+            @Override
+            public IncrementalDataModelService call(RemoteCallback<?> remoteCallback, ErrorCallback<?> errorCallback) {
+                errorCallbacks.add((ErrorCallback<Object>) errorCallback);
+                return remote;
+            }
+        };
+        oracle.projectModelFields.putAll(createProjectModelFields());
+        oracle.filter(createImports());
+
+        final RemoteCallback<PackageDataModelOracleIncrementalPayload> callback1 = mock(RemoteCallback.class);
+        final RemoteCallback<PackageDataModelOracleIncrementalPayload> callback2 = mock(RemoteCallback.class);
+        final ErrorCallback<Object> errorCallback1 = mock(ErrorCallback.class);
+        final ErrorCallback<Object> errorCallback2 = mock(ErrorCallback.class);
+        when(errorCallback2.error(any(), any(Throwable.class))).thenReturn(true);
+
+        oracle.loadIncrementalContent("org.test.Person", callback1, errorCallback1);
+        //Sent immediately in unit tests, so the second lookup joins the in-flight request
+        oracle.loadIncrementalContent("org.test.Person", callback2, errorCallback2);
+
+        assertEquals(1, errorCallbacks.size());
+        final Throwable failure = new RuntimeException("failed");
+        //The joined lookup asks for default error handling
+        assertTrue(errorCallbacks.get(0).error("message", failure));
+
+        verify(errorCallback1).error("message", failure);
+        verify(errorCallback2).error("message", failure);
+        verify(callback1, never()).callback(any(PackageDataModelOracleIncrementalPayload.class));
+        verify(callback2, never()).callback(any(PackageDataModelOracleIncrementalPayload.class));
+    }
+
+    @Test
+    public void testFilterImportAddedAndRemoved() throws Exception {
+        final AsyncPackageDataModelOracleImpl oracle = new MockAsyncPackageDataModelOracleImpl();
+        oracle.service = new MockIncrementalDataModelServiceCaller();
+        oracle.projectModelFields.putAll(personPayload.getModelFields());
+        oracle.projectModelFields.putAll(addressPayload.getModelFields());
+        oracle.projectEventTypes.put("org.Address", true);
+
+        final Imports imports = createImports();
+        oracle.filter(imports);
+
+        assertFalse(Arrays.asList(oracle.getFactTypes()).contains("Address"));
+        assertFieldClassName(oracle, "Person", "address", "org.Address");
+
+        final Import addressImport = new Import("org.Address");
+        imports.addImport(addressImport);
+        oracle.filterImportAdded(addressImport);
+
+        assertTrue(Arrays.asList(oracle.getFactTypes()).contains("Address"));
+        assertFieldClassName(oracle, "Person", "address", "Address");
+        assertIsFactTypeAnEvent(oracle, "Address", true);
+
+        imports.getImports().remove(addressImport);
+        oracle.filterImportRemoved(addressImport);
+
+        assertFalse(Arrays.asList(oracle.getFactTypes()).contains("Address"));
+        assertFieldClassName(oracle, "Person", "address", "org.Address");
+        assertIsFactTypeAnEvent(oracle, "Address", false);
+    }
+
+    @Test
+    public void testFilterImportUpdatesFactNameRegistry() throws Exception {
+        final AsyncPackageDataModelOracleImpl oracle = new MockAsyncPackageDataModelOracleImpl();
+        oracle.service = new MockIncrementalDataModelServiceCaller();
+        oracle.setPackageName("org.test");
+        oracle.projectModelFields.putAll(addressPayload.getModelFields());
+        oracle.projectModelFields.put("org.other.Address", new ModelField[]{getLazyThisField("org.other.Address")});
+        oracle.projectMethodInformation.put("org.util.Helper", new ArrayList<MethodInfo>());
+
+        final Imports imports = new Imports();
+        oracle.filter(imports);
+
+        final Import otherAddressImport = new Import("org.other.Address");
+        imports.addImport(otherAddressImport);
+        oracle.filterImportAdded(otherAddressImport);
+        assertEquals("org.other.Address", oracle.getFQCNByFactName("Address"));
+
+        //The removed import no longer decides the type of the Fact Name
+        imports.getImports().remove(otherAddressImport);
+        oracle.filterImportRemoved(otherAddressImport);
+        final Import addressImport = new Import("org.Address");
+        imports.addImport(addressImport);
+        oracle.filterImportAdded(addressImport);
+        assertEquals("org.Address", oracle.getFQCNByFactName("Address"));
+        assertTrue(Arrays.asList(oracle.getFactTypes()).contains("Address"));
+
+        //Types with only method information are registered as a full filter would
+        final Import helperImport = new Import("org.util.Helper");
+        imports.addImport(helperImport);
+        oracle.filterImportAdded(helperImport);
+        assertEquals("org.util.Helper", oracle.getFQCNByFactName("Helper"));
+    }
+
+    private void assertFieldClassName(final AsyncPackageDataModelOracle oracle, final String factType, final String fieldName, final String expected) {
+        Callback<ModelField[]> callback = spy(new Callback<ModelField[]>() {
+            @Override
+            public void callback(ModelField[] result) {
+                for (ModelField field : result) {
+                    if (field.getName().equals(fieldName)) {
+                        assertEquals(expected, field.getClassName());
+                        return;
+                    }
+                }
+                fail("Field " + fieldName + " not found");
+            }
+        });
+        oracle.getFieldCompletions(factType, callback);
+        verify(callback).callback(any(ModelField[].class));
+    }
+
+    private void assertIsFactTypeAnEvent(final AsyncPackageDataModelOracle oracle, final String factType, final boolean expected) {
+        Callback<Boolean> callback = spy(new Callback<Boolean>() {
+            @Override
+            public void callback(Boolean result) {
+                assertEquals(expected, result);
+            }
+        });
+        oracle.isFactTypeAnEvent(factType, callback);
+        verify(callback).callback(any(Boolean.class));
+    }
+
     private LazyModelField getLazyThisField(String clazz) {
         return new LazyModelField(
                 "this",
@@ -327,6 +616,7 @@ public class AsyncPackageDataModelOracleImplTest {
             implements Caller<IncrementalDataModelService> {
 
         private RemoteCallback<PackageDataModelOracleIncrementalPayload> callback;
+        private Set<String> batchedFactTypes;
         private IncrementalDataModelService service = new IncrementalDataModelService() {
             @Override
             public PackageDataModelOracleIncrementalPayload getUpdates(Path resourcePath, Imports imports, String factType) {
@@ -344,6 +634,20 @@ public class AsyncPackageDataModelOracleImplTest {
 
                 return null;
             }
+
+            @Override
+            public PackageDataModelOracleIncrementalPayload getUpdates(Path resourcePath, Imports imports, Set<String> factTypes) {
+                batchedFactTypes = factTypes;
+
+                PackageDataModelOracleIncrementalPayload payload = new PackageDataModelOracleIncrementalPayload();
+                HashMap<String, ModelField[]> modelFields = new HashMap<String, ModelField[]>();
+                modelFields.putAll(personPayload.getModelFields());
+                modelFields.putAll(addressPayload.getModelFields());
+                payload.setModelFields(modelFields);
+                callback.callback(payload);
+
+                return null;
+            }
         };
 
         @Override
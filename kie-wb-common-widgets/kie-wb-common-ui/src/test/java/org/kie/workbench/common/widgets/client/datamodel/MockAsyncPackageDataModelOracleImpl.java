@@ -9,4 +9,10 @@ public class MockAsyncPackageDataModelOracleImpl extends AsyncPackageDataModelOr
         this.service = service;
     }
 
+    //There is no event loop in unit tests, so requests are sent immediately
+    @Override
+    protected void scheduleUpdates() {
+        flushUpdates();
+    }
+
 }
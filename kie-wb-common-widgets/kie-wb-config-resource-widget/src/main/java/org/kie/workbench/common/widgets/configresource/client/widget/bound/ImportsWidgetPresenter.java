@@ -78,7 +78,7 @@ public class ImportsWidgetPresenter implements ImportsWidgetView.Presenter,
     @Override
     public void onAddImport( final Import importType ) {
         //resourceImports.getImports().add( importType );
-        dmo.filter();
+        dmo.filterImportAdded( importType );
 
         //Signal change to any other interested consumers (e.g. some editors support rendering of unknown fact-types)
         importAddedEvent.fire( new ImportAddedEvent( dmo,
@@ -88,7 +88,7 @@ public class ImportsWidgetPresenter implements ImportsWidgetView.Presenter,
     @Override
     public void onRemoveImport( final Import importType ) {
         //resourceImports.removeImport( importType );
-        dmo.filter();
+        dmo.filterImportRemoved( importType );
 
         //Signal change to any other interested consumers (e.g. some editors support rendering of unknown fact-types)
         importRemovedEvent.fire( new ImportRemovedEvent( dmo,